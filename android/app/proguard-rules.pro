@@ -1,21 +1,29 @@
-# Add project specific ProGuard rules here.
-# You can control the set of applied configuration files using the
-# proguardFiles setting in build.gradle.
-#
-# For more details, see
-#   http://developer.android.com/guide/developing/tools/proguard.html
+# Regras do app para o R8 (release, full mode). As bibliotecas (Capacitor, plugins, WorkManager,
+# AndroidX) trazem as próprias consumer rules; aqui ficam só as classes do app carregadas por reflexão.
+# verifyReleaseKeepRules (release-metrics.gradle) confere no mapping.txt que todas continuam presentes
+# e com o nome original.
 
-# If your project uses WebView with JS, uncomment the following
-# and specify the fully qualified class name to the JavaScript interface
-# class:
-#-keepclassmembers class fqcn.of.javascript.interface.for.webview {
-#   public *;
-#}
+# Stack traces legíveis: mantém linhas, esconde o nome do arquivo
+-keepattributes SourceFile,LineNumberTable
+-renamesourcefileattribute SourceFile
 
-# Uncomment this to preserve the line number information for
-# debugging stack traces.
-#-keepattributes SourceFile,LineNumberTable
+# Capacitor lê @CapacitorPlugin/@PluginMethod em runtime e despacha as chamadas do JS pelo nome do método
+-keepattributes RuntimeVisibleAnnotations,AnnotationDefault
+-keep @com.getcapacitor.annotation.CapacitorPlugin public class app.ignisverbi.** {
+    public <init>();
+    @com.getcapacitor.PluginMethod public <methods>;
+}
 
-# If you keep the line number information, uncomment this to
-# hide the original source file name.
-#-renamesourcefileattribute SourceFile
+# WorkManager instancia os workers pelo nome da classe gravado no banco (sobrevive a updates do app)
+-keep class app.ignisverbi.** extends androidx.work.ListenableWorker {
+    public <init>(android.content.Context, androidx.work.WorkerParameters);
+}
+
+# window.DevotaHeadlessHost do WebView offscreen (HeadlessWebViewHost)
+-keepattributes JavascriptInterface
+-keep class app.ignisverbi.HeadlessWebViewHost$JsBridge {
+    @android.webkit.JavascriptInterface public <methods>;
+}
+
+# Activities, receivers, services e a Application vêm do manifest (regras geradas pelo AAPT);
+# WidgetConfigActivity e os AppWidgetProviders também são referenciados pelo launcher via XML
@@ -0,0 +1,122 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import org.json.JSONObject;
+
+/**
+ * Livros estáticos no contêiner nativo (BookContentStore): importação, sumário e capítulos sob demanda.
+ * Tudo roda no executor do BookContentStore, fora da thread do plugin.
+ */
+@CapacitorPlugin(name = "BookContent")
+public class BookContentPlugin extends Plugin {
+  /**
+   * Importa um livro estático para o contêiner nativo (BookContentStore): { bookId, contentVersion,
+   * webPath (asset embutido) | url | json }. O JSON é lido em fluxo no nativo; grava também o índice de palavras.
+   */
+  @PluginMethod
+  public void importBook(PluginCall call) {
+    Context ctx = getContext();
+    String bookId = call.getString("bookId");
+    String contentVersion = call.getString("contentVersion", "");
+    String webPath = call.getString("webPath");
+    String url = call.getString("url");
+    String json = call.getString("json");
+    if (bookId == null || (webPath == null && url == null && json == null)) {
+      call.reject("bookId e webPath, url ou json obrigatórios");
+      return;
+    }
+    BookContentStore.execute(() -> {
+      try {
+        BookContainer b = BookContentStore.importBook(ctx, bookId, contentVersion,
+          webPath == null ? null : EpubIndexWorker.assetPath(webPath), url, json);
+        com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
+        ret.put("imported", true);
+        ret.put("parts", b.parts.size());
+        ret.put("words", b.wordIndex().totalWords());
+        call.resolve(ret);
+      } catch (Throwable t) {
+        call.reject("Failed importBook"+t);
+      }
+    });
+  }
+
+  /** Sumário do livro importado: { bookId, contentVersion }. Devolve { ready, parts: [{ title, chapters: [{ title, paragraphs, words }] }] }. */
+  @PluginMethod
+  public void getBookToc(PluginCall call) {
+    Context ctx = getContext();
+    String bookId = call.getString("bookId");
+    String contentVersion = call.getString("contentVersion", "");
+    BookContentStore.execute(() -> {
+      try {
+        BookContainer b = bookId == null ? null : BookContentStore.open(ctx, bookId, contentVersion);
+        com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
+        ret.put("ready", b != null);
+        if (b != null) {
+          org.json.JSONArray parts = new org.json.JSONArray();
+          for (BookContainer.Part part : b.parts) {
+            org.json.JSONArray chapters = new org.json.JSONArray();
+            for (BookContainer.Chapter c : part.chapters) {
+              JSONObject o = new JSONObject();
+              o.put("title", c.title);
+              o.put("paragraphs", c.paragraphs);
+              o.put("words", c.words);
+              chapters.put(o);
+            }
+            JSONObject o = new JSONObject();
+            o.put("title", part.title);
+            o.put("chapters", chapters);
+            parts.put(o);
+          }
+          ret.put("parts", parts);
+        }
+        call.resolve(ret);
+      } catch (Throwable t) {
+        call.reject("Failed getBookToc"+t);
+      }
+    });
+  }
+
+  /**
+   * Parágrafos de um capítulo direto do arquivo mapeado: { bookId, contentVersion?, partIndex, chapterIndex,
+   * from?, to? } (intervalo [from, to)). Devolve { ready, title, total, from, paragraphs: [{ type, content }] }.
+   */
+  @PluginMethod
+  public void getChapter(PluginCall call) {
+    Context ctx = getContext();
+    String bookId = call.getString("bookId");
+    String contentVersion = call.getString("contentVersion", "");
+    int part = call.getInt("partIndex", 0);
+    int chapter = call.getInt("chapterIndex", 0);
+    int from = call.getInt("from", 0);
+    int to = call.getInt("to", Integer.MAX_VALUE);
+    BookContentStore.execute(() -> {
+      try {
+        BookContainer b = bookId == null ? null : BookContentStore.open(ctx, bookId, contentVersion);
+        BookContainer.Chapter c = b == null ? null : b.chapter(part, chapter);
+        com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
+        ret.put("ready", c != null);
+        if (c != null) {
+          org.json.JSONArray paragraphs = new org.json.JSONArray();
+          for (BookContainer.Paragraph p : b.paragraphs(part, chapter, from, to)) {
+            JSONObject o = new JSONObject();
+            o.put("type", p.type);
+            o.put("content", p.content);
+            paragraphs.put(o);
+          }
+          BookContentStore.countChapter();
+          ret.put("title", c.title);
+          ret.put("total", c.paragraphs);
+          ret.put("from", Math.max(0, from));
+          ret.put("paragraphs", paragraphs);
+        }
+        call.resolve(ret);
+      } catch (Throwable t) {
+        call.reject("Failed getChapter"+t);
+      }
+    });
+  }
+}
@@ -0,0 +1,259 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.Log;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+
+/**
+ * Conteúdo dos livros estáticos em contêineres mapeados (BookContainer), um por livro em files/books/.
+ * A importação lê o JSON de partes/capítulos (asset embutido, URL ou texto vindo do JS) em fluxo com
+ * JsonReader, sem montar o livro em memória, e grava também o índice de palavras (WordIndexStore).
+ * Os contêineres abertos ficam num LRU pequeno: abrir custa mapear o arquivo e ler o sumário.
+ */
+public final class BookContentStore {
+  private static final String DIR = "books";
+  private static final int MAX_OPEN = 3;
+
+  private static final Map<String, BookContainer> open = new LinkedHashMap<String, BookContainer>(8, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, BookContainer> eldest) {
+      return size() > MAX_OPEN;
+    }
+  };
+
+  private static final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(() -> {
+      Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+      r.run();
+    }, "devota-books");
+    t.setDaemon(true);
+    return t;
+  });
+
+  static final AtomicLong imported = new AtomicLong();
+  static final AtomicLong failed = new AtomicLong();
+  static final AtomicLong opens = new AtomicLong();
+  static final AtomicLong chapters = new AtomicLong();
+  static volatile long lastImportMs = -1;
+  static volatile long lastOpenMs = -1;
+
+  private BookContentStore() {}
+
+  /** Importação e leitura fora da thread dos plugins. */
+  static void execute(Runnable r) {
+    io.execute(r);
+  }
+
+  /** Contêiner de {@code bookId}; null se ausente, inválido ou de outra versão ({@code contentVersion} não vazio e diferente). */
+  public static BookContainer open(Context ctx, String bookId, String contentVersion) {
+    BookContainer b;
+    synchronized (open) {
+      b = open.get(bookId);
+    }
+    if (b == null) {
+      File f = file(ctx, bookId);
+      if (!f.exists()) return null;
+      long start = System.nanoTime();
+      try {
+        b = BookContainer.open(f);
+      } catch (IOException e) {
+        Log.w("BookContentStore", "Contêiner inválido descartado bookId=" + bookId, e);
+        f.delete();
+        return null;
+      }
+      lastOpenMs = (System.nanoTime() - start) / 1_000_000;
+      opens.incrementAndGet();
+      synchronized (open) {
+        open.put(bookId, b);
+      }
+    }
+    if (contentVersion != null && !contentVersion.isEmpty() && !contentVersion.equals(b.contentVersion)) return null;
+    return b;
+  }
+
+  /** Conta uma leitura de capítulo servida do mapeamento (estatística do getDebugState). */
+  static void countChapter() {
+    chapters.incrementAndGet();
+  }
+
+  /** Importa de um asset do app (public/...), de uma URL ou do texto JSON; um deles não nulo. */
+  static BookContainer importBook(Context ctx, String bookId, String contentVersion, String asset, String url, String json) throws IOException {
+    if (json != null) return importFrom(ctx, bookId, contentVersion, new StringReader(json));
+    if (asset != null) {
+      try (InputStream in = ctx.getAssets().open(asset)) {
+        return importFrom(ctx, bookId, contentVersion, new InputStreamReader(new BufferedInputStream(in, 64 * 1024), StandardCharsets.UTF_8));
+      }
+    }
+    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+    conn.setConnectTimeout(10_000);
+    conn.setReadTimeout(30_000);
+    try {
+      int code = conn.getResponseCode();
+      if (code < 200 || code >= 300) throw new IOException("HTTP " + code + " em " + url);
+      try (InputStream in = conn.getInputStream()) {
+        return importFrom(ctx, bookId, contentVersion, new InputStreamReader(new BufferedInputStream(in, 64 * 1024), StandardCharsets.UTF_8));
+      }
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  private static BookContainer importFrom(Context ctx, String bookId, String contentVersion, Reader source) throws IOException {
+    long start = System.currentTimeMillis();
+    File dest = file(ctx, bookId);
+    dest.getParentFile().mkdirs();
+    File tmp = new File(dest.getPath() + ".tmp");
+    try (JsonReader r = new JsonReader(source); BookContainer.Writer w = new BookContainer.Writer(tmp, contentVersion)) {
+      readParts(r, w);
+      w.finish();
+    } catch (IOException | RuntimeException e) {
+      tmp.delete();
+      failed.incrementAndGet();
+      throw e instanceof IOException ? (IOException) e : new IOException("JSON do livro inválido", e);
+    }
+    synchronized (open) {
+      open.remove(bookId);
+      if (!tmp.renameTo(dest)) {
+        tmp.delete();
+        failed.incrementAndGet();
+        throw new IOException("Falha ao instalar " + dest.getName());
+      }
+    }
+    BookContainer b = open(ctx, bookId, contentVersion);
+    if (b == null) throw new IOException("Contêiner recém-gravado ilegível bookId=" + bookId);
+    WordIndexStore.write(ctx, bookId, b.wordIndex());
+    lastImportMs = System.currentTimeMillis() - start;
+    imported.incrementAndGet();
+    if (WidgetTrace.LOG) Log.d("BookContentStore", "Importado bookId=" + bookId + " parts=" + b.parts.size()
+      + " bytes=" + dest.length() + " ms=" + lastImportMs);
+    return b;
+  }
+
+  // [{ part_title, chapters: [{ chapter_title, content: [{ type, content }] }] }] (Part[] do reading.ts)
+  private static void readParts(JsonReader r, BookContainer.Writer w) throws IOException {
+    r.beginArray();
+    while (r.hasNext()) {
+      r.beginObject();
+      boolean begun = false;
+      while (r.hasNext()) {
+        String name = r.nextName();
+        if ("part_title".equals(name) && !begun) {
+          w.beginPart(optString(r));
+          begun = true;
+        } else if ("chapters".equals(name)) {
+          if (!begun) w.beginPart(""); // título depois dos capítulos: fica sem título
+          begun = true;
+          r.beginArray();
+          while (r.hasNext()) readChapter(r, w);
+          r.endArray();
+        } else {
+          r.skipValue();
+        }
+      }
+      if (!begun) w.beginPart("");
+      r.endObject();
+    }
+    r.endArray();
+  }
+
+  private static void readChapter(JsonReader r, BookContainer.Writer w) throws IOException {
+    r.beginObject();
+    boolean begun = false;
+    while (r.hasNext()) {
+      String name = r.nextName();
+      if ("chapter_title".equals(name) && !begun) {
+        w.beginChapter(optString(r));
+        begun = true;
+      } else if ("content".equals(name)) {
+        if (!begun) w.beginChapter("");
+        begun = true;
+        r.beginArray();
+        while (r.hasNext()) {
+          String type = "";
+          String content = "";
+          r.beginObject();
+          while (r.hasNext()) {
+            String key = r.nextName();
+            if ("type".equals(key)) type = optString(r);
+            else if ("content".equals(key)) content = optString(r);
+            else r.skipValue();
+          }
+          r.endObject();
+          w.paragraph(type, content);
+        }
+        r.endArray();
+      } else {
+        r.skipValue();
+      }
+    }
+    if (!begun) w.beginChapter("");
+    r.endObject();
+  }
+
+  private static String optString(JsonReader r) throws IOException {
+    if (r.peek() == JsonToken.NULL) {
+      r.nextNull();
+      return "";
+    }
+    return r.nextString();
+  }
+
+  public static void delete(Context ctx, String bookId) {
+    synchronized (open) {
+      open.remove(bookId);
+    }
+    file(ctx, bookId).delete();
+    WordIndexStore.delete(ctx, bookId);
+  }
+
+  public static void clear(Context ctx) {
+    synchronized (open) {
+      open.clear();
+    }
+    File[] files = new File(ctx.getApplicationContext().getFilesDir(), DIR).listFiles();
+    if (files != null) for (File f : files) f.delete();
+  }
+
+  private static File file(Context ctx, String bookId) {
+    return new File(new File(ctx.getApplicationContext().getFilesDir(), DIR), Long.toHexString(BookSnapshot.stableId(bookId)) + ".ivbc");
+  }
+
+  public static JSONObject statsJson(Context ctx) {
+    JSONObject o = new JSONObject();
+    try {
+      File[] files = new File(ctx.getApplicationContext().getFilesDir(), DIR).listFiles();
+      long bytes = 0;
+      if (files != null) for (File f : files) bytes += f.length();
+      o.put("books", files == null ? 0 : files.length);
+      o.put("bytes", bytes);
+      synchronized (open) {
+        o.put("open", open.size());
+      }
+      o.put("imported", imported.get());
+      o.put("failed", failed.get());
+      o.put("opens", opens.get());
+      o.put("chapters", chapters.get());
+      o.put("lastImportMs", lastImportMs);
+      o.put("lastOpenMs", lastOpenMs);
+    } catch (Throwable ignored) {}
+    return o;
+  }
+}
@@ -0,0 +1,134 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Snapshot dos livros do widget de coleção (files/widget_books.bin). Mesmo esquema do
+ * WidgetStateStore: AtomicFile + snapshot em memória compartilhado pelo processo. Cada escrita que
+ * muda alguma linha avisa o BooksWidgetProvider (notifyAppWidgetViewDataChanged) e re-renderiza as
+ * instâncias do ProgressWidgetProvider fixadas nos livros alterados.
+ */
+public final class BookSnapshotStore {
+  private static final String FILE_NAME = "widget_books.bin";
+
+  private static final Object LOCK = new Object();
+  private static volatile BookSnapshot cached;
+
+  private static final AtomicLong writes = new AtomicLong();
+  private static final AtomicLong changedRows = new AtomicLong();
+
+  private BookSnapshotStore() {}
+
+  /** Snapshot atual (sem I/O após a primeira leitura); nunca null. */
+  public static BookSnapshot read(Context ctx) {
+    BookSnapshot s = cached;
+    if (s != null) return s;
+    synchronized (LOCK) {
+      if (cached == null) cached = load(ctx.getApplicationContext());
+      return cached;
+    }
+  }
+
+  /** Lista completa vinda do JS: [{ bookId, title, percent, hasGoal }]; sem meta a linha fica de fora. */
+  public static void replace(Context ctx, JSONArray books, long epochDay, long ts) {
+    List<BookSnapshot.Row> rows = new ArrayList<>(books.length());
+    for (int i = 0; i < books.length(); i++) {
+      JSONObject b = books.optJSONObject(i);
+      if (b == null || !b.optBoolean("hasGoal", false)) continue;
+      String bookId = b.optString("bookId", null);
+      if (bookId == null || bookId.isEmpty()) continue;
+      rows.add(new BookSnapshot.Row(bookId, b.optString("title", ""), b.optInt("percent", 0), epochDay, ts));
+    }
+    synchronized (LOCK) {
+      BookSnapshot prev = read(ctx);
+      commit(ctx, prev, prev.replace(rows), "books_replace");
+    }
+  }
+
+  /** Uma linha ({@code title} null mantém o atual); sem meta a linha sai da lista. */
+  public static void upsert(Context ctx, String bookId, String title, int percent, boolean hasGoal, long epochDay, long ts) {
+    if (bookId == null) return;
+    synchronized (LOCK) {
+      BookSnapshot prev = read(ctx);
+      commit(ctx, prev, prev.upsert(bookId, title, percent, hasGoal, epochDay, ts), "book_upsert");
+    }
+  }
+
+  /** Progresso de um livro já listado (stream do leitor, recomputo nativo); não cria linha. */
+  public static void updateProgress(Context ctx, String bookId, int percent, long epochDay, long ts) {
+    if (bookId == null) return;
+    synchronized (LOCK) {
+      BookSnapshot prev = read(ctx);
+      if (prev.indexOf(bookId) < 0) return;
+      commit(ctx, prev, prev.upsert(bookId, null, percent, true, epochDay, ts), "book_progress");
+    }
+  }
+
+  private static void commit(Context ctx, BookSnapshot prev, BookSnapshot next, String origin) {
+    if (next == prev) return;
+    persist(ctx.getApplicationContext(), next);
+    cached = next;
+    writes.incrementAndGet();
+    changedRows.addAndGet(BookSnapshot.changedRows(prev, next));
+    BooksWidgetProvider.notifyDataChanged(ctx, origin);
+    List<String> changed = BookSnapshot.changedBookIds(prev, next);
+    if (!changed.isEmpty()) WidgetRenderDispatcher.requestBooks(ctx, origin, changed.toArray(new String[0]));
+  }
+
+  public static void clear(Context ctx) {
+    synchronized (LOCK) {
+      new AtomicFile(new File(ctx.getApplicationContext().getFilesDir(), FILE_NAME)).delete();
+      cached = BookSnapshot.EMPTY;
+    }
+    BooksWidgetProvider.notifyDataChanged(ctx, "books_clear");
+  }
+
+  private static BookSnapshot load(Context app) {
+    try {
+      BookSnapshot s = BookSnapshot.decode(new AtomicFile(new File(app.getFilesDir(), FILE_NAME)).readFully());
+      if (s != null) return s;
+      Log.w("BookSnapshotStore", "Snapshot inválido descartado");
+    } catch (FileNotFoundException e) {
+      // Ainda sem livros gravados
+    } catch (Throwable t) {
+      Log.e("BookSnapshotStore", "Falha ao ler snapshot", t);
+    }
+    return BookSnapshot.EMPTY;
+  }
+
+  private static void persist(Context app, BookSnapshot s) {
+    AtomicFile file = new AtomicFile(new File(app.getFilesDir(), FILE_NAME));
+    FileOutputStream out = null;
+    try {
+      out = file.startWrite();
+      out.write(s.encode());
+      file.finishWrite(out);
+    } catch (Throwable t) {
+      if (out != null) file.failWrite(out);
+      Log.e("BookSnapshotStore", "Falha ao gravar snapshot", t);
+    }
+  }
+
+  public static JSONObject statsJson(Context ctx) {
+    JSONObject o = new JSONObject();
+    try {
+      o.put("rows", read(ctx).size());
+      o.put("writes", writes.get());
+      o.put("changedRows", changedRows.get());
+      long[] rows = BooksWidgetService.stats();
+      o.put("rebound", rows[0]);
+      o.put("reused", rows[1]);
+    } catch (Throwable ignored) {}
+    return o;
+  }
+}
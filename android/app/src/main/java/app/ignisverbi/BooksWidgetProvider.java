@@ -0,0 +1,51 @@
+package app.ignisverbi;
+
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.util.Log;
+import android.widget.RemoteViews;
+
+/**
+ * Widget de coleção: um livro por linha (todos com plano ativo) e o percent diário de cada um. O
+ * RemoteViews do widget só aponta para o BooksWidgetService; mudanças de dados não refazem o widget,
+ * vão por notifyAppWidgetViewDataChanged e o factory remonta só as linhas alteradas.
+ */
+public class BooksWidgetProvider extends AppWidgetProvider {
+
+  @Override
+  public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+    if (WidgetTrace.LOG) Log.d("BooksWidgetProvider", "onUpdate size=" + (appWidgetIds == null ? 0 : appWidgetIds.length));
+    for (int id : appWidgetIds) appWidgetManager.updateAppWidget(id, buildViews(context, id));
+  }
+
+  static RemoteViews buildViews(Context context, int appWidgetId) {
+    Intent adapter = new Intent(context, BooksWidgetService.class);
+    adapter.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, appWidgetId);
+    // Data única por id: senão o sistema reaproveita o mesmo factory para todas as instâncias
+    adapter.setData(Uri.parse(adapter.toUri(Intent.URI_INTENT_SCHEME)));
+    RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_books);
+    views.setRemoteAdapter(R.id.books_list, adapter);
+    views.setEmptyView(R.id.books_list, R.id.books_empty);
+    // Toque numa linha abre o app (template imutável: o fill-in das linhas é vazio)
+    views.setPendingIntentTemplate(R.id.books_list, ProgressWidgetProvider.launchIntent(context));
+    views.setOnClickPendingIntent(R.id.books_root, ProgressWidgetProvider.launchIntent(context));
+    return views;
+  }
+
+  /** Avisa as instâncias de que o snapshot mudou; sem instâncias não há IPC além da consulta de ids. */
+  static void notifyDataChanged(Context context, String origin) {
+    try {
+      AppWidgetManager manager = AppWidgetManager.getInstance(context);
+      int[] ids = manager.getAppWidgetIds(new ComponentName(context, BooksWidgetProvider.class));
+      if (ids == null || ids.length == 0) return;
+      manager.notifyAppWidgetViewDataChanged(ids, R.id.books_list);
+      if (WidgetTrace.LOG) Log.d("BooksWidgetProvider", "notifyDataChanged origin=" + origin + " ids=" + ids.length);
+    } catch (Throwable t) {
+      Log.e("BooksWidgetProvider", "Falha ao notificar coleção", t);
+    }
+  }
+}
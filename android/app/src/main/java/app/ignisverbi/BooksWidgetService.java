@@ -0,0 +1,106 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.content.Intent;
+import android.util.LongSparseArray;
+import android.widget.RemoteViews;
+import android.widget.RemoteViewsService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Linhas do BooksWidgetProvider, lidas do BookSnapshotStore. Ids estáveis (BookSnapshot.stableId) e
+ * cache de RemoteViews por id: uma linha só é remontada quando a instância dela no snapshot mudou
+ * (ou na virada do dia); as demais devolvem as views já montadas.
+ */
+public class BooksWidgetService extends RemoteViewsService {
+  // Diagnóstico (getDebugState), lido por stats()
+  private static final AtomicLong rebound = new AtomicLong();
+  private static final AtomicLong reused = new AtomicLong();
+
+  /** Contadores de diagnóstico: { rebound, reused }. */
+  static long[] stats() {
+    return new long[] { rebound.get(), reused.get() };
+  }
+
+  @Override
+  public RemoteViewsFactory onGetViewFactory(Intent intent) {
+    return new Factory(getApplicationContext());
+  }
+
+  static final class Factory implements RemoteViewsFactory {
+    private final Context ctx;
+    private BookSnapshot snapshot = BookSnapshot.EMPTY;
+    private long today = DailyProgressEngine.NO_DAY;
+    // Por id estável: linha do último bind e as views montadas para ela
+    private final LongSparseArray<BookSnapshot.Row> boundRows = new LongSparseArray<>();
+    private final LongSparseArray<RemoteViews> boundViews = new LongSparseArray<>();
+
+    Factory(Context ctx) {
+      this.ctx = ctx;
+    }
+
+    @Override public void onCreate() {}
+
+    @Override
+    public void onDataSetChanged() {
+      snapshot = BookSnapshotStore.read(ctx);
+      long day = WidgetClock.todayEpochDay();
+      if (day != today) {
+        // Virada do dia: o percent exibido depende do dia, todas as linhas mudam
+        today = day;
+        boundRows.clear();
+        boundViews.clear();
+        return;
+      }
+      for (int i = boundRows.size() - 1; i >= 0; i--) {
+        BookSnapshot.Row r = boundRows.valueAt(i);
+        if (snapshot.indexOf(r.bookId) < 0) {
+          boundViews.remove(r.id);
+          boundRows.removeAt(i);
+        }
+      }
+    }
+
+    @Override
+    public int getCount() { return snapshot.size(); }
+
+    @Override
+    public RemoteViews getViewAt(int position) {
+      BookSnapshot s = snapshot;
+      if (position < 0 || position >= s.size()) return null;
+      BookSnapshot.Row row = s.get(position);
+      RemoteViews views = boundViews.get(row.id);
+      if (views != null && boundRows.get(row.id) == row) {
+        reused.incrementAndGet();
+        return views;
+      }
+      views = new RemoteViews(ctx.getPackageName(), R.layout.widget_books_item);
+      views.setTextViewText(R.id.book_title, row.title);
+      views.setTextViewText(R.id.book_percent, row.percentTextOn(today));
+      views.setInt(R.id.book_progress_bar, "setProgress", row.percentOn(today));
+      views.setOnClickFillInIntent(R.id.book_row, new Intent());
+      boundRows.put(row.id, row);
+      boundViews.put(row.id, views);
+      rebound.incrementAndGet();
+      return views;
+    }
+
+    @Override public RemoteViews getLoadingView() { return null; }
+
+    @Override public int getViewTypeCount() { return 1; }
+
+    @Override
+    public long getItemId(int position) {
+      BookSnapshot s = snapshot;
+      return position < s.size() ? s.get(position).id : position;
+    }
+
+    @Override public boolean hasStableIds() { return true; }
+
+    @Override
+    public void onDestroy() {
+      boundRows.clear();
+      boundViews.clear();
+    }
+  }
+}
@@ -0,0 +1,353 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Process;
+import android.util.Log;
+import androidx.annotation.VisibleForTesting;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+
+/**
+ * Cache nativo de capas (files/covers/). Cada capa é gravada já reduzida (BitmapFactory com
+ * inSampleSize) em tamanhos discretos pelo lado maior ({@link #SIZES}); o maior gravado serve de
+ * origem para os menores, gerados sob demanda. Em disco vale LRU limitado por bytes (índice em memória
+ * em ordem de acesso, reconstruído pelo lastModified dos arquivos). O JS recebe o caminho do arquivo e
+ * o entrega ao &lt;img&gt; via Capacitor.convertFileSrc, sem passar blobs pela ponte.
+ *
+ * Nome dos arquivos: {id estável do livro}-{versão}-{lado maior}.jpg|png. A versão sobe a cada
+ * {@link #put}, então a URL muda quando a capa é trocada e o WebView não mostra a imagem antiga.
+ */
+public final class CoverCache {
+  private static final String DIR = "covers";
+  static final int[] SIZES = { 128, 256, 384, 512, 768, 1024 };
+  static final long MAX_DISK_BYTES = 16L * 1024 * 1024;
+  private static final int MAX_DOWNLOAD_BYTES = 10 * 1024 * 1024;
+  private static final int JPEG_QUALITY = 85;
+
+  private static final Object LOCK = new Object();
+  private static LinkedHashMap<String, Long> index; // nome -> bytes, mais antigo primeiro
+  private static long diskBytes;
+  private static long maxDiskBytes = MAX_DISK_BYTES;
+
+  private static final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(() -> {
+      Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+      r.run();
+    }, "devota-covers");
+    t.setDaemon(true);
+    return t;
+  });
+
+  static final AtomicLong hits = new AtomicLong();
+  static final AtomicLong derived = new AtomicLong();
+  static final AtomicLong misses = new AtomicLong();
+  static final AtomicLong stored = new AtomicLong();
+  static final AtomicLong evicted = new AtomicLong();
+
+  private CoverCache() {}
+
+  /** Decodificação e I/O fora da thread dos plugins. */
+  static void execute(Runnable r) {
+    io.execute(r);
+  }
+
+  /** Menor tamanho discreto que cobre {@code px} (lado maior, em pixels físicos). */
+  static int bucket(int px) {
+    for (int s : SIZES) if (s >= px) return s;
+    return SIZES[SIZES.length - 1];
+  }
+
+  /**
+   * Arquivo da capa com lado maior de pelo menos {@code px} (ou a maior disponível, se a original for
+   * menor); gera o tamanho a partir de um maior já gravado. Null se a capa não estiver no cache.
+   */
+  public static File get(Context ctx, String bookId, int px) {
+    int want = bucket(px);
+    String exact = null;
+    String source = null;
+    int sourceSize = 0;
+    String prefix;
+    synchronized (LOCK) {
+      int version = version(ctx, bookId);
+      if (version < 0) {
+        misses.incrementAndGet();
+        return null;
+      }
+      prefix = prefix(bookId, version);
+      for (String name : index(ctx).keySet()) {
+        if (!name.startsWith(prefix)) continue;
+        int size = sizeOf(name);
+        if (size == want) exact = name;
+        if (source == null || (sourceSize < want ? size > sourceSize : size >= want && size < sourceSize)) {
+          source = name;
+          sourceSize = size;
+        }
+      }
+      if (exact != null) {
+        touch(ctx, exact);
+        hits.incrementAndGet();
+        return new File(dir(ctx), exact);
+      }
+      if (source == null) {
+        misses.incrementAndGet();
+        return null;
+      }
+      if (sourceSize <= want) {
+        touch(ctx, source);
+        hits.incrementAndGet();
+        return new File(dir(ctx), source);
+      }
+    }
+    Bitmap bmp = decode(new File(dir(ctx), source), want);
+    if (bmp == null) return null;
+    derived.incrementAndGet();
+    return write(ctx, prefix, bmp);
+  }
+
+  /**
+   * Grava a capa de {@code bookId} (substitui as versões anteriores) reduzida ao maior tamanho e
+   * devolve o arquivo para {@code px}. Null se os bytes não forem uma imagem.
+   */
+  public static File put(Context ctx, String bookId, byte[] image, int px) {
+    BitmapFactory.Options bounds = new BitmapFactory.Options();
+    bounds.inJustDecodeBounds = true;
+    BitmapFactory.decodeByteArray(image, 0, image.length, bounds);
+    if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+    int largest = SIZES[SIZES.length - 1];
+    Bitmap master = downsample(BitmapFactory.decodeByteArray(image, 0, image.length, options(bounds, largest)), largest);
+    if (master == null) return null;
+    int version;
+    synchronized (LOCK) {
+      version = version(ctx, bookId) + 1;
+    }
+    remove(ctx, bookId);
+    File masterFile = write(ctx, prefix(bookId, version), master);
+    stored.incrementAndGet();
+    if (masterFile == null) return null;
+    return bucket(px) >= sizeOf(masterFile.getName()) ? masterFile : get(ctx, bookId, px);
+  }
+
+  /** Baixa a imagem direto no nativo (sem CORS nem proxy) e grava como {@link #put}. */
+  public static File putFromUrl(Context ctx, String bookId, String url, int px) throws IOException {
+    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+    conn.setConnectTimeout(10_000);
+    conn.setReadTimeout(15_000);
+    conn.setInstanceFollowRedirects(true);
+    try {
+      int code = conn.getResponseCode();
+      if (code < 200 || code >= 300) throw new IOException("HTTP " + code + " em " + url);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(conn.getContentLength(), 16 * 1024));
+      try (InputStream in = conn.getInputStream()) {
+        byte[] buf = new byte[16 * 1024];
+        for (int n; (n = in.read(buf)) > 0; ) {
+          if (out.size() + n > MAX_DOWNLOAD_BYTES) throw new IOException("Capa acima de " + MAX_DOWNLOAD_BYTES + " bytes: " + url);
+          out.write(buf, 0, n);
+        }
+      }
+      return put(ctx, bookId, out.toByteArray(), px);
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  /** Remove todas as versões e tamanhos da capa de {@code bookId}. */
+  public static void remove(Context ctx, String bookId) {
+    String prefix = idPrefix(bookId);
+    synchronized (LOCK) {
+      Iterator<Map.Entry<String, Long>> it = index(ctx).entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<String, Long> e = it.next();
+        if (!e.getKey().startsWith(prefix)) continue;
+        new File(dir(ctx), e.getKey()).delete();
+        diskBytes -= e.getValue();
+        it.remove();
+      }
+    }
+  }
+
+  public static void clear(Context ctx) {
+    synchronized (LOCK) {
+      File[] files = dir(ctx).listFiles();
+      if (files != null) for (File f : files) f.delete();
+      index = new LinkedHashMap<>(16, 0.75f, true);
+      diskBytes = 0;
+    }
+  }
+
+  /** Testes: orçamento do disco; 0 volta ao padrão ({@link #MAX_DISK_BYTES}). */
+  @VisibleForTesting
+  static void setMaxDiskBytes(long bytes) {
+    synchronized (LOCK) {
+      maxDiskBytes = bytes > 0 ? bytes : MAX_DISK_BYTES;
+    }
+  }
+
+  private static String idPrefix(String bookId) {
+    return Long.toHexString(BookSnapshot.stableId(bookId)) + "-";
+  }
+
+  private static String prefix(String bookId, int version) {
+    return idPrefix(bookId) + version + "-";
+  }
+
+  /** Versão atual da capa de {@code bookId}; -1 se não houver. Sob LOCK. */
+  private static int version(Context ctx, String bookId) {
+    String prefix = idPrefix(bookId);
+    int version = -1;
+    for (String name : index(ctx).keySet()) {
+      if (!name.startsWith(prefix)) continue;
+      int end = name.indexOf('-', prefix.length());
+      try {
+        version = Math.max(version, Integer.parseInt(name.substring(prefix.length(), end)));
+      } catch (RuntimeException ignored) {}
+    }
+    return version;
+  }
+
+  private static int sizeOf(String name) {
+    int dash = name.lastIndexOf('-');
+    int dot = name.lastIndexOf('.');
+    try {
+      return Integer.parseInt(name.substring(dash + 1, dot));
+    } catch (RuntimeException e) {
+      return 0;
+    }
+  }
+
+  private static File dir(Context ctx) {
+    return new File(ctx.getApplicationContext().getFilesDir(), DIR);
+  }
+
+  /** Índice LRU do disco; na primeira leitura do processo, ordenado pelo lastModified. Sob LOCK. */
+  private static LinkedHashMap<String, Long> index(Context ctx) {
+    if (index != null) return index;
+    index = new LinkedHashMap<>(64, 0.75f, true);
+    diskBytes = 0;
+    File[] files = dir(ctx).listFiles();
+    if (files != null) {
+      Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+      for (File f : files) {
+        if (f.getName().endsWith(".tmp")) {
+          f.delete();
+          continue;
+        }
+        index.put(f.getName(), f.length());
+        diskBytes += f.length();
+      }
+    }
+    return index;
+  }
+
+  /** Marca acesso (ordem em memória e lastModified para o próximo processo). Sob LOCK. */
+  private static void touch(Context ctx, String name) {
+    index(ctx).get(name);
+    new File(dir(ctx), name).setLastModified(WidgetClock.nowMs());
+  }
+
+  private static File write(Context ctx, String prefix, Bitmap bmp) {
+    int size = Math.max(bmp.getWidth(), bmp.getHeight());
+    boolean png = bmp.hasAlpha();
+    String name = prefix + size + (png ? ".png" : ".jpg");
+    File dir = dir(ctx);
+    dir.mkdirs();
+    File tmp = new File(dir, name + ".tmp");
+    File dest = new File(dir, name);
+    try (FileOutputStream out = new FileOutputStream(tmp)) {
+      bmp.compress(png ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+    } catch (Throwable t) {
+      tmp.delete();
+      Log.e("CoverCache", "Falha ao gravar capa " + name, t);
+      return null;
+    }
+    int removed = 0;
+    synchronized (LOCK) {
+      if (!tmp.renameTo(dest)) {
+        tmp.delete();
+        return null;
+      }
+      LinkedHashMap<String, Long> idx = index(ctx);
+      Long prev = idx.put(name, dest.length());
+      diskBytes += dest.length() - (prev == null ? 0 : prev);
+      // LRU: descarta os menos acessados até caber no orçamento (nunca o recém-gravado)
+      Iterator<Map.Entry<String, Long>> it = idx.entrySet().iterator();
+      while (diskBytes > maxDiskBytes && it.hasNext()) {
+        Map.Entry<String, Long> e = it.next();
+        if (e.getKey().equals(name)) continue;
+        new File(dir, e.getKey()).delete();
+        diskBytes -= e.getValue();
+        removed++;
+        it.remove();
+        evicted.incrementAndGet();
+      }
+    }
+    if (WidgetTrace.LOG) Log.d("CoverCache", "Capa gravada " + name + " bytes=" + dest.length() + " evicted=" + removed);
+    return dest;
+  }
+
+  private static Bitmap decode(File f, int px) {
+    BitmapFactory.Options bounds = new BitmapFactory.Options();
+    bounds.inJustDecodeBounds = true;
+    BitmapFactory.decodeFile(f.getPath(), bounds);
+    if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+    return downsample(BitmapFactory.decodeFile(f.getPath(), options(bounds, px)), px);
+  }
+
+  /** Maior inSampleSize (potência de 2) que ainda deixa o lado maior com pelo menos {@code px}. */
+  static int sampleSize(int width, int height, int px) {
+    int longest = Math.max(width, height);
+    int sample = 1;
+    while (longest / (sample * 2) >= px) sample *= 2;
+    return sample;
+  }
+
+  private static BitmapFactory.Options options(BitmapFactory.Options bounds, int px) {
+    BitmapFactory.Options o = new BitmapFactory.Options();
+    o.inSampleSize = sampleSize(bounds.outWidth, bounds.outHeight, px);
+    return o;
+  }
+
+  /** Ajuste fino depois do inSampleSize: escala para o lado maior exato, sem ampliar. */
+  private static Bitmap downsample(Bitmap bmp, int px) {
+    if (bmp == null) return null;
+    int longest = Math.max(bmp.getWidth(), bmp.getHeight());
+    if (longest <= px) return bmp;
+    float scale = px / (float) longest;
+    int w = Math.max(1, Math.round(bmp.getWidth() * scale));
+    int h = Math.max(1, Math.round(bmp.getHeight() * scale));
+    Bitmap scaled = Bitmap.createScaledBitmap(bmp, w, h, true);
+    if (scaled != bmp) bmp.recycle();
+    return scaled;
+  }
+
+  public static JSONObject statsJson(Context ctx) {
+    JSONObject o = new JSONObject();
+    try {
+      synchronized (LOCK) {
+        o.put("files", index(ctx).size());
+        o.put("bytes", diskBytes);
+        o.put("maxBytes", maxDiskBytes);
+      }
+      o.put("hits", hits.get());
+      o.put("derived", derived.get());
+      o.put("misses", misses.get());
+      o.put("stored", stored.get());
+      o.put("evicted", evicted.get());
+    } catch (Throwable ignored) {}
+    return o;
+  }
+}
@@ -0,0 +1,90 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+/** Capas reduzidas em disco (CoverCache); decodificação e rede no executor do CoverCache. */
+@CapacitorPlugin(name = "CoverCache")
+public class CoverCachePlugin extends Plugin {
+  /**
+   * Capa reduzida do CoverCache: { bookId, size (lado maior em px físicos) }. Devolve
+   * { hit, path? } — o JS converte o caminho com Capacitor.convertFileSrc. Decodificação fora desta thread.
+   */
+  @PluginMethod
+  public void getCover(PluginCall call) {
+    Context ctx = getContext();
+    String bookId = call.getString("bookId");
+    if (bookId == null) {
+      call.reject("bookId obrigatório");
+      return;
+    }
+    int size = call.getInt("size", 512);
+    CoverCache.execute(() -> {
+      try {
+        resolveCover(call, CoverCache.get(ctx, bookId, size));
+      } catch (Throwable t) {
+        call.reject("Failed getCover"+t);
+      }
+    });
+  }
+
+  /** Grava uma capa: { bookId, size, data (base64) | url }. A url é baixada no nativo. */
+  @PluginMethod
+  public void putCover(PluginCall call) {
+    Context ctx = getContext();
+    String bookId = call.getString("bookId");
+    String data = call.getString("data");
+    String url = call.getString("url");
+    if (bookId == null || (data == null && url == null)) {
+      call.reject("bookId e data ou url obrigatórios");
+      return;
+    }
+    int size = call.getInt("size", 512);
+    CoverCache.execute(() -> {
+      try {
+        resolveCover(call, data != null
+          ? CoverCache.put(ctx, bookId, android.util.Base64.decode(data, android.util.Base64.DEFAULT), size)
+          : CoverCache.putFromUrl(ctx, bookId, url, size));
+      } catch (Throwable t) {
+        call.reject("Failed putCover"+t);
+      }
+    });
+  }
+
+  @PluginMethod
+  public void deleteCover(PluginCall call) {
+    Context ctx = getContext();
+    String bookId = call.getString("bookId");
+    CoverCache.execute(() -> {
+      try {
+        if (bookId != null) CoverCache.remove(ctx, bookId);
+        call.resolve();
+      } catch (Throwable t) {
+        call.reject("Failed deleteCover"+t);
+      }
+    });
+  }
+
+  @PluginMethod
+  public void clearCovers(PluginCall call) {
+    Context ctx = getContext();
+    CoverCache.execute(() -> {
+      try {
+        CoverCache.clear(ctx);
+        call.resolve();
+      } catch (Throwable t) {
+        call.reject("Failed clearCovers"+t);
+      }
+    });
+  }
+
+  private static void resolveCover(PluginCall call, java.io.File f) {
+    com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
+    ret.put("hit", f != null);
+    if (f != null) ret.put("path", f.getAbsolutePath());
+    call.resolve(ret);
+  }
+}
@@ -6,47 +6,76 @@ import android.content.Intent;
 import android.util.Log;
 
 /**
- * Recebe eventos diários e relacionados a tempo/usuário: meia-noite (alarm), mudança de data/hora,
- * timezone, boot, user present, e ações de debug/força. Consolida todos os gatilhos que podem exigir
- * recomputar ou resetar o progresso diário.
+ * Recebe eventos diários e relacionados a tempo: meia-noite (alarm), mudança de data/hora, timezone,
+ * boot e ações de debug/força. Consolida todos os gatilhos que podem exigir
+ * recomputar ou resetar o progresso diário. O trabalho roda no ReceiverPipeline (goAsync), nunca no main thread.
  */
 public class DailyEventsReceiver extends BroadcastReceiver {
+  /** Reserva mínima de tempo para a etapa mais cara (enqueue no WorkManager). */
+  private static final long ENSURE_WORK_BUDGET_MS = 2_000;
+
   @Override
   public void onReceive(Context context, Intent intent) {
     if (intent == null) return;
     String action = intent.getAction();
-    Log.d("DailyEventsReceiver","onReceive action="+action+" ts="+System.currentTimeMillis());
-    try {
+    if (WidgetTrace.LOG) Log.d("DailyEventsReceiver","onReceive action="+action+" ts="+System.currentTimeMillis());
+    String cause = causeFor(action, intent);
+    if (cause == null) return;
+    // Antes de qualquer leitura do relógio: o dia em cache pode ser de outro fuso/horário
+    if (Intent.ACTION_TIME_CHANGED.equals(action) || Intent.ACTION_TIMEZONE_CHANGED.equals(action)) WidgetClock.invalidate();
+    WidgetTrace.record(WidgetTrace.TRIGGER, cause, 0);
+    final long scheduledAt = intent.getLongExtra(RefreshScheduler.EXTRA_SCHEDULED_AT, 0);
+    final long firedAt = WidgetClock.nowMs();
+    if (scheduledAt > 0) {
+      // Atraso do alarm (window de 15 min + Doze) em relação à meia-noite alvo
+      WidgetTrace.latency(WidgetTrace.ALARM_FIRED, cause, firedAt - scheduledAt, WidgetTrace.alarmDriftMs);
+    }
+    final Context app = context.getApplicationContext();
+    // Só as rajadas da virada (alarm + fallback, DATE_CHANGED) passam pelo debounce; ajuste de hora ou
+    // fuso, boot e ações manuais são eventos distintos e sempre rodam
+    String debounceKey = isDebounced(action) ? cause : null;
+    ReceiverPipeline.dispatch(goAsync(), debounceKey, deadline -> handle(app, action, cause, scheduledAt, firedAt, deadline));
+  }
+
+  static String causeFor(String action, Intent intent) {
+    if (RefreshScheduler.ACTION_MIDNIGHT_ALARM.equals(action)) {
+      return intent.getBooleanExtra("fallback", false) ? "alarm_fallback" : "alarm";
+    }
+    if (Intent.ACTION_DATE_CHANGED.equals(action)) return "date_changed";
+    if (Intent.ACTION_TIME_CHANGED.equals(action)) return "time_changed";
+    if (Intent.ACTION_TIMEZONE_CHANGED.equals(action)) return "timezone_changed";
+    if (RefreshScheduler.ACTION_DEBUG_ALARM.equals(action)) return "debug_alarm";
+    if (RefreshScheduler.ACTION_FORCE_REFRESH.equals(action)) return "manual_broadcast";
+    if (Intent.ACTION_BOOT_COMPLETED.equals(action)) return "boot_completed";
+    return null;
+  }
+
+  static boolean isDebounced(String action) {
+    return RefreshScheduler.ACTION_MIDNIGHT_ALARM.equals(action) || Intent.ACTION_DATE_CHANGED.equals(action);
+  }
+
+  private static void handle(Context context, String action, String cause, long scheduledAt, long firedAt, ReceiverPipeline.Deadline deadline) {
     if (RefreshScheduler.ACTION_MIDNIGHT_ALARM.equals(action)
       || Intent.ACTION_DATE_CHANGED.equals(action)
       || Intent.ACTION_TIME_CHANGED.equals(action)
       || Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
-        String cause;
-        if (RefreshScheduler.ACTION_MIDNIGHT_ALARM.equals(action)) { Log.d("DailyEventsReceiver","MIDNIGHT ALARM FIRED"); cause = "alarm"; }
-        else if (Intent.ACTION_DATE_CHANGED.equals(action)) cause = "date_changed";
-        else if (Intent.ACTION_TIME_CHANGED.equals(action)) cause = "time_changed";
-        else if (Intent.ACTION_TIMEZONE_CHANGED.equals(action)) cause = "timezone_changed";
-        else cause = "unknown";
-        RefreshScheduler.performDailyRefresh(context, cause);
-        RefreshScheduler.scheduleMidnightAlarm(context);
-        Log.d("DailyEventsReceiver","Refresh + reschedule done for action="+action);
-      } else if (Intent.ACTION_USER_PRESENT.equals(action)) {
-        RefreshScheduler.performDailyRefresh(context, "user_present");
-        Log.d("DailyEventsReceiver","USER_PRESENT trigger refresh executed");
-      } else if (RefreshScheduler.ACTION_DEBUG_ALARM.equals(action)) {
-        Log.d("DailyEventsReceiver","DEBUG ALARM FIRED");
-        RefreshScheduler.performDailyRefresh(context, "debug_alarm");
-      } else if (RefreshScheduler.ACTION_FORCE_REFRESH.equals(action)) {
-        Log.d("DailyEventsReceiver","FORCE REFRESH broadcast received");
-        RefreshScheduler.performDailyRefresh(context, "manual_broadcast");
-      } else if (Intent.ACTION_BOOT_COMPLETED.equals(action)) {
-        Log.d("DailyEventsReceiver","BOOT_COMPLETED – re-scheduling");
-        RefreshScheduler.performDailyRefresh(context, "boot_completed");
-        RefreshScheduler.scheduleMidnightAlarm(context);
-        RefreshScheduler.ensureDailyWork(context);
+      if (RefreshScheduler.ACTION_MIDNIGHT_ALARM.equals(action)) {
+        if (WidgetTrace.LOG) Log.d("DailyEventsReceiver","MIDNIGHT ALARM FIRED cause="+cause);
+        DayBoundaryScheduler.onAlarmFired(context, scheduledAt, firedAt);
       }
-    } catch (Throwable t) {
-      Log.e("DailyEventsReceiver","Falha ao processar", t);
+      RefreshScheduler.performDailyRefresh(context, cause);
+      DayBoundaryScheduler.ensureScheduled(context, cause, deadline.hasAtLeast(ENSURE_WORK_BUDGET_MS));
+      if (WidgetTrace.LOG) Log.d("DailyEventsReceiver","Refresh + reschedule done for action="+action+" remainingMs="+deadline.remainingMs());
+    } else if (RefreshScheduler.ACTION_DEBUG_ALARM.equals(action) || RefreshScheduler.ACTION_FORCE_REFRESH.equals(action)) {
+      if (WidgetTrace.LOG) Log.d("DailyEventsReceiver","Manual trigger received cause="+cause);
+      RefreshScheduler.performDailyRefresh(context, cause);
+    } else if (Intent.ACTION_BOOT_COMPLETED.equals(action)) {
+      if (WidgetTrace.LOG) Log.d("DailyEventsReceiver","BOOT_COMPLETED – re-scheduling");
+      RefreshScheduler.performDailyRefresh(context, cause);
+      // Alarms somem no reboot; o WorkManager persiste e só é mexido se o plano mudar
+      boolean allowWork = deadline.hasAtLeast(ENSURE_WORK_BUDGET_MS);
+      if (!allowWork) Log.w("DailyEventsReceiver","Sem tempo para o WorkManager (remainingMs="+deadline.remainingMs()+"); fica para o próximo start");
+      DayBoundaryScheduler.ensureScheduled(context, cause, allowWork);
     }
   }
 }
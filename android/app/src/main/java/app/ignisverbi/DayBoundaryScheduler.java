@@ -0,0 +1,228 @@
+package app.ignisverbi;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+import org.json.JSONObject;
+
+/**
+ * Arma a virada do dia com o mínimo de wakeups: um alarm por meia-noite, ou pela hora de início do
+ * dia configurada (WidgetClock), com setWindow ou
+ * setAndAllowWhileIdle quando o Doze/standby o atrasou) e o WorkManager periódico só enquanto o alarm
+ * não provou ser confiável (DayBoundaryPolicy). Cada alarm agendado é classificado como no horário,
+ * atrasado ou perdido, e o histórico decide o plano do dia seguinte. Idempotente: chamar em todo start
+ * não rearma um alarm já pendente para a mesma meia-noite.
+ */
+public final class DayBoundaryScheduler {
+  static final String SCHEDULE_META_KEY = "widget:lastAlarmSchedule"; // JSON do último agendamento
+  private static final String PREF_FILE = "widget_day_boundary";
+  private static final String KEY_TARGET = "target";       // meia-noite do alarm pendente (epoch ms)
+  private static final String KEY_FIRED_AT = "firedAt";
+  private static final String KEY_ARMED_MODE = "armedMode";
+  private static final String KEY_WORK_ON = "periodicWork";
+  private static final String KEY_STREAK = "streak";
+  private static final String KEY_ON_TIME = "onTime";
+  private static final String KEY_LATE = "late";
+  private static final String KEY_MISSED = "missed";
+  private static final String KEY_LAST_MISS_DAY = "lastMissDay";
+  private static final String KEY_LAST_LATENESS = "lastLatenessMs";
+  private static final String KEY_ROLLOVER_CAUSE = "rolloverCause";
+  private static final String KEY_ROLLOVER_TS = "rolloverTs";
+
+  private static final int ALARM_REQUEST = 1010;
+  private static final int LEGACY_FALLBACK_REQUEST = 1011; // alarm +60s das versões anteriores
+
+  private DayBoundaryScheduler() {}
+
+  public static void ensureScheduled(Context ctx, String reason) { ensureScheduled(ctx, reason, true); }
+
+  /**
+   * Fecha o resultado do alarm anterior, escolhe o plano e arma o que faltar. {@code allowWork=false}
+   * deixa o WorkManager para a próxima chamada (receivers sem tempo sobrando).
+   */
+  public static synchronized void ensureScheduled(Context ctx, String reason, boolean allowWork) {
+    try {
+      SharedPreferences p = prefs(ctx);
+      DayClock clock = WidgetClock.get();
+      long now = clock.nowMs();
+      long nextMidnight = clock.nextBoundaryMs();
+      settle(p, now, clock.todayEpochDay());
+
+      long pending = p.getLong(KEY_TARGET, 0);
+      // Alarm futuro de outro fuso/relógio: não conta como falha, só rearma
+      if (pending > now && pending != nextMidnight) pending = 0;
+      long target = pending > 0 ? pending : nextMidnight;
+
+      int bucket = standbyBucket(ctx);
+      long lastMiss = p.getLong(KEY_LAST_MISS_DAY, DailyProgressEngine.NO_DAY);
+      long daysSinceMiss = lastMiss == DailyProgressEngine.NO_DAY ? -1 : clock.todayEpochDay() - lastMiss;
+      DayBoundaryPolicy.Plan plan = DayBoundaryPolicy.plan(Build.VERSION.SDK_INT, bucket, p.getInt(KEY_STREAK, 0), daysSinceMiss);
+
+      boolean armed = pending == target && plan.mode.equals(p.getString(KEY_ARMED_MODE, null)) && alarmArmed(ctx);
+      if (!armed) {
+        armAlarm(ctx, target, plan);
+        SharedPreferences.Editor e = p.edit().putLong(KEY_TARGET, target).putString(KEY_ARMED_MODE, plan.mode);
+        if (target != pending) e.remove(KEY_FIRED_AT);
+        e.apply();
+        writeScheduleMeta(ctx, reason, target, plan, bucket, p.getInt(KEY_STREAK, 0));
+      }
+      if (allowWork) applyPeriodicWork(ctx, p, plan.periodicWork);
+      if (WidgetTrace.LOG) Log.d("DayBoundaryScheduler", "ensureScheduled reason=" + reason + " mode=" + plan.mode + " target=" + new java.util.Date(target) + " armed=" + armed + " bucket=" + bucket);
+    } catch (Throwable t) {
+      Log.e("DayBoundaryScheduler", "Erro ensureScheduled", t);
+    }
+  }
+
+  /**
+   * Caminho rápido do start do app: o último agendamento (widget:lastAlarmSchedule) já é para a próxima
+   * meia-noite e o PendingIntent ainda existe (force-stop o cancelaria).
+   */
+  public static boolean coversNextMidnight(Context ctx) {
+    try {
+      String json = ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE).getString(SCHEDULE_META_KEY, null);
+      if (json == null) return false;
+      long midnightAt = new JSONObject(json).optLong("midnightAt", 0);
+      return midnightAt == WidgetClock.get().nextBoundaryMs() && alarmArmed(ctx);
+    } catch (Throwable t) {
+      return false;
+    }
+  }
+
+  /** Chamado pelo DailyEventsReceiver quando o alarm da meia-noite chega. */
+  public static synchronized void onAlarmFired(Context ctx, long scheduledAt, long now) {
+    SharedPreferences p = prefs(ctx);
+    if (scheduledAt <= 0 || scheduledAt != p.getLong(KEY_TARGET, 0) || p.getLong(KEY_FIRED_AT, 0) > 0) return;
+    p.edit().putLong(KEY_FIRED_AT, now).apply();
+  }
+
+  /** Registra qual gatilho detectou primeiro a virada de hoje (RefreshScheduler.applyDayTransition). */
+  static void noteRollover(Context ctx, String cause, long now) {
+    prefs(ctx).edit().putString(KEY_ROLLOVER_CAUSE, cause).putLong(KEY_ROLLOVER_TS, now).apply();
+  }
+
+  private static void settle(SharedPreferences p, long now, long today) {
+    long target = p.getLong(KEY_TARGET, 0);
+    if (target <= 0) return;
+    long firedAt = p.getLong(KEY_FIRED_AT, 0);
+    int outcome = DayBoundaryPolicy.outcome(target, firedAt, now);
+    if (outcome == DayBoundaryPolicy.PENDING) return;
+    long lateness = firedAt > 0 ? firedAt - target : now - target;
+    SharedPreferences.Editor e = p.edit()
+      .remove(KEY_TARGET)
+      .remove(KEY_FIRED_AT)
+      .remove(KEY_ARMED_MODE)
+      .putLong(KEY_LAST_LATENESS, lateness);
+    String label;
+    if (outcome == DayBoundaryPolicy.ON_TIME) {
+      label = "on_time";
+      e.putInt(KEY_STREAK, p.getInt(KEY_STREAK, 0) + 1).putInt(KEY_ON_TIME, p.getInt(KEY_ON_TIME, 0) + 1);
+    } else {
+      String key = outcome == DayBoundaryPolicy.LATE ? KEY_LATE : KEY_MISSED;
+      label = outcome == DayBoundaryPolicy.LATE ? "late" : "missed";
+      e.putInt(KEY_STREAK, 0).putInt(key, p.getInt(key, 0) + 1).putLong(KEY_LAST_MISS_DAY, today);
+    }
+    e.apply();
+    WidgetTrace.record(WidgetTrace.ALARM_OUTCOME, label, lateness);
+  }
+
+  private static Intent alarmIntent(Context ctx) {
+    Intent i = new Intent(ctx, DailyEventsReceiver.class); // explícito: sem restrição de broadcast implícito
+    i.setAction(RefreshScheduler.ACTION_MIDNIGHT_ALARM);
+    return i;
+  }
+
+  private static boolean alarmArmed(Context ctx) {
+    return PendingIntent.getBroadcast(ctx, ALARM_REQUEST, alarmIntent(ctx), PendingIntent.FLAG_IMMUTABLE|PendingIntent.FLAG_NO_CREATE) != null;
+  }
+
+  private static void armAlarm(Context ctx, long target, DayBoundaryPolicy.Plan plan) {
+    AlarmManager am = (AlarmManager) ctx.getSystemService(Context.ALARM_SERVICE);
+    if (am == null) return;
+    Intent intent = alarmIntent(ctx);
+    intent.putExtra(RefreshScheduler.EXTRA_SCHEDULED_AT, target);
+    PendingIntent pi = PendingIntent.getBroadcast(ctx, ALARM_REQUEST, intent, PendingIntent.FLAG_IMMUTABLE|PendingIntent.FLAG_UPDATE_CURRENT);
+    // Nenhum dos dois exige SCHEDULE_EXACT_ALARM
+    if (plan.allowWhileIdle) {
+      am.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, target, pi);
+    } else {
+      am.setWindow(AlarmManager.RTC_WAKEUP, target, DayBoundaryPolicy.WINDOW_MS, pi);
+    }
+    WidgetTrace.record(WidgetTrace.ALARM_SCHEDULED, plan.mode, target);
+    // O segundo alarm (+60s) caía no mesmo mecanismo e no mesmo atraso: só gastava um wakeup
+    PendingIntent legacy = PendingIntent.getBroadcast(ctx, LEGACY_FALLBACK_REQUEST, alarmIntent(ctx), PendingIntent.FLAG_IMMUTABLE|PendingIntent.FLAG_NO_CREATE);
+    if (legacy != null) {
+      am.cancel(legacy);
+      legacy.cancel();
+    }
+  }
+
+  private static void applyPeriodicWork(Context ctx, SharedPreferences p, boolean wanted) {
+    if (p.contains(KEY_WORK_ON) && p.getBoolean(KEY_WORK_ON, false) == wanted) return;
+    if (wanted) {
+      RefreshScheduler.ensureDailyWork(ctx);
+    } else {
+      RefreshScheduler.cancelDailyWork(ctx);
+    }
+    p.edit().putBoolean(KEY_WORK_ON, wanted).apply();
+  }
+
+  private static int standbyBucket(Context ctx) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) return 0;
+    try {
+      UsageStatsManager usm = (UsageStatsManager) ctx.getSystemService(Context.USAGE_STATS_SERVICE);
+      return usm == null ? 0 : usm.getAppStandbyBucket();
+    } catch (Throwable t) {
+      return 0;
+    }
+  }
+
+  private static void writeScheduleMeta(Context ctx, String reason, long target, DayBoundaryPolicy.Plan plan, int bucket, int streak) {
+    try {
+      JSONObject meta = new JSONObject();
+      meta.put("scheduledTs", WidgetClock.nowMs());
+      meta.put("reason", reason);
+      meta.put("midnightAt", target);
+      meta.put("mode", plan.mode);
+      meta.put("allowWhileIdle", plan.allowWhileIdle);
+      meta.put("periodicWork", plan.periodicWork);
+      meta.put("wakeupsPerDay", plan.wakeupsPerDay());
+      meta.put("standbyBucket", bucket);
+      meta.put("streak", streak);
+      ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE).edit().putString(SCHEDULE_META_KEY, meta.toString()).apply();
+      WidgetEvents.publish(WidgetEvents.ALARM_SCHEDULED, meta);
+    } catch (Throwable ignored) {}
+  }
+
+  /** Histórico de confiabilidade para getDebugState. */
+  public static JSONObject statsJson(Context ctx) {
+    SharedPreferences p = prefs(ctx);
+    JSONObject o = new JSONObject();
+    try {
+      o.put("onTime", p.getInt(KEY_ON_TIME, 0));
+      o.put("late", p.getInt(KEY_LATE, 0));
+      o.put("missed", p.getInt(KEY_MISSED, 0));
+      o.put("streak", p.getInt(KEY_STREAK, 0));
+      o.put("lastLatenessMs", p.getLong(KEY_LAST_LATENESS, -1));
+      o.put("pendingTarget", p.getLong(KEY_TARGET, 0));
+      o.put("armedMode", p.getString(KEY_ARMED_MODE, null));
+      o.put("periodicWork", p.getBoolean(KEY_WORK_ON, false));
+      o.put("rolloverCause", p.getString(KEY_ROLLOVER_CAUSE, null));
+      o.put("rolloverTs", p.getLong(KEY_ROLLOVER_TS, 0));
+    } catch (Throwable ignored) {}
+    return o;
+  }
+
+  /** Debug: esquece o histórico (volta ao modo de aprendizado no próximo ensureScheduled). */
+  static void reset(Context ctx) {
+    prefs(ctx).edit().clear().commit();
+  }
+
+  private static SharedPreferences prefs(Context ctx) {
+    return ctx.getApplicationContext().getSharedPreferences(PREF_FILE, Context.MODE_PRIVATE);
+  }
+}
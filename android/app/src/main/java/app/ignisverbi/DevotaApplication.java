@@ -0,0 +1,28 @@
+package app.ignisverbi;
+
+import android.app.Application;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Configuration;
+
+/**
+ * Application do app. O WorkManager é inicializado sob demanda (Configuration.Provider, com o
+ * WorkManagerInitializer removido do androidx.startup no manifest): só sobe quando alguém chama
+ * WorkManager.getInstance, o que no start da UI acontece depois do primeiro frame (StartupPipeline).
+ */
+public class DevotaApplication extends Application implements Configuration.Provider {
+  @Override
+  public void onCreate() {
+    super.onCreate();
+    StartupPipeline.onApplicationCreate();
+    WidgetClock.attach(this);
+  }
+
+  @NonNull
+  @Override
+  public Configuration getWorkManagerConfiguration() {
+    return new Configuration.Builder()
+      .setMinimumLoggingLevel(WidgetTrace.LOG ? Log.DEBUG : Log.INFO)
+      .build();
+  }
+}
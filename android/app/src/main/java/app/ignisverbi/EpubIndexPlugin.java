@@ -0,0 +1,111 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import org.json.JSONObject;
+
+/**
+ * Índice nativo dos EPUBs (EpubIndexStore/EpubIndexWorker): leitura pelo leitor e entrega de uploads.
+ * Tudo roda no executor do EpubIndexStore, fora da thread do plugin.
+ */
+@CapacitorPlugin(name = "EpubIndex")
+public class EpubIndexPlugin extends Plugin {
+  // indexEpub: caracteres de base64 por bloco decodificado (múltiplo de 4; 48 KB de EPUB)
+  private static final int BASE64_CHUNK = 64 * 1024;
+
+  /**
+   * Índice nativo do EPUB (EpubIndexStore): { bookId, sourceKey?, webPath? }. Pronto devolve
+   * { ready, locations (JSON para book.locations.load), chars, words, sections }. Livro embutido
+   * (webPath) ainda sem índice é agendado aqui mesmo; upload do usuário chega por indexEpub.
+   */
+  @PluginMethod
+  public void getEpubIndex(PluginCall call) {
+    Context ctx = getContext();
+    String bookId = call.getString("bookId");
+    if (bookId == null) {
+      call.reject("bookId obrigatório");
+      return;
+    }
+    String webPath = call.getString("webPath");
+    String sourceKeyArg = call.getString("sourceKey");
+    EpubIndexStore.execute(() -> {
+      try {
+        String asset = webPath == null ? null : EpubIndexWorker.assetPath(webPath);
+        String sourceKey = asset != null ? EpubIndexWorker.assetSourceKey(ctx, asset) : sourceKeyArg;
+        EpubIndex idx = EpubIndexStore.read(ctx, bookId, sourceKey);
+        com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
+        ret.put("ready", idx != null);
+        if (idx == null) {
+          if (asset != null) EpubIndexWorker.enqueueAsset(ctx, bookId, asset, sourceKey);
+          ret.put("queued", asset != null);
+          call.resolve(ret);
+          return;
+        }
+        ret.put("locations", idx.locationsJson());
+        ret.put("chars", idx.totalChars);
+        ret.put("words", idx.totalWords);
+        org.json.JSONArray sections = new org.json.JSONArray();
+        for (EpubIndex.Section s : idx.sections) {
+          JSONObject o = new JSONObject();
+          o.put("href", s.href);
+          o.put("cfiBase", s.cfiBase);
+          o.put("chars", s.chars);
+          o.put("words", s.words);
+          o.put("charOffset", s.charOffset);
+          o.put("wordOffset", s.wordOffset);
+          o.put("firstLocation", s.firstLocation);
+          o.put("locationCount", s.locationCount);
+          sections.put(o);
+        }
+        ret.put("sections", sections);
+        call.resolve(ret);
+      } catch (Throwable t) {
+        call.reject("Failed getEpubIndex"+t);
+      }
+    });
+  }
+
+  /**
+   * Entrega um EPUB ao indexador nativo: { bookId, sourceKey, data (base64) }. O base64 é decodificado
+   * em blocos direto para o arquivo temporário, na thread do EpubIndexStore (sem o EPUB inteiro em bytes).
+   */
+  @PluginMethod
+  public void indexEpub(PluginCall call) {
+    Context ctx = getContext();
+    String bookId = call.getString("bookId");
+    String sourceKey = call.getString("sourceKey");
+    String data = call.getString("data");
+    if (bookId == null || data == null) {
+      call.reject("bookId e data obrigatórios");
+      return;
+    }
+    EpubIndexStore.execute(() -> {
+      try {
+        com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
+        if (EpubIndexStore.has(ctx, bookId, sourceKey)) {
+          ret.put("queued", false);
+          call.resolve(ret);
+          return;
+        }
+        java.io.File source = EpubIndexStore.newSourceFile(ctx, bookId);
+        // btoa não quebra linhas: blocos com múltiplo de 4 caracteres decodificam independentes
+        try (java.io.FileOutputStream out = new java.io.FileOutputStream(source)) {
+          for (int i = 0; i < data.length(); i += BASE64_CHUNK) {
+            out.write(android.util.Base64.decode(data.substring(i, Math.min(data.length(), i + BASE64_CHUNK)), android.util.Base64.DEFAULT));
+          }
+        } catch (Throwable t) {
+          source.delete();
+          throw t;
+        }
+        EpubIndexWorker.enqueueFile(ctx, bookId, source, sourceKey);
+        ret.put("queued", true);
+        call.resolve(ret);
+      } catch (Throwable t) {
+        call.reject("Failed indexEpub"+t);
+      }
+    });
+  }
+}
@@ -0,0 +1,149 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.AtomicFile;
+import android.util.Log;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+
+/**
+ * Índices de EPUB gerados pelo EpubIndexWorker, um arquivo por livro em files/epub_index/ (AtomicFile,
+ * formato do EpubIndex). Limitado pelo disco do app, não pela quota do localStorage: o leitor abre com
+ * as locations prontas mesmo depois de o LRU do locationsCache.ts descartar o livro. Os EPUBs entregues
+ * para indexar ficam em cache/epub_index/ só até o worker terminar.
+ */
+public final class EpubIndexStore {
+  private static final String DIR = "epub_index";
+
+  // Diagnóstico (getDebugState), lido por statsJson()
+  private static final AtomicLong indexed = new AtomicLong();
+  private static final AtomicLong failed = new AtomicLong();
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+  private static volatile long lastIndexMs = -1;
+
+  private static final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(() -> {
+      Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+      r.run();
+    }, "devota-epub-index");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private EpubIndexStore() {}
+
+  /** Leitura do índice e gravação do EPUB entregue pelo plugin, fora da thread dos plugins. */
+  static void execute(Runnable r) {
+    io.execute(r);
+  }
+
+  /** Índice de {@code bookId}; null se ausente, corrompido ou de outra origem ({@code sourceKey} não vazio e diferente). */
+  public static EpubIndex read(Context ctx, String bookId, String sourceKey) {
+    EpubIndex idx = load(file(ctx, bookId));
+    if (idx != null && sourceKey != null && !sourceKey.isEmpty() && !sourceKey.equals(idx.sourceKey)) idx = null;
+    (idx != null ? hits : misses).incrementAndGet();
+    return idx;
+  }
+
+  static boolean has(Context ctx, String bookId, String sourceKey) {
+    EpubIndex idx = load(file(ctx, bookId));
+    return idx != null && (sourceKey == null || sourceKey.isEmpty() || sourceKey.equals(idx.sourceKey));
+  }
+
+  /** Resultado de uma rodada do EpubIndexWorker, para o statsJson. */
+  static void recordIndexed(long ms) {
+    indexed.incrementAndGet();
+    lastIndexMs = ms;
+  }
+
+  static void recordFailed() {
+    failed.incrementAndGet();
+  }
+
+  static void write(Context ctx, String bookId, EpubIndex idx) {
+    File f = file(ctx, bookId);
+    f.getParentFile().mkdirs();
+    AtomicFile file = new AtomicFile(f);
+    FileOutputStream out = null;
+    try {
+      out = file.startWrite();
+      out.write(idx.encode());
+      file.finishWrite(out);
+    } catch (Throwable t) {
+      if (out != null) file.failWrite(out);
+      Log.e("EpubIndexStore", "Falha ao gravar índice bookId=" + bookId, t);
+    }
+  }
+
+  public static void delete(Context ctx, String bookId) {
+    new AtomicFile(file(ctx, bookId)).delete();
+  }
+
+  /** Arquivo temporário para o EPUB de {@code bookId} entregue ao worker (apagado por ele). */
+  static File newSourceFile(Context ctx, String bookId) {
+    File dir = new File(ctx.getApplicationContext().getCacheDir(), DIR);
+    dir.mkdirs();
+    return new File(dir, key(bookId) + "-" + System.nanoTime() + ".epub");
+  }
+
+  public static void clear(Context ctx) {
+    Context app = ctx.getApplicationContext();
+    for (File dir : new File[] { new File(app.getFilesDir(), DIR), new File(app.getCacheDir(), DIR) }) {
+      File[] files = dir.listFiles();
+      if (files != null) for (File f : files) f.delete();
+    }
+  }
+
+  private static File file(Context ctx, String bookId) {
+    return new File(new File(ctx.getApplicationContext().getFilesDir(), DIR), key(bookId) + ".bin");
+  }
+
+  /** Nome de arquivo estável para qualquer bookId (FNV-1a, o mesmo id estável do BookSnapshot). */
+  private static String key(String bookId) {
+    return Long.toHexString(BookSnapshot.stableId(bookId));
+  }
+
+  private static EpubIndex load(File f) {
+    try {
+      EpubIndex idx = EpubIndex.decode(new AtomicFile(f).readFully());
+      if (idx == null) Log.w("EpubIndexStore", "Índice inválido descartado: " + f.getName());
+      return idx;
+    } catch (FileNotFoundException e) {
+      return null;
+    } catch (Throwable t) {
+      Log.e("EpubIndexStore", "Falha ao ler índice " + f.getName(), t);
+      return null;
+    }
+  }
+
+  public static JSONObject statsJson(Context ctx) {
+    JSONObject o = new JSONObject();
+    try {
+      File[] files = new File(ctx.getApplicationContext().getFilesDir(), DIR).listFiles();
+      long bytes = 0;
+      int books = 0;
+      if (files != null) {
+        for (File f : files) {
+          if (!f.getName().endsWith(".bin")) continue;
+          books++;
+          bytes += f.length();
+        }
+      }
+      o.put("books", books);
+      o.put("bytes", bytes);
+      o.put("indexed", indexed.get());
+      o.put("failed", failed.get());
+      o.put("hits", hits.get());
+      o.put("misses", misses.get());
+      o.put("lastIndexMs", lastIndexMs);
+    } catch (Throwable ignored) {}
+    return o;
+  }
+}
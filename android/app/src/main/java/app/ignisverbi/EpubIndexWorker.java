@@ -0,0 +1,108 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Indexa um EPUB em background (EpubIndexer) e grava no EpubIndexStore. A origem é um arquivo
+ * temporário entregue pelo JS (upload do usuário) ou um EPUB embutido nos assets do app; o temporário
+ * é apagado ao final. Um trabalho único por livro com APPEND_OR_REPLACE: entregas em sequência rodam
+ * em fila, e a segunda sai cedo se o índice da mesma origem já existir.
+ */
+public class EpubIndexWorker extends Worker {
+  static final String UNIQUE_WORK_PREFIX = "EpubIndex:";
+  static final String KEY_BOOK_ID = "bookId";
+  static final String KEY_SOURCE_KEY = "sourceKey";
+  static final String KEY_FILE = "file";
+  static final String KEY_ASSET = "asset";
+
+  public EpubIndexWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+    super(context, params);
+  }
+
+  /** Livro embutido: {@code webPath} é o caminho no app web (p.ex. /epubs/x.epub), servido de assets/public. */
+  static String assetPath(String webPath) {
+    String p = webPath.startsWith("/") ? webPath.substring(1) : webPath;
+    return "public/" + p;
+  }
+
+  /** Origem de um asset: muda a cada atualização do app, quando o EPUB embutido pode ter mudado. */
+  static String assetSourceKey(Context ctx, String assetPath) {
+    long updated = 0;
+    try {
+      updated = ctx.getPackageManager().getPackageInfo(ctx.getPackageName(), 0).lastUpdateTime;
+    } catch (Throwable ignored) {}
+    return "asset:" + assetPath + "@" + updated;
+  }
+
+  static void enqueueFile(Context ctx, String bookId, File source, String sourceKey) {
+    enqueue(ctx, bookId, sourceKey, new Data.Builder().putString(KEY_FILE, source.getAbsolutePath()));
+  }
+
+  static void enqueueAsset(Context ctx, String bookId, String assetPath, String sourceKey) {
+    enqueue(ctx, bookId, sourceKey, new Data.Builder().putString(KEY_ASSET, assetPath));
+  }
+
+  private static void enqueue(Context ctx, String bookId, String sourceKey, Data.Builder input) {
+    OneTimeWorkRequest req = new OneTimeWorkRequest.Builder(EpubIndexWorker.class)
+      .setInputData(input.putString(KEY_BOOK_ID, bookId).putString(KEY_SOURCE_KEY, sourceKey).build())
+      .build();
+    WorkManager.getInstance(ctx).enqueueUniqueWork(UNIQUE_WORK_PREFIX + bookId, ExistingWorkPolicy.APPEND_OR_REPLACE, req);
+  }
+
+  @NonNull
+  @Override
+  public Result doWork() {
+    Context ctx = getApplicationContext();
+    String bookId = getInputData().getString(KEY_BOOK_ID);
+    String sourceKey = getInputData().getString(KEY_SOURCE_KEY);
+    String path = getInputData().getString(KEY_FILE);
+    String asset = getInputData().getString(KEY_ASSET);
+    File source = path != null ? new File(path) : null;
+    long start = System.currentTimeMillis();
+    try {
+      if (bookId == null || (source == null && asset == null)) return Result.failure();
+      if (EpubIndexStore.has(ctx, bookId, sourceKey)) {
+        if (WidgetTrace.LOG) Log.d("EpubIndexWorker", "Índice já existe bookId=" + bookId);
+        return Result.success();
+      }
+      if (source == null) {
+        source = EpubIndexStore.newSourceFile(ctx, bookId);
+        copyAsset(ctx, asset, source);
+      }
+      EpubIndex idx = EpubIndexer.index(source, sourceKey);
+      EpubIndexStore.write(ctx, bookId, idx);
+      long ms = System.currentTimeMillis() - start;
+      EpubIndexStore.recordIndexed(ms);
+      WidgetTrace.latency(WidgetTrace.WORKER_RUN, "epub_index", ms, WidgetTrace.workerMs);
+      if (WidgetTrace.LOG) Log.d("EpubIndexWorker", "Indexado bookId=" + bookId + " sections=" + idx.sections.size()
+        + " locations=" + idx.locations.size() + " words=" + idx.totalWords + " ms=" + ms);
+      return Result.success();
+    } catch (Throwable t) {
+      // Sem retry: EPUB malformado continua malformado; o leitor segue gerando as locations no WebView
+      EpubIndexStore.recordFailed();
+      Log.e("EpubIndexWorker", "Falha ao indexar bookId=" + bookId, t);
+      return Result.failure();
+    } finally {
+      if (source != null) source.delete();
+    }
+  }
+
+  private static void copyAsset(Context ctx, String asset, File dest) throws java.io.IOException {
+    try (InputStream in = ctx.getAssets().open(asset); OutputStream out = new FileOutputStream(dest)) {
+      byte[] buf = new byte[64 * 1024];
+      for (int n; (n = in.read(buf)) > 0; ) out.write(buf, 0, n);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.util.Log;
+import org.json.JSONObject;
+
+/**
+ * Handshake do refresh headless: o HeadlessWebViewHost dispara window.devotaHeadlessRefresh(token)
+ * assim que a página carrega e o JS responde com DevotaHeadlessHost.complete. O host encerra no sinal,
+ * ou no timeout configurável. Registra os tempos (bridge pronto, início e fim do JS) para medir o custo real.
+ */
+public final class HeadlessRefreshSession {
+  public static final long DEFAULT_TIMEOUT_MS = 8_000;
+  private static final String META_KEY = "widget:lastHeadlessRefresh"; // diagnostic JSON
+
+  public interface Listener {
+    void onFinished(HeadlessRefreshSession session);
+  }
+
+  private static HeadlessRefreshSession active; // guardado pela classe
+
+  public final String host; // "webview" (HeadlessWebViewHost)
+  public final String token;
+  public final long timeoutMs;
+  public final long createdTs;
+  private final Listener listener;
+  private long bridgeReadyTs;
+  private long jsDispatchTs;
+  private long jsStartTs;
+  private long jsDoneTs;
+  private long finishedTs;
+  private String outcome;
+  private int percent = -1;
+  private boolean stateApplied; // o JS já entregou percent via applyState nesta sessão
+
+  private HeadlessRefreshSession(String host, long timeoutMs, Listener listener) {
+    this.host = host;
+    this.token = Long.toString(System.nanoTime(), 36);
+    this.timeoutMs = timeoutMs > 0 ? timeoutMs : DEFAULT_TIMEOUT_MS;
+    this.createdTs = System.currentTimeMillis();
+    this.listener = listener;
+  }
+
+  public static synchronized HeadlessRefreshSession start(String host, long timeoutMs, Listener listener) {
+    if (active != null) active.finish("superseded");
+    active = new HeadlessRefreshSession(host, timeoutMs, listener);
+    return active;
+  }
+
+  public synchronized void markBridgeReady() {
+    if (bridgeReadyTs == 0) bridgeReadyTs = System.currentTimeMillis();
+  }
+
+  /** Marca o envio do JS; retorna false se já havia sido enviado (onPageLoaded pode repetir). */
+  public synchronized boolean markJsDispatched() {
+    if (jsDispatchTs != 0) return false;
+    jsDispatchTs = System.currentTimeMillis();
+    return true;
+  }
+
+  public synchronized boolean isActive() { return outcome == null; }
+
+  public synchronized String outcome() { return outcome; }
+
+  /** JS que chama window.devotaHeadlessRefresh(token); avalia para false se o bundle ainda não o registrou. */
+  public String dispatchScript() {
+    return "(function(){if(window.devotaHeadlessRefresh){window.devotaHeadlessRefresh('" + token + "');return true;}return false;})()";
+  }
+
+  /** true se {@code token} pertence à sessão ativa (antes de aplicar efeitos do sinal). */
+  public static synchronized boolean isActiveToken(String token) {
+    return active != null && token != null && token.equals(active.token);
+  }
+
+  /** applyState com percent chegou durante a sessão ativa: o sinal de conclusão não grava de novo. */
+  public static synchronized void markStateApplied() {
+    if (active != null) {
+      synchronized (active) { active.stateApplied = true; }
+    }
+  }
+
+  /** true se a sessão de {@code token} já recebeu o estado pelo applyState. */
+  public static synchronized boolean stateApplied(String token) {
+    if (active == null || token == null || !token.equals(active.token)) return false;
+    synchronized (active) { return active.stateApplied; }
+  }
+
+  /** Sinal do plugin. Retorna false se o token não corresponde à sessão ativa (tardio ou duplicado). */
+  public static boolean complete(Context ctx, String token, boolean ok, long jsStartTs, long jsDoneTs, int percent) {
+    HeadlessRefreshSession s;
+    synchronized (HeadlessRefreshSession.class) {
+      s = active;
+      if (s == null || token == null || !token.equals(s.token)) return false;
+    }
+    synchronized (s) {
+      s.jsStartTs = jsStartTs;
+      s.jsDoneTs = jsDoneTs;
+      s.percent = percent;
+    }
+    s.finish(ok ? "completed" : "js_error");
+    s.persist(ctx);
+    return true;
+  }
+
+  public void timeout(Context ctx) { abort(ctx, "timeout"); }
+
+  /** Encerra sem sinal do JS (timeout, WebView indisponível...). */
+  public void abort(Context ctx, String how) {
+    if (finish(how)) persist(ctx);
+  }
+
+  private boolean finish(String how) {
+    synchronized (this) {
+      if (outcome != null) return false;
+      outcome = how;
+      finishedTs = System.currentTimeMillis();
+    }
+    synchronized (HeadlessRefreshSession.class) {
+      if (active == this) active = null;
+    }
+    WidgetTrace.latency(WidgetTrace.HEADLESS, how, finishedTs - createdTs, WidgetTrace.headlessMs);
+    if (WidgetTrace.LOG) Log.d("HeadlessRefresh", "Sessão " + token + " encerrada: " + toJson());
+    if (listener != null) listener.onFinished(this);
+    return true;
+  }
+
+  public synchronized JSONObject toJson() {
+    JSONObject o = new JSONObject();
+    try {
+      o.put("host", host);
+      o.put("token", token);
+      o.put("outcome", outcome);
+      o.put("timeoutMs", timeoutMs);
+      o.put("createdTs", createdTs);
+      if (bridgeReadyTs > 0) o.put("bridgeReadyMs", bridgeReadyTs - createdTs);
+      if (jsDispatchTs > 0) o.put("jsDispatchMs", jsDispatchTs - createdTs);
+      if (jsStartTs > 0) o.put("jsStartMs", jsStartTs - createdTs);
+      if (jsDoneTs > 0) o.put("jsDoneMs", jsDoneTs - createdTs);
+      if (jsStartTs > 0 && jsDoneTs >= jsStartTs) o.put("jsDurationMs", jsDoneTs - jsStartTs);
+      if (finishedTs > 0) o.put("totalMs", finishedTs - createdTs);
+      if (percent >= 0) o.put("percent", percent);
+      o.put("stateApplied", stateApplied);
+    } catch (Throwable ignored) {}
+    return o;
+  }
+
+  private void persist(Context ctx) {
+    try {
+      ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE).edit().putString(META_KEY, toJson().toString()).apply();
+    } catch (Throwable ignored) {}
+  }
+
+  public static String lastMeta(Context ctx) {
+    return ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE).getString(META_KEY, null);
+  }
+}
@@ -0,0 +1,59 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Roda o recomputo JS no HeadlessWebViewHost em vez de abrir a MainActivity (início de activity em
+ * background é bloqueado a partir do Android 10). Trabalho único com KEEP: gatilhos em rajada
+ * reaproveitam o refresh já enfileirado.
+ */
+public class HeadlessRefreshWorker extends Worker {
+  static final String UNIQUE_WORK = "HeadlessWidgetRefresh";
+  static final String KEY_CAUSE = "cause";
+  static final String KEY_IDLE_TTL_MS = "idleTtlMs";
+
+  public HeadlessRefreshWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+    super(context, params);
+  }
+
+  public static void enqueue(Context ctx, String cause) {
+    enqueue(ctx, cause, HeadlessWebViewHost.DEFAULT_IDLE_TTL_MS);
+  }
+
+  public static void enqueue(Context ctx, String cause, long idleTtlMs) {
+    Data input = new Data.Builder()
+      .putString(KEY_CAUSE, cause)
+      .putLong(KEY_IDLE_TTL_MS, idleTtlMs)
+      .build();
+    OneTimeWorkRequest req = new OneTimeWorkRequest.Builder(HeadlessRefreshWorker.class)
+      .setInputData(input)
+      .build();
+    WorkManager.getInstance(ctx).enqueueUniqueWork(UNIQUE_WORK, ExistingWorkPolicy.KEEP, req);
+  }
+
+  @NonNull
+  @Override
+  public Result doWork() {
+    String cause = getInputData().getString(KEY_CAUSE);
+    long ttl = getInputData().getLong(KEY_IDLE_TTL_MS, HeadlessWebViewHost.DEFAULT_IDLE_TTL_MS);
+    long start = System.currentTimeMillis();
+    try {
+      String outcome = HeadlessWebViewHost.refresh(getApplicationContext(), cause, HeadlessRefreshSession.DEFAULT_TIMEOUT_MS, ttl);
+      WidgetTrace.latency(WidgetTrace.WORKER_RUN, "headless", System.currentTimeMillis() - start, WidgetTrace.workerMs);
+      if (WidgetTrace.LOG) Log.d("HeadlessRefreshWorker","Concluido cause="+cause+" outcome="+outcome);
+      // Sem retry: o reset otimista já está no widget e o próximo gatilho tenta de novo
+      return Result.success();
+    } catch (Throwable t) {
+      Log.e("HeadlessRefreshWorker","Falha cause="+cause, t);
+      return Result.failure();
+    }
+  }
+}
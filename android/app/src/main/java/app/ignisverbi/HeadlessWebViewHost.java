@@ -0,0 +1,309 @@
+package app.ignisverbi;
+
+import android.annotation.SuppressLint;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.webkit.JavascriptInterface;
+import android.webkit.RenderProcessGoneDetail;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+import androidx.webkit.WebViewAssetLoader;
+import java.io.IOException;
+import java.net.URLConnection;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONObject;
+
+/**
+ * WebView offscreen (sem Activity) para o recomputo em segundo plano. Carrega headless.html na mesma
+ * origem do app (https://localhost, servida de assets/public via WebViewAssetLoader), então enxerga o
+ * mesmo localStorage/IndexedDB, e roda window.devotaHeadlessRefresh. A instância fica aquecida por um
+ * TTL de ociosidade para que gatilhos seguidos (worker, alarm, widget desatualizado) a reaproveitem, e
+ * é descartada em onTrimMemory. O WebView só é tocado no main thread.
+ */
+public final class HeadlessWebViewHost {
+  static final String DOMAIN = "localhost";
+  static final String ENTRY_URL = "https://" + DOMAIN + "/headless.html";
+  static final String JS_BRIDGE = "DevotaHeadlessHost";
+  public static final long DEFAULT_IDLE_TTL_MS = 3 * 60 * 1000;
+  private static final long DISPATCH_RETRY_MS = 100;
+
+  private static final Handler main = new Handler(Looper.getMainLooper());
+  private static final Runnable evictIdle = () -> evict("idle_ttl");
+
+  // Estado abaixo só é alterado no main thread
+  private static volatile WebView webView;
+  private static boolean pageLoaded;
+  private static boolean callbacksRegistered;
+  private static boolean evictWhenIdle;
+  private static HeadlessRefreshSession current;
+  private static long idleTtlMs = DEFAULT_IDLE_TTL_MS;
+
+  private static final AtomicInteger coldStarts = new AtomicInteger();
+  private static final AtomicInteger warmHits = new AtomicInteger();
+  private static final AtomicInteger evictions = new AtomicInteger();
+  private static volatile String lastEvictReason;
+
+  private HeadlessWebViewHost() {}
+
+  /**
+   * Executa um refresh e bloqueia a thread chamadora até o sinal do JS ou o timeout. Retorna o
+   * outcome da sessão ("completed", "js_error", "timeout"...). Nunca chamar no main thread.
+   */
+  public static String refresh(Context context, String cause, long timeoutMs, long ttlMs) throws InterruptedException {
+    if (Looper.myLooper() == Looper.getMainLooper()) throw new IllegalStateException("refresh() bloqueia; chame de um worker");
+    final Context app = context.getApplicationContext();
+    final CountDownLatch done = new CountDownLatch(1);
+    final HeadlessRefreshSession session = HeadlessRefreshSession.start("webview", timeoutMs, s -> done.countDown());
+    main.post(() -> begin(app, session, ttlMs));
+    if (!done.await(session.timeoutMs, TimeUnit.MILLISECONDS)) session.timeout(app);
+    main.post(HeadlessWebViewHost::scheduleIdleEviction);
+    if (WidgetTrace.LOG) Log.d("HeadlessWebViewHost", "Refresh cause=" + cause + " -> " + session.toJson());
+    return session.outcome();
+  }
+
+  private static void begin(Context app, HeadlessRefreshSession session, long ttlMs) {
+    main.removeCallbacks(evictIdle);
+    if (ttlMs > 0) idleTtlMs = ttlMs;
+    if (!session.isActive()) return;
+    registerCallbacks(app);
+    current = session;
+    if (webView == null) {
+      try {
+        create(app);
+      } catch (Throwable t) {
+        // Provider do WebView ausente/atualizando
+        Log.e("HeadlessWebViewHost", "Falha ao criar WebView", t);
+        session.abort(app, "webview_unavailable");
+        return;
+      }
+      coldStarts.incrementAndGet();
+    } else {
+      warmHits.incrementAndGet();
+    }
+    // Página já carregada: dispara direto; senão onPageFinished dispara para a sessão corrente
+    if (pageLoaded) {
+      session.markBridgeReady();
+      dispatch(session);
+    }
+  }
+
+  @SuppressLint({"SetJavaScriptEnabled", "AddJavascriptInterface"})
+  private static void create(Context app) {
+    final WebViewAssetLoader loader = new WebViewAssetLoader.Builder()
+        .setDomain(DOMAIN)
+        .addPathHandler("/", new PublicAssetsHandler(app.getAssets()))
+        .build();
+    WebView wv = new WebView(app);
+    WebSettings settings = wv.getSettings();
+    settings.setJavaScriptEnabled(true);
+    settings.setDomStorageEnabled(true);
+    settings.setAllowFileAccess(false);
+    settings.setAllowContentAccess(false);
+    wv.addJavascriptInterface(new JsBridge(app), JS_BRIDGE);
+    wv.setWebViewClient(new WebViewClient() {
+      @Override
+      public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        return loader.shouldInterceptRequest(request.getUrl());
+      }
+
+      @Override
+      public boolean shouldOverrideUrlLoading(WebView view, WebResourceRequest request) {
+        return true; // nunca navega para fora de headless.html
+      }
+
+      @Override
+      public void onPageFinished(WebView view, String url) {
+        if (view != webView) return;
+        pageLoaded = true;
+        HeadlessRefreshSession s = current;
+        if (s != null && s.isActive()) {
+          s.markBridgeReady();
+          dispatch(s);
+        }
+      }
+
+      @Override
+      public boolean onRenderProcessGone(WebView view, RenderProcessGoneDetail detail) {
+        if (view == webView) evict("render_process_gone");
+        return true;
+      }
+    });
+    webView = wv;
+    pageLoaded = false;
+    wv.loadUrl(ENTRY_URL);
+    if (WidgetTrace.LOG) Log.d("HeadlessWebViewHost", "WebView offscreen criado (cold start)");
+  }
+
+  /** Chama window.devotaHeadlessRefresh(token); se o módulo ainda não o registrou, tenta de novo. */
+  private static void dispatch(HeadlessRefreshSession session) {
+    WebView wv = webView;
+    if (wv == null || !session.isActive()) return;
+    wv.evaluateJavascript(session.dispatchScript(), value -> {
+      if ("true".equals(value)) {
+        session.markJsDispatched();
+      } else {
+        main.postDelayed(() -> dispatch(session), DISPATCH_RETRY_MS);
+      }
+    });
+  }
+
+  private static void scheduleIdleEviction() {
+    main.removeCallbacks(evictIdle);
+    if (webView != null) main.postDelayed(evictIdle, evictWhenIdle ? 0 : idleTtlMs);
+  }
+
+  private static void evict(String reason) {
+    if (webView == null) return;
+    if (current != null && current.isActive()) {
+      // Nunca derruba um refresh em andamento; descarta assim que ele terminar
+      evictWhenIdle = true;
+      return;
+    }
+    WebView wv = webView;
+    webView = null;
+    pageLoaded = false;
+    current = null;
+    evictWhenIdle = false;
+    main.removeCallbacks(evictIdle);
+    try {
+      wv.removeJavascriptInterface(JS_BRIDGE);
+      wv.stopLoading();
+      wv.destroy();
+    } catch (Throwable ignored) {}
+    evictions.incrementAndGet();
+    lastEvictReason = reason;
+    if (WidgetTrace.LOG) Log.d("HeadlessWebViewHost", "WebView offscreen descartado reason=" + reason);
+  }
+
+  private static void registerCallbacks(Context app) {
+    if (callbacksRegistered) return;
+    callbacksRegistered = true;
+    app.registerComponentCallbacks(new ComponentCallbacks2() {
+      @Override
+      public void onTrimMemory(int level) {
+        // UI_HIDDEN não é pressão de memória; os demais níveis (running low/critical, background+) são
+        if (level >= TRIM_MEMORY_BACKGROUND || (level >= TRIM_MEMORY_RUNNING_LOW && level < TRIM_MEMORY_UI_HIDDEN)) {
+          evict("trim_memory_" + level);
+        }
+      }
+
+      @Override
+      public void onLowMemory() { evict("low_memory"); }
+
+      @Override
+      public void onConfigurationChanged(Configuration newConfig) {}
+    });
+  }
+
+  public static JSONObject statsJson() {
+    JSONObject o = new JSONObject();
+    try {
+      o.put("warm", webView != null);
+      o.put("coldStarts", coldStarts.get());
+      o.put("warmHits", warmHits.get());
+      o.put("evictions", evictions.get());
+      o.put("lastEvictReason", lastEvictReason);
+      o.put("idleTtlMs", idleTtlMs);
+    } catch (Throwable ignored) {}
+    return o;
+  }
+
+  /** Métodos expostos como window.DevotaHeadlessHost (rodam na thread JavaBridge do WebView). */
+  static final class JsBridge {
+    private final Context app;
+
+    JsBridge(Context app) { this.app = app; }
+
+    @JavascriptInterface
+    public void complete(String token, boolean ok, double jsStart, double jsDone, double percent, boolean hasGoal) {
+      if (!HeadlessRefreshSession.isActiveToken(token)) return;
+      int p = (int) Math.round(percent);
+      // Normalmente o estado já chegou pelo applyState (uma escrita, uma renderização) e aqui é só o
+      // handshake; o percent do sinal só é aplicado se o lote não chegou ao nativo nesta sessão
+      if (ok && p >= 0 && !HeadlessRefreshSession.stateApplied(token)) {
+        try {
+          JSONObject batch = new JSONObject();
+          batch.put("percent", Math.min(100, p));
+          batch.put("hasGoal", hasGoal);
+          WidgetStateBatcher.submit(app, batch, false);
+        } catch (Throwable t) {
+          Log.e("HeadlessWebViewHost", "Falha ao aplicar percent do sinal", t);
+        }
+      }
+      HeadlessRefreshSession.complete(app, token, ok, (long) jsStart, (long) jsDone, p);
+    }
+
+    /** Mesmo lote de WidgetUpdater.applyState (sem throttle: o refresh headless é uma chamada só). */
+    @JavascriptInterface
+    public void applyState(String json) {
+      try {
+        JSONObject batch = new JSONObject(json);
+        WidgetStateBatcher.Applied applied = WidgetStateBatcher.submit(app, batch, false);
+        if (applied != null && batch.has("percent")) HeadlessRefreshSession.markStateApplied();
+      } catch (Throwable t) {
+        Log.e("HeadlessWebViewHost", "applyState inválido: " + json, t);
+      }
+    }
+
+    /**
+     * Mesma consulta de WordIndexPlugin.getWordIndex: o livro estático está no contêiner nativo, não no
+     * localStorage, e a página offscreen não tem Capacitor. Retorna o JSON { ready, total?, upTo?, target? };
+     * target negativo = sem capítulo-alvo.
+     */
+    @JavascriptInterface
+    public String wordIndex(String bookId, String contentVersion, int partIndex, int chapterIndex, int targetPartIndex, int targetChapterIndex) {
+      try {
+        WordIndex idx = bookId == null ? null : WordIndexStore.readOrRebuild(app, bookId, contentVersion == null ? "" : contentVersion);
+        return WordIndexStore.lookup(idx, partIndex, chapterIndex, targetPartIndex, targetChapterIndex).toString();
+      } catch (Throwable t) {
+        Log.e("HeadlessWebViewHost", "wordIndex bookId=" + bookId, t);
+        return "{\"ready\":false}";
+      }
+    }
+  }
+
+  /** Serve assets/public (webDir do Capacitor). Módulos ES exigem MIME de JavaScript. */
+  static final class PublicAssetsHandler implements WebViewAssetLoader.PathHandler {
+    private final AssetManager assets;
+
+    PublicAssetsHandler(AssetManager assets) { this.assets = assets; }
+
+    @Override
+    public WebResourceResponse handle(String path) {
+      try {
+        return new WebResourceResponse(mimeType(path), null, assets.open("public/" + path));
+      } catch (IOException e) {
+        return null;
+      }
+    }
+  }
+
+  static String mimeType(String path) {
+    int dot = path.lastIndexOf('.');
+    String ext = dot < 0 ? "" : path.substring(dot + 1).toLowerCase(Locale.ROOT);
+    switch (ext) {
+      case "html": return "text/html";
+      case "js":
+      case "mjs": return "text/javascript";
+      case "css": return "text/css";
+      case "json": return "application/json";
+      case "wasm": return "application/wasm";
+      case "svg": return "image/svg+xml";
+      case "woff2": return "font/woff2";
+      default:
+        String guessed = URLConnection.guessContentTypeFromName(path);
+        return guessed != null ? guessed : "application/octet-stream";
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.util.Log;
+import org.json.JSONObject;
+
+/**
+ * Entradas do DailyProgressEngine: conversão do payload JS e do JSON persistido (seção de entradas do
+ * widget_state.bin, ver WidgetStateStore; antes widget:progressInputs) e o percentual nativo.
+ */
+public class ProgressInputsStore {
+  public static final String KEY = "widget:progressInputs"; // legado: migrado para o widget_state.bin
+
+  public static String kindName(int kind) {
+    switch (kind) {
+      case DailyProgressEngine.KIND_PHYSICAL: return "physical";
+      case DailyProgressEngine.KIND_STATIC: return "static";
+      default: return "epub";
+    }
+  }
+
+  public static int parseKind(String kind) {
+    if ("physical".equals(kind)) return DailyProgressEngine.KIND_PHYSICAL;
+    if ("static".equals(kind)) return DailyProgressEngine.KIND_STATIC;
+    return DailyProgressEngine.KIND_EPUB;
+  }
+
+  public static String encode(DailyProgressEngine.Inputs in) throws org.json.JSONException {
+    JSONObject o = new JSONObject();
+    if (in.bookId != null) o.put("bookId", in.bookId);
+    o.put("kind", kindName(in.kind));
+    if (in.targetEpochDay != DailyProgressEngine.NO_DAY) o.put("targetDay", in.targetEpochDay);
+    if (in.baselineEpochDay != DailyProgressEngine.NO_DAY) o.put("baselineDay", in.baselineEpochDay);
+    o.put("baselinePercent", in.baselinePercent);
+    o.put("baselineWords", in.baselineWords);
+    o.put("baselinePage", in.baselinePage);
+    o.put("currentPercent", in.currentPercent);
+    o.put("currentWords", in.currentWords);
+    o.put("currentPage", in.currentPage);
+    o.put("totalPages", in.totalPages);
+    o.put("targetWords", in.targetWords);
+    if (in.nextBaselineEpochDay != DailyProgressEngine.NO_DAY) {
+      o.put("nextBaselineDay", in.nextBaselineEpochDay);
+      o.put("nextBaselinePercent", in.nextBaselinePercent);
+      o.put("nextBaselineWords", in.nextBaselineWords);
+      o.put("nextBaselinePage", in.nextBaselinePage);
+    }
+    if (in.localModified > 0) o.put("localModified", in.localModified);
+    return o.toString();
+  }
+
+  public static DailyProgressEngine.Inputs decode(String json) {
+    if (json == null) return null;
+    try {
+      JSONObject o = new JSONObject(json);
+      DailyProgressEngine.Inputs in = new DailyProgressEngine.Inputs();
+      in.bookId = o.optString("bookId", null);
+      in.kind = parseKind(o.optString("kind", "epub"));
+      in.targetEpochDay = o.has("targetDay") ? o.getLong("targetDay") : DailyProgressEngine.NO_DAY;
+      in.baselineEpochDay = o.has("baselineDay") ? o.getLong("baselineDay") : DailyProgressEngine.NO_DAY;
+      in.baselinePercent = o.optDouble("baselinePercent", 0);
+      in.baselineWords = o.optInt("baselineWords", 0);
+      in.baselinePage = o.optInt("baselinePage", -1);
+      in.currentPercent = o.optDouble("currentPercent", 0);
+      in.currentWords = o.optInt("currentWords", 0);
+      in.currentPage = o.optInt("currentPage", 0);
+      in.totalPages = o.optInt("totalPages", 0);
+      in.targetWords = o.optInt("targetWords", 0);
+      in.nextBaselineEpochDay = o.has("nextBaselineDay") ? o.getLong("nextBaselineDay") : DailyProgressEngine.NO_DAY;
+      in.nextBaselinePercent = o.optDouble("nextBaselinePercent", 0);
+      in.nextBaselineWords = o.optInt("nextBaselineWords", 0);
+      in.nextBaselinePage = o.optInt("nextBaselinePage", -1);
+      in.localModified = o.optLong("localModified", 0);
+      return in;
+    } catch (Throwable t) {
+      Log.e("ProgressInputsStore", "Inputs inválidos: " + json, t);
+      return null;
+    }
+  }
+
+  /** Converte o payload do JS (ProgressInputs em widgetUpdater.ts, datas ISO) para as entradas do motor. */
+  public static DailyProgressEngine.Inputs fromPayload(JSONObject o) {
+    DailyProgressEngine.Inputs in = new DailyProgressEngine.Inputs();
+    in.bookId = o.isNull("bookId") ? null : o.optString("bookId", null);
+    in.kind = parseKind(o.optString("kind", "epub"));
+    in.targetEpochDay = DailyProgressEngine.parseIsoDay(o.isNull("targetDateISO") ? null : o.optString("targetDateISO", null));
+    in.baselineEpochDay = DailyProgressEngine.parseIsoDay(o.isNull("baselineDateISO") ? null : o.optString("baselineDateISO", null));
+    in.baselinePercent = o.optDouble("baselinePercent", 0);
+    in.baselineWords = o.optInt("baselineWords", 0);
+    in.baselinePage = o.optInt("baselinePage", -1);
+    in.currentPercent = o.optDouble("currentPercent", 0);
+    in.currentWords = o.optInt("currentWords", 0);
+    in.currentPage = o.optInt("currentPage", 0);
+    in.totalPages = o.optInt("totalPages", 0);
+    in.targetWords = o.optInt("targetWords", 0);
+    return in;
+  }
+
+  /** Payload { dateISO, percent, words?, page? } de tomorrowBaseline (applyState). */
+  public static void applyTomorrowBaseline(DailyProgressEngine.Inputs in, JSONObject o) {
+    in.nextBaselineEpochDay = DailyProgressEngine.parseIsoDay(o.optString("dateISO", null));
+    in.nextBaselinePercent = o.optDouble("percent", 0);
+    in.nextBaselineWords = o.optInt("words", 0);
+    in.nextBaselinePage = o.optInt("page", -1);
+  }
+
+  /** Payload { percent, page?, words? } do stream de leitura: só o progresso atual muda. */
+  public static void applyProgress(DailyProgressEngine.Inputs in, JSONObject o) {
+    in.currentPercent = o.optDouble("percent", in.currentPercent);
+    in.currentPage = o.optInt("page", in.currentPage);
+    in.currentWords = o.optInt("words", in.currentWords);
+  }
+
+  /** false se não gravou (ver WidgetStateStore.writeInputs). */
+  public static boolean save(Context ctx, DailyProgressEngine.Inputs in) {
+    return WidgetStateStore.writeInputs(ctx, in);
+  }
+
+  public static DailyProgressEngine.Inputs load(Context ctx) {
+    try {
+      return WidgetStateStore.readInputs(ctx);
+    } catch (Throwable t) {
+      return null;
+    }
+  }
+
+  /** Percentual de hoje calculado nativamente, ou null se o JS ainda não empurrou entradas. */
+  public static DailyProgressEngine.Result computeToday(Context ctx) {
+    return DailyProgressEngine.compute(load(ctx), WidgetClock.todayEpochDay());
+  }
+}
@@ -0,0 +1,169 @@
+package app.ignisverbi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Cliente PostgREST mínimo do pull nativo (ProgressPullWorker). Pagina com o mesmo checkpoint da
+ * replicação do RxDB (replicateSupabase): {@code _modified} em ms, com o id como desempate, em ordem
+ * crescente. Pede só as colunas que o widget usa e a resposta em gzip; a conexão é reaproveitada
+ * (keep-alive) entre as páginas e tabelas de uma rodada: cada resposta é lida até o fim e fechada, sem
+ * disconnect().
+ */
+final class ProgressPullClient {
+  private final String baseUrl;
+  private final String anonKey;
+  private final String accessToken;
+
+  long requests;
+  long wireBytes; // corpo como veio da rede (gzip)
+  long bodyBytes; // JSON descomprimido
+
+  ProgressPullClient(String baseUrl, String anonKey, String accessToken) {
+    this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    this.anonKey = anonKey;
+    this.accessToken = accessToken;
+  }
+
+  /** Último documento visto numa tabela; o próximo pull começa estritamente depois dele. */
+  static final class Checkpoint {
+    final String id;
+    final long modified;
+
+    Checkpoint(String id, long modified) {
+      this.id = id;
+      this.modified = modified;
+    }
+  }
+
+  static final class Page {
+    final JSONArray rows;
+    final Checkpoint next; // checkpoint após a página (o de entrada se veio vazia)
+
+    Page(JSONArray rows, Checkpoint next) {
+      this.rows = rows;
+      this.next = next;
+    }
+  }
+
+  /** Resposta HTTP fora de 2xx; 401/403 indicam sessão expirada ou revogada. */
+  static final class HttpException extends IOException {
+    final int code;
+
+    HttpException(int code, String table) {
+      super("HTTP " + code + " em " + table);
+      this.code = code;
+    }
+
+    boolean unauthorized() {
+      return code == 401 || code == 403;
+    }
+  }
+
+  /**
+   * Uma página de {@code table} após {@code since} (null = desde o início). {@code filter} vem pronto
+   * para a query string (p.ex. {@code &book_id=eq.x}, já codificado) e restringe o escopo.
+   */
+  Page fetch(String table, String select, String filter, Checkpoint since, int limit) throws IOException {
+    StringBuilder url = new StringBuilder(baseUrl).append("/rest/v1/").append(table)
+      .append("?select=").append(encode(select)).append(filter);
+    if (since != null) {
+      // Mesma condição do replicateSupabase: modificado depois, ou no mesmo ms com id maior
+      url.append("&or=").append(encode("(_modified.gt." + since.modified + ",and(_modified.eq." + since.modified
+        + ",id.gt." + quote(since.id) + "))"));
+    }
+    url.append("&order=_modified.asc,id.asc&limit=").append(limit);
+
+    HttpURLConnection conn = (HttpURLConnection) new URL(url.toString()).openConnection();
+    conn.setConnectTimeout(10_000);
+    conn.setReadTimeout(20_000);
+    conn.setRequestProperty("apikey", anonKey);
+    conn.setRequestProperty("Authorization", "Bearer " + accessToken);
+    conn.setRequestProperty("Accept", "application/json");
+    // Explícito para contar os bytes na rede; com o header definido a descompressão fica por nossa conta
+    conn.setRequestProperty("Accept-Encoding", "gzip");
+    requests++;
+    boolean drained = false;
+    try {
+      int code = conn.getResponseCode();
+      if (code < 200 || code >= 300) throw new HttpException(code, table);
+      CountingInputStream wire = new CountingInputStream(conn.getInputStream());
+      InputStream in = "gzip".equalsIgnoreCase(conn.getContentEncoding()) ? new GZIPInputStream(wire) : wire;
+      byte[] body;
+      try {
+        body = readAll(in);
+      } finally {
+        in.close();
+      }
+      drained = true;
+      wireBytes += wire.count;
+      bodyBytes += body.length;
+      JSONArray rows = new JSONArray(new String(body, StandardCharsets.UTF_8));
+      Checkpoint next = since;
+      if (rows.length() > 0) {
+        JSONObject last = rows.getJSONObject(rows.length() - 1);
+        next = new Checkpoint(last.getString("id"), last.getLong("_modified"));
+      }
+      return new Page(rows, next);
+    } catch (JSONException e) {
+      throw new IOException("Resposta inválida em " + table, e);
+    } finally {
+      // Corpo lido até o fim e fechado: a conexão volta ao pool do HttpURLConnection (keep-alive) para a
+      // próxima página. disconnect() só quando a resposta ficou pela metade (erro HTTP, falha de leitura)
+      if (!drained) conn.disconnect();
+    }
+  }
+
+  /** Valor de filtro PostgREST entre aspas (ids podem ter vírgula, ponto ou parênteses). */
+  static String quote(String value) {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+
+  static String encode(String s) {
+    try {
+      return URLEncoder.encode(s, "UTF-8").replace("+", "%20");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024);
+    byte[] buf = new byte[8 * 1024];
+    for (int n; (n = in.read(buf)) > 0; ) out.write(buf, 0, n);
+    return out.toByteArray();
+  }
+
+  private static final class CountingInputStream extends FilterInputStream {
+    long count;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) count++;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) count += n;
+      return n;
+    }
+  }
+}
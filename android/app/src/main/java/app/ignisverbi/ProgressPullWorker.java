@@ -0,0 +1,331 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+
+/**
+ * Pull nativo do progresso feito em outros dispositivos, sem subir o WebView. Periódico (só com rede),
+ * busca no Supabase apenas as linhas do livro ativo do widget (progresso em books/user_epubs, plano em
+ * reading_plans e baseline de hoje em daily_baselines), com checkpoint por tabela no formato da
+ * replicação do RxDB, e aplica o resultado pelo WidgetStateBatcher. A sessão vem do JS
+ * (WidgetUpdater.setSyncSession): o worker só usa o access token enquanto ele vale e nunca o renova,
+ * para não girar o refresh token que o supabase-js do app ainda guarda.
+ */
+public class ProgressPullWorker extends Worker {
+  static final String UNIQUE_WORK = "ProgressPull";
+  static final long INTERVAL_MIN = 30;
+  static final int BATCH = 50; // mesmo batchSize do pull do replication.ts
+  static final int MAX_PAGES = 10;
+  private static final long EXPIRY_MARGIN_MS = 60_000;
+
+  private static final String PREF_FILE = "widget_progress_pull";
+  private static final String KEY_URL = "url";
+  private static final String KEY_ANON_KEY = "anonKey";
+  private static final String KEY_TOKEN = "accessToken";
+  private static final String KEY_EXPIRES_AT = "expiresAt";
+  private static final String KEY_USER_ID = "userId";
+  private static final String KEY_CHECKPOINTS = "checkpoints";
+
+  // Ordem de aplicação: plano e baseline antes do progresso
+  static final String[] TABLES = { "reading_plans", "daily_baselines", "books", "user_epubs" };
+
+  static final AtomicLong runs = new AtomicLong();
+  static final AtomicLong requests = new AtomicLong();
+  static final AtomicLong rows = new AtomicLong();
+  static final AtomicLong applied = new AtomicLong();
+  static final AtomicLong skipped = new AtomicLong();
+  static final AtomicLong failures = new AtomicLong();
+  static volatile long wireBytes;
+  static volatile long bodyBytes;
+  static volatile long lastRunMs = -1;
+  static volatile String lastOutcome;
+
+  public ProgressPullWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+    super(context, params);
+  }
+
+  /** Sessão do usuário logado; outro usuário zera os checkpoints. Agenda o pull periódico. */
+  static void setSession(Context ctx, String url, String anonKey, String accessToken, long expiresAtMs, String userId) {
+    SharedPreferences p = prefs(ctx);
+    SharedPreferences.Editor e = p.edit()
+      .putString(KEY_URL, url)
+      .putString(KEY_ANON_KEY, anonKey)
+      .putString(KEY_TOKEN, accessToken)
+      .putLong(KEY_EXPIRES_AT, expiresAtMs)
+      .putString(KEY_USER_ID, userId);
+    if (!userId.equals(p.getString(KEY_USER_ID, null))) e.remove(KEY_CHECKPOINTS);
+    e.apply();
+    enqueue(ctx);
+  }
+
+  /** Logout: esquece sessão e checkpoints e cancela o trabalho periódico. */
+  static void clearSession(Context ctx) {
+    prefs(ctx).edit().clear().apply();
+    try {
+      WorkManager.getInstance(ctx).cancelUniqueWork(UNIQUE_WORK);
+    } catch (Throwable t) { Log.e("ProgressPullWorker", "Falha ao cancelar pull", t); }
+  }
+
+  static void enqueue(Context ctx) {
+    try {
+      Constraints constraints = new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build();
+      PeriodicWorkRequest req = new PeriodicWorkRequest.Builder(ProgressPullWorker.class, INTERVAL_MIN, TimeUnit.MINUTES)
+        .setConstraints(constraints)
+        .addTag("progress_pull")
+        .build();
+      WorkManager.getInstance(ctx).enqueueUniquePeriodicWork(UNIQUE_WORK, ExistingPeriodicWorkPolicy.KEEP, req);
+    } catch (Throwable t) { Log.e("ProgressPullWorker", "Falha ao agendar pull", t); }
+  }
+
+  @NonNull
+  @Override
+  public Result doWork() {
+    Context ctx = getApplicationContext();
+    SharedPreferences p = prefs(ctx);
+    String url = p.getString(KEY_URL, null);
+    String anonKey = p.getString(KEY_ANON_KEY, null);
+    String token = p.getString(KEY_TOKEN, null);
+    String userId = p.getString(KEY_USER_ID, null);
+    long start = System.currentTimeMillis();
+    runs.incrementAndGet();
+    if (url == null || anonKey == null || token == null || userId == null) return skip("no_session");
+    // Token vencido: espera o JS empurrar uma sessão nova (TOKEN_REFRESHED / próximo login)
+    if (p.getLong(KEY_EXPIRES_AT, 0) - EXPIRY_MARGIN_MS <= WidgetClock.nowMs()) return skip("expired");
+    DailyProgressEngine.Inputs stored = WidgetStateStore.readInputs(ctx);
+    if (stored == null || stored.bookId == null) return skip("no_book");
+
+    ProgressPullClient client = new ProgressPullClient(url, anonKey, token);
+    try {
+      lastOutcome = pullAndApply(ctx, client, stored, userId, WidgetClock.todayEpochDay());
+      return Result.success();
+    } catch (ProgressPullClient.HttpException e) {
+      if (!e.unauthorized()) return fail(e);
+      // Sessão revogada: não insiste até o JS mandar outra
+      p.edit().putLong(KEY_EXPIRES_AT, 0).apply();
+      return skip("unauthorized");
+    } catch (Throwable t) {
+      return fail(t);
+    } finally {
+      requests.addAndGet(client.requests);
+      wireBytes += client.wireBytes;
+      bodyBytes += client.bodyBytes;
+      lastRunMs = System.currentTimeMillis() - start;
+      WidgetTrace.latency(WidgetTrace.WORKER_RUN, "progress_pull", lastRunMs, WidgetTrace.workerMs);
+      if (WidgetTrace.LOG) Log.d("ProgressPullWorker", "Pull outcome=" + lastOutcome + " requests=" + client.requests
+        + " wire=" + client.wireBytes + " body=" + client.bodyBytes + " ms=" + lastRunMs);
+    }
+  }
+
+  private static Result skip(String outcome) {
+    skipped.incrementAndGet();
+    lastOutcome = outcome;
+    return Result.success();
+  }
+
+  private static Result fail(Throwable t) {
+    failures.incrementAndGet();
+    lastOutcome = "failed";
+    Log.w("ProgressPullWorker", "Falha no pull", t);
+    return Result.retry();
+  }
+
+  /**
+   * Uma rodada: busca, aplica pelo WidgetStateBatcher e só então grava os checkpoints. Se o lote foi
+   * descartado (livro ativo trocou ou o JS gravou progresso local durante a busca), os checkpoints ficam
+   * como estavam e a próxima rodada busca as mesmas linhas de novo. Retorna o lastOutcome.
+   */
+  static String pullAndApply(Context ctx, ProgressPullClient client, DailyProgressEngine.Inputs stored, String userId, long today) throws IOException {
+    Pulled pulled = pull(ctx, client, stored, userId, today);
+    if (pulled.isEmpty()) {
+      saveCheckpoints(ctx, pulled);
+      return "unchanged";
+    }
+    WidgetStateBatcher.Applied a = WidgetStateBatcher.submitPulled(ctx, pulled);
+    if (a == null) return "superseded";
+    saveCheckpoints(ctx, pulled);
+    if (!a.changed) return "unchanged";
+    applied.incrementAndGet();
+    return "applied";
+  }
+
+  /**
+   * Linhas de uma rodada, na ordem de {@link #TABLES}, e os checkpoints que valem depois de aplicá-las.
+   * Guarda o livro e o localModified das entradas usadas na busca: o WidgetStateBatcher descarta o lote
+   * se as entradas atuais já não forem as mesmas.
+   */
+  static final class Pulled {
+    final String bookId;
+    final long localModified;
+    final long today;
+    final List<String> tables = new ArrayList<>();
+    final List<JSONObject> rows = new ArrayList<>();
+    final JSONObject checkpoints;
+
+    Pulled(DailyProgressEngine.Inputs source, long today, JSONObject checkpoints) {
+      this.bookId = source.bookId;
+      this.localModified = source.localModified;
+      this.today = today;
+      this.checkpoints = checkpoints;
+    }
+
+    boolean isEmpty() {
+      return rows.isEmpty();
+    }
+
+    /** Aplica as linhas em {@code in} (entradas lidas agora); true se alguma entrada mudou. */
+    boolean applyTo(DailyProgressEngine.Inputs in) {
+      String before = encode(in);
+      for (int i = 0; i < rows.size(); i++) applyRow(tables.get(i), rows.get(i), in, today, localModified);
+      return !before.equals(encode(in));
+    }
+  }
+
+  /**
+   * Busca as tabelas desde o checkpoint de cada uma, no escopo do livro de {@code source}. Não aplica
+   * nada nem grava checkpoints: uma falha no meio repete a rodada inteira.
+   */
+  static Pulled pull(Context ctx, ProgressPullClient client, DailyProgressEngine.Inputs source, String userId, long today) throws IOException {
+    SharedPreferences p = prefs(ctx);
+    JSONObject checkpoints;
+    try {
+      checkpoints = new JSONObject(p.getString(KEY_CHECKPOINTS, "{}"));
+    } catch (Throwable t) {
+      checkpoints = new JSONObject();
+    }
+    Pulled pulled = new Pulled(source, today, checkpoints);
+    try {
+      for (String table : TABLES) {
+        String scope = filter(table, source.bookId, userId, today);
+        ProgressPullClient.Checkpoint cp = checkpoint(checkpoints.optJSONObject(table), scope);
+        for (int page = 0; page < MAX_PAGES; page++) {
+          ProgressPullClient.Page result = client.fetch(table, select(table), scope, cp, BATCH);
+          for (int i = 0; i < result.rows.length(); i++) {
+            pulled.tables.add(table);
+            pulled.rows.add(result.rows.getJSONObject(i));
+          }
+          rows.addAndGet(result.rows.length());
+          cp = result.next;
+          if (result.rows.length() < BATCH) break;
+        }
+        if (cp != null) checkpoints.put(table, new JSONObject().put("scope", scope).put("id", cp.id).put("modified", cp.modified));
+      }
+    } catch (org.json.JSONException e) {
+      throw new IOException("Linha inválida no pull", e);
+    }
+    return pulled;
+  }
+
+  static void saveCheckpoints(Context ctx, Pulled pulled) {
+    prefs(ctx).edit().putString(KEY_CHECKPOINTS, pulled.checkpoints.toString()).apply();
+  }
+
+  /** Checkpoint salvo, se for do mesmo escopo (livro ativo, dia da baseline); senão recomeça do zero. */
+  private static ProgressPullClient.Checkpoint checkpoint(JSONObject saved, String scope) {
+    if (saved == null || !scope.equals(saved.optString("scope"))) return null;
+    return new ProgressPullClient.Checkpoint(saved.optString("id"), saved.optLong("modified"));
+  }
+
+  static String select(String table) {
+    switch (table) {
+      case "reading_plans": return "id,target_date_iso,_modified,_deleted";
+      case "daily_baselines": return "id,words,percent,page,_modified,_deleted";
+      case "books": return "id,percentage,current_page,total_pages,_modified,_deleted";
+      default: return "id,percentage,_modified,_deleted";
+    }
+  }
+
+  /** Escopo do pull: linhas do usuário (além do RLS) e do livro ativo; a baseline só do dia. */
+  static String filter(String table, String bookId, String userId, long today) {
+    String user = "&user_id=eq." + ProgressPullClient.encode(userId);
+    String book = ProgressPullClient.encode(bookId);
+    switch (table) {
+      case "reading_plans": return user + "&book_id=eq." + book;
+      case "daily_baselines": return user + "&book_id=eq." + book + "&date_iso=eq." + DailyProgressEngine.formatIsoDay(today);
+      default: return user + "&id=eq." + book;
+    }
+  }
+
+  /**
+   * Aplica uma linha às entradas do motor. Ignora linhas cujo _modified não passa o da última linha
+   * local ({@code localTs}, o Inputs.localModified gravado pelo JS junto com o estado do widget: comparar
+   * _modified com _modified não depende do relógio deste aparelho) e, em books/user_epubs, linhas apagadas.
+   */
+  static void applyRow(String table, JSONObject row, DailyProgressEngine.Inputs in, long today, long localTs) {
+    if (row.optLong("_modified", 0) <= localTs) return;
+    boolean deleted = row.optBoolean("_deleted", false);
+    switch (table) {
+      case "reading_plans":
+        in.targetEpochDay = deleted ? DailyProgressEngine.NO_DAY
+          : DailyProgressEngine.parseIsoDay(row.isNull("target_date_iso") ? null : row.optString("target_date_iso", null));
+        break;
+      case "daily_baselines":
+        if (deleted) return;
+        in.baselineEpochDay = today;
+        in.baselinePercent = row.optDouble("percent", 0);
+        in.baselineWords = row.optInt("words", 0);
+        in.baselinePage = row.isNull("page") ? -1 : row.optInt("page", -1);
+        break;
+      case "books":
+        if (deleted) return;
+        if (!row.isNull("percentage")) in.currentPercent = row.optDouble("percentage", in.currentPercent);
+        if (in.kind == DailyProgressEngine.KIND_PHYSICAL) {
+          if (!row.isNull("current_page")) in.currentPage = row.optInt("current_page", in.currentPage);
+          if (row.optInt("total_pages", 0) > 0) in.totalPages = row.optInt("total_pages");
+        }
+        break;
+      default: // user_epubs
+        if (deleted || row.isNull("percentage")) return;
+        in.currentPercent = row.optDouble("percentage", in.currentPercent);
+    }
+  }
+
+  private static String encode(DailyProgressEngine.Inputs in) {
+    try {
+      return ProgressInputsStore.encode(in);
+    } catch (org.json.JSONException e) {
+      return "";
+    }
+  }
+
+  private static SharedPreferences prefs(Context ctx) {
+    return ctx.getApplicationContext().getSharedPreferences(PREF_FILE, Context.MODE_PRIVATE);
+  }
+
+  public static JSONObject statsJson(Context ctx) {
+    JSONObject o = new JSONObject();
+    try {
+      SharedPreferences p = prefs(ctx);
+      o.put("session", p.getString(KEY_TOKEN, null) != null);
+      o.put("expiresAt", p.getLong(KEY_EXPIRES_AT, 0));
+      o.put("checkpoints", new JSONObject(p.getString(KEY_CHECKPOINTS, "{}")));
+      DailyProgressEngine.Inputs in = WidgetStateStore.readInputs(ctx);
+      o.put("localModified", in == null ? 0 : in.localModified);
+      o.put("runs", runs.get());
+      o.put("requests", requests.get());
+      o.put("rows", rows.get());
+      o.put("applied", applied.get());
+      o.put("skipped", skipped.get());
+      o.put("failures", failures.get());
+      o.put("wireBytes", wireBytes);
+      o.put("bodyBytes", bodyBytes);
+      o.put("lastRunMs", lastRunMs);
+      o.put("lastOutcome", lastOutcome);
+    } catch (Throwable ignored) {}
+    return o;
+  }
+}
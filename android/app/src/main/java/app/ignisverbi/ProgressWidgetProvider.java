@@ -1,189 +1,186 @@
 package app.ignisverbi;
 
-import java.util.Arrays;
 import android.util.Log;
 
 
 import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.os.Build;
 import android.os.Bundle;
+import android.util.ArrayMap;
+import android.util.SizeF;
 import android.widget.RemoteViews;
-
-import org.json.JSONObject;
+import androidx.core.os.BundleCompat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 public class ProgressWidgetProvider extends AppWidgetProvider {
-  // Único arquivo oficial após refactor
-  private static final String PREF_FILE = "CapacitorStorage";
-  private static final String KEY = "widget:dailyProgress";   // JSON string { percent, hasGoal, ts, day }
-  private static final String LAST_REFRESH_ATTEMPT_KEY = "widget:lastRefreshAttempt"; // timestamp da última tentativa de refresh
-  private static final long MIN_REFRESH_INTERVAL_MS = 5 * 60 * 1000; // 5 minutos entre tentativas de refresh
-  private static final long DATA_STALE_THRESHOLD_MS = 60 * 60 * 1000; // 1 hora - considera dados antigos
+  static final int FALLBACK_SIZE_DP = 110;
 
   @Override
   public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-  Log.d("ProgressWidgetProvider","onUpdate periodic/explicit size="+ (appWidgetIds==null?0:appWidgetIds.length));
-    for (int appWidgetId : appWidgetIds) {
-      updateAppWidget(context, appWidgetManager, appWidgetId);
-    }
+  if (WidgetTrace.LOG) Log.d("ProgressWidgetProvider","onUpdate explicit size="+ (appWidgetIds==null?0:appWidgetIds.length));
+    // Renderização sai do main thread; goAsync mantém o processo vivo até a passada coalescida terminar
+    WidgetRenderDispatcher.request(context, "system_update", goAsync());
   }
 
   @Override
   public void onAppWidgetOptionsChanged(Context context, AppWidgetManager appWidgetManager, int appWidgetId, Bundle newOptions) {
-    updateAppWidget(context, appWidgetManager, appWidgetId);
+    // Sem invalidate: o dirty-check compara as faixas de tamanho e pula o push se nada mudou
+    // (no Android 12+ o mapa de tamanhos já cobre o redimensionamento)
+    WidgetRenderDispatcher.request(context, "options_changed", goAsync());
+  }
+
+  @Override
+  public void onDeleted(Context context, int[] appWidgetIds) {
+    for (int id : appWidgetIds) WidgetRenderDispatcher.invalidate(id);
+    WidgetBindingStore.remove(context, appWidgetIds);
   }
 
   public static void triggerUpdate(Context context) { triggerUpdate(context, "unknown"); }
+  /** Todas as instâncias (virada do dia, update explícito). */
   public static void triggerUpdate(Context context, String origin) {
-    AppWidgetManager manager = AppWidgetManager.getInstance(context);
-    int[] ids = manager.getAppWidgetIds(new ComponentName(context, ProgressWidgetProvider.class));
-    Log.d("ProgressWidgetProvider", "triggerUpdate origem="+origin+" ids=" + Arrays.toString(ids));
-    if (ids != null && ids.length > 0) {
-      for (int id : ids) {
-        Log.d("ProgressWidgetProvider", "Atualizando widget id=" + id + " origin="+origin);
-        updateAppWidget(context, manager, id);
+    WidgetRenderDispatcher.request(context, origin, null);
+  }
+
+  /** Só as instâncias que acompanham o livro ativo: o WidgetStateStore mudou. */
+  public static void triggerActiveUpdate(Context context, String origin) {
+    WidgetRenderDispatcher.requestBooks(context, origin, WidgetBindings.ACTIVE);
+  }
+
+  /**
+   * Resolve o estado a exibir. Payload de outro dia passa pela transição arbitrada (RefreshScheduler /
+   * RefreshArbiter); payload de hoje mas antigo pede um refresh headless, limitado pelo arbiter.
+   * Chamado uma vez por passada de renderização (não por widget id).
+   */
+  static WidgetState resolveState(Context context) {
+    WidgetState state = null;
+    try {
+      state = WidgetStateStore.read(context);
+      DayClock clock = WidgetClock.get();
+      long today = clock.todayEpochDay();
+      int freshness = WidgetFreshness.classify(state, today, clock.nowMs());
+
+      if (freshness == WidgetFreshness.MISSING || freshness == WidgetFreshness.OTHER_DAY) {
+        // Verifica se os dados são de hoje; senão uma única transição por dia (demais gatilhos viram no-op)
+        if (WidgetTrace.LOG) Log.d("ProgressWidgetProvider", "Dados de dia diferente detectados (estado: " + state + ", hoje: " + today + ")");
+        RefreshScheduler.applyDayTransition(context, "widget_stale");
+        state = WidgetStateStore.read(context);
+      } else if (freshness == WidgetFreshness.STALE) {
+        // Se são de hoje, verifica se são muito antigos
+        if (WidgetTrace.LOG) Log.d("ProgressWidgetProvider", "Dados antigos detectados (idade: " + ((clock.nowMs() - state.ts) / 60000) + " min), solicitando refresh");
+        RefreshScheduler.launchHeadlessRefresh(context, "widget_data_age");
       }
+    } catch (Throwable t) {
+      Log.e("ProgressWidgetProvider", "Falha ao resolver estado", t);
     }
+    return state;
   }
 
-  private static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
+  /**
+   * Geometrias distintas que o launcher pode exibir para este widget. No Android 12+ vêm de
+   * OPTION_APPWIDGET_SIZES (uma por tamanho, sem repetir faixa); antes disso, só o max/min informado.
+   */
+  static List<WidgetGeometry> geometries(Bundle opts, float density) {
+    List<WidgetGeometry> out = new ArrayList<>(2);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && opts != null) {
+      ArrayList<SizeF> sizes = BundleCompat.getParcelableArrayList(opts, AppWidgetManager.OPTION_APPWIDGET_SIZES, SizeF.class);
+      if (sizes != null) {
+        for (SizeF s : sizes) {
+          WidgetGeometry g = WidgetGeometry.forSize(Math.round(s.getWidth()), Math.round(s.getHeight()), density);
+          if (!out.contains(g)) out.add(g);
+        }
+      }
+    }
+    if (out.isEmpty()) out.add(WidgetGeometry.forSize(widthDp(opts), heightDp(opts), density));
+    return out;
+  }
+
+  /** Lê largura/altura (dp) do widget: max se disponível, senão min, senão fallback. */
+  static int widthDp(Bundle opts) {
+    return sizeDp(opts, AppWidgetManager.OPTION_APPWIDGET_MAX_WIDTH, AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH);
+  }
+
+  static int heightDp(Bundle opts) {
+    return sizeDp(opts, AppWidgetManager.OPTION_APPWIDGET_MAX_HEIGHT, AppWidgetManager.OPTION_APPWIDGET_MIN_HEIGHT);
+  }
+
+  private static int sizeDp(Bundle opts, String maxKey, String minKey) {
+    if (opts == null) return FALLBACK_SIZE_DP;
+    int max = opts.getInt(maxKey, 0);
+    int min = opts.getInt(minKey, 0);
+    int v = max > 0 ? max : min;
+    return v > 0 ? v : FALLBACK_SIZE_DP;
+  }
+
+  private static final int UNRESOLVED = -1;
+  // Drawables opcionais resolvidos uma única vez por processo (getIdentifier é lookup por string)
+  private static volatile int bgRes = UNRESOLVED;
+  private static volatile int fallbackBgRes = UNRESOLVED;
+  private static volatile PendingIntent launchIntent;
+
+  private static void resolveResources(Context context) {
+    if (bgRes != UNRESOLVED) return;
+    fallbackBgRes = context.getResources().getIdentifier("progress_widget", "drawable", context.getPackageName());
+    bgRes = context.getResources().getIdentifier("widget_background", "drawable", context.getPackageName());
+  }
+
+  static PendingIntent launchIntent(Context context) {
+    PendingIntent pi = launchIntent;
+    if (pi == null) {
+      // Click launches app
+      Intent intent = new Intent(context, MainActivity.class);
+      intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+      pi = PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_IMMUTABLE);
+      launchIntent = pi;
+    }
+    return pi;
+  }
+
+  /**
+   * RemoteViews completo para as geometrias do widget. No Android 12+ com mais de uma faixa de tamanho
+   * usa o construtor com mapa de tamanhos, e o launcher escolhe o layout sem nova passada.
+   */
+  static RemoteViews buildViews(Context context, int percent, boolean hasGoal, String title, List<WidgetGeometry> geometries) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && geometries.size() > 1) {
+      Map<SizeF, RemoteViews> mapped = new ArrayMap<>(geometries.size());
+      for (WidgetGeometry g : geometries) {
+        mapped.put(new SizeF(g.widthDp, g.heightDp), buildViews(context, percent, hasGoal, title, g));
+      }
+      return new RemoteViews(mapped);
+    }
+    return buildViews(context, percent, hasGoal, title, geometries.get(0));
+  }
+
+  /** Monta o RemoteViews completo para uma faixa de tamanho; {@code title} null = "Meta diária" (livro ativo). */
+  static RemoteViews buildViews(Context context, int percent, boolean hasGoal, String title, WidgetGeometry geometry) {
+    resolveResources(context);
     RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_progress);
     // Simplified background rendering for debugging
-    int bgRes = context.getResources().getIdentifier("widget_background", "drawable", context.getPackageName());
     if (bgRes != 0) {
         views.setImageViewResource(R.id.widget_bg, bgRes);
-    } else {
+    } else if (fallbackBgRes != 0) {
         // Fallback to drawable resource background if present
-        int resId = context.getResources().getIdentifier("progress_widget", "drawable", context.getPackageName());
-        if (resId != 0) {
-            views.setInt(R.id.widget_root, "setBackgroundResource", resId);
-        }
+        views.setInt(R.id.widget_root, "setBackgroundResource", fallbackBgRes);
     }
 
-    int percent = 0;
-    boolean hasGoal = false;
-    boolean needsRefresh = false;
-    try {
-      SharedPreferences prefs = context.getSharedPreferences(PREF_FILE, Context.MODE_PRIVATE);
-      String json = prefs.getString(KEY, null);
-      String today = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.US).format(new java.util.Date());
-      boolean stale = false;
-      boolean prevHasGoal = false;
-      long dataTimestamp = 0;
-      
-      if (json != null) {
-        try {
-          JSONObject obj = new JSONObject(json);
-          percent = Math.max(0, Math.min(100, obj.optInt("percent", 0)));
-          hasGoal = obj.optBoolean("hasGoal", false);
-          prevHasGoal = hasGoal;
-          String day = obj.optString("day", null);
-          dataTimestamp = obj.optLong("ts", 0);
-          
-          // Verifica se os dados são de hoje
-          if (day == null || !today.equals(day)) {
-            stale = true;
-            needsRefresh = true;
-            Log.d("ProgressWidgetProvider", "Dados de dia diferente detectados (dia: " + day + ", hoje: " + today + ")");
-          } else {
-            // Se são de hoje, verifica se são muito antigos
-            long now = System.currentTimeMillis();
-            long dataAge = now - dataTimestamp;
-            if (dataAge > DATA_STALE_THRESHOLD_MS) {
-              needsRefresh = true;
-              Log.d("ProgressWidgetProvider", "Dados antigos detectados (idade: " + (dataAge / 60000) + " min), solicitando refresh");
-            }
-          }
-        } catch (Throwable ignored) { 
-          stale = true;
-          needsRefresh = true;
-        }
-      } else {
-        stale = true; // sem payload -> considerar desatualizado
-        needsRefresh = true;
-      }
-
-      // Se precisa refresh e passou tempo suficiente desde a última tentativa
-      if (needsRefresh) {
-        long lastAttempt = prefs.getLong(LAST_REFRESH_ATTEMPT_KEY, 0);
-        long now = System.currentTimeMillis();
-        if (now - lastAttempt > MIN_REFRESH_INTERVAL_MS) {
-          // Marca que tentaremos refresh
-          prefs.edit().putLong(LAST_REFRESH_ATTEMPT_KEY, now).apply();
-          
-          // Inicia a MainActivity em modo headless para recalcular
-          try {
-            Intent refreshIntent = new Intent(context, MainActivity.class);
-            refreshIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP | Intent.FLAG_ACTIVITY_NO_ANIMATION);
-            refreshIntent.putExtra("devota_force_refresh", true);
-            context.startActivity(refreshIntent);
-            Log.d("ProgressWidgetProvider", "Widget iniciou MainActivity para refresh de dados (widget renderizado)");
-          } catch (Throwable t) {
-            Log.e("ProgressWidgetProvider", "Falha ao iniciar MainActivity para refresh", t);
-          }
-        } else {
-          Log.d("ProgressWidgetProvider", "Refresh recente detectado, pulando nova tentativa (última: " + ((now - lastAttempt) / 1000) + "s atrás)");
-        }
-      }
-
-      if (stale) {
-        try {
-          long now = System.currentTimeMillis();
-          String optimistic = "{\"percent\":0,\"hasGoal\":"+prevHasGoal+",\"ts\":"+now+",\"day\":\""+today+"\"}";
-          prefs.edit().putString(KEY, optimistic).apply();
-          percent = 0;
-          hasGoal = prevHasGoal;
-          Log.d("ProgressWidgetProvider","Lazy stale detect: corrigido dia="+today+" prevHasGoal="+prevHasGoal);
-        } catch (Throwable t) { Log.e("ProgressWidgetProvider","Falha ao corrigir stale payload", t); }
-      }
-    } catch (Throwable ignored) {}
+    views.setTextViewText(R.id.widget_title, title == null ? "Meta diária" : title);
 
     // Update layout based on whether there's a goal
     if (hasGoal) {
-      // Position the progress bar at ~75% of height (padding on container)
-      try {
-        final float density = context.getResources().getDisplayMetrics().density;
-        int heightDp = 110; // fallback
-        try {
-          android.os.Bundle opts = appWidgetManager.getAppWidgetOptions(appWidgetId);
-          int maxH = opts.getInt(AppWidgetManager.OPTION_APPWIDGET_MAX_HEIGHT, 0);
-          int minH = opts.getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_HEIGHT, 0);
-          int h = maxH > 0 ? maxH : (minH > 0 ? minH : 0);
-          if (h > 0) heightDp = h;
-        } catch (Throwable ignored2) {}
-        int heightPx = (int) (heightDp * density);
-        int desiredTop = (int) (heightPx * 0.75f);
-        int barHalf = (int) (10f * density / 2f);
-        int topPadding = Math.max(0, desiredTop - barHalf);
-        views.setViewPadding(R.id.progress_container, 0, topPadding, 0, 0);
-
-        // Emulate ConstraintLayout guidelines: place percent text container start=45% width, top=55% height
-        try {
-          int widthDp = 110; // fallback
-          try {
-            android.os.Bundle opts2 = appWidgetManager.getAppWidgetOptions(appWidgetId);
-            int maxW = opts2.getInt(AppWidgetManager.OPTION_APPWIDGET_MAX_WIDTH, 0);
-            int minW = opts2.getInt(AppWidgetManager.OPTION_APPWIDGET_MIN_WIDTH, 0);
-            int w = maxW > 0 ? maxW : (minW > 0 ? minW : 0);
-            if (w > 0) widthDp = w;
-          } catch (Throwable ignored3) {}
-          int widthPx = (int) (widthDp * density);
-          int leftPadding = (int) (widthPx * 0.40f);
-          int textTopPadding = (int) (heightPx * 0.22f);
-          views.setViewPadding(R.id.progress_text_container, leftPadding, textTopPadding, 0, 0);
-        } catch (Throwable ignored4) {}
-      } catch (Throwable ignored) {}
+      // Position the progress bar at ~75% of height and the percent text at 40%/22% (cached per size bucket)
+      views.setViewPadding(R.id.progress_container, 0, geometry.barTopPx, 0, 0);
+      views.setViewPadding(R.id.progress_text_container, geometry.textLeftPx, geometry.textTopPx, 0, 0);
 
       views.setViewVisibility(R.id.widget_progress_bar, android.view.View.VISIBLE);
       views.setViewVisibility(R.id.widget_progress_text, android.view.View.VISIBLE);
       views.setViewVisibility(R.id.widget_progress_text_center, android.view.View.GONE);
       views.setInt(R.id.widget_progress_bar, "setMax", 100);
-      views.setInt(R.id.widget_progress_bar, "setProgress", percent);
-      views.setTextViewText(R.id.widget_progress_text, percent + "%");
+      applyProgress(views, percent);
     } else {
   // No goal: show only centered text
       views.setViewVisibility(R.id.widget_progress_bar, android.view.View.GONE);
@@ -195,12 +192,19 @@ public class ProgressWidgetProvider extends AppWidgetProvider {
   views.setViewPadding(R.id.progress_text_container, 0, 0, 0, 0);
     }
 
-    // Click launches app
-    Intent intent = new Intent(context, MainActivity.class);
-    intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-    PendingIntent pi = PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_IMMUTABLE);
-    views.setOnClickPendingIntent(R.id.widget_root, pi);
+    views.setOnClickPendingIntent(R.id.widget_root, launchIntent(context));
+    return views;
+  }
+
+  /** Só a barra e o texto, para AppWidgetManager.partiallyUpdateAppWidget quando apenas o percent mudou. */
+  static RemoteViews buildProgressViews(Context context, int percent) {
+    RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_progress);
+    applyProgress(views, percent);
+    return views;
+  }
 
-    appWidgetManager.updateAppWidget(appWidgetId, views);
+  private static void applyProgress(RemoteViews views, int percent) {
+    views.setInt(R.id.widget_progress_bar, "setProgress", percent);
+    views.setTextViewText(R.id.widget_progress_text, percent + "%");
   }
 }
@@ -0,0 +1,447 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Process;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Diário de leitura em SQLite (files/../databases/reading_journal.db, WAL). Os eventos (progresso,
+ * baseline do dia, minutos) só são acrescentados; cada lote entra numa transação que também atualiza
+ * os agregados por dia (day_rollup, com a sequência de dias já calculada), por livro e dia (book_day)
+ * e por livro (book_rollup). Sequência, totais da semana e "hoje vs. baseline" viram consultas pontuais
+ * pela chave primária, sem varrer o histórico.
+ *
+ * <p>Conta como dia lido: minutos registrados, ou um evento de progresso que muda a posição do livro
+ * em relação à última conhecida (abrir o leitor no mesmo ponto não conta).
+ */
+public final class ReadingJournal {
+  static final String DB_NAME = "reading_journal.db";
+  static final int DB_VERSION = 1;
+
+  public static final int KIND_PROGRESS = 0;
+  public static final int KIND_BASELINE = 1;
+  public static final int KIND_MINUTES = 2;
+
+  static final int WEEK_DAYS = 7;
+
+  private static volatile Helper helper;
+
+  private static final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(() -> {
+      Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+      r.run();
+    }, "devota-journal");
+    t.setDaemon(true);
+    return t;
+  });
+
+  // Diagnóstico (getDebugState), lido por statsJson()
+  private static final AtomicLong appended = new AtomicLong();
+  private static final AtomicLong batches = new AtomicLong();
+  private static volatile long lastBatchMs = -1;
+
+  private ReadingJournal() {}
+
+  /** Escritas e consultas do plugin fora da thread dos plugins, em ordem. */
+  static void execute(Runnable r) {
+    io.execute(r);
+  }
+
+  /** Um evento; campos ausentes ficam NaN / -1 e vão como NULL. */
+  public static final class Event {
+    public String bookId; // pode faltar em minutos sem livro
+    public int kind = KIND_PROGRESS;
+    public long ts;
+    public long day;
+    public double percent = Double.NaN;
+    public int words = -1;
+    public int page = -1;
+    public int minutes;
+
+    /** Payload do JS: { bookId?, kind, ts?, dateISO?, percent?, words?, page?, minutes? }; o dia sai do ts pelo DayClock. */
+    static Event fromJson(JSONObject o, DayClock clock) {
+      Event e = new Event();
+      e.bookId = o.isNull("bookId") ? null : o.optString("bookId", null);
+      e.kind = parseKind(o.optString("kind", "progress"));
+      e.ts = o.optLong("ts", clock.nowMs());
+      long day = DailyProgressEngine.parseIsoDay(o.isNull("dateISO") ? null : o.optString("dateISO", null));
+      e.day = day != DailyProgressEngine.NO_DAY ? day : clock.epochDayAt(e.ts);
+      if (o.has("percent") && !o.isNull("percent")) e.percent = o.optDouble("percent", Double.NaN);
+      e.words = o.isNull("words") ? -1 : o.optInt("words", -1);
+      e.page = o.isNull("page") ? -1 : o.optInt("page", -1);
+      e.minutes = Math.max(0, o.optInt("minutes", 0));
+      return e;
+    }
+  }
+
+  static int parseKind(String kind) {
+    if ("baseline".equals(kind)) return KIND_BASELINE;
+    if ("minutes".equals(kind)) return KIND_MINUTES;
+    return KIND_PROGRESS;
+  }
+
+  private static final class Helper extends SQLiteOpenHelper {
+    Helper(Context ctx) {
+      super(ctx, DB_NAME, null, DB_VERSION);
+      setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+      db.execSQL("CREATE TABLE events (id INTEGER PRIMARY KEY, ts INTEGER NOT NULL, day INTEGER NOT NULL, book_id TEXT,"
+        + " kind INTEGER NOT NULL, percent REAL, words INTEGER, page INTEGER, minutes INTEGER NOT NULL DEFAULT 0)");
+      db.execSQL("CREATE INDEX events_book_day ON events (book_id, day)");
+      // Dias com leitura; streak = dias consecutivos terminando neste
+      db.execSQL("CREATE TABLE day_rollup (day INTEGER PRIMARY KEY, streak INTEGER NOT NULL,"
+        + " events INTEGER NOT NULL DEFAULT 0, minutes INTEGER NOT NULL DEFAULT 0, books INTEGER NOT NULL DEFAULT 0)");
+      db.execSQL("CREATE INDEX day_rollup_streak ON day_rollup (streak)");
+      // start_* = posição do livro ao começar o dia (última conhecida antes do primeiro evento do dia)
+      db.execSQL("CREATE TABLE book_day (book_id TEXT NOT NULL, day INTEGER NOT NULL,"
+        + " events INTEGER NOT NULL DEFAULT 0, minutes INTEGER NOT NULL DEFAULT 0, read INTEGER NOT NULL DEFAULT 0,"
+        + " start_percent REAL, start_words INTEGER, start_page INTEGER,"
+        + " last_percent REAL, last_words INTEGER, last_page INTEGER, last_ts INTEGER NOT NULL DEFAULT 0,"
+        + " baseline_percent REAL, baseline_words INTEGER, baseline_page INTEGER,"
+        + " PRIMARY KEY (book_id, day)) WITHOUT ROWID");
+      db.execSQL("CREATE TABLE book_rollup (book_id TEXT PRIMARY KEY, first_day INTEGER NOT NULL, last_read_day INTEGER,"
+        + " read_days INTEGER NOT NULL DEFAULT 0, minutes INTEGER NOT NULL DEFAULT 0,"
+        + " last_percent REAL, last_words INTEGER, last_page INTEGER, last_ts INTEGER NOT NULL DEFAULT 0) WITHOUT ROWID");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {}
+  }
+
+  private static SQLiteDatabase db(Context ctx) {
+    Helper h = helper;
+    if (h == null) {
+      synchronized (ReadingJournal.class) {
+        if (helper == null) helper = new Helper(ctx.getApplicationContext());
+        h = helper;
+      }
+    }
+    return h.getWritableDatabase();
+  }
+
+  /** Acrescenta o lote numa transação, com os agregados; retorna quantos eventos entraram. */
+  public static int append(Context ctx, List<Event> events) {
+    if (events.isEmpty()) return 0;
+    long start = System.nanoTime();
+    SQLiteDatabase db = db(ctx);
+    db.beginTransaction();
+    try (SQLiteStatement insert = db.compileStatement(
+        "INSERT INTO events (ts, day, book_id, kind, percent, words, page, minutes) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+      for (Event e : events) {
+        insert.clearBindings();
+        insert.bindLong(1, e.ts);
+        insert.bindLong(2, e.day);
+        bindText(insert, 3, e.bookId);
+        insert.bindLong(4, e.kind);
+        bindReal(insert, 5, e.percent);
+        bindInt(insert, 6, e.words);
+        bindInt(insert, 7, e.page);
+        insert.bindLong(8, e.minutes);
+        insert.executeInsert();
+        applyRollups(db, e);
+      }
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+    appended.addAndGet(events.size());
+    batches.incrementAndGet();
+    lastBatchMs = (System.nanoTime() - start) / 1_000_000;
+    if (WidgetTrace.LOG) Log.d("ReadingJournal", "Lote events=" + events.size() + " ms=" + lastBatchMs);
+    return events.size();
+  }
+
+  private static void applyRollups(SQLiteDatabase db, Event e) {
+    if (e.bookId == null) {
+      if (e.kind == KIND_MINUTES && e.minutes > 0) markRead(db, null, e.day, e.minutes);
+      return;
+    }
+    // Posição anterior do livro: ponto de partida do dia e critério de "leu de fato"
+    Object[] last = null;
+    long lastTs = 0;
+    try (Cursor c = db.rawQuery("SELECT last_percent, last_words, last_page, last_ts FROM book_rollup WHERE book_id = ?", new String[] { e.bookId })) {
+      if (c.moveToFirst()) {
+        last = new Object[] { real(c, 0), integer(c, 1), integer(c, 2) };
+        lastTs = c.getLong(3);
+      }
+    }
+    Object[] here = { e.percent, e.words, e.page };
+    Object[] start = last != null ? last : e.kind == KIND_PROGRESS ? here : new Object[] { Double.NaN, -1, -1 };
+    db.execSQL("INSERT OR IGNORE INTO book_day (book_id, day, start_percent, start_words, start_page) VALUES (?, ?, ?, ?, ?)",
+      new Object[] { e.bookId, e.day, nullable(start[0]), nullable(start[1]), nullable(start[2]) });
+    if (last == null) {
+      db.execSQL("INSERT INTO book_rollup (book_id, first_day) VALUES (?, ?)", new Object[] { e.bookId, e.day });
+    }
+
+    switch (e.kind) {
+      case KIND_BASELINE:
+        db.execSQL("UPDATE book_day SET events = events + 1, baseline_percent = ?, baseline_words = ?, baseline_page = ?"
+          + " WHERE book_id = ? AND day = ?", new Object[] { nullable(e.percent), nullable(e.words), nullable(e.page), e.bookId, e.day });
+        break;
+      case KIND_MINUTES:
+        db.execSQL("UPDATE book_day SET events = events + 1, minutes = minutes + ? WHERE book_id = ? AND day = ?",
+          new Object[] { e.minutes, e.bookId, e.day });
+        db.execSQL("UPDATE book_rollup SET minutes = minutes + ? WHERE book_id = ?", new Object[] { e.minutes, e.bookId });
+        if (e.minutes > 0) markRead(db, e.bookId, e.day, e.minutes);
+        break;
+      default:
+        db.execSQL("UPDATE book_day SET events = events + 1 WHERE book_id = ? AND day = ?", new Object[] { e.bookId, e.day });
+        // Campos ausentes mantêm o último valor; eventos fora de ordem não voltam a posição
+        String set = "last_percent = COALESCE(?, last_percent), last_words = COALESCE(?, last_words),"
+          + " last_page = COALESCE(?, last_page), last_ts = ?";
+        db.execSQL("UPDATE book_day SET " + set + " WHERE book_id = ? AND day = ? AND last_ts <= ?",
+          new Object[] { nullable(e.percent), nullable(e.words), nullable(e.page), e.ts, e.bookId, e.day, e.ts });
+        db.execSQL("UPDATE book_rollup SET " + set + " WHERE book_id = ? AND last_ts <= ?",
+          new Object[] { nullable(e.percent), nullable(e.words), nullable(e.page), e.ts, e.bookId, e.ts });
+        // Mesmo critério de last_ts: um evento atrasado não é comparado com uma posição mais nova
+        if (last != null && e.ts >= lastTs && moved(last, here)) markRead(db, e.bookId, e.day, 0);
+    }
+  }
+
+  private static boolean moved(Object[] last, Object[] here) {
+    double p = (Double) here[0];
+    if (!Double.isNaN(p) && (last[0] == null || Math.abs(p - (Double) last[0]) > 1e-9)) return true;
+    int w = (Integer) here[1];
+    if (w >= 0 && (last[1] == null || w != (Integer) last[1])) return true;
+    int pg = (Integer) here[2];
+    return pg >= 0 && (last[2] == null || pg != (Integer) last[2]);
+  }
+
+  /** Dia (e livro) com leitura: cria a linha do dia com a sequência e soma os contadores. */
+  private static void markRead(SQLiteDatabase db, String bookId, long day, int minutes) {
+    ensureDay(db, day);
+    int newBook = 0;
+    if (bookId != null) {
+      try (SQLiteStatement flag = db.compileStatement("UPDATE book_day SET read = 1 WHERE book_id = ? AND day = ? AND read = 0")) {
+        flag.bindString(1, bookId);
+        flag.bindLong(2, day);
+        newBook = flag.executeUpdateDelete();
+      }
+      if (newBook > 0) {
+        db.execSQL("UPDATE book_rollup SET read_days = read_days + 1, last_read_day = MAX(COALESCE(last_read_day, ?), ?) WHERE book_id = ?",
+          new Object[] { day, day, bookId });
+      }
+    }
+    db.execSQL("UPDATE day_rollup SET events = events + 1, minutes = minutes + ?, books = books + ? WHERE day = ?",
+      new Object[] { minutes, newBook, day });
+  }
+
+  private static void ensureDay(SQLiteDatabase db, long day) {
+    if (streakOf(db, day) > 0) return;
+    long streak = streakOf(db, day - 1) + 1;
+    db.execSQL("INSERT INTO day_rollup (day, streak) VALUES (?, ?)", new Object[] { day, streak });
+    // Dia antigo chegando depois (sync, fila atrasada): as sequências seguintes crescem junto
+    try (SQLiteStatement next = db.compileStatement("UPDATE day_rollup SET streak = ? WHERE day = ?")) {
+      for (long d = day + 1; ; d++) {
+        next.bindLong(1, ++streak);
+        next.bindLong(2, d);
+        if (next.executeUpdateDelete() == 0) break;
+      }
+    }
+  }
+
+  private static long streakOf(SQLiteDatabase db, long day) {
+    try (Cursor c = db.rawQuery("SELECT streak FROM day_rollup WHERE day = ?", new String[] { Long.toString(day) })) {
+      return c.moveToFirst() ? c.getLong(0) : 0;
+    }
+  }
+
+  /** Sequência atual (lido hoje ou ontem) e a maior; usada pelo summary (getReadingSummary). */
+  public static int[] streak(Context ctx, long today) {
+    SQLiteDatabase db = db(ctx);
+    int current = 0;
+    try (Cursor c = db.rawQuery("SELECT streak FROM day_rollup WHERE day IN (?, ?) ORDER BY day DESC LIMIT 1",
+        new String[] { Long.toString(today), Long.toString(today - 1) })) {
+      if (c.moveToFirst()) current = c.getInt(0);
+    }
+    int longest = 0;
+    try (Cursor c = db.rawQuery("SELECT MAX(streak) FROM day_rollup", null)) {
+      if (c.moveToFirst() && !c.isNull(0)) longest = c.getInt(0);
+    }
+    return new int[] { current, longest };
+  }
+
+  /**
+   * Resumo para hoje: sequência, últimos 7 dias e, com {@code bookId}, a posição de hoje contra a
+   * baseline e contra o início da semana.
+   */
+  public static JSONObject summary(Context ctx, String bookId, long today) throws JSONException {
+    SQLiteDatabase db = db(ctx);
+    JSONObject o = new JSONObject();
+    o.put("dateISO", DailyProgressEngine.formatIsoDay(today));
+    int[] s = streak(ctx, today);
+    JSONObject streak = new JSONObject().put("current", s[0]).put("longest", s[1]);
+    try (Cursor c = db.rawQuery("SELECT MAX(day) FROM day_rollup", null)) {
+      if (c.moveToFirst() && !c.isNull(0)) streak.put("lastReadISO", DailyProgressEngine.formatIsoDay(c.getLong(0)));
+    }
+    o.put("streak", streak);
+
+    long from = today - (WEEK_DAYS - 1);
+    try (Cursor c = db.rawQuery("SELECT COUNT(*), COALESCE(SUM(minutes), 0), COALESCE(SUM(events), 0) FROM day_rollup WHERE day BETWEEN ? AND ?",
+        new String[] { Long.toString(from), Long.toString(today) })) {
+      c.moveToFirst();
+      o.put("week", new JSONObject().put("fromISO", DailyProgressEngine.formatIsoDay(from))
+        .put("days", c.getInt(0)).put("minutes", c.getInt(1)).put("events", c.getInt(2)));
+    }
+
+    if (bookId != null) {
+      JSONObject book = new JSONObject().put("bookId", bookId);
+      try (Cursor c = db.rawQuery("SELECT start_percent, start_words, start_page, last_percent, last_words, last_page,"
+          + " baseline_percent, baseline_words, baseline_page, minutes, read FROM book_day WHERE book_id = ? AND day = ?",
+          new String[] { bookId, Long.toString(today) })) {
+        if (c.moveToFirst()) {
+          putNumber(book, "startPercent", c, 0);
+          putNumber(book, "startWords", c, 1);
+          putNumber(book, "startPage", c, 2);
+          putNumber(book, "percent", c, 3);
+          putNumber(book, "words", c, 4);
+          putNumber(book, "page", c, 5);
+          putNumber(book, "baselinePercent", c, 6);
+          putNumber(book, "baselineWords", c, 7);
+          putNumber(book, "baselinePage", c, 8);
+          book.put("minutesToday", c.getInt(9));
+          book.put("readToday", c.getInt(10) != 0);
+        }
+      }
+      // Sem evento hoje: posição atual é a última conhecida
+      try (Cursor c = db.rawQuery("SELECT last_percent, last_words, last_page, read_days, minutes FROM book_rollup WHERE book_id = ?",
+          new String[] { bookId })) {
+        if (c.moveToFirst()) {
+          if (!book.has("percent")) putNumber(book, "percent", c, 0);
+          if (!book.has("words")) putNumber(book, "words", c, 1);
+          if (!book.has("page")) putNumber(book, "page", c, 2);
+          book.put("readDays", c.getInt(3));
+          book.put("minutes", c.getInt(4));
+        }
+      }
+      try (Cursor c = db.rawQuery("SELECT start_percent FROM book_day WHERE book_id = ? AND day BETWEEN ? AND ? ORDER BY day LIMIT 1",
+          new String[] { bookId, Long.toString(from), Long.toString(today) })) {
+        if (c.moveToFirst()) putNumber(book, "weekStartPercent", c, 0);
+      }
+      o.put("book", book);
+    }
+    return o;
+  }
+
+  /** Histórico dia a dia em [{@code from}, {@code to}]: dias com leitura, ou as linhas de um livro. */
+  public static JSONArray history(Context ctx, String bookId, long from, long to) throws JSONException {
+    SQLiteDatabase db = db(ctx);
+    JSONArray out = new JSONArray();
+    String[] args = bookId == null ? new String[] { Long.toString(from), Long.toString(to) }
+      : new String[] { bookId, Long.toString(from), Long.toString(to) };
+    String sql = bookId == null
+      ? "SELECT day, streak, events, minutes, books FROM day_rollup WHERE day BETWEEN ? AND ? ORDER BY day"
+      : "SELECT day, read, events, minutes, start_percent, last_percent, start_page, last_page, baseline_percent"
+        + " FROM book_day WHERE book_id = ? AND day BETWEEN ? AND ? ORDER BY day";
+    try (Cursor c = db.rawQuery(sql, args)) {
+      while (c.moveToNext()) {
+        JSONObject d = new JSONObject().put("dateISO", DailyProgressEngine.formatIsoDay(c.getLong(0)));
+        if (bookId == null) {
+          d.put("streak", c.getInt(1)).put("events", c.getInt(2)).put("minutes", c.getInt(3)).put("books", c.getInt(4));
+        } else {
+          d.put("read", c.getInt(1) != 0).put("events", c.getInt(2)).put("minutes", c.getInt(3));
+          putNumber(d, "startPercent", c, 4);
+          putNumber(d, "percent", c, 5);
+          putNumber(d, "startPage", c, 6);
+          putNumber(d, "page", c, 7);
+          putNumber(d, "baselinePercent", c, 8);
+        }
+        out.put(d);
+      }
+    }
+    return out;
+  }
+
+  /** Fecha e apaga o banco (limpeza de debug). */
+  public static void clear(Context ctx) {
+    synchronized (ReadingJournal.class) {
+      if (helper != null) helper.close();
+      helper = null;
+    }
+    ctx.getApplicationContext().deleteDatabase(DB_NAME);
+  }
+
+  private static void bindText(SQLiteStatement s, int i, String v) {
+    if (v == null) s.bindNull(i);
+    else s.bindString(i, v);
+  }
+
+  private static void bindReal(SQLiteStatement s, int i, double v) {
+    if (Double.isNaN(v)) s.bindNull(i);
+    else s.bindDouble(i, v);
+  }
+
+  private static void bindInt(SQLiteStatement s, int i, int v) {
+    if (v < 0) s.bindNull(i);
+    else s.bindLong(i, v);
+  }
+
+  /** NaN / negativo viram NULL nos execSQL com Object[]. */
+  private static Object nullable(Object v) {
+    if (v instanceof Double && Double.isNaN((Double) v)) return null;
+    if (v instanceof Integer && (Integer) v < 0) return null;
+    return v;
+  }
+
+  private static Double real(Cursor c, int i) {
+    return c.isNull(i) ? null : c.getDouble(i);
+  }
+
+  private static Integer integer(Cursor c, int i) {
+    return c.isNull(i) ? null : c.getInt(i);
+  }
+
+  private static void putNumber(JSONObject o, String key, Cursor c, int i) throws JSONException {
+    if (c.isNull(i)) return;
+    if (c.getType(i) == Cursor.FIELD_TYPE_FLOAT) o.put(key, c.getDouble(i));
+    else o.put(key, c.getLong(i));
+  }
+
+  /** Eventos do payload {@code events} do plugin. */
+  static List<Event> parse(JSONArray events, DayClock clock) {
+    List<Event> out = new ArrayList<>(events.length());
+    for (int i = 0; i < events.length(); i++) {
+      JSONObject o = events.optJSONObject(i);
+      if (o != null) out.add(Event.fromJson(o, clock));
+    }
+    return out;
+  }
+
+  public static JSONObject statsJson(Context ctx) {
+    JSONObject o = new JSONObject();
+    try {
+      o.put("appended", appended.get());
+      o.put("batches", batches.get());
+      o.put("lastBatchMs", lastBatchMs);
+      o.put("bytes", ctx.getApplicationContext().getDatabasePath(DB_NAME).length());
+      if (helper != null) {
+        SQLiteDatabase db = db(ctx);
+        // events só cresce (sem DELETE): MAX(id) é o total pela ponta do índice, sem varrer a tabela. Os
+        // agregados têm uma linha por dia lido (day_rollup) ou por livro e dia (book_day)
+        try (Cursor c = db.rawQuery("SELECT (SELECT MAX(id) FROM events), (SELECT COUNT(*) FROM day_rollup), (SELECT COUNT(*) FROM book_day)", null)) {
+          if (c.moveToFirst()) {
+            o.put("events", c.isNull(0) ? 0 : c.getLong(0));
+            o.put("days", c.getLong(1));
+            o.put("bookDays", c.getLong(2));
+          }
+        }
+      }
+    } catch (Throwable ignored) {}
+    return o;
+  }
+}
@@ -0,0 +1,71 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+/** Diário de leitura (ReadingJournal, SQLite WAL): escritas em lote e consultas no executor do diário. */
+@CapacitorPlugin(name = "ReadingJournal")
+public class ReadingJournalPlugin extends Plugin {
+  /**
+   * Acrescenta eventos ao diário de leitura (ReadingJournal): { events: [{ bookId?, kind, ts?, dateISO?,
+   * percent?, words?, page?, minutes? }] }, um lote por transação.
+   */
+  @PluginMethod
+  public void appendReadingEvents(PluginCall call) {
+    Context ctx = getContext();
+    org.json.JSONArray events = call.getArray("events");
+    if (events == null) {
+      call.reject("Missing events");
+      return;
+    }
+    ReadingJournal.execute(() -> {
+      try {
+        int n = ReadingJournal.append(ctx, ReadingJournal.parse(events, WidgetClock.get()));
+        com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
+        ret.put("appended", n);
+        call.resolve(ret);
+      } catch (Throwable t) {
+        call.reject("Failed appendReadingEvents"+t);
+      }
+    });
+  }
+
+  /** Sequência, últimos 7 dias e, com {@code bookId}, hoje vs. baseline (consultas pontuais nos agregados). */
+  @PluginMethod
+  public void getReadingSummary(PluginCall call) {
+    Context ctx = getContext();
+    String bookId = call.getString("bookId");
+    ReadingJournal.execute(() -> {
+      try {
+        call.resolve(new com.getcapacitor.JSObject(ReadingJournal.summary(ctx, bookId, WidgetClock.todayEpochDay()).toString()));
+      } catch (Throwable t) {
+        call.reject("Failed getReadingSummary"+t);
+      }
+    });
+  }
+
+  /** Histórico dia a dia { fromISO, toISO, bookId? }: dias lidos, ou as linhas do livro. */
+  @PluginMethod
+  public void getReadingHistory(PluginCall call) {
+    Context ctx = getContext();
+    String bookId = call.getString("bookId");
+    long from = DailyProgressEngine.parseIsoDay(call.getString("fromISO"));
+    long to = DailyProgressEngine.parseIsoDay(call.getString("toISO"));
+    if (from == DailyProgressEngine.NO_DAY || to == DailyProgressEngine.NO_DAY) {
+      call.reject("Missing fromISO or toISO");
+      return;
+    }
+    ReadingJournal.execute(() -> {
+      try {
+        com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
+        ret.put("days", ReadingJournal.history(ctx, bookId, from, to));
+        call.resolve(ret);
+      } catch (Throwable t) {
+        call.reject("Failed getReadingHistory"+t);
+      }
+    });
+  }
+}
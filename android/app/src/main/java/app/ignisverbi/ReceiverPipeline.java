@@ -0,0 +1,127 @@
+package app.ignisverbi;
+
+import android.content.BroadcastReceiver;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.VisibleForTesting;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pipeline único dos broadcast receivers: goAsync() + executor de thread única com fila limitada,
+ * prazo (deadline) por broadcast e debounce de ações repetidas em rajada (alarm + fallback + DATE_CHANGED).
+ */
+public final class ReceiverPipeline {
+  /** goAsync dá ~10 s a um receiver em background; paramos antes para sempre chamar finish(). */
+  static final long DEADLINE_MS = 8_000;
+  static final long DEBOUNCE_MS = 5_000;
+  private static final int QUEUE_CAPACITY = 8;
+
+  /** Trabalho executado fora do main thread; deve consultar o deadline entre etapas caras. */
+  public interface Task {
+    void run(Deadline deadline) throws Exception;
+  }
+
+  /** Prazo absoluto (uptime) do broadcast atual. */
+  public static final class Deadline {
+    private final long deadlineUptime;
+
+    Deadline(long deadlineUptime) { this.deadlineUptime = deadlineUptime; }
+
+    public long remainingMs() { return deadlineUptime - SystemClock.uptimeMillis(); }
+
+    public boolean hasAtLeast(long ms) { return remainingMs() >= ms; }
+  }
+
+  private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+      1, 1, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+      r -> new Thread(r, "receiver-pipeline"));
+  private static final ScheduledExecutorService watchdog = new ScheduledThreadPoolExecutor(1,
+      r -> new Thread(r, "receiver-watchdog"));
+  private static final Map<String, Long> lastRunUptime = new HashMap<>();
+
+  static {
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  private ReceiverPipeline() {}
+
+  /**
+   * Executa {@code task} fora do main thread. {@code debounceKey} não nulo descarta repetições recebidas
+   * em menos de DEBOUNCE_MS. {@code pending} pode ser null (chamadas fora de onReceive).
+   */
+  public static void dispatch(BroadcastReceiver.PendingResult pending, String debounceKey, Task task) {
+    long now = SystemClock.uptimeMillis();
+    if (debounceKey != null && isDuplicate(debounceKey, now)) {
+      if (WidgetTrace.LOG) Log.d("ReceiverPipeline", "Debounce: descartando " + debounceKey);
+      WidgetTrace.record(WidgetTrace.DROPPED, "debounce", 0);
+      finishQuietly(pending);
+      return;
+    }
+    Deadline deadline = new Deadline(now + DEADLINE_MS);
+    AtomicBoolean finished = new AtomicBoolean(false);
+    Runnable finish = () -> { if (finished.compareAndSet(false, true)) finishQuietly(pending); };
+    try {
+      Future<?> future = executor.submit(() -> {
+        try {
+          task.run(deadline);
+        } catch (Throwable t) {
+          Log.e("ReceiverPipeline", "Falha na tarefa " + debounceKey, t);
+        } finally {
+          finish.run();
+        }
+      });
+      watchdog.schedule(() -> {
+        if (!future.isDone()) {
+          Log.w("ReceiverPipeline", "Deadline estourado para " + debounceKey + "; liberando broadcast");
+          WidgetTrace.record(WidgetTrace.DROPPED, "deadline", DEADLINE_MS);
+          future.cancel(true);
+          finish.run();
+        }
+      }, DEADLINE_MS, TimeUnit.MILLISECONDS);
+    } catch (Throwable rejected) {
+      // Fila cheia: tarefa equivalente já está enfileirada
+      Log.w("ReceiverPipeline", "Fila cheia, descartando " + debounceKey);
+      WidgetTrace.record(WidgetTrace.DROPPED, "queue_full", QUEUE_CAPACITY);
+      finish.run();
+    }
+  }
+
+  private static synchronized boolean isDuplicate(String key, long now) {
+    Long last = lastRunUptime.get(key);
+    if (last != null && now - last < DEBOUNCE_MS) return true;
+    lastRunUptime.put(key, now);
+    return false;
+  }
+
+  /** Testes: espera as tarefas já enfileiradas (thread única, FIFO). Retorna false se estourar o tempo. */
+  @VisibleForTesting
+  static boolean awaitIdle(long timeoutMs) throws InterruptedException {
+    try {
+      executor.submit(() -> {}).get(timeoutMs, TimeUnit.MILLISECONDS);
+      return true;
+    } catch (ExecutionException | TimeoutException e) {
+      return false;
+    }
+  }
+
+  /** Testes: esquece o debounce (o uptime simulado recomeça a cada teste). */
+  @VisibleForTesting
+  static synchronized void resetDebounce() {
+    lastRunUptime.clear();
+  }
+
+  private static void finishQuietly(BroadcastReceiver.PendingResult pending) {
+    if (pending == null) return;
+    try { pending.finish(); } catch (Throwable ignored) {}
+  }
+}
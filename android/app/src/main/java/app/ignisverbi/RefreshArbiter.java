@@ -0,0 +1,93 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Arbitra os gatilhos da virada do dia (alarm, DATE_CHANGED, worker, USER_PRESENT dinâmico, widget stale).
+ * A "geração do dia" é o epoch-day local da última transição reivindicada: um compare-and-set garante que só
+ * o primeiro gatilho de cada dia faz o recomputo; os demais viram no-op. A reivindicação só é persistida
+ * ({@link #confirmDay}) depois que o estado do novo dia foi gravado; se a escrita falhar ou o processo
+ * morrer antes, o próximo gatilho refaz a transição. Também limita os refreshes pelo WebView offscreen
+ * (HeadlessRefreshWorker/HeadlessWebViewHost) a um intervalo mínimo, compartilhado por todos os caminhos.
+ */
+public final class RefreshArbiter {
+  private static final String PREF_FILE = "widget_refresh_arbiter";
+  private static final String KEY_CLAIMED_DAY = "claimedDay";
+  private static final String KEY_LAST_LAUNCH = "lastLaunchTs";
+
+  private static final long UNLOADED = Long.MIN_VALUE;
+  private static final long NO_DAY = Long.MIN_VALUE + 1;
+  private static final AtomicLong claimedDay = new AtomicLong(UNLOADED);
+  private static final AtomicLong lastLaunchTs = new AtomicLong(UNLOADED);
+
+  private RefreshArbiter() {}
+
+  /**
+   * Reivindica o recomputo para {@code epochDay} (só em memória). Retorna true apenas para o primeiro
+   * chamador do dia; ele deve chamar {@link #confirmDay} ou {@link #releaseDay} ao terminar.
+   */
+  public static boolean tryClaimDay(Context ctx, long epochDay, String cause) {
+    load(ctx);
+    while (true) {
+      long current = claimedDay.get();
+      if (current == epochDay) {
+        if (WidgetTrace.LOG) Log.d("RefreshArbiter", "Dia " + epochDay + " já reivindicado; no-op cause=" + cause);
+        return false;
+      }
+      if (claimedDay.compareAndSet(current, epochDay)) {
+        if (WidgetTrace.LOG) Log.d("RefreshArbiter", "Dia " + epochDay + " reivindicado por cause=" + cause + " (anterior=" + current + ")");
+        return true;
+      }
+    }
+  }
+
+  /** Estado do dia gravado: persiste a geração com commit síncrono. */
+  public static void confirmDay(Context ctx, long epochDay) {
+    prefs(ctx).edit().putLong(KEY_CLAIMED_DAY, epochDay).commit();
+  }
+
+  /** A transição não gravou o estado: libera o dia para o próximo gatilho tentar de novo. */
+  public static void releaseDay(Context ctx, long epochDay) {
+    load(ctx);
+    claimedDay.compareAndSet(epochDay, prefs(ctx).getLong(KEY_CLAIMED_DAY, NO_DAY));
+  }
+
+  /** Reserva um refresh headless se o último foi há mais de WidgetFreshness.MIN_REFRESH_INTERVAL_MS. */
+  public static boolean tryClaimLaunch(Context ctx, long now) {
+    load(ctx);
+    while (true) {
+      long last = lastLaunchTs.get();
+      if (!WidgetFreshness.refreshDue(last, now)) return false;
+      if (lastLaunchTs.compareAndSet(last, now)) {
+        prefs(ctx).edit().putLong(KEY_LAST_LAUNCH, now).apply();
+        return true;
+      }
+    }
+  }
+
+  public static long claimedDay(Context ctx) {
+    load(ctx);
+    return claimedDay.get();
+  }
+
+  /** Debug: esquece a geração para permitir um novo recomputo hoje. */
+  public static void reset(Context ctx) {
+    claimedDay.set(NO_DAY);
+    lastLaunchTs.set(0);
+    prefs(ctx).edit().clear().commit();
+  }
+
+  private static void load(Context ctx) {
+    if (claimedDay.get() != UNLOADED && lastLaunchTs.get() != UNLOADED) return;
+    SharedPreferences p = prefs(ctx);
+    claimedDay.compareAndSet(UNLOADED, p.getLong(KEY_CLAIMED_DAY, NO_DAY));
+    lastLaunchTs.compareAndSet(UNLOADED, p.getLong(KEY_LAST_LAUNCH, 0));
+  }
+
+  private static SharedPreferences prefs(Context ctx) {
+    return ctx.getApplicationContext().getSharedPreferences(PREF_FILE, Context.MODE_PRIVATE);
+  }
+}
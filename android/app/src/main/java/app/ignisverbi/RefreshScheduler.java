@@ -4,12 +4,10 @@ import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.os.SystemClock;
 import android.util.Log;
 import androidx.work.ExistingPeriodicWorkPolicy;
 import androidx.work.PeriodicWorkRequest;
 import androidx.work.WorkManager;
-import java.util.Calendar;
 import java.util.concurrent.TimeUnit;
 
 /** Centraliza lógica para reagendar e disparar atualização do widget ao virar o dia. */
@@ -17,130 +15,125 @@ public class RefreshScheduler {
   public static final String ACTION_MIDNIGHT_ALARM = "app.ignisverbi.ACTION_MIDNIGHT_ALARM";
   public static final String ACTION_DEBUG_ALARM = "app.ignisverbi.ACTION_DEBUG_ALARM"; // manual test
   public static final String ACTION_FORCE_REFRESH = "app.ignisverbi.ACTION_FORCE_REFRESH"; // manual broadcast
-  private static final String UNIQUE_WORK = "DailyWidgetRefresh";
+  static final String UNIQUE_WORK = "DailyWidgetRefresh";
+  static final String EXTRA_SCHEDULED_AT = "scheduledAt"; // horário alvo do alarm, para medir o atraso
   private static final String META_KEY = "widget:lastRefreshMeta"; // diagnostic JSON
-  private static final String SCHEDULE_META_KEY = "widget:lastAlarmSchedule"; // stores last scheduled times
 
-  /** Função DRY: recalcula (aqui apenas zera percent) e força atualização do widget. */
+  /** Função DRY: recalcula (nativo ou reset otimista) e força atualização do widget. */
   public static void performDailyRefresh(Context ctx) { performDailyRefresh(ctx, "auto"); }
 
   public static void performDailyRefresh(Context ctx, String cause) {
     try {
-  String key = "widget:dailyProgress";
-  String prefsFile = "CapacitorStorage";
-  String found = null;
-  try { found = ctx.getSharedPreferences(prefsFile, Context.MODE_PRIVATE).getString(key, null); } catch (Throwable ignored) {}
-      String today = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.US).format(new java.util.Date());
-  Log.d("RefreshScheduler","performDailyRefresh cause="+cause+" file="+prefsFile+" rawPayload="+found);
-      boolean needsReset = false;
-      boolean prevHasGoal = false;
-      if (found == null) {
-        needsReset = true;
-      } else {
-        try {
-          org.json.JSONObject obj = new org.json.JSONObject(found);
-          String day = obj.optString("day", null);
-          prevHasGoal = obj.optBoolean("hasGoal", false);
-          if (day == null || !day.equals(today)) { needsReset = true; }
-        } catch (Throwable t) { needsReset = true; }
-      }
-      Log.d("RefreshScheduler","needsReset="+needsReset+" prevHasGoal="+prevHasGoal);
-      if (needsReset) {
-        // Reset otimista imediato
-        long nowReset = System.currentTimeMillis();
-        String optimistic = "{\"percent\":0,\"hasGoal\":"+prevHasGoal+",\"ts\":"+nowReset+",\"day\":\""+today+"\"}";
-        try {
-          ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE).edit().putString(key, optimistic).apply();
-          Log.d("RefreshScheduler","Reset otimista imediato aplicado");
-          org.json.JSONObject metaOpt = new org.json.JSONObject();
-          metaOpt.put("ts", nowReset);
-          metaOpt.put("cause", cause);
-          metaOpt.put("phase", "optimistic_reset");
-          metaOpt.put("prevHasGoal", prevHasGoal);
-          ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE).edit().putString(META_KEY, metaOpt.toString()).apply();
-        } catch (Throwable ignored) {}
-  ProgressWidgetProvider.triggerUpdate(ctx, "refresh_scheduler");
-        // Tenta JS recomputar (pode sobrescrever com percent real >=0)
-        try {
-          Intent i = new Intent(ctx, MainActivity.class);
-          i.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
-          i.putExtra("devota_force_refresh", true);
-          ctx.startActivity(i);
-          Log.d("RefreshScheduler","Start activity para recomputo JS após reset otimista cause="+cause);
-        } catch (Throwable t) {
-          Log.e("RefreshScheduler","Falha ao iniciar activity pós reset otimista", t);
-        }
-      } else {
-        Log.d("RefreshScheduler","Payload de hoje detectado (sem reset)");
-        try {
-          org.json.JSONObject meta = new org.json.JSONObject();
-          meta.put("ts", System.currentTimeMillis());
-          meta.put("cause", cause);
-          meta.put("phase", "already_today");
-          ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE).edit().putString(META_KEY, meta.toString()).apply();
-        } catch (Throwable ignored) {}
-      }
+      if (applyDayTransition(ctx, cause)) ProgressWidgetProvider.triggerUpdate(ctx, "refresh_scheduler");
     } catch (Throwable t) {
       Log.e("RefreshScheduler","Falha performDailyRefresh", t);
     }
   }
 
-  /** Agenda um alarm exato para o próximo midnight local. */
-  public static void scheduleMidnightAlarm(Context ctx) {
+  /**
+   * Aplica a transição de dia uma única vez por dia (RefreshArbiter). Retorna true se o estado do widget mudou.
+   * Escritas usam WidgetStateStore.writeForNewDay: um valor real de hoje gravado por setDailyProgress
+   * nunca é sobrescrito por um reset otimista que perdeu a corrida.
+   */
+  static boolean applyDayTransition(Context ctx, String cause) {
+    WidgetState found = WidgetStateStore.read(ctx);
+    long today = WidgetClock.todayEpochDay();
+  if (WidgetTrace.LOG) Log.d("RefreshScheduler","applyDayTransition cause="+cause+" state="+found);
+    if (found != null && found.epochDay == today) {
+      if (WidgetTrace.LOG) Log.d("RefreshScheduler","Payload de hoje detectado (sem reset)");
+      writeMeta(ctx, cause, "already_today", null, 0);
+      return false;
+    }
+    if (!RefreshArbiter.tryClaimDay(ctx, today, cause)) {
+      writeMeta(ctx, cause, "already_claimed", null, 0);
+      return false;
+    }
+    // A geração do dia só é persistida depois que o estado de hoje foi gravado; qualquer saída antes
+    // disso (corrida perdida, falha de escrita, exceção) libera o dia para o próximo gatilho
+    boolean confirmed = false;
     try {
-      Calendar cal = Calendar.getInstance();
-      cal.add(Calendar.DAY_OF_YEAR,1);
-      cal.set(Calendar.HOUR_OF_DAY,0);
-      cal.set(Calendar.MINUTE,0);
-      cal.set(Calendar.SECOND,0);
-      cal.set(Calendar.MILLISECOND,0);
-      long triggerAt = cal.getTimeInMillis();
-      AlarmManager am = (AlarmManager) ctx.getSystemService(Context.ALARM_SERVICE);
-      // Use explicit intent to avoid any implicit broadcast restrictions
-  Intent midnightIntent = new Intent(ctx, DailyEventsReceiver.class);
-      midnightIntent.setAction(ACTION_MIDNIGHT_ALARM);
-      PendingIntent pi = PendingIntent.getBroadcast(ctx, 1010, midnightIntent, PendingIntent.FLAG_IMMUTABLE|PendingIntent.FLAG_UPDATE_CURRENT);
-      if (am != null) {
-    // Sempre usar window (não exato) para simplificar e evitar necessidade de permissão
-    long windowLength = 15*60*1000L; // 15 minutos
-    Log.d("RefreshScheduler","Agendando alarm midnight (forçando setWindow) target="+cal.getTime()+" windowMs="+windowLength);
-    am.setWindow(AlarmManager.RTC_WAKEUP, triggerAt, windowLength, pi);
-    // Fallback +60s (também window) somente como redundância leve
-        long fallbackAt = triggerAt + 60_000L;
-  Intent fallbackIntent = new Intent(ctx, DailyEventsReceiver.class);
-        fallbackIntent.setAction(ACTION_MIDNIGHT_ALARM);
-        fallbackIntent.putExtra("fallback", true);
-        PendingIntent fallbackPi = PendingIntent.getBroadcast(ctx, 1011, fallbackIntent, PendingIntent.FLAG_IMMUTABLE|PendingIntent.FLAG_UPDATE_CURRENT);
-    am.setWindow(AlarmManager.RTC_WAKEUP, fallbackAt, windowLength, fallbackPi);
-    Log.d("RefreshScheduler","Fallback window +60s agendado="+new java.util.Date(fallbackAt));
-        // Persist schedule metadata
-        try {
-          org.json.JSONObject meta = new org.json.JSONObject();
-            meta.put("scheduledTs", System.currentTimeMillis());
-            meta.put("midnightAt", triggerAt);
-            meta.put("fallbackAt", fallbackAt);
-      meta.put("forcedWindow", true);
-            ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE).edit().putString(SCHEDULE_META_KEY, meta.toString()).apply();
-        } catch (Throwable ignored) {}
+      DayBoundaryScheduler.noteRollover(ctx, cause, WidgetClock.nowMs());
+      // Linhas do widget de coleção e instâncias fixadas num livro mostram 0% para percent de ontem:
+      // só precisam ser remontadas
+      BooksWidgetProvider.notifyDataChanged(ctx, "day_rollover");
+      boolean prevHasGoal = found != null && found.hasGoal;
+
+      // Recomputo nativo a partir das entradas empurradas pelo JS (sem subir o WebView)
+      DailyProgressEngine.Result nativeResult = ProgressInputsStore.computeToday(ctx);
+      if (nativeResult != null) {
+        WidgetState written = WidgetStateStore.writeForNewDay(ctx, nativeResult.percent, nativeResult.hasGoal, today, WidgetClock.nowMs());
+        if (written == null) {
+          writeMeta(ctx, cause, "lost_race", null, 0);
+          return false;
+        }
+        RefreshArbiter.confirmDay(ctx, today);
+        confirmed = true;
+        DailyProgressEngine.Inputs in = WidgetStateStore.readInputs(ctx);
+        if (in != null) BookSnapshotStore.updateProgress(ctx, in.bookId, written.percent, today, written.ts);
+        writeMeta(ctx, cause, "native_recompute", "percent", nativeResult.percent);
+        if (WidgetTrace.LOG) Log.d("RefreshScheduler","Recomputo nativo aplicado state="+written);
+        return true;
       }
-    } catch (Throwable t) { Log.e("RefreshScheduler","Erro scheduleMidnightAlarm", t); }
+
+      // Reset otimista imediato
+      WidgetState reset = WidgetStateStore.writeForNewDay(ctx, 0, prevHasGoal, today, WidgetClock.nowMs());
+      if (reset == null) {
+        // setDailyProgress gravou o valor real de hoje entre a leitura e a escrita, ou a escrita falhou
+        writeMeta(ctx, cause, "lost_race", null, 0);
+        return false;
+      }
+      RefreshArbiter.confirmDay(ctx, today);
+      confirmed = true;
+      if (WidgetTrace.LOG) Log.d("RefreshScheduler","Reset otimista imediato aplicado");
+      writeMeta(ctx, cause, "optimistic_reset", "prevHasGoal", prevHasGoal ? 1 : 0);
+      // Tenta JS recomputar (pode sobrescrever com percent real >=0)
+      launchHeadlessRefresh(ctx, cause);
+      return true;
+    } finally {
+      if (!confirmed) RefreshArbiter.releaseDay(ctx, today);
+    }
   }
 
-  /** Agenda WorkManager periódico alinhado à próxima meia-noite. */
+  /**
+   * Recomputo JS em segundo plano no WebView offscreen (HeadlessRefreshWorker / HeadlessWebViewHost),
+   * respeitando o intervalo mínimo do RefreshArbiter.
+   */
+  static void launchHeadlessRefresh(Context ctx, String cause) {
+    if (!RefreshArbiter.tryClaimLaunch(ctx, WidgetClock.nowMs())) {
+      if (WidgetTrace.LOG) Log.d("RefreshScheduler","Refresh headless recente, pulando cause="+cause);
+      return;
+    }
+    try {
+      HeadlessRefreshWorker.enqueue(ctx, cause);
+      if (WidgetTrace.LOG) Log.d("RefreshScheduler","Refresh headless enfileirado para recomputo JS cause="+cause);
+    } catch (Throwable t) {
+      Log.e("RefreshScheduler","Falha ao enfileirar refresh headless", t);
+    }
+  }
+
+  private static void writeMeta(Context ctx, String cause, String phase, String extraKey, int extraValue) {
+    WidgetTrace.record(WidgetTrace.REFRESH_PHASE, phase, "percent".equals(extraKey) ? extraValue : -1);
+    try {
+      org.json.JSONObject meta = new org.json.JSONObject();
+      meta.put("ts", WidgetClock.nowMs());
+      meta.put("cause", cause);
+      meta.put("phase", phase);
+      if (extraKey != null) meta.put(extraKey, extraValue);
+      ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE).edit().putString(META_KEY, meta.toString()).apply();
+      WidgetEvents.publish(WidgetEvents.REFRESH_PHASE, meta);
+    } catch (Throwable ignored) {}
+  }
+
+  /** Agenda WorkManager periódico alinhado à próxima virada do dia (rede de segurança do DayBoundaryScheduler). */
   public static void ensureDailyWork(Context ctx) {
     try {
-      long now = System.currentTimeMillis();
-      Calendar cal = Calendar.getInstance();
-      cal.add(Calendar.DAY_OF_YEAR,1);
-      cal.set(Calendar.HOUR_OF_DAY,0);
-      cal.set(Calendar.MINUTE,0);
-      cal.set(Calendar.SECOND,0);
-      cal.set(Calendar.MILLISECOND,0);
-      long nextMidnight = cal.getTimeInMillis();
+      DayClock clock = WidgetClock.get();
+      long now = clock.nowMs();
+      long nextMidnight = clock.nextBoundaryMs();
       long delayMs = nextMidnight - now;
       if (delayMs < 0) delayMs = TimeUnit.MINUTES.toMillis(5);
       if (delayMs >= TimeUnit.HOURS.toMillis(24)) delayMs = TimeUnit.HOURS.toMillis(23);
-  Log.d("RefreshScheduler","ensureDailyWork periodic initialDelayMs="+delayMs);
+  if (WidgetTrace.LOG) Log.d("RefreshScheduler","ensureDailyWork periodic initialDelayMs="+delayMs);
       PeriodicWorkRequest req = new PeriodicWorkRequest.Builder(RefreshWorker.class, 24, TimeUnit.HOURS)
         .setInitialDelay(delayMs, TimeUnit.MILLISECONDS)
         .addTag("daily_refresh_periodic")
@@ -149,20 +142,28 @@ public class RefreshScheduler {
   boolean isDebug = false;
   try { isDebug = (0 != (ctx.getApplicationInfo().flags & android.content.pm.ApplicationInfo.FLAG_DEBUGGABLE)); } catch (Throwable ignored) {}
   ExistingPeriodicWorkPolicy policy = isDebug ? ExistingPeriodicWorkPolicy.REPLACE : ExistingPeriodicWorkPolicy.UPDATE;
-  Log.d("RefreshScheduler","ensureDailyWork enqueue policy="+policy);
+  if (WidgetTrace.LOG) Log.d("RefreshScheduler","ensureDailyWork enqueue policy="+policy);
   WorkManager.getInstance(ctx).enqueueUniquePeriodicWork(UNIQUE_WORK, policy, req);
     } catch (Throwable t) { Log.e("RefreshScheduler","Erro ensureDailyWork periodic", t); }
   }
 
+  /** Desliga o WorkManager periódico quando o alarm da meia-noite já se mostrou confiável. */
+  static void cancelDailyWork(Context ctx) {
+    try {
+      WorkManager.getInstance(ctx).cancelUniqueWork(UNIQUE_WORK);
+      if (WidgetTrace.LOG) Log.d("RefreshScheduler","ensureDailyWork desligado (alarm confiável)");
+    } catch (Throwable t) { Log.e("RefreshScheduler","Erro cancelDailyWork", t); }
+  }
+
   /** Debug: schedule one-off alarm in N seconds. */
   public static void scheduleDebugAlarm(Context ctx, int seconds) {
     try {
-      long triggerAt = System.currentTimeMillis() + seconds * 1000L;
+      long triggerAt = WidgetClock.nowMs() + seconds * 1000L;
       AlarmManager am = (AlarmManager) ctx.getSystemService(Context.ALARM_SERVICE);
       PendingIntent pi = PendingIntent.getBroadcast(ctx, 2020, new Intent(ACTION_DEBUG_ALARM), PendingIntent.FLAG_IMMUTABLE|PendingIntent.FLAG_UPDATE_CURRENT);
       if (am != null) {
         am.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerAt, pi);
-        Log.d("RefreshScheduler","Debug alarm agendado para "+seconds+"s");
+        if (WidgetTrace.LOG) Log.d("RefreshScheduler","Debug alarm agendado para "+seconds+"s");
       }
     } catch (Throwable t) { Log.e("RefreshScheduler","Erro scheduleDebugAlarm", t); }
   }
@@ -16,23 +16,26 @@ public class RefreshWorker extends Worker {
   public Result doWork() {
     try {
   long start = System.currentTimeMillis();
-  Log.d("RefreshWorker","Iniciando doWork ts="+start);
+  if (WidgetTrace.LOG) Log.d("RefreshWorker","Iniciando doWork ts="+start);
       // Captura payload antes
-  String before = null; String after = null; String key = "widget:dailyProgress"; String prefsFile = "CapacitorStorage";
-  try { before = getApplicationContext().getSharedPreferences(prefsFile, Context.MODE_PRIVATE).getString(key, null); } catch (Throwable ignored) {}
-      Log.d("RefreshWorker","PayloadBefore="+before);
+  WidgetState before = null; WidgetState after = null;
+  try { before = WidgetStateStore.read(getApplicationContext()); } catch (Throwable ignored) {}
+      if (WidgetTrace.LOG) Log.d("RefreshWorker","PayloadBefore="+before);
 
       RefreshScheduler.performDailyRefresh(getApplicationContext(), "work_manager");
+      // Rearma o alarm se ele se perdeu (p.ex. force-stop) e reavalia se o worker ainda é necessário
+      DayBoundaryScheduler.ensureScheduled(getApplicationContext(), "work_manager");
       try {
         ProgressWidgetProvider.triggerUpdate(getApplicationContext(), "worker");
-        Log.d("RefreshWorker","triggerUpdate executado origin=worker");
+        if (WidgetTrace.LOG) Log.d("RefreshWorker","triggerUpdate executado origin=worker");
       } catch (Throwable t) { Log.e("RefreshWorker","Falha triggerUpdate", t); }
 
       // Captura payload depois
-  try { after = getApplicationContext().getSharedPreferences(prefsFile, Context.MODE_PRIVATE).getString(key, null); } catch (Throwable ignored) {}
-      Log.d("RefreshWorker","PayloadAfter="+after);
+  try { after = WidgetStateStore.read(getApplicationContext()); } catch (Throwable ignored) {}
+      if (WidgetTrace.LOG) Log.d("RefreshWorker","PayloadAfter="+after);
   long end = System.currentTimeMillis();
-  Log.d("RefreshWorker","Concluido doWork durMs="+(end-start));
+  WidgetTrace.latency(WidgetTrace.WORKER_RUN, "daily", end - start, WidgetTrace.workerMs);
+  if (WidgetTrace.LOG) Log.d("RefreshWorker","Concluido doWork durMs="+(end-start));
   return Result.success();
     } catch (Throwable t) {
       Log.e("RefreshWorker","Falha", t);
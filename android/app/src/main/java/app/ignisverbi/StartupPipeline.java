@@ -0,0 +1,174 @@
+package app.ignisverbi;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import androidx.profileinstaller.ProfileVerifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONObject;
+
+/**
+ * Caminho rápido do start da UI: nada de AlarmManager/WorkManager/SharedPreferences antes do primeiro
+ * frame. A MainActivity só registra o listener de desenho; depois do primeiro draw roda as tarefas
+ * adiadas no main thread (p.ex. observers do WorkManager) e o agendamento da virada do dia numa thread
+ * de background. Mede o tempo até o primeiro frame (cold: desde o início do processo; warm: desde o
+ * onCreate da activity) em WidgetTrace.firstFrameMs. Só é cold se o processo nasceu para esta activity:
+ * um processo acordado antes por widget, alarm ou worker conta como warm.
+ */
+public final class StartupPipeline {
+  // Início do processo -> onCreate da activity acima disto: o processo já existia (receiver, worker)
+  static final long COLD_START_MAX_GAP_MS = 2_000;
+
+  private static final Handler main = new Handler(Looper.getMainLooper());
+  private static final ExecutorService background = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(() -> {
+      Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+      r.run();
+    }, "devota-startup");
+    t.setDaemon(true);
+    return t;
+  });
+
+  // Estado abaixo só é tocado no main thread
+  private static long appCreateUptime;
+  private static boolean firstFrameDrawn;
+  private static final List<Runnable> afterFirstFrame = new ArrayList<>();
+  private static BroadcastReceiver userPresentReceiver;
+
+  private static volatile long lastFirstFrameMs = -1;
+  private static volatile String lastStartKind;
+  // Baseline profile (release): -1 = ainda não consultado
+  private static volatile int profileResultCode = -1;
+  private static volatile boolean compiledWithProfile;
+  private static volatile boolean profileEnqueued;
+
+  private StartupPipeline() {}
+
+  static void onApplicationCreate() {
+    appCreateUptime = SystemClock.uptimeMillis();
+  }
+
+  /** Chamado no MainActivity.onCreate, depois do super (a decor view já existe). */
+  static void onActivityCreate(Activity activity) {
+    final long createUptime = SystemClock.uptimeMillis();
+    final long processStart = processStartUptime();
+    final boolean cold = isColdStart(firstFrameDrawn, processStart, createUptime);
+    final Context app = activity.getApplicationContext();
+    final View decor = activity.getWindow().getDecorView();
+    final ViewTreeObserver.OnDrawListener[] holder = new ViewTreeObserver.OnDrawListener[1];
+    holder[0] = () -> {
+      if (holder[0] == null) return;
+      final ViewTreeObserver.OnDrawListener self = holder[0];
+      holder[0] = null;
+      long now = SystemClock.uptimeMillis();
+      long ms = now - (cold ? processStart : createUptime);
+      // Remover dentro do onDraw não é permitido; o resto roda depois do frame ser entregue
+      main.post(() -> {
+        decor.getViewTreeObserver().removeOnDrawListener(self);
+        onFirstFrame(app, cold, ms);
+      });
+    };
+    decor.getViewTreeObserver().addOnDrawListener(holder[0]);
+  }
+
+  /** Roda {@code r} no main thread depois do primeiro frame da UI (imediatamente, se já houve). */
+  static void afterFirstFrame(Runnable r) {
+    main.post(() -> {
+      if (firstFrameDrawn) {
+        r.run();
+      } else {
+        afterFirstFrame.add(r);
+      }
+    });
+  }
+
+  private static void onFirstFrame(Context app, boolean cold, long ms) {
+    firstFrameDrawn = true;
+    lastFirstFrameMs = ms;
+    lastStartKind = cold ? "cold" : "warm";
+    WidgetTrace.latency(WidgetTrace.STARTUP, lastStartKind, ms, WidgetTrace.firstFrameMs);
+    if (WidgetTrace.LOG) Log.d("StartupPipeline", "Primeiro frame kind=" + lastStartKind + " ms=" + ms);
+    for (Runnable r : afterFirstFrame) {
+      try { r.run(); } catch (Throwable t) { Log.e("StartupPipeline", "Falha em tarefa adiada", t); }
+    }
+    afterFirstFrame.clear();
+    registerUserPresent(app);
+    background.execute(() -> {
+      // Alarm desta meia-noite já pendente: nada de reagendar, consultar bucket ou tocar no WorkManager
+      if (DayBoundaryScheduler.coversNextMidnight(app)) {
+        if (WidgetTrace.LOG) Log.d("StartupPipeline", "Agendamento já cobre a próxima meia-noite; pulando");
+        return;
+      }
+      DayBoundaryScheduler.ensureScheduled(app, "app_start");
+    });
+    background.execute(StartupPipeline::readProfileStatus);
+  }
+
+  /** Se o ART já compilou o app com o baseline profile (só faz sentido em release). */
+  private static void readProfileStatus() {
+    try {
+      ProfileVerifier.CompilationStatus s = ProfileVerifier.getCompilationStatusAsync().get();
+      profileResultCode = s.getProfileInstallResultCode();
+      compiledWithProfile = s.isCompiledWithProfile();
+      profileEnqueued = s.hasProfileEnqueuedForCompilation();
+      if (WidgetTrace.LOG) Log.d("StartupPipeline", "Baseline profile code=" + profileResultCode + " compiled=" + compiledWithProfile + " enqueued=" + profileEnqueued);
+    } catch (Throwable t) {
+      Log.w("StartupPipeline", "Falha consultar baseline profile", t);
+    }
+  }
+
+  /** USER_PRESENT só chega a receivers dinâmicos; um por processo, no contexto da aplicação. */
+  private static void registerUserPresent(Context app) {
+    if (userPresentReceiver != null) return;
+    userPresentReceiver = new BroadcastReceiver() {
+      @Override
+      public void onReceive(Context context, Intent intent) {
+        if (!Intent.ACTION_USER_PRESENT.equals(intent.getAction())) return;
+        if (WidgetTrace.LOG) Log.d("StartupPipeline", "Dynamic USER_PRESENT recebido");
+        final Context ctx = context.getApplicationContext();
+        ReceiverPipeline.dispatch(goAsync(), "user_present_dynamic",
+          deadline -> RefreshScheduler.performDailyRefresh(ctx, "user_present_dynamic"));
+      }
+    };
+    try {
+      app.registerReceiver(userPresentReceiver, new IntentFilter(Intent.ACTION_USER_PRESENT));
+    } catch (Throwable t) {
+      Log.e("StartupPipeline", "Falha registrar USER_PRESENT dynamic", t);
+    }
+  }
+
+  /** Primeira activity do processo e criada logo depois do início dele (não acordado antes em segundo plano). */
+  static boolean isColdStart(boolean firstFrameDrawn, long processStartUptime, long createUptime) {
+    return !firstFrameDrawn && createUptime - processStartUptime < COLD_START_MAX_GAP_MS;
+  }
+
+  private static long processStartUptime() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) return Process.getStartUptimeMillis();
+    return appCreateUptime;
+  }
+
+  public static JSONObject statsJson() {
+    JSONObject o = new JSONObject();
+    try {
+      o.put("lastFirstFrameMs", lastFirstFrameMs);
+      o.put("lastStartKind", lastStartKind);
+      o.put("profileResultCode", profileResultCode);
+      o.put("compiledWithProfile", compiledWithProfile);
+      o.put("profileEnqueued", profileEnqueued);
+    } catch (Throwable ignored) {}
+    return o;
+  }
+}
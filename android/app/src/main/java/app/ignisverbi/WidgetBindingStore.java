@@ -0,0 +1,98 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+
+/**
+ * Índice nativo das instâncias do ProgressWidgetProvider (files/widget_bindings.bin): qual livro cada
+ * appWidgetId mostra. Mesmo esquema do WidgetStateStore (AtomicFile + snapshot em memória); o
+ * WidgetRenderDispatcher consulta o índice invertido para re-renderizar só as instâncias afetadas.
+ */
+public final class WidgetBindingStore {
+  private static final String FILE_NAME = "widget_bindings.bin";
+
+  private static final Object LOCK = new Object();
+  private static volatile WidgetBindings cached;
+
+  private WidgetBindingStore() {}
+
+  /** Snapshot atual (sem I/O após a primeira leitura); nunca null. */
+  public static WidgetBindings read(Context ctx) {
+    WidgetBindings b = cached;
+    if (b != null) return b;
+    synchronized (LOCK) {
+      if (cached == null) cached = load(ctx.getApplicationContext());
+      return cached;
+    }
+  }
+
+  /** Fixa a instância num livro ({@link WidgetBindings#ACTIVE} = livro ativo). */
+  public static void bind(Context ctx, int appWidgetId, String bookId) {
+    synchronized (LOCK) {
+      WidgetBindings prev = read(ctx);
+      commit(ctx, prev, prev.bind(appWidgetId, bookId));
+    }
+  }
+
+  /** Instâncias anteriores ao índice (ou sem configuração) acompanham o livro ativo. */
+  public static void bindMissing(Context ctx, int[] appWidgetIds) {
+    WidgetBindings current = read(ctx);
+    boolean missing = false;
+    for (int id : appWidgetIds) missing |= !current.contains(id);
+    if (!missing) return;
+    synchronized (LOCK) {
+      WidgetBindings prev = read(ctx);
+      commit(ctx, prev, prev.bindMissing(appWidgetIds));
+    }
+  }
+
+  public static void remove(Context ctx, int[] appWidgetIds) {
+    synchronized (LOCK) {
+      WidgetBindings prev = read(ctx);
+      commit(ctx, prev, prev.remove(appWidgetIds));
+    }
+  }
+
+  public static void clear(Context ctx) {
+    synchronized (LOCK) {
+      new AtomicFile(new File(ctx.getApplicationContext().getFilesDir(), FILE_NAME)).delete();
+      cached = WidgetBindings.EMPTY;
+    }
+  }
+
+  private static void commit(Context ctx, WidgetBindings prev, WidgetBindings next) {
+    if (next == prev) return;
+    persist(ctx.getApplicationContext(), next);
+    cached = next;
+  }
+
+  private static WidgetBindings load(Context app) {
+    try {
+      WidgetBindings b = WidgetBindings.decode(new AtomicFile(new File(app.getFilesDir(), FILE_NAME)).readFully());
+      if (b != null) return b;
+      Log.w("WidgetBindingStore", "Índice inválido descartado");
+    } catch (FileNotFoundException e) {
+      // Nenhuma instância configurada ainda: todas acompanham o livro ativo
+    } catch (Throwable t) {
+      Log.e("WidgetBindingStore", "Falha ao ler índice", t);
+    }
+    return WidgetBindings.EMPTY;
+  }
+
+  private static void persist(Context app, WidgetBindings b) {
+    AtomicFile file = new AtomicFile(new File(app.getFilesDir(), FILE_NAME));
+    FileOutputStream out = null;
+    try {
+      out = file.startWrite();
+      out.write(b.encode());
+      file.finishWrite(out);
+    } catch (Throwable t) {
+      if (out != null) file.failWrite(out);
+      Log.e("WidgetBindingStore", "Falha ao gravar índice", t);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.annotation.VisibleForTesting;
+import org.json.JSONObject;
+
+/**
+ * Relógio de parede do subsistema de refresh (virada do dia, alarm, estado do widget). Todo instante
+ * e todo "hoje" gravados ou comparados pelo widget passam por aqui; medições de latência continuam no
+ * relógio do sistema. Os testes Robolectric trocam o relógio para simular meia-noite, fuso e DST.
+ *
+ * <p>O relógio do sistema fica atrás de um {@link CachedDayClock}: o dia corrente só é recalculado na
+ * virada ou em {@link #invalidate()} (TIME_CHANGED / TIMEZONE_CHANGED no DailyEventsReceiver). A hora
+ * de início do dia vem do JS (setDayStartHour) e fica em SharedPreferences; é lida uma vez, no primeiro
+ * uso depois do {@link #attach}.
+ */
+public final class WidgetClock {
+  static final String PREFS = "widget_day_clock";
+  static final String KEY_START_HOUR = "dayStartHour";
+
+  private static final CachedDayClock SYSTEM = new CachedDayClock(DayClock.SYSTEM);
+  private static volatile DayClock clock = SYSTEM;
+  private static volatile Context app;
+  private static volatile boolean loaded;
+
+  private WidgetClock() {}
+
+  /** Application.onCreate: guarda o contexto sem I/O; a preferência é lida sob demanda. */
+  static void attach(Context ctx) {
+    app = ctx.getApplicationContext();
+    loaded = false;
+  }
+
+  public static DayClock get() {
+    if (!loaded) load();
+    return clock;
+  }
+
+  public static long nowMs() { return get().nowMs(); }
+
+  public static long todayEpochDay() { return get().todayEpochDay(); }
+
+  /** Descarta o dia em cache (hora do sistema ou fuso mudou). */
+  static void invalidate() {
+    SYSTEM.invalidate();
+  }
+
+  /** Hora local (0-23) em que o dia começa; volta true se mudou. */
+  static boolean setDayStartHour(Context ctx, int hour) {
+    int h = hour < 0 || hour > 23 ? 0 : hour;
+    prefs(ctx).edit().putInt(KEY_START_HOUR, h).apply();
+    loaded = true;
+    int old = SYSTEM.dayStartHour();
+    SYSTEM.setDayStartHour(h);
+    return old != h;
+  }
+
+  private static synchronized void load() {
+    if (loaded) return;
+    Context ctx = app;
+    // Sem attach (testes JVM) fica a meia-noite
+    if (ctx != null) {
+      try {
+        SYSTEM.setDayStartHour(prefs(ctx).getInt(KEY_START_HOUR, 0));
+      } catch (Throwable ignored) {}
+    }
+    loaded = true;
+  }
+
+  private static SharedPreferences prefs(Context ctx) {
+    return ctx.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+  }
+
+  static JSONObject statsJson() {
+    JSONObject o = new JSONObject();
+    try {
+      DayClock c = get();
+      o.put("dateISO", DailyProgressEngine.formatIsoDay(c.todayEpochDay()));
+      o.put("dayStartHour", c.dayStartHour());
+      o.put("nextBoundaryMs", c.nextBoundaryMs());
+      o.put("zone", c.zone().getID());
+      long[] s = SYSTEM.stats();
+      o.put("hits", s[0]);
+      o.put("recomputes", s[1]);
+      o.put("invalidations", s[2]);
+    } catch (Throwable ignored) {}
+    return o;
+  }
+
+  /** Testes: null volta ao relógio do sistema. */
+  @VisibleForTesting
+  static void set(DayClock c) {
+    clock = c == null ? SYSTEM : c;
+  }
+}
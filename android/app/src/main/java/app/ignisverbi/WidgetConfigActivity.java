@@ -0,0 +1,59 @@
+package app.ignisverbi;
+
+import android.app.Activity;
+import android.appwidget.AppWidgetManager;
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.ArrayAdapter;
+import android.widget.ListView;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuração de uma instância do ProgressWidgetProvider: fixa o appWidgetId num livro com plano
+ * ativo (linhas do BookSnapshotStore) ou no livro ativo, o padrão. Sem I/O além dos snapshots em
+ * memória; a instância escolhida é a única re-renderizada.
+ */
+public class WidgetConfigActivity extends Activity {
+  private int appWidgetId = AppWidgetManager.INVALID_APPWIDGET_ID;
+
+  @Override
+  protected void onCreate(Bundle savedInstanceState) {
+    super.onCreate(savedInstanceState);
+    // Voltar sem escolher: o launcher descarta a instância (ou mantém a configuração atual)
+    setResult(RESULT_CANCELED);
+    Bundle extras = getIntent().getExtras();
+    if (extras != null) appWidgetId = extras.getInt(AppWidgetManager.EXTRA_APPWIDGET_ID, AppWidgetManager.INVALID_APPWIDGET_ID);
+    if (appWidgetId == AppWidgetManager.INVALID_APPWIDGET_ID) {
+      finish();
+      return;
+    }
+
+    BookSnapshot books = BookSnapshotStore.read(this);
+    final List<String> bookIds = new ArrayList<>(books.size() + 1);
+    List<String> labels = new ArrayList<>(books.size() + 1);
+    bookIds.add(WidgetBindings.ACTIVE);
+    labels.add("Livro ativo (último lido)");
+    for (int i = 0; i < books.size(); i++) {
+      bookIds.add(books.get(i).bookId);
+      labels.add(books.get(i).title);
+    }
+
+    setTitle("Livro do widget");
+    ListView list = new ListView(this);
+    list.setAdapter(new ArrayAdapter<>(this, android.R.layout.simple_list_item_single_choice, labels));
+    list.setChoiceMode(ListView.CHOICE_MODE_SINGLE);
+    int current = bookIds.indexOf(WidgetBindingStore.read(this).bookFor(appWidgetId));
+    if (current >= 0) list.setItemChecked(current, true);
+    list.setOnItemClickListener((parent, view, position, id) -> choose(bookIds.get(position)));
+    setContentView(list);
+  }
+
+  private void choose(String bookId) {
+    WidgetBindingStore.bind(this, appWidgetId, bookId);
+    WidgetRenderDispatcher.invalidate(appWidgetId);
+    WidgetRenderDispatcher.requestIds(this, "configure", appWidgetId);
+    setResult(RESULT_OK, new Intent().putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, appWidgetId));
+    finish();
+  }
+}
@@ -0,0 +1,57 @@
+package app.ignisverbi;
+
+import android.util.Log;
+import org.json.JSONObject;
+
+/**
+ * Canal nativo→JS do widget. Componentes nativos publicam eventos tipados e o plugin WidgetUpdater,
+ * quando carregado, os repassa via notifyListeners. Sem plugin (processo só em background) o evento é
+ * descartado; o estado atual continua disponível por getDailyProgress/getDebugState.
+ */
+public final class WidgetEvents {
+  /** { percent, hasGoal, ts, day, version } */
+  public static final String DAILY_PROGRESS = "dailyProgressChanged";
+  /** { ts, cause, phase, ... } — mesmo JSON de widget:lastRefreshMeta */
+  public static final String REFRESH_PHASE = "refreshPhase";
+  /** { scheduledTs, reason, midnightAt, mode, allowWhileIdle, periodicWork, ... } — mesmo JSON de widget:lastAlarmSchedule */
+  public static final String ALARM_SCHEDULED = "alarmScheduled";
+  /** { name, id, state, attempts, queriedTs } */
+  public static final String WORKER_STATE = "workerState";
+
+  public interface Sink {
+    void emit(String event, JSONObject data);
+  }
+
+  private static volatile Sink sink;
+
+  private WidgetEvents() {}
+
+  static void attach(Sink s) { sink = s; }
+
+  static void detach(Sink s) {
+    if (sink == s) sink = null;
+  }
+
+  public static void publish(String event, JSONObject data) {
+    Sink s = sink;
+    if (s == null || data == null) return;
+    try {
+      s.emit(event, data);
+    } catch (Throwable t) {
+      Log.w("WidgetEvents", "Falha ao emitir " + event, t);
+    }
+  }
+
+  static void dailyProgress(WidgetState state) {
+    if (sink == null || state == null) return;
+    JSONObject o = new JSONObject();
+    try {
+      o.put("percent", state.percent);
+      o.put("hasGoal", state.hasGoal);
+      o.put("ts", state.ts);
+      o.put("day", DailyProgressEngine.formatIsoDay(state.epochDay));
+      o.put("version", state.version);
+    } catch (Throwable ignored) {}
+    publish(DAILY_PROGRESS, o);
+  }
+}
@@ -0,0 +1,268 @@
+package app.ignisverbi;
+
+import android.appwidget.AppWidgetManager;
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.util.SparseLongArray;
+import androidx.annotation.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ponto único de renderização do widget. Pedidos que chegam dentro de {@link #COALESCE_WINDOW_MS}
+ * viram uma só passada num HandlerThread; por widget id guarda o layout (meta + faixas de tamanho) e o
+ * percent do último render. Nada mudou: pula o IPC. Só o percent mudou: partiallyUpdateAppWidget com a
+ * barra e o texto. Senão: updateAppWidget completo. Pedidos por livro ({@link #requestBooks}) usam o
+ * índice invertido do WidgetBindingStore e só visitam as instâncias que mostram aquele livro.
+ */
+public final class WidgetRenderDispatcher {
+  static final long COALESCE_WINDOW_MS = 250;
+  private static final long NOT_RENDERED = Long.MIN_VALUE;
+
+  private static final Object LOCK = new Object();
+  private static HandlerThread thread;
+  private static Handler handler;
+  private static boolean pending; // guardado por LOCK
+  private static boolean renderAll; // guardado por LOCK
+  private static final SparseBooleanArray dirtyIds = new SparseBooleanArray(); // guardado por LOCK
+  private static final List<BroadcastReceiver.PendingResult> pendingResults = new ArrayList<>();
+  private static Context appContext;
+
+  // Acessados apenas no thread de renderização
+  private static final SparseLongArray lastLayout = new SparseLongArray();
+  private static final SparseIntArray lastPercent = new SparseIntArray();
+
+  private static final AtomicLong requested = new AtomicLong();
+  private static final AtomicLong coalesced = new AtomicLong();
+  private static final AtomicLong passes = new AtomicLong();
+  private static final AtomicLong pushed = new AtomicLong();
+  private static final AtomicLong partial = new AtomicLong();
+  private static final AtomicLong skipped = new AtomicLong();
+  private static final AtomicLong targeted = new AtomicLong();
+
+  private WidgetRenderDispatcher() {}
+
+  /**
+   * Agenda uma passada de renderização. {@code asyncResult} (de goAsync) é finalizado quando a
+   * passada que atende este pedido termina.
+   */
+  public static void request(Context context, String origin, BroadcastReceiver.PendingResult asyncResult) {
+    schedule(context, origin, asyncResult, null);
+  }
+
+  /**
+   * Agenda só as instâncias que exibem algum dos livros ({@link WidgetBindings#ACTIVE} = as que
+   * acompanham o livro ativo). Índice ainda vazio (instâncias anteriores a ele): todas.
+   */
+  public static void requestBooks(Context context, String origin, String... bookIds) {
+    WidgetBindings bindings = WidgetBindingStore.read(context);
+    if (bindings.size() == 0) {
+      schedule(context, origin, null, null);
+      return;
+    }
+    int n = 0;
+    for (String b : bookIds) n += bindings.idsFor(b).length;
+    if (n == 0) return;
+    int[] ids = new int[n];
+    n = 0;
+    for (String b : bookIds) {
+      int[] part = bindings.idsFor(b);
+      System.arraycopy(part, 0, ids, n, part.length);
+      n += part.length;
+    }
+    schedule(context, origin, null, ids);
+  }
+
+  /** Agenda instâncias específicas (p.ex. a recém-configurada). */
+  public static void requestIds(Context context, String origin, int... appWidgetIds) {
+    schedule(context, origin, null, appWidgetIds);
+  }
+
+  /** {@code ids} null = todas as instâncias (getAppWidgetIds na passada). */
+  private static void schedule(Context context, String origin, BroadcastReceiver.PendingResult asyncResult, int[] ids) {
+    requested.incrementAndGet();
+    synchronized (LOCK) {
+      appContext = context.getApplicationContext();
+      if (asyncResult != null) pendingResults.add(asyncResult);
+      if (ids == null) renderAll = true;
+      else for (int id : ids) dirtyIds.put(id, true);
+      if (pending) {
+        coalesced.incrementAndGet();
+        return;
+      }
+      pending = true;
+      ensureThread().postDelayed(WidgetRenderDispatcher::renderPass, COALESCE_WINDOW_MS);
+    }
+    if (WidgetTrace.LOG) Log.d("WidgetRenderDispatcher", "request origin=" + origin + " ids=" + (ids == null ? "all" : ids.length));
+  }
+
+  /** Esquece o último render de um id (mudança de tamanho ou widget removido). */
+  public static void invalidate(int appWidgetId) {
+    synchronized (LOCK) {
+      ensureThread().post(() -> {
+        lastLayout.delete(appWidgetId);
+        lastPercent.delete(appWidgetId);
+      });
+    }
+  }
+
+  private static Handler ensureThread() {
+    if (handler == null) {
+      thread = new HandlerThread("widget-render", Process.THREAD_PRIORITY_BACKGROUND);
+      thread.start();
+      handler = new Handler(thread.getLooper());
+    }
+    return handler;
+  }
+
+  /** Testes: looper da thread de renderização, para drenar a passada coalescida. */
+  @VisibleForTesting
+  static Looper looper() {
+    synchronized (LOCK) {
+      return ensureThread().getLooper();
+    }
+  }
+
+  /** Testes: encerra a thread e esquece pedidos pendentes, últimos renders e contadores. */
+  @VisibleForTesting
+  static void reset() {
+    synchronized (LOCK) {
+      if (thread != null) thread.quit();
+      thread = null;
+      handler = null;
+      pending = false;
+      renderAll = false;
+      dirtyIds.clear();
+      pendingResults.clear();
+      lastLayout.clear();
+      lastPercent.clear();
+    }
+    for (AtomicLong c : new AtomicLong[] { requested, coalesced, passes, pushed, skipped, partial, targeted }) c.set(0);
+  }
+
+  private static void renderPass() {
+    Context ctx;
+    List<BroadcastReceiver.PendingResult> results;
+    boolean all;
+    int[] targets;
+    synchronized (LOCK) {
+      pending = false;
+      ctx = appContext;
+      results = new ArrayList<>(pendingResults);
+      pendingResults.clear();
+      all = renderAll;
+      renderAll = false;
+      targets = new int[dirtyIds.size()];
+      for (int i = 0; i < targets.length; i++) targets[i] = dirtyIds.keyAt(i);
+      dirtyIds.clear();
+    }
+    passes.incrementAndGet();
+    long startUptime = SystemClock.uptimeMillis();
+    int full = 0, partials = 0;
+    try {
+      AppWidgetManager manager = AppWidgetManager.getInstance(ctx);
+      int[] ids;
+      if (all) {
+        ids = manager.getAppWidgetIds(new ComponentName(ctx, ProgressWidgetProvider.class));
+        if (ids == null || ids.length == 0) return;
+        WidgetBindingStore.bindMissing(ctx, ids);
+      } else {
+        ids = targets;
+        targeted.incrementAndGet();
+      }
+      WidgetBindings bindings = WidgetBindingStore.read(ctx);
+      // Estado do livro ativo resolvido uma vez por passada, e só se alguma instância o mostra
+      WidgetState activeState = null;
+      boolean activeResolved = false;
+      BookSnapshot books = null;
+      long today = WidgetClock.todayEpochDay();
+      float density = ctx.getResources().getDisplayMetrics().density;
+      for (int id : ids) {
+        String book = bindings.bookFor(id);
+        int percent;
+        boolean hasGoal;
+        String title;
+        if (WidgetBindings.ACTIVE.equals(book)) {
+          if (!activeResolved) {
+            activeState = ProgressWidgetProvider.resolveState(ctx);
+            activeResolved = true;
+          }
+          // Estado de outro dia (transição ainda não gravada) mostra 0%, como as linhas fixadas num livro
+          percent = activeState == null || activeState.epochDay != today ? 0 : activeState.percent;
+          hasGoal = activeState != null && activeState.hasGoal;
+          title = null;
+        } else {
+          if (books == null) books = BookSnapshotStore.read(ctx);
+          int i = books.indexOf(book);
+          BookSnapshot.Row row = i < 0 ? null : books.get(i);
+          percent = row == null ? 0 : row.percentOn(today);
+          hasGoal = row != null;
+          title = row == null ? null : row.title;
+        }
+        List<WidgetGeometry> geometries = ProgressWidgetProvider.geometries(manager.getAppWidgetOptions(id), density);
+        long layout = layoutKey(hasGoal, title, geometries);
+        int shownPercent = hasGoal ? percent : 0;
+        boolean sameLayout = lastLayout.get(id, NOT_RENDERED) == layout;
+        if (sameLayout && lastPercent.get(id, -1) == shownPercent) {
+          skipped.incrementAndGet();
+          continue;
+        }
+        if (sameLayout && hasGoal && geometries.size() == 1) {
+          // Só o percent mudou; mapas de tamanho (Android 12+) não aceitam merge parcial nos filhos
+          manager.partiallyUpdateAppWidget(id, ProgressWidgetProvider.buildProgressViews(ctx, percent));
+          partial.incrementAndGet();
+          partials++;
+        } else {
+          manager.updateAppWidget(id, ProgressWidgetProvider.buildViews(ctx, percent, hasGoal, title, geometries));
+          lastLayout.put(id, layout);
+          pushed.incrementAndGet();
+          full++;
+        }
+        lastPercent.put(id, shownPercent);
+      }
+      if (WidgetTrace.LOG) Log.d("WidgetRenderDispatcher", "pass ids=" + ids.length + " all=" + all);
+    } catch (Throwable t) {
+      Log.e("WidgetRenderDispatcher", "Falha na passada de renderização", t);
+    } finally {
+      WidgetTrace.latency(WidgetTrace.RENDER, full > 0 ? "full" : partials > 0 ? "partial" : "skipped",
+          SystemClock.uptimeMillis() - startUptime, WidgetTrace.renderMs);
+      for (BroadcastReceiver.PendingResult r : results) {
+        try { r.finish(); } catch (Throwable ignored) {}
+      }
+    }
+  }
+
+  /** Parte estrutural de um render: meta (visibilidades), título e faixas de tamanho (paddings). */
+  static long layoutKey(boolean hasGoal, String title, List<WidgetGeometry> geometries) {
+    long key = WidgetGeometry.signature(geometries) * 2 + (hasGoal ? 1 : 0);
+    return title == null ? key : key * 31 + title.hashCode();
+  }
+
+  /** Contadores: pedidos vs. coalescidos vs. passadas vs. IPCs completos vs. pulados vs. parciais vs. passadas por livro. */
+  public static long[] stats() {
+    return new long[] { requested.get(), coalesced.get(), passes.get(), pushed.get(), skipped.get(), partial.get(), targeted.get() };
+  }
+
+  public static com.getcapacitor.JSObject statsJson() {
+    long[] s = stats();
+    com.getcapacitor.JSObject o = new com.getcapacitor.JSObject();
+    o.put("requested", s[0]);
+    o.put("coalesced", s[1]);
+    o.put("passes", s[2]);
+    o.put("pushed", s[3]);
+    o.put("skipped", s[4]);
+    o.put("partial", s[5]);
+    o.put("targeted", s[6]);
+    return o;
+  }
+}
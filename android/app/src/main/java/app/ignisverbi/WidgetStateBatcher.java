@@ -0,0 +1,228 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.Iterator;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Aplica o estado do widget recebido em lote (WidgetUpdater.applyState): entradas do motor, progresso
+ * atual, baseline de amanhã e/ou percent explícito viram uma única escrita do WidgetStateStore e uma
+ * única renderização. Chamadas com {@code throttle} (stream de virada de página do leitor) passam por
+ * um throttle nativo: a primeira da janela aplica na hora, as seguintes são mescladas e a última vale
+ * ao fim da janela. O mesmo lote pode trazer as linhas do widget de coleção ({@code books}, lista
+ * completa, ou {@code book}, uma linha), gravadas no BookSnapshotStore.
+ */
+public final class WidgetStateBatcher {
+  static final long THROTTLE_MS = 1_000;
+
+  private static final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1,
+      r -> new Thread(r, "widget-state-batcher"));
+
+  // Guardados pela classe (só a fila do throttle; nada de I/O sob este lock)
+  private static JSONObject pending;
+  private static ScheduledFuture<?> flush;
+  private static long lastApplyUptime = Long.MIN_VALUE / 2;
+  private static long coalesced;
+
+  // Serializa as aplicações (leitura-cálculo-escrita do store, eventos); a fila do throttle não espera por ele
+  private static final Object APPLY_LOCK = new Object();
+
+  private WidgetStateBatcher() {}
+
+  /** Resultado de uma aplicação (null em {@link #submit} quando ficou para o fim da janela). */
+  public static final class Applied {
+    public final WidgetState state; // estado atual após a aplicação (pode ser null)
+    public final boolean changed;
+
+    Applied(WidgetState state, boolean changed) {
+      this.state = state;
+      this.changed = changed;
+    }
+  }
+
+  /**
+   * Aplica {@code batch} agora, ou o enfileira se {@code throttle} e a última aplicação foi há menos de
+   * THROTTLE_MS. Um lote sem throttle descarrega o que estiver pendente junto, preservando a ordem.
+   */
+  public static Applied submit(Context ctx, JSONObject batch, boolean throttle) {
+    final Context app = ctx.getApplicationContext();
+    JSONObject toApply;
+    synchronized (WidgetStateBatcher.class) {
+      JSONObject merged = pending == null ? batch : merge(pending, batch);
+      long now = SystemClock.uptimeMillis();
+      long wait = lastApplyUptime + THROTTLE_MS - now;
+      if (throttle && wait > 0) {
+        if (pending != null) coalesced++;
+        pending = merged;
+        if (flush == null) flush = executor.schedule(() -> flushPending(app), wait, TimeUnit.MILLISECONDS);
+        return null;
+      }
+      cancelFlush();
+      pending = null;
+      lastApplyUptime = now;
+      toApply = merged;
+    }
+    return apply(app, toApply);
+  }
+
+  /**
+   * Linhas do pull nativo (ProgressPullWorker), mescladas dentro do APPLY_LOCK nas entradas lidas na hora.
+   * Retorna null (lote descartado) se o livro ativo mudou ou se o JS gravou progresso local depois da
+   * busca (localModified andou): o que o leitor aplicou durante a busca nunca é sobrescrito. Também
+   * null se o arquivo não pôde ser gravado.
+   */
+  public static Applied submitPulled(Context ctx, ProgressPullWorker.Pulled pulled) {
+    return apply(ctx.getApplicationContext(), new JSONObject(), pulled);
+  }
+
+  private static void flushPending(Context app) {
+    JSONObject toApply;
+    synchronized (WidgetStateBatcher.class) {
+      flush = null;
+      toApply = pending;
+      pending = null;
+      if (toApply == null) return;
+      lastApplyUptime = SystemClock.uptimeMillis();
+    }
+    apply(app, toApply);
+  }
+
+  private static void cancelFlush() {
+    if (flush != null) {
+      flush.cancel(false);
+      flush = null;
+    }
+  }
+
+  /** Mescla rasa; entradas completas novas descartam um progresso parcial mais antigo. */
+  static JSONObject merge(JSONObject older, JSONObject newer) {
+    JSONObject out = new JSONObject();
+    try {
+      for (Iterator<String> it = older.keys(); it.hasNext(); ) {
+        String k = it.next();
+        if ("progress".equals(k) && newer.has("inputs")) continue;
+        out.put(k, older.get(k));
+      }
+      for (Iterator<String> it = newer.keys(); it.hasNext(); ) {
+        String k = it.next();
+        out.put(k, newer.get(k));
+      }
+    } catch (Throwable ignored) {}
+    return out;
+  }
+
+  static Applied apply(Context app, JSONObject batch) {
+    return apply(app, batch, null);
+  }
+
+  /**
+   * Uma escrita + uma renderização; nada acontece se o lote não muda nem estado nem entradas.
+   * {@code pulled} (linhas do pull nativo) é aplicado sobre as entradas gravadas, lidas sob o lock.
+   */
+  static Applied apply(Context app, JSONObject batch, ProgressPullWorker.Pulled pulled) {
+    synchronized (APPLY_LOCK) {
+      try {
+        DailyProgressEngine.Inputs stored = WidgetStateStore.readInputs(app);
+        DailyProgressEngine.Inputs in = null;
+        if (pulled != null) {
+          if (stored == null || stored.bookId == null || !stored.bookId.equals(pulled.bookId)
+              || stored.localModified > pulled.localModified) {
+            if (WidgetTrace.LOG) Log.d("WidgetStateBatcher", "Pull descartado: entradas mudaram durante a busca");
+            return null;
+          }
+          in = stored.copy();
+          pulled.applyTo(in);
+        }
+        JSONObject inputs = batch.optJSONObject("inputs");
+        if (inputs != null) in = ProgressInputsStore.fromPayload(inputs);
+        JSONObject progress = batch.optJSONObject("progress");
+        if (progress != null) {
+          DailyProgressEngine.Inputs base = in != null ? in : stored == null ? null : stored.copy();
+          String bookId = progress.isNull("bookId") ? null : progress.optString("bookId", null);
+          // Progresso de outro livro não mexe no widget do livro ativo
+          if (base != null && (bookId == null || bookId.equals(base.bookId))) {
+            ProgressInputsStore.applyProgress(base, progress);
+            in = base;
+          }
+        }
+        JSONObject tomorrow = batch.optJSONObject("tomorrowBaseline");
+        if (tomorrow != null) {
+          if (in == null && stored != null) in = stored.copy();
+          if (in != null) ProgressInputsStore.applyTomorrowBaseline(in, tomorrow);
+        }
+        // _modified da linha local que o JS acabou de gravar: vai no mesmo arquivo do estado e, no mesmo
+        // livro, nunca recua
+        long modified = batch.optLong("modified", 0);
+        if (in == null && stored != null && modified > stored.localModified) in = stored.copy();
+        if (in != null) {
+          boolean sameBook = stored != null && in.bookId != null && in.bookId.equals(stored.bookId);
+          in.localModified = Math.max(modified, sameBook ? Math.max(in.localModified, stored.localModified) : in.localModified);
+        }
+
+        long today = WidgetClock.todayEpochDay();
+        WidgetState prev = WidgetStateStore.read(app);
+        int percent;
+        boolean hasGoal;
+        if (batch.has("percent")) {
+          percent = Math.max(0, Math.min(100, batch.getInt("percent")));
+          hasGoal = batch.optBoolean("hasGoal", prev != null && prev.hasGoal);
+        } else {
+          DailyProgressEngine.Result r = DailyProgressEngine.compute(in, today);
+          if (r != null) {
+            percent = r.percent;
+            hasGoal = r.hasGoal;
+          } else if (prev != null) {
+            percent = prev.percent;
+            hasGoal = prev.hasGoal;
+          } else {
+            percent = 0;
+            hasGoal = false;
+          }
+        }
+
+        long now = WidgetClock.nowMs();
+        JSONArray books = batch.optJSONArray("books");
+        if (books != null) BookSnapshotStore.replace(app, books, today, now);
+        JSONObject book = batch.optJSONObject("book");
+        if (book != null) {
+          BookSnapshotStore.upsert(app, book.optString("bookId", null), book.isNull("title") ? null : book.optString("title", null),
+              book.optInt("percent", 0), book.optBoolean("hasGoal", false), today, now);
+        }
+
+        boolean inputsChanged = in != null && !ProgressInputsStore.encode(in).equals(stored == null ? null : ProgressInputsStore.encode(stored));
+        boolean stateChanged = prev == null || prev.percent != percent || prev.hasGoal != hasGoal || prev.epochDay != today;
+        // Mesmo valor, mas o ts precisa andar para o widget não classificar o dado como STALE
+        boolean aging = prev != null && now - prev.ts > WidgetFreshness.DATA_STALE_THRESHOLD_MS / 2;
+        if (!inputsChanged && !stateChanged && !aging) return new Applied(prev, false);
+        WidgetState next = WidgetStateStore.writeBatch(app, percent, hasGoal, today, now, inputsChanged ? in : null);
+        // Arquivo não gravado: sem render nem linha de coleção de um estado que não existe
+        if (next == null) return null;
+        if (stateChanged) ProgressWidgetProvider.triggerActiveUpdate(app, "apply_state");
+        // Linha do livro ativo no widget de coleção acompanha o percent (sem criar linha nova)
+        if (in != null && book == null) BookSnapshotStore.updateProgress(app, in.bookId, percent, today, now);
+        if (WidgetTrace.LOG) Log.d("WidgetStateBatcher", "applyState state=" + next + " inputsChanged=" + inputsChanged);
+        return new Applied(next, true);
+      } catch (Throwable t) {
+        Log.e("WidgetStateBatcher", "Falha ao aplicar lote", t);
+        return null;
+      }
+    }
+  }
+
+  public static synchronized JSONObject statsJson() {
+    JSONObject o = new JSONObject();
+    try {
+      o.put("pending", pending != null);
+      o.put("coalesced", coalesced);
+      o.put("throttleMs", THROTTLE_MS);
+    } catch (Throwable ignored) {}
+    return o;
+  }
+}
@@ -0,0 +1,227 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.AtomicFile;
+import android.util.Log;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import org.json.JSONObject;
+
+/**
+ * Armazena o estado do widget num arquivo binário próprio (files/widget_state.bin), fora do
+ * CapacitorStorage.xml, junto com as entradas do DailyProgressEngine: os dois vão na mesma escrita
+ * atômica (AtomicFile), então nunca ficam de versões diferentes. Leitura servida por um snapshot em
+ * memória compartilhado pelo processo. Na primeira leitura migra widget:dailyProgress e
+ * widget:progressInputs do CapacitorStorage.
+ */
+public class WidgetStateStore {
+  private static final String FILE_NAME = "widget_state.bin";
+  private static final String LEGACY_PREF_FILE = "CapacitorStorage";
+  public static final String LEGACY_KEY = "widget:dailyProgress";
+
+  private static final Object LOCK = new Object();
+  private static volatile WidgetState cached;
+  private static volatile String cachedInputs; // JSON de ProgressInputsStore.encode
+  private static volatile boolean loaded;
+  // Chaves legadas já migradas para o snapshot, removidas só depois de uma escrita bem-sucedida do arquivo
+  private static volatile boolean legacyPending;
+
+  /** Snapshot atual (sem I/O após a primeira leitura); null se nunca houve estado. */
+  public static WidgetState read(Context ctx) {
+    ensureLoaded(ctx);
+    return cached;
+  }
+
+  /** Entradas do motor gravadas junto com o estado; null se o JS ainda não as empurrou. */
+  public static DailyProgressEngine.Inputs readInputs(Context ctx) {
+    ensureLoaded(ctx);
+    return ProgressInputsStore.decode(cachedInputs);
+  }
+
+  private static void ensureLoaded(Context ctx) {
+    if (loaded) return;
+    synchronized (LOCK) {
+      if (!loaded) {
+        load(ctx.getApplicationContext());
+        loaded = true;
+      }
+    }
+  }
+
+  /** Persiste um novo estado (versão incrementada) e atualiza o snapshot; null se o arquivo não pôde ser gravado. */
+  public static WidgetState write(Context ctx, int percent, boolean hasGoal, long epochDay, long ts) {
+    return writeBatch(ctx, percent, hasGoal, epochDay, ts, null);
+  }
+
+  /**
+   * Estado e entradas numa única escrita. {@code inputs} null mantém as entradas atuais. Retorna o
+   * estado gravado (versão incrementada), ou null se o arquivo não pôde ser gravado; nesse caso o
+   * snapshot fica como estava.
+   */
+  public static WidgetState writeBatch(Context ctx, int percent, boolean hasGoal, long epochDay, long ts, DailyProgressEngine.Inputs inputs) {
+    synchronized (LOCK) {
+      WidgetState prev = read(ctx);
+      WidgetState next = new WidgetState(percent, hasGoal, epochDay, ts, prev == null ? 1 : prev.version + 1);
+      String json = inputs == null ? cachedInputs : encodeInputs(inputs);
+      if (!persist(ctx.getApplicationContext(), next, json)) return null;
+      cached = next;
+      cachedInputs = json;
+      WidgetEvents.dailyProgress(next);
+      return next;
+    }
+  }
+
+  /**
+   * Só as entradas (setProgressInputs): reescreve o arquivo com o estado atual intacto. Retorna false se
+   * as entradas são inválidas ou o arquivo não pôde ser gravado (snapshot como estava).
+   */
+  public static boolean writeInputs(Context ctx, DailyProgressEngine.Inputs inputs) {
+    synchronized (LOCK) {
+      WidgetState state = read(ctx);
+      String json = encodeInputs(inputs);
+      if (json == null) return false;
+      if (json.equals(cachedInputs)) return true;
+      if (!persist(ctx.getApplicationContext(), state, json)) return false;
+      cachedInputs = json;
+      return true;
+    }
+  }
+
+  private static String encodeInputs(DailyProgressEngine.Inputs inputs) {
+    try {
+      return ProgressInputsStore.encode(inputs);
+    } catch (Throwable t) {
+      Log.e("WidgetStateStore", "Entradas inválidas", t);
+      return null;
+    }
+  }
+
+  /**
+   * Compare-and-set da virada do dia: grava apenas se o estado atual não pertence a {@code epochDay}.
+   * Retorna null quando já existe um valor de hoje (p.ex. vindo de setDailyProgress) ou quando o arquivo
+   * não pôde ser gravado; nesse caso o snapshot também fica como estava.
+   */
+  public static WidgetState writeForNewDay(Context ctx, int percent, boolean hasGoal, long epochDay, long ts) {
+    synchronized (LOCK) {
+      WidgetState prev = read(ctx);
+      if (prev != null && prev.epochDay == epochDay) return null;
+      WidgetState next = new WidgetState(percent, hasGoal, epochDay, ts, prev == null ? 1 : prev.version + 1);
+      if (!persist(ctx.getApplicationContext(), next, cachedInputs)) return null;
+      cached = next;
+      WidgetEvents.dailyProgress(next);
+      return next;
+    }
+  }
+
+  public static void clear(Context ctx) {
+    synchronized (LOCK) {
+      Context app = ctx.getApplicationContext();
+      new AtomicFile(new File(app.getFilesDir(), FILE_NAME)).delete();
+      try {
+        app.getSharedPreferences(LEGACY_PREF_FILE, Context.MODE_PRIVATE).edit().remove(LEGACY_KEY).remove(ProgressInputsStore.KEY).apply();
+      } catch (Throwable ignored) {}
+      legacyPending = false;
+      cached = null;
+      cachedInputs = null;
+      loaded = true;
+    }
+  }
+
+  private static void load(Context app) {
+    AtomicFile file = new AtomicFile(new File(app.getFilesDir(), FILE_NAME));
+    WidgetState state = null;
+    String inputs = null;
+    boolean found = false;
+    try {
+      byte[] data = file.readFully();
+      state = WidgetState.decode(data);
+      inputs = WidgetState.decodeInputs(data);
+      found = state != null || WidgetState.isEmptyRecord(data);
+      if (!found) Log.w("WidgetStateStore", "Registro inválido, tentando migração do JSON legado");
+    } catch (FileNotFoundException e) {
+      // Primeira execução após o upgrade: segue para a migração
+    } catch (Throwable t) {
+      Log.e("WidgetStateStore", "Falha ao ler estado", t);
+    }
+    boolean migrated = false;
+    if (!found) {
+      state = migrateLegacy(app);
+      migrated = state != null;
+    }
+    if (inputs == null) {
+      inputs = migrateLegacyInputs(app);
+      migrated |= inputs != null;
+    }
+    cached = state;
+    cachedInputs = inputs;
+    if (migrated) {
+      // Falha na escrita: as chaves ficam no CapacitorStorage e a próxima escrita bem-sucedida as remove
+      legacyPending = true;
+      persist(app, state, inputs);
+    }
+  }
+
+  private static void removeLegacyKeys(Context app) {
+    try {
+      app.getSharedPreferences(LEGACY_PREF_FILE, Context.MODE_PRIVATE).edit().remove(LEGACY_KEY).remove(ProgressInputsStore.KEY).apply();
+      legacyPending = false;
+      if (WidgetTrace.LOG) Log.d("WidgetStateStore", "Chaves legadas removidas após a migração");
+    } catch (Throwable t) {
+      Log.w("WidgetStateStore", "Falha ao remover chaves legadas", t);
+    }
+  }
+
+  /** widget:progressInputs saiu do CapacitorStorage para a seção de entradas do arquivo. */
+  private static String migrateLegacyInputs(Context app) {
+    try {
+      SharedPreferences prefs = app.getSharedPreferences(LEGACY_PREF_FILE, Context.MODE_PRIVATE);
+      String json = prefs.getString(ProgressInputsStore.KEY, null);
+      if (json == null) return null;
+      return ProgressInputsStore.decode(json) == null ? null : json;
+    } catch (Throwable t) {
+      return null;
+    }
+  }
+
+  /** Converte o JSON legado { percent, hasGoal, ts, day }; a chave sai do CapacitorStorage depois do persist. */
+  private static WidgetState migrateLegacy(Context app) {
+    try {
+      SharedPreferences prefs = app.getSharedPreferences(LEGACY_PREF_FILE, Context.MODE_PRIVATE);
+      String json = prefs.getString(LEGACY_KEY, null);
+      if (json == null) return null;
+      WidgetState s = null;
+      try {
+        JSONObject obj = new JSONObject(json);
+        long day = DailyProgressEngine.parseIsoDay(obj.optString("day", null));
+        s = new WidgetState(obj.optInt("percent", 0), obj.optBoolean("hasGoal", false),
+            day == DailyProgressEngine.NO_DAY ? 0 : day, obj.optLong("ts", 0), 1);
+      } catch (Throwable t) {
+        Log.w("WidgetStateStore", "JSON legado inválido descartado: " + json);
+      }
+      if (WidgetTrace.LOG) Log.d("WidgetStateStore", "Migrado JSON legado -> " + s);
+      return s;
+    } catch (Throwable t) {
+      Log.e("WidgetStateStore", "Falha na migração do JSON legado", t);
+      return null;
+    }
+  }
+
+  /** Grava o arquivo inteiro; false se a escrita falhou (o arquivo anterior fica intacto). */
+  private static boolean persist(Context app, WidgetState s, String inputsJson) {
+    AtomicFile file = new AtomicFile(new File(app.getFilesDir(), FILE_NAME));
+    FileOutputStream out = null;
+    try {
+      out = file.startWrite();
+      out.write(WidgetState.encodeFile(s, inputsJson));
+      file.finishWrite(out);
+    } catch (Throwable t) {
+      if (out != null) file.failWrite(out);
+      Log.e("WidgetStateStore", "Falha ao gravar estado", t);
+      return false;
+    }
+    if (legacyPending) removeLegacyKeys(app);
+    return true;
+  }
+}
@@ -0,0 +1,190 @@
+package app.ignisverbi;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Instrumentação do subsistema do widget: ring buffer de eventos tipados (arrays primitivos de tamanho
+ * fixo, sem alocar por evento), contadores por tipo e histogramas de latência. Exportado por
+ * WidgetUpdater.getTrace. Logs de debug ficam atrás de {@link #LOG}, que o R8 remove no release.
+ */
+public final class WidgetTrace {
+  /** Gate dos Log.d do pacote: {@code if (WidgetTrace.LOG) Log.d(...)} não concatena nada no release. */
+  public static final boolean LOG = BuildConfig.DEBUG;
+
+  public static final int TRIGGER = 0;        // label = causa do broadcast/gatilho
+  public static final int RENDER = 1;         // label = resultado; value = duração da passada (ms)
+  public static final int REFRESH_PHASE = 2;  // label = fase; value = percent (ou -1)
+  public static final int ALARM_SCHEDULED = 3; // label = modo do plano; value = horário alvo (epoch ms)
+  public static final int ALARM_FIRED = 4;    // label = causa; value = atraso em relação ao alvo (ms)
+  public static final int WORKER_RUN = 5;     // label = worker; value = duração (ms)
+  public static final int HEADLESS = 6;       // label = outcome; value = duração total (ms)
+  public static final int DROPPED = 7;        // label = motivo (debounce, fila cheia, deadline)
+  public static final int ALARM_OUTCOME = 8;  // label = on_time/late/missed; value = atraso (ms)
+  public static final int STARTUP = 9;        // label = cold/warm; value = tempo até o primeiro frame (ms)
+  private static final String[] TYPE_NAMES = {
+    "trigger", "render", "refresh_phase", "alarm_scheduled", "alarm_fired", "worker_run", "headless", "dropped",
+    "alarm_outcome", "startup"
+  };
+
+  static final int CAPACITY = 256;
+
+  private static final long[] tsRing = new long[CAPACITY];
+  private static final int[] typeRing = new int[CAPACITY];
+  private static final String[] labelRing = new String[CAPACITY]; // só literais/constantes: sem cópia
+  private static final long[] valueRing = new long[CAPACITY];
+  private static long seq; // guardado pela classe; total de eventos já gravados
+
+  private static final AtomicLongArray counters = new AtomicLongArray(TYPE_NAMES.length);
+
+  public static final Histogram renderMs = new Histogram();
+  public static final Histogram alarmDriftMs = new Histogram();
+  public static final Histogram workerMs = new Histogram();
+  public static final Histogram headlessMs = new Histogram();
+  public static final Histogram firstFrameMs = new Histogram();
+
+  private WidgetTrace() {}
+
+  public static void record(int type, String label, long value) {
+    counters.incrementAndGet(type);
+    long now = System.currentTimeMillis();
+    synchronized (WidgetTrace.class) {
+      int i = (int) (seq % CAPACITY);
+      tsRing[i] = now;
+      typeRing[i] = type;
+      labelRing[i] = label;
+      valueRing[i] = value;
+      seq++;
+    }
+  }
+
+  /** Registra um evento com latência e alimenta o histograma correspondente. */
+  public static void latency(int type, String label, long ms, Histogram h) {
+    record(type, label, ms);
+    h.add(ms);
+  }
+
+  public static synchronized void clear() {
+    seq = 0;
+    for (int i = 0; i < CAPACITY; i++) labelRing[i] = null;
+    for (int i = 0; i < counters.length(); i++) counters.set(i, 0);
+    renderMs.clear();
+    alarmDriftMs.clear();
+    workerMs.clear();
+    headlessMs.clear();
+    firstFrameMs.clear();
+  }
+
+  public static long count(int type) { return counters.get(type); }
+
+  /** Eventos em ordem cronológica (mais antigo primeiro), contadores e histogramas. */
+  public static JSONObject toJson() {
+    JSONObject root = new JSONObject();
+    try {
+      JSONArray events = new JSONArray();
+      long total;
+      synchronized (WidgetTrace.class) {
+        total = seq;
+        long first = Math.max(0, seq - CAPACITY);
+        for (long n = first; n < seq; n++) {
+          int i = (int) (n % CAPACITY);
+          JSONObject e = new JSONObject();
+          e.put("ts", tsRing[i]);
+          e.put("type", TYPE_NAMES[typeRing[i]]);
+          if (labelRing[i] != null) e.put("label", labelRing[i]);
+          e.put("value", valueRing[i]);
+          events.put(e);
+        }
+      }
+      root.put("events", events);
+      root.put("recorded", total);
+      root.put("capacity", CAPACITY);
+      JSONObject c = new JSONObject();
+      for (int t = 0; t < TYPE_NAMES.length; t++) c.put(TYPE_NAMES[t], counters.get(t));
+      root.put("counters", c);
+      JSONObject h = new JSONObject();
+      h.put("renderMs", renderMs.toJson());
+      h.put("alarmDriftMs", alarmDriftMs.toJson());
+      h.put("workerMs", workerMs.toJson());
+      h.put("headlessMs", headlessMs.toJson());
+      h.put("firstFrameMs", firstFrameMs.toJson());
+      root.put("histograms", h);
+    } catch (Throwable ignored) {}
+    return root;
+  }
+
+  /**
+   * Histograma de latência com faixas em potências de 2 (ms): [0,1), [1,2), [2,4) ... a última
+   * acumula tudo acima de 2^(BUCKETS-2). Valores negativos (p.ex. alarm adiantado) contam na primeira.
+   */
+  public static final class Histogram {
+    static final int BUCKETS = 20; // até ~4,4 min na penúltima faixa
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private long count; // guardados por this
+    private long sum;
+    private long max;
+
+    static int bucketOf(long ms) {
+      if (ms < 1) return 0;
+      int b = 64 - Long.numberOfLeadingZeros(ms); // 1 -> 1, 2..3 -> 2, 4..7 -> 3
+      return Math.min(b, BUCKETS - 1);
+    }
+
+    /** Limite superior (exclusivo) da faixa, ou -1 para a última (aberta). */
+    static long upperBound(int bucket) {
+      return bucket >= BUCKETS - 1 ? -1 : 1L << bucket;
+    }
+
+    public void add(long ms) {
+      buckets.incrementAndGet(bucketOf(ms));
+      synchronized (this) {
+        count++;
+        sum += ms;
+        if (ms > max) max = ms;
+      }
+    }
+
+    public synchronized long count() { return count; }
+
+    /** Percentil aproximado: limite superior da faixa que contém o p-ésimo valor. */
+    public long percentile(double p) {
+      long n = count();
+      if (n == 0) return 0;
+      long rank = (long) Math.ceil(p * n);
+      long acc = 0;
+      for (int b = 0; b < BUCKETS; b++) {
+        acc += buckets.get(b);
+        if (acc >= rank) {
+          long ub = upperBound(b);
+          return ub < 0 ? max() : ub;
+        }
+      }
+      return max();
+    }
+
+    public synchronized long max() { return max; }
+
+    synchronized void clear() {
+      for (int b = 0; b < BUCKETS; b++) buckets.set(b, 0);
+      count = 0;
+      sum = 0;
+      max = 0;
+    }
+
+    JSONObject toJson() throws org.json.JSONException {
+      JSONObject o = new JSONObject();
+      synchronized (this) {
+        o.put("count", count);
+        o.put("mean", count == 0 ? 0 : sum / count);
+        o.put("max", max);
+      }
+      o.put("p50", percentile(0.5));
+      o.put("p95", percentile(0.95));
+      JSONArray arr = new JSONArray();
+      for (int b = 0; b < BUCKETS; b++) arr.put(buckets.get(b));
+      o.put("buckets", arr);
+      return o;
+    }
+  }
+}
@@ -1,38 +1,114 @@
 package app.ignisverbi;
 
 import android.util.Log;
-import java.util.Arrays;
 
 import android.content.Context;
-import android.appwidget.AppWidgetManager;
-import android.content.ComponentName;
-import android.content.Intent;
 
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.annotation.CapacitorPlugin;
 import com.getcapacitor.PluginMethod;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
 import androidx.work.WorkInfo;
 import androidx.work.WorkManager;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import org.json.JSONObject;
-import java.util.concurrent.ExecutionException;
 
 @CapacitorPlugin(name = "WidgetUpdater")
 public class WidgetUpdater extends Plugin {
+  /** Trabalhos únicos observados (LiveData) para o evento workerState e o getDebugState. */
+  private static final String[] OBSERVED_WORK = { RefreshScheduler.UNIQUE_WORK, HeadlessRefreshWorker.UNIQUE_WORK,
+    ProgressPullWorker.UNIQUE_WORK };
+
+  private final WidgetEvents.Sink sink = (event, data) -> {
+    try {
+      notifyListeners(event, new com.getcapacitor.JSObject(data.toString()));
+    } catch (Throwable t) {
+      Log.w("WidgetUpdater", "notifyListeners falhou event="+event, t);
+    }
+  };
+  private final ConcurrentHashMap<String, JSONObject> workerSnapshots = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Observer<List<WorkInfo>>> workObservers = new ConcurrentHashMap<>();
+
+  @Override
+  public void load() {
+    WidgetEvents.attach(sink);
+    // observeForever exige o main thread; adiado para depois do primeiro frame porque
+    // WorkManager.getInstance inicializa o WorkManager (sob demanda, ver DevotaApplication)
+    StartupPipeline.afterFirstFrame(this::observeWork);
+  }
+
+  @Override
+  protected void handleOnDestroy() {
+    WidgetEvents.detach(sink);
+    new Handler(Looper.getMainLooper()).post(() -> {
+      if (workObservers.isEmpty()) return;
+      try {
+        WorkManager wm = WorkManager.getInstance(getContext());
+        for (String name : OBSERVED_WORK) {
+          Observer<List<WorkInfo>> o = workObservers.remove(name);
+          if (o != null) wm.getWorkInfosForUniqueWorkLiveData(name).removeObserver(o);
+        }
+      } catch (Throwable ignored) {}
+    });
+  }
+
+  private void observeWork() {
+    try {
+      WorkManager wm = WorkManager.getInstance(getContext());
+      for (String name : OBSERVED_WORK) {
+        if (workObservers.containsKey(name)) continue;
+        Observer<List<WorkInfo>> o = infos -> onWorkInfos(name, infos);
+        workObservers.put(name, o);
+        LiveData<List<WorkInfo>> live = wm.getWorkInfosForUniqueWorkLiveData(name);
+        live.observeForever(o);
+      }
+    } catch (Throwable t) {
+      Log.e("WidgetUpdater", "Falha ao observar WorkManager", t);
+    }
+  }
+
+  private void onWorkInfos(String name, List<WorkInfo> infos) {
+    if (infos == null || infos.isEmpty()) return;
+    try {
+      WorkInfo wi = infos.get(0);
+      JSONObject info = new JSONObject();
+      info.put("name", name);
+      info.put("id", wi.getId().toString());
+      info.put("state", wi.getState().toString());
+      if (wi.getRunAttemptCount() > 0) info.put("attempts", wi.getRunAttemptCount());
+      info.put("queriedTs", WidgetClock.nowMs());
+      JSONObject prev = workerSnapshots.put(name, info);
+      if (prev == null || !prev.optString("state").equals(info.optString("state")) || !prev.optString("id").equals(info.optString("id"))) {
+        WidgetEvents.publish(WidgetEvents.WORKER_STATE, info);
+      }
+    } catch (Throwable t) {
+      Log.w("WidgetUpdater", "WorkInfo inválido name="+name, t);
+    }
+  }
+
+  /** JSON gravado como string nas prefs -> objeto (null se ausente/ inválido). */
+  private static JSONObject parseOrNull(String json) {
+    if (json == null) return null;
+    try { return new JSONObject(json); } catch (Throwable t) { return null; }
+  }
+
   @PluginMethod
   public void update(PluginCall call) {
     try {
       Context ctx = getContext();
-        Log.d("WidgetUpdater", "update() chamado do React");
-
-      ProgressWidgetProvider.triggerUpdate(ctx, "WidgetUpdater");
-  // Also broadcast explicit update to ensure some launchers refresh immediately
-  Intent intent = new Intent(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-  int[] ids = AppWidgetManager.getInstance(ctx).getAppWidgetIds(new ComponentName(ctx, ProgressWidgetProvider.class));
-  intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, ids);
-  ctx.sendBroadcast(intent);
+        if (WidgetTrace.LOG) Log.d("WidgetUpdater", "update() chamado do React");
+
+      // Uma só passada coalescida (antes: triggerUpdate + broadcast APPWIDGET_UPDATE = dois renders por id);
+      // com bookId, só as instâncias fixadas nesse livro
+      String bookId = call.getString("bookId");
+      if (bookId != null) WidgetRenderDispatcher.requestBooks(ctx, "WidgetUpdater", bookId);
+      else ProgressWidgetProvider.triggerUpdate(ctx, "WidgetUpdater");
       call.resolve();
     } catch (Throwable t) {
          Log.e("WidgetUpdater", "Falha ao atualizar widget", t);
@@ -46,14 +122,12 @@ public class WidgetUpdater extends Plugin {
       Integer percent = call.getInt("percent");
       Boolean hasGoal = call.getBoolean("hasGoal");
       if (percent == null || hasGoal == null) { call.reject("Missing percent/hasGoal"); return; }
-      int p = Math.max(0, Math.min(100, percent));
-      String today = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.US).format(new java.util.Date());
-      long now = System.currentTimeMillis();
-      String payload = "{\"percent\":"+p+",\"hasGoal\":"+hasGoal+",\"ts\":"+now+",\"day\":\""+today+"\"}";
       Context ctx = getContext();
-      ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE).edit().putString("widget:dailyProgress", payload).apply();
-      Log.d("WidgetUpdater","setDailyProgress persisted payload="+payload);
-      ProgressWidgetProvider.triggerUpdate(ctx, "plugin_set");
+      WidgetState state = WidgetStateStore.write(ctx, percent, hasGoal, WidgetClock.todayEpochDay(), WidgetClock.nowMs());
+      if (state == null) { call.reject("Failed setDailyProgress: estado não gravado"); return; }
+      String payload = state.toJson();
+      if (WidgetTrace.LOG) Log.d("WidgetUpdater","setDailyProgress persisted state="+state);
+      ProgressWidgetProvider.triggerActiveUpdate(ctx, "plugin_set");
       com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
       ret.put("saved", true);
       ret.put("payload", payload);
@@ -63,11 +137,54 @@ public class WidgetUpdater extends Plugin {
     }
   }
 
+  /**
+   * Estado completo do widget numa só chamada: { inputs?, progress?, tomorrowBaseline?, percent?, hasGoal?,
+   * throttle? }. Uma escrita e no máximo uma renderização; sem percent, o nativo calcula pelas entradas.
+   * Com throttle (stream do leitor) a chamada resolve na hora e o lote é aplicado pelo throttle nativo.
+   */
+  @PluginMethod
+  public void applyState(PluginCall call) {
+    try {
+      JSONObject batch = call.getData();
+      WidgetStateBatcher.Applied r = WidgetStateBatcher.submit(getContext(), batch, batch.optBoolean("throttle", false));
+      com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
+      ret.put("accepted", true);
+      ret.put("applied", r != null && r.changed);
+      if (r != null && r.state != null) {
+        ret.put("percent", r.state.percent);
+        ret.put("hasGoal", r.state.hasGoal);
+      }
+      call.resolve(ret);
+    } catch (Throwable t) {
+      call.reject("Failed applyState"+t);
+    }
+  }
+
+  /** Recebe as entradas do cálculo diário para que o nativo recalcule a virada do dia sem WebView. */
+  @PluginMethod
+  public void setProgressInputs(PluginCall call) {
+    try {
+      DailyProgressEngine.Inputs in = ProgressInputsStore.fromPayload(call.getData());
+      boolean saved = ProgressInputsStore.save(getContext(), in);
+      DailyProgressEngine.Result r = DailyProgressEngine.compute(in, WidgetClock.todayEpochDay());
+      com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
+      ret.put("saved", saved);
+      if (r != null) {
+        ret.put("percent", r.percent);
+        ret.put("hasGoal", r.hasGoal);
+      }
+      call.resolve(ret);
+    } catch (Throwable t) {
+      call.reject("Failed setProgressInputs"+t);
+    }
+  }
+
   @PluginMethod
   public void getDailyProgress(PluginCall call) {
     try {
       Context ctx = getContext();
-      String val = ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE).getString("widget:dailyProgress", null);
+      WidgetState state = WidgetStateStore.read(ctx);
+      String val = state == null ? null : state.toJson();
       com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
       ret.put("value", val);
       call.resolve(ret);
@@ -76,35 +193,124 @@ public class WidgetUpdater extends Plugin {
     }
   }
 
+  /**
+   * Sessão do Supabase para o pull nativo de progresso (ProgressPullWorker): { url, anonKey,
+   * accessToken, expiresAt (segundos), userId }. Chamado a cada login e renovação de token.
+   */
   @PluginMethod
-  public void getDebugState(PluginCall call) {
+  public void setSyncSession(PluginCall call) {
+    try {
+      String url = call.getString("url");
+      String anonKey = call.getString("anonKey");
+      String accessToken = call.getString("accessToken");
+      String userId = call.getString("userId");
+      Long expiresAt = call.getLong("expiresAt");
+      if (url == null || anonKey == null || accessToken == null || userId == null || expiresAt == null) {
+        call.reject("Missing url, anonKey, accessToken, userId or expiresAt");
+        return;
+      }
+      ProgressPullWorker.setSession(getContext(), url, anonKey, accessToken, expiresAt * 1000L, userId);
+      call.resolve();
+    } catch (Throwable t) {
+      call.reject("Failed setSyncSession"+t);
+    }
+  }
+
+  @PluginMethod
+  public void clearSyncSession(PluginCall call) {
+    try {
+      ProgressPullWorker.clearSession(getContext());
+      call.resolve();
+    } catch (Throwable t) {
+      call.reject("Failed clearSyncSession"+t);
+    }
+  }
+
+  /** Dia corrente do DayClock nativo, para o JS usar a mesma virada: { dateISO, dayStartHour, nextBoundaryMs, zone }. */
+  @PluginMethod
+  public void getDayClock(PluginCall call) {
+    try {
+      DayClock clock = WidgetClock.get();
+      com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
+      ret.put("dateISO", DailyProgressEngine.formatIsoDay(clock.todayEpochDay()));
+      ret.put("dayStartHour", clock.dayStartHour());
+      ret.put("nextBoundaryMs", clock.nextBoundaryMs());
+      ret.put("zone", clock.zone().getID());
+      call.resolve(ret);
+    } catch (Throwable t) {
+      call.reject("Failed getDayClock"+t);
+    }
+  }
+
+  /** Hora local (0-23) em que o dia começa; ao mudar, rearma a virada e reavalia o dia do widget. */
+  @PluginMethod
+  public void setDayStartHour(PluginCall call) {
+    Integer hour = call.getInt("hour");
+    if (hour == null || hour < 0 || hour > 23) {
+      call.reject("Invalid hour");
+      return;
+    }
     try {
       Context ctx = getContext();
-      SharedPreferences prefs = ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE);
-      String progress = prefs.getString("widget:dailyProgress", null);
-      String meta = prefs.getString("widget:lastRefreshMeta", null);
-      String sched = prefs.getString("widget:lastAlarmSchedule", null);
-      JSONObject root = new JSONObject();
-      root.put("dailyProgress", progress);
-      root.put("lastRefreshMeta", meta);
-      root.put("lastAlarmSchedule", sched);
-      // Worker info
-      JSONObject workerInfo = new JSONObject();
+      if (WidgetClock.setDayStartHour(ctx, hour)) {
+        DayBoundaryScheduler.ensureScheduled(ctx, "day_start_hour");
+        RefreshScheduler.performDailyRefresh(ctx, "day_start_hour");
+      }
+      call.resolve();
+    } catch (Throwable t) {
+      call.reject("Failed setDayStartHour"+t);
+    }
+  }
+
+  @PluginMethod
+  public void getDebugState(PluginCall call) {
+    Context ctx = getContext();
+    // Stats leem arquivos, SharedPreferences e o SQLite do diário: fora da thread dos plugins
+    ReadingJournal.execute(() -> {
       try {
-        List<WorkInfo> infos = WorkManager.getInstance(ctx).getWorkInfosForUniqueWork("DailyWidgetRefresh").get();
-        if (infos != null && !infos.isEmpty()) {
-          WorkInfo wi = infos.get(0);
-          workerInfo.put("id", wi.getId().toString());
-          workerInfo.put("state", wi.getState().toString());
-          if (wi.getRunAttemptCount() > 0) workerInfo.put("attempts", wi.getRunAttemptCount());
-          long now = System.currentTimeMillis();
-          workerInfo.put("queriedTs", now);
-        }
-      } catch (ExecutionException | InterruptedException e) { workerInfo.put("error", e.toString()); }
-      root.put("worker", workerInfo);
-      call.resolve(new com.getcapacitor.JSObject(root.toString()));
+        SharedPreferences prefs = ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE);
+        WidgetState state = WidgetStateStore.read(ctx);
+        JSONObject root = new JSONObject();
+        // Objetos já decodificados (antes: strings JSON que o JS precisava re-parsear)
+        root.put("dailyProgress", state == null ? null : parseOrNull(state.toJson()));
+        root.put("lastRefreshMeta", parseOrNull(prefs.getString("widget:lastRefreshMeta", null)));
+        root.put("lastAlarmSchedule", parseOrNull(prefs.getString(DayBoundaryScheduler.SCHEDULE_META_KEY, null)));
+        root.put("dayBoundary", DayBoundaryScheduler.statsJson(ctx));
+        // Worker info: último snapshot do LiveData, sem bloquear a thread do plugin num Future
+        JSONObject workerInfo = workerSnapshots.get(RefreshScheduler.UNIQUE_WORK);
+        root.put("worker", workerInfo == null ? new JSONObject() : workerInfo);
+        root.put("headlessWorker", workerSnapshots.get(HeadlessRefreshWorker.UNIQUE_WORK));
+        root.put("render", WidgetRenderDispatcher.statsJson());
+        root.put("claimedDay", RefreshArbiter.claimedDay(ctx));
+        root.put("lastHeadlessRefresh", parseOrNull(HeadlessRefreshSession.lastMeta(ctx)));
+        root.put("headlessHost", HeadlessWebViewHost.statsJson());
+        root.put("startup", StartupPipeline.statsJson());
+        root.put("applyState", WidgetStateBatcher.statsJson());
+        root.put("books", BookSnapshotStore.statsJson(ctx));
+        root.put("epubIndex", EpubIndexStore.statsJson(ctx));
+        root.put("covers", CoverCache.statsJson(ctx));
+        root.put("wordIndex", WordIndexStore.statsJson(ctx));
+        root.put("bookContent", BookContentStore.statsJson(ctx));
+        root.put("progressPull", ProgressPullWorker.statsJson(ctx));
+        root.put("journal", ReadingJournal.statsJson(ctx));
+        root.put("dayClock", WidgetClock.statsJson());
+        root.put("progressPullWorker", workerSnapshots.get(ProgressPullWorker.UNIQUE_WORK));
+        call.resolve(new com.getcapacitor.JSObject(root.toString()));
+      } catch (Throwable t) {
+        call.reject("Failed debug state"+t);
+      }
+    });
+  }
+
+  /** Exporta o ring buffer de eventos, contadores e histogramas (WidgetTrace). {@code clear} zera depois. */
+  @PluginMethod
+  public void getTrace(PluginCall call) {
+    try {
+      com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject(WidgetTrace.toJson().toString());
+      if (call.getBoolean("clear", false)) WidgetTrace.clear();
+      call.resolve(ret);
     } catch (Throwable t) {
-      call.reject("Failed debug state"+t);
+      call.reject("Failed trace"+t);
     }
   }
 
@@ -113,10 +319,16 @@ public class WidgetUpdater extends Plugin {
     try {
       Context ctx = getContext();
       SharedPreferences prefs = ctx.getSharedPreferences("CapacitorStorage", Context.MODE_PRIVATE);
+      WidgetStateStore.clear(ctx);
+      BookSnapshotStore.clear(ctx);
+      RefreshArbiter.reset(ctx);
+      DayBoundaryScheduler.reset(ctx);
+      WidgetTrace.clear();
       prefs.edit()
-        .remove("widget:dailyProgress")
+        .remove(ProgressInputsStore.KEY)
         .remove("widget:lastRefreshMeta")
-        .remove("widget:lastAlarmSchedule")
+        .remove(DayBoundaryScheduler.SCHEDULE_META_KEY)
+        .remove("widget:lastHeadlessRefresh")
         .apply();
       call.resolve();
     } catch (Throwable t) {
@@ -0,0 +1,76 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+/**
+ * Índice de palavras dos livros estáticos (WordIndexStore): consulta por posição e gravação das contagens
+ * montadas no JS. Roda no executor do BookContentStore, fora da thread do plugin e depois de uma
+ * importação em andamento do mesmo livro. O host offscreen faz a mesma consulta pela ponte
+ * (HeadlessWebViewHost.JsBridge.wordIndex).
+ */
+@CapacitorPlugin(name = "WordIndex")
+public class WordIndexPlugin extends Plugin {
+  /**
+   * Palavras de um livro estático pelo índice nativo (WordIndexStore): { bookId, contentVersion,
+   * partIndex?, chapterIndex?, targetPartIndex?, targetChapterIndex? }. Pronto devolve { ready, total,
+   * upTo (antes da posição), target (até o alvo inclusive; total sem alvo) }, sem o JSON do livro.
+   */
+  @PluginMethod
+  public void getWordIndex(PluginCall call) {
+    Context ctx = getContext();
+    String bookId = call.getString("bookId");
+    if (bookId == null) {
+      call.reject("bookId obrigatório");
+      return;
+    }
+    String contentVersion = call.getString("contentVersion", "");
+    int part = call.getInt("partIndex", 0);
+    int chapter = call.getInt("chapterIndex", 0);
+    Integer targetPart = call.getInt("targetPartIndex");
+    Integer targetChapter = call.getInt("targetChapterIndex");
+    BookContentStore.execute(() -> {
+      try {
+        WordIndex idx = WordIndexStore.readOrRebuild(ctx, bookId, contentVersion);
+        call.resolve(new com.getcapacitor.JSObject(WordIndexStore.lookup(idx, part, chapter,
+            targetPart == null ? -1 : targetPart, targetChapter == null ? -1 : targetChapter).toString()));
+      } catch (Throwable t) {
+        call.reject("Failed getWordIndex"+t);
+      }
+    });
+  }
+
+  /** Grava o índice de palavras: { bookId, contentVersion, chapters (palavras por capítulo, uma lista por parte) }. */
+  @PluginMethod
+  public void putWordIndex(PluginCall call) {
+    Context ctx = getContext();
+    String bookId = call.getString("bookId");
+    org.json.JSONArray parts = call.getArray("chapters");
+    if (bookId == null || parts == null) {
+      call.reject("bookId e chapters obrigatórios");
+      return;
+    }
+    String contentVersion = call.getString("contentVersion", "");
+    BookContentStore.execute(() -> {
+      try {
+        int[][] words = new int[parts.length()][];
+        for (int p = 0; p < words.length; p++) {
+          org.json.JSONArray chapters = parts.getJSONArray(p);
+          words[p] = new int[chapters.length()];
+          for (int c = 0; c < words[p].length; c++) words[p][c] = chapters.getInt(c);
+        }
+        WordIndex idx = WordIndex.of(contentVersion, words);
+        WordIndexStore.write(ctx, bookId, idx);
+        com.getcapacitor.JSObject ret = new com.getcapacitor.JSObject();
+        ret.put("saved", true);
+        ret.put("total", idx.totalWords());
+        call.resolve(ret);
+      } catch (Throwable t) {
+        call.reject("Failed putWordIndex"+t);
+      }
+    });
+  }
+}
@@ -0,0 +1,126 @@
+package app.ignisverbi;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+
+/**
+ * Índices de palavras dos livros estáticos (WordIndex), um arquivo por livro em files/word_index/
+ * (AtomicFile), com os decodificados em memória. Lido pelo WordIndexPlugin (getWordIndex), pelo host offscreen
+ * (DevotaHeadlessHost.wordIndex, sem Capacitor) e por código nativo que precise das palavras por
+ * posição sem o JSON do livro.
+ */
+public final class WordIndexStore {
+  private static final String DIR = "word_index";
+
+  private static final ConcurrentHashMap<String, WordIndex> memory = new ConcurrentHashMap<>();
+
+  // Diagnóstico (getDebugState), lido por statsJson()
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+  private static final AtomicLong written = new AtomicLong();
+
+  private WordIndexStore() {}
+
+  /** Índice de {@code bookId}; null se ausente, corrompido ou de outra versão do conteúdo. */
+  public static WordIndex read(Context ctx, String bookId, String contentVersion) {
+    WordIndex idx = memory.get(bookId);
+    if (idx == null) {
+      idx = load(file(ctx, bookId));
+      if (idx != null) memory.put(bookId, idx);
+    }
+    if (idx != null && contentVersion != null && !contentVersion.equals(idx.contentVersion)) idx = null;
+    (idx != null ? hits : misses).incrementAndGet();
+    return idx;
+  }
+
+  /** Como {@link #read}; se o índice se perdeu e o livro está importado, refaz pelo sumário do contêiner. */
+  public static WordIndex readOrRebuild(Context ctx, String bookId, String contentVersion) {
+    WordIndex idx = read(ctx, bookId, contentVersion);
+    if (idx != null) return idx;
+    BookContainer b = BookContentStore.open(ctx, bookId, contentVersion);
+    if (b != null) write(ctx, bookId, idx = b.wordIndex());
+    return idx;
+  }
+
+  /**
+   * { ready, total, upTo, target } para a posição (parte, capítulo); sem capítulo-alvo ({@code targetPart}
+   * ou {@code targetChapter} negativo) o target é o total.
+   */
+  static JSONObject lookup(WordIndex idx, int part, int chapter, int targetPart, int targetChapter) {
+    JSONObject o = new JSONObject();
+    try {
+      o.put("ready", idx != null);
+      if (idx != null) {
+        o.put("total", idx.totalWords());
+        o.put("upTo", idx.wordsBefore(part, chapter));
+        o.put("target", targetPart < 0 || targetChapter < 0 ? idx.totalWords() : idx.wordsThrough(targetPart, targetChapter));
+      }
+    } catch (Throwable ignored) {}
+    return o;
+  }
+
+  static void write(Context ctx, String bookId, WordIndex idx) {
+    File f = file(ctx, bookId);
+    f.getParentFile().mkdirs();
+    AtomicFile file = new AtomicFile(f);
+    FileOutputStream out = null;
+    try {
+      out = file.startWrite();
+      out.write(idx.encode());
+      file.finishWrite(out);
+      memory.put(bookId, idx);
+      written.incrementAndGet();
+    } catch (Throwable t) {
+      if (out != null) file.failWrite(out);
+      Log.e("WordIndexStore", "Falha ao gravar índice bookId=" + bookId, t);
+    }
+  }
+
+  public static void delete(Context ctx, String bookId) {
+    memory.remove(bookId);
+    new AtomicFile(file(ctx, bookId)).delete();
+  }
+
+  public static void clear(Context ctx) {
+    memory.clear();
+    File[] files = new File(ctx.getApplicationContext().getFilesDir(), DIR).listFiles();
+    if (files != null) for (File f : files) f.delete();
+  }
+
+  private static File file(Context ctx, String bookId) {
+    return new File(new File(ctx.getApplicationContext().getFilesDir(), DIR), Long.toHexString(BookSnapshot.stableId(bookId)) + ".bin");
+  }
+
+  private static WordIndex load(File f) {
+    try {
+      WordIndex idx = WordIndex.decode(new AtomicFile(f).readFully());
+      if (idx == null) Log.w("WordIndexStore", "Índice inválido descartado: " + f.getName());
+      return idx;
+    } catch (FileNotFoundException e) {
+      return null;
+    } catch (Throwable t) {
+      Log.e("WordIndexStore", "Falha ao ler índice " + f.getName(), t);
+      return null;
+    }
+  }
+
+  public static JSONObject statsJson(Context ctx) {
+    JSONObject o = new JSONObject();
+    try {
+      File[] files = new File(ctx.getApplicationContext().getFilesDir(), DIR).listFiles();
+      o.put("books", files == null ? 0 : files.length);
+      o.put("loaded", memory.size());
+      o.put("hits", hits.get());
+      o.put("misses", misses.get());
+      o.put("written", written.get());
+    } catch (Throwable ignored) {}
+    return o;
+  }
+}
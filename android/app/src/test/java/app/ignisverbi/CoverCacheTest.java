@@ -0,0 +1,154 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import androidx.test.core.app.ApplicationProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+/** Cache de capas: tamanhos discretos, nomes versionados, derivação a partir do maior e LRU em disco. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class CoverCacheTest {
+  private Context ctx;
+
+  @Before
+  public void setUp() {
+    ctx = ApplicationProvider.getApplicationContext();
+    CoverCache.clear(ctx);
+  }
+
+  @After
+  public void tearDown() {
+    CoverCache.setMaxDiskBytes(0);
+    CoverCache.clear(ctx);
+  }
+
+  /** JPEG opaco {@code width}x{@code height}, como as capas baixadas. */
+  private static byte[] jpeg(int width, int height) {
+    Bitmap bmp = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    bmp.eraseColor(Color.rgb(120, 40, 30));
+    bmp.setHasAlpha(false);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    bmp.compress(Bitmap.CompressFormat.JPEG, 90, out);
+    return out.toByteArray();
+  }
+
+  private static String prefix(String bookId) {
+    return Long.toHexString(BookSnapshot.stableId(bookId)) + "-";
+  }
+
+  private static int longestSide(File f) {
+    BitmapFactory.Options o = new BitmapFactory.Options();
+    o.inJustDecodeBounds = true;
+    BitmapFactory.decodeFile(f.getPath(), o);
+    return Math.max(o.outWidth, o.outHeight);
+  }
+
+  private String[] files() {
+    String[] names = new File(ctx.getFilesDir(), "covers").list();
+    return names == null ? new String[0] : names;
+  }
+
+  @Test
+  public void bucketIsSmallestSizeCoveringRequest() {
+    assertEquals(128, CoverCache.bucket(1));
+    assertEquals(128, CoverCache.bucket(128));
+    assertEquals(256, CoverCache.bucket(129));
+    assertEquals(768, CoverCache.bucket(576)); // h-72 a 2x
+    assertEquals(1024, CoverCache.bucket(1260)); // detalhes a 3x: limitado ao maior gravado
+  }
+
+  @Test
+  public void sampleSizeNeverDropsBelowRequest() {
+    assertEquals(1, CoverCache.sampleSize(600, 900, 768));
+    assertEquals(2, CoverCache.sampleSize(1600, 2400, 1024));
+    assertEquals(4, CoverCache.sampleSize(2000, 3000, 512)); // 3000/4 = 750 >= 512; /8 = 375 não
+    assertEquals(8, CoverCache.sampleSize(3000, 1024, 256)); // usa o lado maior, mesmo na horizontal
+    for (int longest = 100; longest < 5000; longest += 37) {
+      int s = CoverCache.sampleSize(longest / 2, longest, 256);
+      assertTrue(longest / s >= Math.min(256, longest));
+      assertTrue(longest / (s * 2) < 256);
+    }
+  }
+
+  @Test
+  public void putNamesFilesByVersionAndDropsPreviousVersion() {
+    String p = prefix("book-1");
+    File small = CoverCache.put(ctx, "book-1", jpeg(2000, 3000), 200);
+    assertNotNull(small);
+    assertEquals(p + "0-256.jpg", small.getName());
+    assertEquals(256, longestSide(small));
+    assertTrue(new File(small.getParentFile(), p + "0-1024.jpg").exists()); // origem, nunca ampliada
+
+    File again = CoverCache.put(ctx, "book-1", jpeg(2000, 3000), 1024);
+    assertEquals(p + "1-1024.jpg", again.getName());
+    for (String name : files()) assertTrue(name, name.startsWith(p + "1-"));
+    assertEquals(again, CoverCache.get(ctx, "book-1", 1024));
+  }
+
+  @Test
+  public void smallerSizesAreDerivedFromLargestStored() {
+    String p = prefix("book-1");
+    CoverCache.put(ctx, "book-1", jpeg(2000, 3000), 1024);
+    long derived = CoverCache.derived.get();
+
+    File f = CoverCache.get(ctx, "book-1", 300);
+    assertEquals(p + "0-384.jpg", f.getName());
+    assertEquals(384, longestSide(f));
+    assertEquals(derived + 1, CoverCache.derived.get());
+
+    // segunda leitura é acerto exato, sem nova derivação
+    assertEquals(f, CoverCache.get(ctx, "book-1", 300));
+    assertEquals(derived + 1, CoverCache.derived.get());
+  }
+
+  @Test
+  public void smallOriginalIsServedAsIsForLargerRequests() {
+    String p = prefix("book-1");
+    File master = CoverCache.put(ctx, "book-1", jpeg(600, 900), 1024);
+    assertEquals(p + "0-900.jpg", master.getName());
+    assertEquals(master, CoverCache.get(ctx, "book-1", 1000));
+    assertEquals(1, files().length);
+    assertNull(CoverCache.get(ctx, "book-2", 256));
+  }
+
+  @Test
+  public void diskIsBoundedByBytesEvictingLeastRecentlyUsed() throws Exception {
+    byte[] image = jpeg(800, 1200);
+    File a = CoverCache.put(ctx, "book-a", image, 1024);
+    File b = CoverCache.put(ctx, "book-b", image, 1024);
+    long size = a.length();
+    assertEquals(size, b.length());
+    CoverCache.setMaxDiskBytes(size * 5 / 2); // cabem duas capas
+    long evicted = CoverCache.evicted.get();
+
+    assertEquals(a, CoverCache.get(ctx, "book-a", 1024)); // "book-b" passa a ser o menos usado
+    File c = CoverCache.put(ctx, "book-c", image, 1024);
+    assertNotNull(c);
+    assertEquals(evicted + 1, CoverCache.evicted.get());
+    assertFalse(b.exists());
+    assertNull(CoverCache.get(ctx, "book-b", 1024));
+    assertEquals(a, CoverCache.get(ctx, "book-a", 1024));
+    assertEquals(c, CoverCache.get(ctx, "book-c", 1024));
+    assertTrue(CoverCache.statsJson(ctx).getLong("bytes") <= size * 5 / 2);
+
+    // orçamento menor que uma capa: o recém-gravado fica, todo o resto sai
+    CoverCache.setMaxDiskBytes(size / 2);
+    File d = CoverCache.put(ctx, "book-d", image, 1024);
+    assertTrue(d.exists());
+    assertArrayEquals(new String[] { d.getName() }, files());
+  }
+}
@@ -0,0 +1,332 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Pull nativo contra um PostgREST simulado (HttpServer do JDK em localhost): paginação pelo checkpoint
+ * {_modified, id}, gzip, escopo por livro/dia e aplicação das linhas nas entradas do motor.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ProgressPullWorkerTest {
+  private static final String USER = "user-1";
+  private static final String BOOK = "book-1";
+  private static final long TODAY = DailyProgressEngine.parseIsoDay("2026-03-10");
+  private static final Pattern CHECKPOINT = Pattern.compile("\\(_modified\\.gt\\.(\\d+),and\\(_modified\\.eq\\.\\d+,id\\.gt\\.\"(.*)\"\\)\\)");
+
+  private final Map<String, List<JSONObject>> tables = new HashMap<>();
+  private final List<Map<String, String>> queries = new ArrayList<>();
+  private HttpServer server;
+  private int status = 200;
+  // Roda a cada requisição, antes da resposta: simula o JS gravando no store durante a busca
+  private Runnable onFetch;
+  private Context ctx;
+
+  @Before
+  public void setUp() throws IOException {
+    ctx = ApplicationProvider.getApplicationContext();
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/rest/v1/", this::handle);
+    server.start();
+    WidgetStateStore.clear(ctx);
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+    ProgressPullWorker.clearSession(ctx);
+    WidgetStateStore.clear(ctx);
+  }
+
+  private ProgressPullClient client() {
+    return new ProgressPullClient("http://127.0.0.1:" + server.getAddress().getPort() + "/", "anon", "token");
+  }
+
+  /** Uma rodada sem passar pelo store: busca, aplica em {@code in} e grava os checkpoints. */
+  private boolean pullInto(DailyProgressEngine.Inputs in) throws IOException {
+    ProgressPullWorker.Pulled pulled = ProgressPullWorker.pull(ctx, client(), in, USER, TODAY);
+    boolean changed = pulled.applyTo(in);
+    ProgressPullWorker.saveCheckpoints(ctx, pulled);
+    return changed;
+  }
+
+  private static DailyProgressEngine.Inputs inputs() {
+    DailyProgressEngine.Inputs in = new DailyProgressEngine.Inputs();
+    in.bookId = BOOK;
+    in.kind = DailyProgressEngine.KIND_EPUB;
+    in.targetEpochDay = TODAY + 10;
+    in.baselineEpochDay = TODAY - 1;
+    in.baselinePercent = 10;
+    in.currentPercent = 12;
+    return in;
+  }
+
+  private void row(String table, String id, long modified, Object... kv) throws Exception {
+    JSONObject o = new JSONObject().put("id", id).put("_modified", modified).put("_deleted", false);
+    for (int i = 0; i < kv.length; i += 2) o.put((String) kv[i], kv[i + 1]);
+    List<JSONObject> rows = tables.get(table);
+    if (rows == null) tables.put(table, rows = new ArrayList<>());
+    rows.add(o);
+  }
+
+  /** PostgREST simulado: filtros eq, checkpoint do or=(...), ordem (_modified, id) e limit; resposta gzip se pedida. */
+  private void handle(HttpExchange ex) throws IOException {
+    Map<String, String> q = new HashMap<>();
+    for (String pair : ex.getRequestURI().getRawQuery().split("&")) {
+      int eq = pair.indexOf('=');
+      q.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+    }
+    String table = ex.getRequestURI().getPath().substring("/rest/v1/".length());
+    q.put("table", table);
+    q.put("auth", ex.getRequestHeaders().getFirst("Authorization"));
+    q.put("encoding", ex.getRequestHeaders().getFirst("Accept-Encoding"));
+    queries.add(q);
+    if (onFetch != null) onFetch.run();
+    if (status != 200) {
+      ex.sendResponseHeaders(status, -1);
+      ex.close();
+      return;
+    }
+    long sinceModified = -1;
+    String sinceId = "";
+    if (q.containsKey("or")) {
+      Matcher m = CHECKPOINT.matcher(q.get("or"));
+      assertTrue(q.get("or"), m.matches());
+      sinceModified = Long.parseLong(m.group(1));
+      sinceId = m.group(2);
+    }
+    // Todas as linhas simuladas são do BOOK
+    String bookColumn = "reading_plans".equals(table) || "daily_baselines".equals(table) ? "book_id" : "id";
+    List<JSONObject> rows = new ArrayList<>();
+    List<JSONObject> all = tables.get(table);
+    if (all != null && ("eq." + BOOK).equals(q.get(bookColumn))) {
+      for (JSONObject r : all) {
+        long mod = r.optLong("_modified");
+        if (mod < sinceModified || (mod == sinceModified && r.optString("id").compareTo(sinceId) <= 0)) continue;
+        rows.add(r);
+      }
+    }
+    rows.sort((a, b) -> a.optLong("_modified") != b.optLong("_modified")
+      ? Long.compare(a.optLong("_modified"), b.optLong("_modified")) : a.optString("id").compareTo(b.optString("id")));
+    int limit = Integer.parseInt(q.get("limit"));
+    JSONArray out = new JSONArray();
+    for (int i = 0; i < Math.min(limit, rows.size()); i++) out.put(rows.get(i));
+    byte[] body = out.toString().getBytes(StandardCharsets.UTF_8);
+    if ("gzip".equals(q.get("encoding"))) {
+      ByteArrayOutputStream gz = new ByteArrayOutputStream();
+      try (GZIPOutputStream z = new GZIPOutputStream(gz)) {
+        z.write(body);
+      }
+      body = gz.toByteArray();
+      ex.getResponseHeaders().set("Content-Encoding", "gzip");
+    }
+    ex.getResponseHeaders().set("Content-Type", "application/json");
+    ex.sendResponseHeaders(200, body.length);
+    try (OutputStream os = ex.getResponseBody()) {
+      os.write(body);
+    }
+  }
+
+  @Test
+  public void pullAppliesPlanBaselineAndProgressOfActiveBook() throws Exception {
+    row("reading_plans", "plan-1", 1_000, "target_date_iso", "2026-03-20");
+    row("daily_baselines", BOOK + ":2026-03-10", 1_100, "words", 0, "percent", 30.0, "page", JSONObject.NULL);
+    row("user_epubs", BOOK, 1_200, "percentage", 36.5);
+
+    DailyProgressEngine.Inputs in = inputs();
+    assertTrue(pullInto(in));
+    assertEquals(TODAY + 10, in.targetEpochDay);
+    assertEquals(TODAY, in.baselineEpochDay);
+    assertEquals(30.0, in.baselinePercent, 0);
+    assertEquals(-1, in.baselinePage);
+    assertEquals(36.5, in.currentPercent, 0);
+
+    assertEquals(ProgressPullWorker.TABLES.length, queries.size());
+    for (Map<String, String> q : queries) {
+      assertEquals("Bearer token", q.get("auth"));
+      assertEquals("gzip", q.get("encoding"));
+      assertEquals("eq." + USER, q.get("user_id"));
+      assertEquals("_modified.asc,id.asc", q.get("order"));
+      assertFalse(q.containsKey("or"));
+    }
+    assertEquals("eq.2026-03-10", queries.get(1).get("date_iso"));
+  }
+
+  @Test
+  public void secondPullResumesFromCheckpoint() throws Exception {
+    row("user_epubs", BOOK, 1_000, "percentage", 20.0);
+    DailyProgressEngine.Inputs in = inputs();
+    assertTrue(pullInto(in));
+    queries.clear();
+
+    // Nada novo: mesmas entradas e o or=(...) parte do último documento visto
+    assertFalse(pullInto(in));
+    Map<String, String> epubs = queries.get(3);
+    assertEquals("(_modified.gt.1000,and(_modified.eq.1000,id.gt.\"" + BOOK + "\"))", epubs.get("or"));
+
+    tables.get("user_epubs").get(0).put("_modified", 2_000).put("percentage", 25.0);
+    assertTrue(pullInto(in));
+    assertEquals(25.0, in.currentPercent, 0);
+  }
+
+  @Test
+  public void pagesThroughBatchesInCheckpointOrder() throws Exception {
+    // Mesmo _modified em várias linhas: o desempate pelo id não pode pular nem repetir linhas
+    for (int i = 0; i < ProgressPullWorker.BATCH + 5; i++) row("daily_baselines", String.format("b%03d", i), 500 + i / 10, "percent", (double) i);
+    DailyProgressEngine.Inputs in = inputs();
+    pullInto(in);
+    assertEquals(ProgressPullWorker.BATCH + 4, in.baselinePercent, 0); // última linha aplicada
+    int baselineQueries = 0;
+    for (Map<String, String> q : queries) if ("daily_baselines".equals(q.get("table"))) baselineQueries++;
+    assertEquals(2, baselineQueries);
+  }
+
+  @Test
+  public void checkpointResetsWhenActiveBookChanges() throws Exception {
+    row("user_epubs", BOOK, 1_000, "percentage", 20.0);
+    pullInto(inputs());
+    queries.clear();
+    DailyProgressEngine.Inputs other = inputs();
+    other.bookId = "book-2";
+    pullInto(other);
+    for (Map<String, String> q : queries) assertFalse(q.containsKey("or"));
+  }
+
+  @Test
+  public void rowsOlderThanLocalProgressAreIgnored() throws Exception {
+    DailyProgressEngine.Inputs in = inputs();
+    JSONObject stale = new JSONObject().put("id", BOOK).put("_modified", 1_000).put("percentage", 5.0);
+    ProgressPullWorker.applyRow("user_epubs", stale, in, TODAY, 1_000);
+    assertEquals(12, in.currentPercent, 0);
+    stale.put("_modified", 1_001);
+    ProgressPullWorker.applyRow("user_epubs", stale, in, TODAY, 1_000);
+    assertEquals(5, in.currentPercent, 0);
+  }
+
+  @Test
+  public void pullComparesAgainstLocalModifiedNotWallClock() throws Exception {
+    // O corte é o _modified da linha local (o que foi no push), não o relógio do aparelho
+    row("user_epubs", BOOK, 1_500, "percentage", 5.0);
+    DailyProgressEngine.Inputs in = inputs();
+    in.localModified = 2_000;
+    pullInto(in);
+    assertEquals(12, in.currentPercent, 0);
+
+    tables.get("user_epubs").get(0).put("_modified", 2_001).put("percentage", 25.0);
+    assertTrue(pullInto(in));
+    assertEquals(25.0, in.currentPercent, 0);
+  }
+
+  @Test
+  public void deletedPlanRemovesGoalAndPhysicalBookUsesPages() throws Exception {
+    DailyProgressEngine.Inputs in = inputs();
+    in.kind = DailyProgressEngine.KIND_PHYSICAL;
+    ProgressPullWorker.applyRow("reading_plans", new JSONObject().put("id", "p").put("_modified", 10).put("_deleted", true), in, TODAY, 0);
+    assertEquals(DailyProgressEngine.NO_DAY, in.targetEpochDay);
+    ProgressPullWorker.applyRow("books", new JSONObject().put("id", BOOK).put("_modified", 10)
+      .put("percentage", 40.0).put("current_page", 120).put("total_pages", 300), in, TODAY, 0);
+    assertEquals(120, in.currentPage);
+    assertEquals(300, in.totalPages);
+    assertEquals(40.0, in.currentPercent, 0);
+  }
+
+  @Test
+  public void unauthorizedIsReportedWithoutSavingCheckpoints() throws Exception {
+    status = 401;
+    try {
+      pullInto(inputs());
+      fail("esperava 401");
+    } catch (ProgressPullClient.HttpException e) {
+      assertTrue(e.unauthorized());
+    }
+    status = 200;
+    queries.clear();
+    pullInto(inputs());
+    for (Map<String, String> q : queries) assertFalse(q.containsKey("or"));
+  }
+
+  @Test
+  public void pullAndApplyMergesRowsIntoStoredInputs() throws Exception {
+    DailyProgressEngine.Inputs stored = inputs();
+    stored.localModified = 900;
+    WidgetStateStore.writeInputs(ctx, stored);
+    row("reading_plans", "plan-1", 1_000, "target_date_iso", "2026-03-25");
+    row("user_epubs", BOOK, 1_200, "percentage", 36.5);
+
+    assertEquals("applied", ProgressPullWorker.pullAndApply(ctx, client(), stored, USER, TODAY));
+    DailyProgressEngine.Inputs now = WidgetStateStore.readInputs(ctx);
+    assertEquals(TODAY + 15, now.targetEpochDay);
+    assertEquals(36.5, now.currentPercent, 0);
+    assertEquals(900, now.localModified);
+
+    // Checkpoints gravados depois de aplicar: a próxima rodada parte deles
+    queries.clear();
+    assertEquals("unchanged", ProgressPullWorker.pullAndApply(ctx, client(), now, USER, TODAY));
+    assertTrue(queries.get(3).containsKey("or"));
+  }
+
+  @Test
+  public void pullIsDiscardedWhenReaderWritesDuringFetch() throws Exception {
+    DailyProgressEngine.Inputs stored = inputs();
+    stored.localModified = 900;
+    WidgetStateStore.writeInputs(ctx, stored);
+    row("user_epubs", BOOK, 1_200, "percentage", 36.5);
+    // O leitor grava 50% (_modified 1_300) enquanto o pull busca a linha antiga do servidor
+    onFetch = () -> {
+      DailyProgressEngine.Inputs reader = stored.copy();
+      reader.currentPercent = 50;
+      reader.localModified = 1_300;
+      WidgetStateStore.writeInputs(ctx, reader);
+    };
+
+    assertEquals("superseded", ProgressPullWorker.pullAndApply(ctx, client(), stored, USER, TODAY));
+    assertEquals(50, WidgetStateStore.readInputs(ctx).currentPercent, 0);
+
+    // Checkpoints não gravados: a próxima rodada busca as mesmas linhas
+    onFetch = null;
+    queries.clear();
+    pullInto(inputs());
+    for (Map<String, String> q : queries) assertFalse(q.containsKey("or"));
+  }
+
+  @Test
+  public void pullIsDiscardedWhenActiveBookChangesDuringFetch() throws Exception {
+    DailyProgressEngine.Inputs stored = inputs();
+    WidgetStateStore.writeInputs(ctx, stored);
+    row("user_epubs", BOOK, 1_200, "percentage", 36.5);
+    onFetch = () -> {
+      DailyProgressEngine.Inputs other = inputs();
+      other.bookId = "book-2";
+      WidgetStateStore.writeInputs(ctx, other);
+    };
+
+    assertEquals("superseded", ProgressPullWorker.pullAndApply(ctx, client(), stored, USER, TODAY));
+    assertEquals("book-2", WidgetStateStore.readInputs(ctx).bookId);
+  }
+}
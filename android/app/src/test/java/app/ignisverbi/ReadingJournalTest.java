@@ -0,0 +1,162 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import java.util.Arrays;
+import java.util.TimeZone;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/** Diário de leitura: agregados por dia e livro, sequência (inclusive com dias fora de ordem) e consultas. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ReadingJournalTest {
+  private static final String BOOK = "book-1";
+  private static final long TODAY = DailyProgressEngine.parseIsoDay("2026-03-10");
+
+  private Context ctx;
+  private long ts = 1_000;
+
+  @Before
+  public void setUp() {
+    ctx = ApplicationProvider.getApplicationContext();
+    ReadingJournal.clear(ctx);
+  }
+
+  @After
+  public void tearDown() {
+    ReadingJournal.clear(ctx);
+  }
+
+  private ReadingJournal.Event progress(long day, double percent) {
+    ReadingJournal.Event e = new ReadingJournal.Event();
+    e.bookId = BOOK;
+    e.kind = ReadingJournal.KIND_PROGRESS;
+    e.ts = ts++;
+    e.day = day;
+    e.percent = percent;
+    return e;
+  }
+
+  private ReadingJournal.Event minutes(String bookId, long day, int minutes) {
+    ReadingJournal.Event e = new ReadingJournal.Event();
+    e.bookId = bookId;
+    e.kind = ReadingJournal.KIND_MINUTES;
+    e.ts = ts++;
+    e.day = day;
+    e.minutes = minutes;
+    return e;
+  }
+
+  @Test
+  public void progressCountsOnlyWhenPositionMoves() {
+    ReadingJournal.append(ctx, Arrays.asList(progress(TODAY - 1, 10), progress(TODAY, 10)));
+    assertArrayEquals(new int[] { 0, 0 }, ReadingJournal.streak(ctx, TODAY));
+    ReadingJournal.append(ctx, Arrays.asList(progress(TODAY, 12)));
+    assertArrayEquals(new int[] { 1, 1 }, ReadingJournal.streak(ctx, TODAY));
+  }
+
+  @Test
+  public void streakContinuesFromYesterdayAndBreaksAfterGap() {
+    ReadingJournal.append(ctx, Arrays.asList(minutes(null, TODAY - 3, 5), minutes(null, TODAY - 2, 5), minutes(null, TODAY - 1, 5)));
+    assertArrayEquals(new int[] { 3, 3 }, ReadingJournal.streak(ctx, TODAY)); // hoje ainda não lido
+    assertArrayEquals(new int[] { 0, 3 }, ReadingJournal.streak(ctx, TODAY + 1));
+    ReadingJournal.append(ctx, Arrays.asList(minutes(null, TODAY + 1, 5)));
+    assertArrayEquals(new int[] { 1, 3 }, ReadingJournal.streak(ctx, TODAY + 1));
+  }
+
+  @Test
+  public void lateDayBridgesGapAndExtendsLaterStreaks() throws Exception {
+    ReadingJournal.append(ctx, Arrays.asList(minutes(null, TODAY - 2, 5), minutes(null, TODAY, 5)));
+    assertArrayEquals(new int[] { 1, 1 }, ReadingJournal.streak(ctx, TODAY));
+    ReadingJournal.append(ctx, Arrays.asList(minutes(null, TODAY - 1, 5)));
+    assertArrayEquals(new int[] { 3, 3 }, ReadingJournal.streak(ctx, TODAY));
+    JSONArray days = ReadingJournal.history(ctx, null, TODAY - 2, TODAY);
+    assertEquals(3, days.length());
+    assertEquals(3, days.getJSONObject(2).getInt("streak"));
+  }
+
+  @Test
+  public void summaryComparesTodayWithBaselineAndDayStart() throws Exception {
+    ReadingJournal.append(ctx, Arrays.asList(progress(TODAY - 1, 20)));
+    ReadingJournal.Event baseline = new ReadingJournal.Event();
+    baseline.bookId = BOOK;
+    baseline.kind = ReadingJournal.KIND_BASELINE;
+    baseline.ts = ts++;
+    baseline.day = TODAY;
+    baseline.percent = 20;
+    baseline.words = 4000;
+    ReadingJournal.append(ctx, Arrays.asList(baseline, progress(TODAY, 23), progress(TODAY, 25), minutes(BOOK, TODAY, 12)));
+
+    JSONObject s = ReadingJournal.summary(ctx, BOOK, TODAY);
+    assertEquals("2026-03-10", s.getString("dateISO"));
+    assertEquals(1, s.getJSONObject("streak").getInt("current"));
+    assertEquals("2026-03-10", s.getJSONObject("streak").getString("lastReadISO"));
+    JSONObject week = s.getJSONObject("week");
+    assertEquals("2026-03-04", week.getString("fromISO"));
+    assertEquals(1, week.getInt("days"));
+    assertEquals(12, week.getInt("minutes"));
+    JSONObject book = s.getJSONObject("book");
+    assertEquals(20, book.getDouble("startPercent"), 0);
+    assertEquals(25, book.getDouble("percent"), 0);
+    assertEquals(20, book.getDouble("baselinePercent"), 0);
+    assertEquals(4000, book.getInt("baselineWords"));
+    assertEquals(12, book.getInt("minutesToday"));
+    assertTrue(book.getBoolean("readToday"));
+    assertEquals(1, book.getInt("readDays"));
+    assertEquals(20, book.getDouble("weekStartPercent"), 0);
+  }
+
+  @Test
+  public void olderProgressDoesNotRewindPosition() throws Exception {
+    ReadingJournal.Event late = progress(TODAY, 15);
+    ReadingJournal.append(ctx, Arrays.asList(progress(TODAY, 10), progress(TODAY, 30)));
+    ReadingJournal.append(ctx, Arrays.asList(late)); // ts anterior ao do 30%
+    assertEquals(30, ReadingJournal.summary(ctx, BOOK, TODAY).getJSONObject("book").getDouble("percent"), 0);
+    JSONArray days = ReadingJournal.history(ctx, BOOK, TODAY, TODAY);
+    assertEquals(1, days.length());
+    assertEquals(10, days.getJSONObject(0).getDouble("startPercent"), 0);
+    assertEquals(3, days.getJSONObject(0).getInt("events"));
+  }
+
+  @Test
+  public void lateProgressDoesNotMarkEarlierDayRead() {
+    ReadingJournal.Event late = progress(TODAY - 1, 15);
+    ReadingJournal.append(ctx, Arrays.asList(progress(TODAY, 10), progress(TODAY, 30)));
+    assertArrayEquals(new int[] { 1, 1 }, ReadingJournal.streak(ctx, TODAY));
+    // Chega depois, com ts anterior ao da posição atual: 15% contra 30% não é leitura de ontem
+    ReadingJournal.append(ctx, Arrays.asList(late));
+    assertArrayEquals(new int[] { 1, 1 }, ReadingJournal.streak(ctx, TODAY));
+  }
+
+  @Test
+  public void parsesPluginPayload() throws Exception {
+    JSONArray events = new JSONArray()
+      .put(new JSONObject().put("bookId", BOOK).put("kind", "baseline").put("dateISO", "2026-03-10").put("percent", 5).put("page", JSONObject.NULL))
+      .put(new JSONObject().put("kind", "minutes").put("minutes", 3).put("ts", 0L))
+      .put("lixo");
+    DayClock utc = new DayClock() {
+      @Override
+      public long nowMs() { return 0; }
+
+      @Override
+      public TimeZone zone() { return TimeZone.getTimeZone("UTC"); }
+    };
+    java.util.List<ReadingJournal.Event> parsed = ReadingJournal.parse(events, utc);
+    assertEquals(2, parsed.size());
+    assertEquals(ReadingJournal.KIND_BASELINE, parsed.get(0).kind);
+    assertEquals(TODAY, parsed.get(0).day);
+    assertEquals(-1, parsed.get(0).page);
+    assertNull(parsed.get(1).bookId);
+    assertEquals(DailyProgressEngine.parseIsoDay("1970-01-01"), parsed.get(1).day);
+    assertEquals(2, ReadingJournal.append(ctx, parsed));
+  }
+}
@@ -0,0 +1,284 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.AlarmManager;
+import android.app.Application;
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Looper;
+import android.view.View;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.work.Configuration;
+import androidx.work.ListenableWorker;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerFactory;
+import androidx.work.WorkerParameters;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.WorkManagerTestInitHelper;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONObject;
+import org.robolectric.shadows.ShadowAlarmManager;
+import org.robolectric.shadows.ShadowSystemClock;
+
+/**
+ * Processo simulado para a virada do dia: relógio e fuso falsos (WidgetClock), WorkManager de teste
+ * com o HeadlessRefreshWorker trocado por um contador, AlarmManager e AppWidgetManager sombreados.
+ * Broadcasts vão direto ao DailyEventsReceiver; {@link #drain} esvazia o ReceiverPipeline e a passada
+ * coalescida do WidgetRenderDispatcher. {@link #mark}/{@link #report} medem o custo de cada tempestade.
+ */
+final class RefreshStormHarness {
+  private static final String[] WATCHED_PREFS = { "CapacitorStorage", "widget_day_boundary", "widget_refresh_arbiter" };
+
+  /** Relógio do teste; o fuso acompanha TimeZone.getDefault(), como o DayClock.SYSTEM. */
+  static final class FakeClock implements DayClock {
+    private volatile long nowMs;
+
+    @Override
+    public long nowMs() { return nowMs; }
+
+    @Override
+    public TimeZone zone() { return TimeZone.getDefault(); }
+  }
+
+  /** Custo desde o último {@link #mark}. */
+  static final class Budget {
+    final long passes;           // passadas do WidgetRenderDispatcher
+    final long renders;          // IPCs de widget (updateAppWidget + partiallyUpdateAppWidget)
+    final long headlessRuns;     // HeadlessRefreshWorker executados (WebView offscreen)
+    final long activityLaunches; // MainActivity (ou qualquer activity) aberta em background
+    final long prefsWrites;      // chaves alteradas nos SharedPreferences do subsistema
+    final long stateWrites;      // escritas do widget_state.bin (WidgetState.version)
+
+    Budget(long passes, long renders, long headlessRuns, long activityLaunches, long prefsWrites, long stateWrites) {
+      this.passes = passes;
+      this.renders = renders;
+      this.headlessRuns = headlessRuns;
+      this.activityLaunches = activityLaunches;
+      this.prefsWrites = prefsWrites;
+      this.stateWrites = stateWrites;
+    }
+
+    @Override
+    public String toString() {
+      return "passes=" + passes + " renders=" + renders + " headless=" + headlessRuns + " activities=" + activityLaunches
+          + " prefsWrites=" + prefsWrites + " stateWrites=" + stateWrites;
+    }
+  }
+
+  final Application app = ApplicationProvider.getApplicationContext();
+  final FakeClock clock = new FakeClock();
+  private final TimeZone originalZone = TimeZone.getDefault();
+  private final AtomicInteger headlessRuns = new AtomicInteger();
+  private final AtomicInteger prefsWrites = new AtomicInteger();
+  // Referência forte: o SharedPreferences guarda os listeners num WeakHashMap
+  private final SharedPreferences.OnSharedPreferenceChangeListener prefsListener = (p, key) -> prefsWrites.incrementAndGet();
+  private final List<SharedPreferences> watched = new ArrayList<>();
+  private int activityLaunches;
+  private int[] widgetIds = new int[0];
+  private long[] marked = new long[6];
+
+  RefreshStormHarness(String zoneId, String localDateTime) {
+    TimeZone.setDefault(TimeZone.getTimeZone(zoneId));
+    Configuration config = new Configuration.Builder()
+      .setExecutor(new SynchronousExecutor())
+      .setWorkerFactory(new WorkerFactory() {
+        @Override
+        public ListenableWorker createWorker(@NonNull Context ctx, @NonNull String className, @NonNull WorkerParameters params) {
+          if (!HeadlessRefreshWorker.class.getName().equals(className)) return null;
+          headlessRuns.incrementAndGet();
+          return new Worker(ctx, params) {
+            @NonNull
+            @Override
+            public Result doWork() { return Result.success(); }
+          };
+        }
+      })
+      .build();
+    WorkManagerTestInitHelper.initializeTestWorkManager(app, config);
+
+    // Estado estático sobrevive entre testes no mesmo sandbox do Robolectric
+    WidgetRenderDispatcher.reset();
+    ReceiverPipeline.resetDebounce();
+    WidgetStateStore.clear(app);
+    BookSnapshotStore.clear(app);
+    WidgetBindingStore.clear(app);
+    RefreshArbiter.reset(app);
+    DayBoundaryScheduler.reset(app);
+    WidgetTrace.clear();
+
+    clock.nowMs = epochMs(localDateTime);
+    WidgetClock.set(clock);
+    for (String name : WATCHED_PREFS) {
+      SharedPreferences p = app.getSharedPreferences(name, Context.MODE_PRIVATE);
+      p.registerOnSharedPreferenceChangeListener(prefsListener);
+      watched.add(p);
+    }
+  }
+
+  void close() {
+    for (SharedPreferences p : watched) p.unregisterOnSharedPreferenceChangeListener(prefsListener);
+    WidgetClock.set(null);
+    WidgetRenderDispatcher.reset();
+    TimeZone.setDefault(originalZone);
+  }
+
+  // --- relógio ---
+
+  /** Instante de {@code localDateTime} (ISO, sem fuso) no fuso atual. */
+  static long epochMs(String localDateTime) {
+    return LocalDateTime.parse(localDateTime).atZone(TimeZone.getDefault().toZoneId()).toInstant().toEpochMilli();
+  }
+
+  /** Move o relógio de parede; o uptime anda junto (debounce do ReceiverPipeline). */
+  void at(String localDateTime) {
+    long next = epochMs(localDateTime);
+    long delta = next - clock.nowMs;
+    clock.nowMs = next;
+    if (delta > 0) ShadowSystemClock.advanceBy(Duration.ofMillis(delta));
+  }
+
+  /** Troca o fuso sem mover o instante (o sistema manda TIMEZONE_CHANGED em seguida). */
+  void zone(String zoneId) {
+    TimeZone.setDefault(TimeZone.getTimeZone(zoneId));
+  }
+
+  long today() { return clock.todayEpochDay(); }
+
+  static long day(String isoDay) { return DailyProgressEngine.parseIsoDay(isoDay); }
+
+  // --- cenário ---
+
+  /** Estado já gravado pelo JS em {@code isoDay} (e a transição daquele dia já reivindicada). */
+  void seed(int percent, boolean hasGoal, String isoDay, DailyProgressEngine.Inputs inputs) {
+    WidgetStateStore.writeBatch(app, percent, hasGoal, day(isoDay), clock.nowMs, inputs);
+    RefreshArbiter.tryClaimDay(app, day(isoDay), "seed");
+    RefreshArbiter.confirmDay(app, day(isoDay));
+  }
+
+  /** Instâncias no launcher; o onUpdate inicial já sai renderizado. */
+  void installWidgets(int count) throws InterruptedException {
+    widgetIds = shadowOf(AppWidgetManager.getInstance(app)).createWidgets(ProgressWidgetProvider.class, R.layout.widget_progress, count);
+    drain();
+  }
+
+  /** Start do app: arma o alarm da meia-noite (e o WorkManager, se o plano pedir). */
+  void armMidnight() throws InterruptedException {
+    DayBoundaryScheduler.ensureScheduled(app, "test_start");
+    drain();
+  }
+
+  /** Reboot: alarms e PendingIntents somem, renders em memória também. */
+  void reboot() {
+    AlarmManager am = (AlarmManager) app.getSystemService(Context.ALARM_SERVICE);
+    for (ShadowAlarmManager.ScheduledAlarm a : new ArrayList<>(shadowOf(am).getScheduledAlarms())) {
+      PendingIntent op = a.getOperation();
+      if (op == null) continue;
+      am.cancel(op);
+      op.cancel();
+    }
+    WidgetRenderDispatcher.reset();
+    ReceiverPipeline.resetDebounce();
+  }
+
+  ShadowAlarmManager.ScheduledAlarm nextAlarm() {
+    AlarmManager am = (AlarmManager) app.getSystemService(Context.ALARM_SERVICE);
+    return shadowOf(am).peekNextScheduledAlarm();
+  }
+
+  long nextAlarmAt() {
+    ShadowAlarmManager.ScheduledAlarm a = nextAlarm();
+    assertNotNull("alarm da meia-noite não armado", a);
+    return a.getTriggerAtMs();
+  }
+
+  /** Intent que o AlarmManager entregaria (com scheduledAt). */
+  Intent midnightAlarm() {
+    ShadowAlarmManager.ScheduledAlarm a = nextAlarm();
+    assertNotNull("alarm da meia-noite não armado", a);
+    return new Intent(shadowOf(a.getOperation()).getSavedIntent());
+  }
+
+  /** Alarm +60s das versões anteriores, ainda pendente em quem atualizou o app. */
+  static Intent fallback(Intent alarm) {
+    return new Intent(alarm).putExtra("fallback", true);
+  }
+
+  void deliver(Intent... intents) throws InterruptedException {
+    for (Intent i : intents) new DailyEventsReceiver().onReceive(app, i);
+    drain();
+  }
+
+  /** Mesmo caminho do WidgetUpdater.applyState (o PluginCall exige um bridge vivo). */
+  void applyState(JSONObject batch) throws InterruptedException {
+    WidgetStateBatcher.submit(app, batch, false);
+    drain();
+  }
+
+  /** Roda o RefreshWorker periódico agora (TestDriver: atraso inicial cumprido). */
+  void runDailyWorker() throws Exception {
+    WorkInfo pending = null;
+    for (WorkInfo w : WorkManager.getInstance(app).getWorkInfosForUniqueWork(RefreshScheduler.UNIQUE_WORK).get()) {
+      if (!w.getState().isFinished()) pending = w;
+    }
+    assertNotNull("RefreshWorker periódico não agendado", pending);
+    WorkManagerTestInitHelper.getTestDriver(app).setInitialDelayMet(pending.getId());
+    drain();
+  }
+
+  /** Esvazia o pipeline dos receivers, o main looper e a passada coalescida (que pode pedir outra). */
+  void drain() throws InterruptedException {
+    for (int round = 0; round < 3; round++) {
+      assertTrue("ReceiverPipeline não esvaziou", ReceiverPipeline.awaitIdle(5_000));
+      shadowOf(Looper.getMainLooper()).idle();
+      shadowOf(WidgetRenderDispatcher.looper()).idleFor(Duration.ofMillis(WidgetRenderDispatcher.COALESCE_WINDOW_MS));
+    }
+    shadowOf(Looper.getMainLooper()).idle();
+    while (shadowOf(app).getNextStartedActivity() != null) activityLaunches++;
+  }
+
+  // --- medição ---
+
+  WidgetState state() { return WidgetStateStore.read(app); }
+
+  int[] widgetIds() { return widgetIds; }
+
+  String shownText(int appWidgetId) {
+    View root = shadowOf(AppWidgetManager.getInstance(app)).getViewFor(appWidgetId);
+    TextView text = root.findViewById(R.id.widget_progress_text);
+    return text.getText().toString();
+  }
+
+  private long[] counters() {
+    long[] s = WidgetRenderDispatcher.stats();
+    WidgetState st = state();
+    return new long[] { s[2], s[3] + s[5], headlessRuns.get(), activityLaunches, prefsWrites.get(), st == null ? 0 : st.version };
+  }
+
+  void mark() { marked = counters(); }
+
+  Budget spent() {
+    long[] c = counters();
+    return new Budget(c[0] - marked[0], c[1] - marked[1], c[2] - marked[2], c[3] - marked[3], c[4] - marked[4], c[5] - marked[5]);
+  }
+
+  /** Custo desde o {@link #mark}, impresso numa linha para o log do CI. */
+  Budget report(String scenario) {
+    Budget b = spent();
+    System.out.println("[storm-budget] " + scenario + " " + b);
+    return b;
+  }
+}
@@ -0,0 +1,264 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import android.content.Intent;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Tempestades de eventos em volta da meia-noite contra o subsistema de refresh real (receiver, arbiter,
+ * scheduler, dispatcher, WorkManager). Cada cenário imprime o custo ("[storm-budget] ...") e falha se
+ * estourar o orçamento por transição de dia.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class RefreshStormTest {
+  // Orçamentos por transição de dia
+  private static final long MAX_PASSES = 1;
+  private static final long MAX_STATE_WRITES = 1;
+  private static final long MAX_HEADLESS = 1;
+  private static final long MAX_PREFS_WRITES = 20;
+  private static final long HOUR_MS = 60L * 60 * 1000;
+
+  private RefreshStormHarness h;
+
+  @After
+  public void tearDown() {
+    if (h != null) h.close();
+  }
+
+  /** Plano EPUB (alvo em 10 dias) com baseline de {@code baselineDay} e baseline de amanhã já empurrado pelo JS. */
+  private static DailyProgressEngine.Inputs plan(String baselineDay, String nextDay) {
+    DailyProgressEngine.Inputs in = new DailyProgressEngine.Inputs();
+    in.bookId = "book-1";
+    in.kind = DailyProgressEngine.KIND_EPUB;
+    in.targetEpochDay = RefreshStormHarness.day(nextDay) + 9;
+    in.baselineEpochDay = RefreshStormHarness.day(baselineDay);
+    in.baselinePercent = 20;
+    in.currentPercent = 30;
+    in.nextBaselineEpochDay = RefreshStormHarness.day(nextDay);
+    in.nextBaselinePercent = 27;
+    return in;
+  }
+
+  private static void assertTransitionBudget(RefreshStormHarness.Budget b, int widgets) {
+    assertTrue("passadas: " + b, b.passes <= MAX_PASSES);
+    assertTrue("renders: " + b, b.renders <= widgets);
+    assertTrue("escritas de estado: " + b, b.stateWrites <= MAX_STATE_WRITES);
+    assertTrue("refresh headless: " + b, b.headlessRuns <= MAX_HEADLESS);
+    assertTrue("escritas de prefs: " + b, b.prefsWrites <= MAX_PREFS_WRITES);
+    assertEquals("activities abertas: " + b, 0, b.activityLaunches);
+  }
+
+  private void assertShown(WidgetState state) {
+    for (int id : h.widgetIds()) assertEquals(state.percent + "%", h.shownText(id));
+  }
+
+  @Test
+  public void alarmFallbackAndDateChangedTogetherMakeOneTransition() throws Exception {
+    h = new RefreshStormHarness("America/Sao_Paulo", "2025-06-10T23:59:00");
+    h.seed(100, true, "2025-06-10", plan("2025-06-10", "2025-06-11"));
+    h.installWidgets(2);
+    h.armMidnight();
+    assertEquals(RefreshStormHarness.epochMs("2025-06-11T00:00:00"), h.nextAlarmAt());
+
+    h.at("2025-06-11T00:00:20");
+    Intent alarm = h.midnightAlarm();
+    h.mark();
+    h.deliver(alarm, RefreshStormHarness.fallback(alarm), new Intent(Intent.ACTION_DATE_CHANGED));
+    RefreshStormHarness.Budget b = h.report("alarm+fallback+date_changed");
+
+    assertTransitionBudget(b, 2);
+    assertEquals(1, b.passes);
+    assertEquals(2, b.renders);
+    assertEquals(1, b.stateWrites);
+    assertEquals("recomputo nativo dispensa o WebView", 0, b.headlessRuns);
+    WidgetState s = h.state();
+    assertEquals(h.today(), s.epochDay);
+    assertEquals(DailyProgressEngine.compute(plan("2025-06-10", "2025-06-11"), h.today()).percent, s.percent);
+    assertShown(s);
+    assertEquals(RefreshStormHarness.epochMs("2025-06-12T00:00:00"), h.nextAlarmAt());
+  }
+
+  @Test
+  public void timezoneFlipsAcrossMidnightFollowTheDeviceDay() throws Exception {
+    // 22:30 em São Paulo = 10:30 do dia seguinte em Tóquio
+    h = new RefreshStormHarness("America/Sao_Paulo", "2025-06-10T22:30:00");
+    h.seed(40, true, "2025-06-10", plan("2025-06-10", "2025-06-11"));
+    h.installWidgets(1);
+    h.armMidnight();
+
+    h.zone("Asia/Tokyo");
+    h.mark();
+    h.deliver(new Intent(Intent.ACTION_TIMEZONE_CHANGED), new Intent(Intent.ACTION_TIME_CHANGED));
+    RefreshStormHarness.Budget b = h.report("timezone_forward");
+    assertTransitionBudget(b, 1);
+    assertEquals(1, b.stateWrites);
+    assertEquals(RefreshStormHarness.day("2025-06-11"), h.state().epochDay);
+    assertShown(h.state());
+    // Alarm pendente do fuso antigo não conta como falha: é rearmado para a meia-noite de Tóquio
+    assertEquals(RefreshStormHarness.epochMs("2025-06-12T00:00:00"), h.nextAlarmAt());
+
+    h.at("2025-06-11T10:40:00");
+    h.mark();
+    h.deliver(new Intent(Intent.ACTION_TIME_CHANGED));
+    b = h.report("time_changed_same_day");
+    assertEquals(0, b.stateWrites);
+    assertEquals(0, b.renders);
+
+    h.zone("America/Sao_Paulo");
+    h.at("2025-06-10T22:50:00");
+    h.mark();
+    h.deliver(new Intent(Intent.ACTION_TIMEZONE_CHANGED));
+    b = h.report("timezone_back");
+    assertTransitionBudget(b, 1);
+    WidgetState s = h.state();
+    assertEquals(h.today(), s.epochDay);
+    assertEquals(DailyProgressEngine.compute(plan("2025-06-10", "2025-06-11"), h.today()).percent, s.percent);
+    assertShown(s);
+    assertEquals(RefreshStormHarness.epochMs("2025-06-11T00:00:00"), h.nextAlarmAt());
+  }
+
+  @Test
+  public void timezoneFlapWithinDebounceWindowIsNotDropped() throws Exception {
+    // Fuso automático oscilando: dois TIMEZONE_CHANGED com 2 s de intervalo, o segundo desfaz o primeiro
+    h = new RefreshStormHarness("America/Sao_Paulo", "2025-06-10T22:30:00");
+    h.seed(40, true, "2025-06-10", plan("2025-06-10", "2025-06-11"));
+    h.installWidgets(1);
+    h.armMidnight();
+
+    h.zone("Asia/Tokyo");
+    h.deliver(new Intent(Intent.ACTION_TIMEZONE_CHANGED));
+    assertEquals(RefreshStormHarness.day("2025-06-11"), h.state().epochDay);
+
+    h.zone("America/Sao_Paulo");
+    h.at("2025-06-10T22:30:02");
+    h.mark();
+    h.deliver(new Intent(Intent.ACTION_TIMEZONE_CHANGED));
+    RefreshStormHarness.Budget b = h.report("timezone_flap");
+    assertTransitionBudget(b, 1);
+    assertEquals(RefreshStormHarness.day("2025-06-10"), h.state().epochDay);
+    assertShown(h.state());
+    assertEquals(RefreshStormHarness.epochMs("2025-06-11T00:00:00"), h.nextAlarmAt());
+  }
+
+  @Test
+  public void springForwardDayIs23HoursLong() throws Exception {
+    h = new RefreshStormHarness("America/New_York", "2025-03-08T23:59:00");
+    h.seed(80, true, "2025-03-08", plan("2025-03-08", "2025-03-09"));
+    h.installWidgets(1);
+    h.armMidnight();
+    long first = h.nextAlarmAt();
+    assertEquals(RefreshStormHarness.epochMs("2025-03-09T00:00:00"), first);
+
+    h.at("2025-03-09T00:00:10");
+    h.mark();
+    h.deliver(h.midnightAlarm());
+    assertTransitionBudget(h.report("dst_spring_first_midnight"), 1);
+    assertEquals(RefreshStormHarness.day("2025-03-09"), h.state().epochDay);
+    assertEquals(23 * HOUR_MS, h.nextAlarmAt() - first);
+
+    h.at("2025-03-10T00:00:10");
+    h.mark();
+    h.deliver(h.midnightAlarm(), new Intent(Intent.ACTION_DATE_CHANGED));
+    RefreshStormHarness.Budget b = h.report("dst_spring_second_midnight");
+    assertTransitionBudget(b, 1);
+    assertEquals(1, b.stateWrites);
+    assertEquals(RefreshStormHarness.day("2025-03-10"), h.state().epochDay);
+    assertShown(h.state());
+  }
+
+  @Test
+  public void fallBackDayIs25HoursLong() throws Exception {
+    h = new RefreshStormHarness("America/New_York", "2025-11-01T23:59:00");
+    h.seed(80, true, "2025-11-01", plan("2025-11-01", "2025-11-02"));
+    h.installWidgets(1);
+    h.armMidnight();
+    long first = h.nextAlarmAt();
+
+    h.at("2025-11-02T00:00:10");
+    h.mark();
+    h.deliver(h.midnightAlarm());
+    assertTransitionBudget(h.report("dst_fall_midnight"), 1);
+    assertEquals(RefreshStormHarness.day("2025-11-02"), h.state().epochDay);
+    assertEquals(25 * HOUR_MS, h.nextAlarmAt() - first);
+
+    // 01:30 acontece duas vezes; o TIME_CHANGED do ajuste não é uma virada de dia
+    h.at("2025-11-02T01:30:00");
+    h.mark();
+    h.deliver(new Intent(Intent.ACTION_TIME_CHANGED));
+    RefreshStormHarness.Budget b = h.report("dst_fall_repeated_hour");
+    assertEquals(0, b.stateWrites);
+    assertEquals(0, b.renders);
+  }
+
+  @Test
+  public void rebootBeforeMidnightRearmsWithoutTransition() throws Exception {
+    h = new RefreshStormHarness("America/Sao_Paulo", "2025-06-10T23:40:00");
+    h.seed(55, true, "2025-06-10", null); // sem entradas: a virada usa o reset otimista + headless
+    h.installWidgets(1);
+    h.armMidnight();
+
+    h.reboot();
+    assertNull(h.nextAlarm());
+    h.at("2025-06-10T23:42:00");
+    h.mark();
+    h.deliver(new Intent(Intent.ACTION_BOOT_COMPLETED));
+    RefreshStormHarness.Budget b = h.report("boot_before_midnight");
+    assertEquals(0, b.stateWrites);
+    assertEquals(0, b.renders);
+    assertEquals(0, b.headlessRuns);
+    assertEquals(0, b.activityLaunches);
+    assertEquals(RefreshStormHarness.epochMs("2025-06-11T00:00:00"), h.nextAlarmAt());
+
+    h.at("2025-06-11T00:00:30");
+    h.mark();
+    h.deliver(h.midnightAlarm(), new Intent(Intent.ACTION_DATE_CHANGED));
+    b = h.report("midnight_after_boot");
+    assertTransitionBudget(b, 1);
+    assertEquals(1, b.stateWrites);
+    assertEquals(1, b.headlessRuns);
+    WidgetState s = h.state();
+    assertEquals(h.today(), s.epochDay);
+    assertEquals(0, s.percent);
+    assertTrue(s.hasGoal);
+    assertShown(s);
+
+    // Rede de segurança do WorkManager depois do alarm: no-op
+    h.at("2025-06-11T00:05:00");
+    h.mark();
+    h.runDailyWorker();
+    b = h.report("worker_after_alarm");
+    assertEquals(0, b.stateWrites);
+    assertEquals(0, b.renders);
+    assertEquals(0, b.headlessRuns);
+  }
+
+  @Test
+  public void jsApplyStateBeforeAlarmIsNotOverwritten() throws Exception {
+    h = new RefreshStormHarness("America/Sao_Paulo", "2025-06-10T23:59:00");
+    h.seed(70, true, "2025-06-10", null);
+    h.installWidgets(1);
+    h.armMidnight();
+
+    // App aberto na virada: o JS grava o valor real antes do alarm chegar
+    h.at("2025-06-11T00:00:05");
+    h.mark();
+    h.applyState(new JSONObject().put("percent", 12).put("hasGoal", true));
+    h.at("2025-06-11T00:00:20");
+    h.deliver(h.midnightAlarm(), new Intent(Intent.ACTION_DATE_CHANGED));
+    RefreshStormHarness.Budget b = h.report("apply_state+alarm");
+    assertTransitionBudget(b, 1);
+    assertEquals(1, b.stateWrites);
+    assertEquals(0, b.headlessRuns);
+    WidgetState s = h.state();
+    assertEquals(h.today(), s.epochDay);
+    assertEquals(12, s.percent);
+    assertShown(s);
+  }
+}
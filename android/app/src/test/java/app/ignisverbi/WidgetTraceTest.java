@@ -0,0 +1,37 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class WidgetTraceTest {
+
+  @Test
+  public void histogramBucketsArePowersOfTwo() {
+    assertEquals(0, WidgetTrace.Histogram.bucketOf(-5));
+    assertEquals(0, WidgetTrace.Histogram.bucketOf(0));
+    assertEquals(1, WidgetTrace.Histogram.bucketOf(1));
+    assertEquals(2, WidgetTrace.Histogram.bucketOf(3));
+    assertEquals(3, WidgetTrace.Histogram.bucketOf(4));
+    assertEquals(WidgetTrace.Histogram.BUCKETS - 1, WidgetTrace.Histogram.bucketOf(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void percentileReturnsBucketUpperBound() {
+    WidgetTrace.Histogram h = new WidgetTrace.Histogram();
+    for (int i = 0; i < 90; i++) h.add(5);   // faixa [4,8)
+    for (int i = 0; i < 10; i++) h.add(300); // faixa [256,512)
+    assertEquals(100, h.count());
+    assertEquals(8, h.percentile(0.5));
+    assertEquals(512, h.percentile(0.95));
+    assertEquals(300, h.max());
+  }
+
+  @Test
+  public void countersSurviveRingWrap() {
+    WidgetTrace.clear();
+    for (int i = 0; i < WidgetTrace.CAPACITY * 2 + 3; i++) WidgetTrace.record(WidgetTrace.TRIGGER, "alarm", i);
+    assertEquals(WidgetTrace.CAPACITY * 2 + 3, WidgetTrace.count(WidgetTrace.TRIGGER));
+    assertEquals(0, WidgetTrace.count(WidgetTrace.RENDER));
+  }
+}
@@ -0,0 +1,39 @@
+package app.ignisverbi.baselineprofile;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import kotlin.Unit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Gera o baseline profile do app: ./gradlew :app:generateBaselineProfile (aparelho ou emulador API 28+).
+ * O plugin copia o resultado para app/src/main/generated/baselineProfiles/baseline-prof.txt, que entra
+ * no release como assets/dexopt/baseline.prof; o startup profile (includeInStartupProfile) orienta o
+ * layout do dex. Regerar quando os caminhos de start ou de refresh mudarem.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class BaselineProfileGenerator {
+  @Rule
+  public final BaselineProfileRule rule = new BaselineProfileRule();
+
+  @Test
+  public void generate() {
+    rule.collect(
+      Journeys.PACKAGE,
+      /* maxIterations */ 15,
+      /* stableIterations */ 3,
+      /* outputFilePrefix */ null,
+      /* includeInStartupProfile */ true,
+      /* strictStability */ false,
+      /* filterPredicate */ name -> true,
+      scope -> {
+        Journeys.coldStart(scope);
+        Journeys.dailyRefresh(scope);
+        return Unit.INSTANCE;
+      });
+  }
+}
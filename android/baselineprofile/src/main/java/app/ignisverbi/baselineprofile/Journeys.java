@@ -0,0 +1,64 @@
+package app.ignisverbi.baselineprofile;
+
+import android.os.SystemClock;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.Until;
+import java.io.IOException;
+
+/**
+ * Caminhos do app exercitados pelo gerador do baseline profile, pelo benchmark de start e pelo smoke
+ * test do release: start da UI até o WebView do Capacitor e o refresh diário disparado pelos mesmos
+ * broadcasts do alarm (DailyEventsReceiver é exportado).
+ */
+final class Journeys {
+  static final String PACKAGE = "app.ignisverbi";
+  static final String ACTION_FORCE_REFRESH = PACKAGE + ".ACTION_FORCE_REFRESH";
+  static final String ACTION_MIDNIGHT_ALARM = PACKAGE + ".ACTION_MIDNIGHT_ALARM";
+
+  static final long WEBVIEW_TIMEOUT_MS = 15_000;
+  // ReceiverPipeline + recomputo nativo + render (e o WebView offscreen, se o worker headless rodar)
+  static final long REFRESH_SETTLE_MS = 5_000;
+
+  private Journeys() {}
+
+  /** Start a frio: o primeiro frame é a splash, o start termina quando o WebView aparece. */
+  static void coldStart(MacrobenchmarkScope scope) {
+    scope.pressHome();
+    scope.startActivityAndWait();
+    waitForWebView(scope.getDevice());
+  }
+
+  /** Refresh manual e virada do dia: receiver, RefreshScheduler, motor, store e render do widget. */
+  static void dailyRefresh(MacrobenchmarkScope scope) {
+    broadcast(scope.getDevice(), ACTION_FORCE_REFRESH);
+    broadcast(scope.getDevice(), ACTION_MIDNIGHT_ALARM);
+  }
+
+  static boolean waitForWebView(UiDevice device) {
+    Boolean found = device.wait(Until.hasObject(By.clazz("android.webkit.WebView")), WEBVIEW_TIMEOUT_MS);
+    return found != null && found;
+  }
+
+  /** Envia o broadcast ao app e espera o trabalho assíncrono do receiver; devolve a saída do am. */
+  static String broadcast(UiDevice device, String action) {
+    String out;
+    try {
+      out = device.executeShellCommand("am broadcast -a " + action + " -p " + PACKAGE);
+    } catch (IOException e) {
+      throw new IllegalStateException("Falha no am broadcast " + action, e);
+    }
+    SystemClock.sleep(REFRESH_SETTLE_MS);
+    return out;
+  }
+
+  /** PID do processo do app ("" se não estiver rodando). */
+  static String pid(UiDevice device) {
+    try {
+      return device.executeShellCommand("pidof " + PACKAGE).trim();
+    } catch (IOException e) {
+      throw new IllegalStateException("Falha no pidof", e);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package app.ignisverbi.baselineprofile;
+
+import static org.junit.Assert.*;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.UiDevice;
+import java.io.IOException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Smoke test do build minificado (benchmarkRelease, mesmas keep rules do release): o app abre até o
+ * WebView e aguenta o refresh manual e o alarm da meia-noite, que passam pelo worker headless e pela
+ * ponte JS. Classe ou construtor removido pelo R8 derruba o processo aqui; os nomes de métodos
+ * (@PluginMethod, @JavascriptInterface) são conferidos no mapping pelo verifyReleaseKeepRules.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class ReleaseSmokeTest {
+  @Test
+  public void minifiedBuildStartsAndSurvivesRefreshBroadcasts() throws IOException {
+    UiDevice device = UiDevice.getInstance(InstrumentationRegistry.getInstrumentation());
+    device.executeShellCommand("am force-stop " + Journeys.PACKAGE);
+    device.executeShellCommand("am start -W -n " + Journeys.PACKAGE + "/.MainActivity");
+    assertTrue("WebView não apareceu", Journeys.waitForWebView(device));
+    String pid = Journeys.pid(device);
+    assertFalse("app não está rodando", pid.isEmpty());
+
+    for (String action : new String[] { Journeys.ACTION_FORCE_REFRESH, Journeys.ACTION_MIDNIGHT_ALARM }) {
+      String out = Journeys.broadcast(device, action);
+      assertTrue(action + ": " + out, out.contains("Broadcast completed"));
+      assertEquals("processo reiniciou depois de " + action, pid, Journeys.pid(device));
+    }
+  }
+}
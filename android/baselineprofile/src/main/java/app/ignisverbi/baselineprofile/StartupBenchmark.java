@@ -0,0 +1,55 @@
+package app.ignisverbi.baselineprofile;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import java.util.Collections;
+import kotlin.Unit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Start a frio do build benchmarkRelease sem AOT e com o baseline profile gerado. A diferença entre os
+ * dois timeToInitialDisplayMs/timeToFullDisplayMs é o ganho do profile; sem ganho, o profile está velho.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class StartupBenchmark {
+  private static final int ITERATIONS = 10;
+
+  @Rule
+  public final MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+  @Test
+  public void startupWithoutProfile() {
+    measure(new CompilationMode.None());
+  }
+
+  @Test
+  public void startupWithBaselineProfile() {
+    measure(new CompilationMode.Partial(BaselineProfileMode.Require));
+  }
+
+  private void measure(CompilationMode mode) {
+    rule.measureRepeated(
+      Journeys.PACKAGE,
+      Collections.singletonList(new StartupTimingMetric()),
+      mode,
+      StartupMode.COLD,
+      ITERATIONS,
+      scope -> {
+        scope.pressHome();
+        return Unit.INSTANCE;
+      },
+      scope -> {
+        scope.startActivityAndWait();
+        Journeys.waitForWebView(scope.getDevice());
+        return Unit.INSTANCE;
+      });
+  }
+}
@@ -0,0 +1,76 @@
+package app.ignisverbi;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Abrir um livro estático e exibir um capítulo: JSON inteiro parseado (o caminho do book:${id}) vs.
+ * BookContainer mapeado (sumário + um capítulo). O org.json na JVM faz as vezes do JSON.parse do WebView;
+ * gc.alloc.rate.norm mostra o lixo por abertura. Heap retido: tarefa bookFootprint.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookContentBenchmark {
+  @Param({"small", "large"})
+  public String size;
+
+  private String json;
+  private File container;
+  private BookContainer opened;
+  private int part;
+  private int chapter;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    SyntheticBook book = SyntheticBook.of(size);
+    json = book.json();
+    container = File.createTempFile("book", ".ivbc");
+    container.deleteOnExit();
+    book.writeContainer(container);
+    opened = BookContainer.open(container);
+    part = book.parts / 2;
+    chapter = book.chaptersPerPart / 2;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    container.delete();
+  }
+
+  @Benchmark
+  public List<BookContainer.Paragraph> jsonOpenChapter() {
+    JSONArray parts = new JSONArray(json);
+    JSONArray content = parts.getJSONObject(part).getJSONArray("chapters").getJSONObject(chapter).getJSONArray("content");
+    List<BookContainer.Paragraph> out = new ArrayList<>(content.length());
+    for (int i = 0; i < content.length(); i++) {
+      JSONObject p = content.getJSONObject(i);
+      out.add(new BookContainer.Paragraph(p.getString("type"), p.getString("content")));
+    }
+    return out;
+  }
+
+  @Benchmark
+  public List<BookContainer.Paragraph> containerOpenChapter() throws IOException {
+    return BookContainer.open(container).paragraphs(part, chapter);
+  }
+
+  @Benchmark
+  public List<BookContainer.Paragraph> containerWarmChapter() throws IOException {
+    return opened.paragraphs(part, chapter);
+  }
+
+  @Benchmark
+  public List<BookContainer.Paragraph> containerWarmRange() throws IOException {
+    return opened.paragraphs(part, chapter, 10, 20);
+  }
+}
@@ -0,0 +1,63 @@
+package app.ignisverbi;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import org.json.JSONArray;
+
+/**
+ * Heap retido com um capítulo na tela: o JSON do livro (string do localStorage + árvore parseada) vs. o
+ * BookContainer (sumário + capítulo decodificado; o conteúdo mapeado fica fora do heap). Medido pela
+ * diferença de heap usado depois de GC, com as referências vivas.
+ */
+public final class BookContentFootprint {
+  private static Object keep;
+
+  private BookContentFootprint() {}
+
+  public static void main(String[] args) throws Exception {
+    for (String size : new String[] { "small", "large" }) {
+      SyntheticBook book = SyntheticBook.of(size);
+      File container = File.createTempFile("book", ".ivbc");
+      container.deleteOnExit();
+      book.writeContainer(container);
+      int part = book.parts / 2;
+      int chapter = book.chaptersPerPart / 2;
+
+      long base = usedAfterGc();
+      String json = book.json();
+      long stringBytes = usedAfterGc() - base;
+      JSONArray parsed = new JSONArray(json);
+      keep = new Object[] { json, parsed, parsed.getJSONObject(part).getJSONArray("chapters").getJSONObject(chapter) };
+      long jsonBytes = usedAfterGc() - base;
+      keep = null;
+      json = null;
+      parsed = null;
+
+      base = usedAfterGc();
+      long start = System.nanoTime();
+      BookContainer opened = BookContainer.open(container);
+      List<BookContainer.Paragraph> shown = opened.paragraphs(part, chapter);
+      long openUs = (System.nanoTime() - start) / 1000;
+      keep = new Object[] { opened, shown };
+      long containerBytes = usedAfterGc() - base;
+      keep = null;
+
+      System.out.printf("%s: json string=%d KB, json+parsed=%d KB | container file=%d KB, heap=%d KB, cold open+chapter=%d us%n",
+        size, stringBytes / 1024, jsonBytes / 1024, container.length() / 1024, containerBytes / 1024, openUs);
+      container.delete();
+    }
+  }
+
+  private static long usedAfterGc() throws InterruptedException {
+    MemoryMXBean mem = ManagementFactory.getMemoryMXBean();
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      Thread.sleep(50);
+      used = Math.min(used, mem.getHeapMemoryUsage().getUsed());
+    }
+    return used;
+  }
+}
@@ -0,0 +1,62 @@
+package app.ignisverbi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Snapshot do widget de coleção com dezenas de livros: codec, upsert de uma linha e texto do bind. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookSnapshotBenchmark {
+  private static final long TODAY = DailyProgressEngine.parseIsoDay("2025-03-10");
+
+  @Param({"8", "48"})
+  public int books;
+
+  private BookSnapshot snapshot;
+  private byte[] encoded;
+  private String lastBookId;
+  private int percent;
+
+  @Setup
+  public void setup() {
+    List<BookSnapshot.Row> rows = new ArrayList<>(books);
+    for (int i = 0; i < books; i++) {
+      rows.add(new BookSnapshot.Row("user-" + i, "Livro número " + i, i % 101, TODAY, 1741600000000L));
+    }
+    snapshot = BookSnapshot.of(rows);
+    encoded = snapshot.encode();
+    lastBookId = "user-" + (books - 1);
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return snapshot.encode();
+  }
+
+  @Benchmark
+  public BookSnapshot decode() {
+    return BookSnapshot.decode(encoded);
+  }
+
+  @Benchmark
+  public BookSnapshot upsertOne() {
+    percent = (percent + 1) % 101;
+    return snapshot.upsert(lastBookId, null, percent, true, TODAY, 1741600000000L);
+  }
+
+  @Benchmark
+  public int bindAllRows() {
+    int n = 0;
+    for (int i = 0; i < snapshot.size(); i++) {
+      BookSnapshot.Row r = snapshot.get(i);
+      n += r.percentTextOn(TODAY).length() + r.percentOn(TODAY);
+    }
+    return n;
+  }
+}
@@ -0,0 +1,46 @@
+package app.ignisverbi;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Recomputo nativo da virada do dia (RefreshScheduler.applyDayTransition) para cada tipo de livro. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DailyProgressEngineBenchmark {
+  @Param({"0", "1", "2"}) // KIND_EPUB, KIND_PHYSICAL, KIND_STATIC
+  public int kind;
+
+  private DailyProgressEngine.Inputs inputs;
+  private long today;
+
+  @Setup
+  public void setup() {
+    today = DailyProgressEngine.parseIsoDay("2025-03-10");
+    inputs = new DailyProgressEngine.Inputs();
+    inputs.kind = kind;
+    inputs.targetEpochDay = DailyProgressEngine.parseIsoDay("2025-04-01");
+    inputs.baselineEpochDay = today - 1; // força a troca de baseline
+    inputs.baselinePercent = 20;
+    inputs.baselineWords = 12_000;
+    inputs.baselinePage = 40;
+    inputs.currentPercent = 25.5;
+    inputs.currentWords = 15_000;
+    inputs.currentPage = 52;
+    inputs.totalPages = 320;
+    inputs.targetWords = 90_000;
+  }
+
+  @Benchmark
+  public DailyProgressEngine.Result compute() {
+    return DailyProgressEngine.compute(inputs, today);
+  }
+
+  @Benchmark
+  public long parseIsoDay() {
+    return DailyProgressEngine.parseIsoDay("2025-04-01");
+  }
+}
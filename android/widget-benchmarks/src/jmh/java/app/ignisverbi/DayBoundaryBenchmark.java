@@ -0,0 +1,55 @@
+package app.ignisverbi;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Próxima meia-noite (alarm / WorkManager) e dia local de hoje, com relógio fixo; direto e com cache. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DayBoundaryBenchmark {
+  private DayClock clock;
+  private CachedDayClock cached;
+
+  @Setup
+  public void setup() {
+    final TimeZone tz = TimeZone.getTimeZone("America/Sao_Paulo");
+    clock = new DayClock() {
+      @Override
+      public long nowMs() { return 1741600000000L; }
+
+      @Override
+      public TimeZone zone() { return tz; }
+    };
+    cached = new CachedDayClock(clock);
+  }
+
+  @Benchmark
+  public long nextMidnight() {
+    return clock.nextMidnightMs();
+  }
+
+  @Benchmark
+  public long todayEpochDay() {
+    return clock.todayEpochDay();
+  }
+
+  @Benchmark
+  public String formatIsoDay() {
+    return DailyProgressEngine.formatIsoDay(clock.todayEpochDay());
+  }
+
+  @Benchmark
+  public long cachedTodayEpochDay() {
+    return cached.todayEpochDay();
+  }
+
+  @Benchmark
+  public long cachedNextBoundary() {
+    return cached.nextBoundaryMs();
+  }
+}
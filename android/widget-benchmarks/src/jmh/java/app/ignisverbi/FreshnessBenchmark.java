@@ -0,0 +1,48 @@
+package app.ignisverbi;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Checagens "é de hoje / está velho / pode refrescar" feitas a cada passada de renderização. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FreshnessBenchmark {
+  private static final long NOW = 1741600000000L;
+
+  private long today;
+  private WidgetState fresh;
+  private WidgetState stale;
+  private WidgetState otherDay;
+
+  @Setup
+  public void setup() {
+    today = DailyProgressEngine.localEpochDay(NOW, java.util.TimeZone.getTimeZone("America/Sao_Paulo"));
+    fresh = new WidgetState(40, true, today, NOW - 60_000, 1);
+    stale = new WidgetState(40, true, today, NOW - 2 * WidgetFreshness.DATA_STALE_THRESHOLD_MS, 1);
+    otherDay = new WidgetState(40, true, today - 1, NOW - 60_000, 1);
+  }
+
+  @Benchmark
+  public int classifyFresh() {
+    return WidgetFreshness.classify(fresh, today, NOW);
+  }
+
+  @Benchmark
+  public int classifyStale() {
+    return WidgetFreshness.classify(stale, today, NOW);
+  }
+
+  @Benchmark
+  public int classifyOtherDay() {
+    return WidgetFreshness.classify(otherDay, today, NOW);
+  }
+
+  @Benchmark
+  public boolean refreshDue() {
+    return WidgetFreshness.refreshDue(NOW - WidgetFreshness.MIN_REFRESH_INTERVAL_MS / 2, NOW);
+  }
+}
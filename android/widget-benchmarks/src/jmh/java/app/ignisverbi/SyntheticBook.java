@@ -0,0 +1,73 @@
+package app.ignisverbi;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/** Livro estático sintético (Part[] do reading.ts) gerado de forma determinística, em JSON e em contêiner. */
+final class SyntheticBook {
+  private static final String[] WORDS = {
+    "Filotéia", "devoção", "alma", "caridade", "oração", "Deus", "paz", "coração", "virtude", "humildade",
+    "paciência", "meditação", "graça", "vida", "obras", "amor", "silêncio", "Senhor", "santos", "exame",
+  };
+
+  final int parts;
+  final int chaptersPerPart;
+  final int paragraphsPerChapter;
+
+  SyntheticBook(int parts, int chaptersPerPart, int paragraphsPerChapter) {
+    this.parts = parts;
+    this.chaptersPerPart = chaptersPerPart;
+    this.paragraphsPerChapter = paragraphsPerChapter;
+  }
+
+  /** "small": ~0,4 MB de JSON; "large": ~7 MB, a ordem de um livro devocional longo. */
+  static SyntheticBook of(String size) {
+    return "large".equals(size) ? new SyntheticBook(12, 30, 60) : new SyntheticBook(4, 12, 25);
+  }
+
+  private String paragraph(Random rnd) {
+    StringBuilder sb = new StringBuilder(400);
+    int n = 30 + rnd.nextInt(50);
+    for (int i = 0; i < n; i++) {
+      if (i > 0) sb.append(' ');
+      sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+    }
+    return sb.append('.').toString();
+  }
+
+  String json() {
+    Random rnd = new Random(42);
+    StringBuilder sb = new StringBuilder(parts * chaptersPerPart * paragraphsPerChapter * 420);
+    sb.append('[');
+    for (int p = 0; p < parts; p++) {
+      if (p > 0) sb.append(',');
+      sb.append("{\"part_title\":\"Parte ").append(p + 1).append("\",\"chapters\":[");
+      for (int c = 0; c < chaptersPerPart; c++) {
+        if (c > 0) sb.append(',');
+        sb.append("{\"chapter_title\":\"Capítulo ").append(c + 1).append("\",\"content\":[");
+        for (int i = 0; i < paragraphsPerChapter; i++) {
+          if (i > 0) sb.append(',');
+          sb.append("{\"type\":\"").append(i == 0 ? "h2" : "p").append("\",\"content\":\"").append(paragraph(rnd)).append("\"}");
+        }
+        sb.append("]}");
+      }
+      sb.append("]}");
+    }
+    return sb.append(']').toString();
+  }
+
+  void writeContainer(File dest) throws IOException {
+    Random rnd = new Random(42);
+    try (BookContainer.Writer w = new BookContainer.Writer(dest, "synthetic")) {
+      for (int p = 0; p < parts; p++) {
+        w.beginPart("Parte " + (p + 1));
+        for (int c = 0; c < chaptersPerPart; c++) {
+          w.beginChapter("Capítulo " + (c + 1));
+          for (int i = 0; i < paragraphsPerChapter; i++) w.paragraph(i == 0 ? "h2" : "p", paragraph(rnd));
+        }
+      }
+      w.finish();
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package app.ignisverbi;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Paddings das guidelines: cálculo direto vs. cache por faixa de tamanho, e assinatura do dirty-check. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WidgetGeometryBenchmark {
+  private static final float DENSITY = 2.75f;
+
+  @Param({"110", "250"})
+  public int widthDp;
+
+  private List<WidgetGeometry> geometries;
+
+  @Setup
+  public void setup() {
+    geometries = Arrays.asList(WidgetGeometry.forSize(widthDp, 40, DENSITY), WidgetGeometry.forSize(widthDp, 90, DENSITY));
+  }
+
+  @Benchmark
+  public WidgetGeometry compute() {
+    return WidgetGeometry.compute(widthDp, 40, DENSITY);
+  }
+
+  @Benchmark
+  public WidgetGeometry cached() {
+    return WidgetGeometry.forSize(widthDp, 40, DENSITY);
+  }
+
+  @Benchmark
+  public long signature() {
+    return WidgetGeometry.signature(geometries);
+  }
+}
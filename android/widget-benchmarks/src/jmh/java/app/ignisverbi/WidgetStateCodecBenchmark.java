@@ -0,0 +1,37 @@
+package app.ignisverbi;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/** Codec do registro binário do widget (files/widget_state.bin) e do JSON legado de getDailyProgress. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WidgetStateCodecBenchmark {
+  private WidgetState state;
+  private byte[] encoded;
+
+  @Setup
+  public void setup() {
+    state = new WidgetState(73, true, DailyProgressEngine.parseIsoDay("2025-03-10"), 1741600000000L, 42);
+    encoded = WidgetState.encode(state);
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return WidgetState.encode(state);
+  }
+
+  @Benchmark
+  public WidgetState decode() {
+    return WidgetState.decode(encoded);
+  }
+
+  @Benchmark
+  public String legacyJson() {
+    return state.toJson();
+  }
+}
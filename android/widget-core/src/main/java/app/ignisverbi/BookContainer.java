@@ -0,0 +1,310 @@
+package app.ignisverbi;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Conteúdo de um livro estático (partes/capítulos/parágrafos, ver reading.ts) num arquivo binário com
+ * tabela de capítulos. Abrir mapeia o arquivo (FileChannel.map, só leitura) e decodifica apenas o
+ * sumário; cada capítulo, ou um intervalo dos seus parágrafos, é decodificado sob demanda direto do
+ * mapeamento, sem carregar o livro inteiro no heap.
+ *
+ * Layout (big-endian): magic:int | format:short | blocos de capítulo | sumário | trailer.
+ * Bloco: parágrafos:int | offsets int[parágrafos + 1] (relativos ao 1º registro) | registros
+ * (tipo: u16 + UTF-8 | conteúdo: int + UTF-8). Sumário: contentVersion | partes:int | por parte
+ * (título | capítulos:int | por capítulo (título | offset:long | parágrafos:int | palavras:int)), textos
+ * como u16 + UTF-8.
+ * Trailer: crc32 do sumário:int | offset do sumário:long | magic:int.
+ */
+public final class BookContainer {
+  public static final int MAGIC = 0x49564243; // "IVBC"
+  public static final short FORMAT = 1;
+  private static final int HEADER = 6;
+  private static final int TRAILER = 16;
+
+  public static final class Paragraph {
+    public final String type;
+    public final String content;
+
+    public Paragraph(String type, String content) {
+      this.type = type;
+      this.content = content;
+    }
+  }
+
+  /** Entrada do sumário; o conteúdo fica no arquivo. */
+  public static final class Chapter {
+    public final String title;
+    public final int paragraphs;
+    public final int words; // como countWordsInChapter do reading.ts
+    final long offset;
+
+    Chapter(String title, long offset, int paragraphs, int words) {
+      this.title = title;
+      this.offset = offset;
+      this.paragraphs = paragraphs;
+      this.words = words;
+    }
+  }
+
+  public static final class Part {
+    public final String title;
+    public final List<Chapter> chapters;
+
+    Part(String title, List<Chapter> chapters) {
+      this.title = title;
+      this.chapters = Collections.unmodifiableList(chapters);
+    }
+  }
+
+  public final String contentVersion;
+  public final List<Part> parts;
+  private final ByteBuffer data;
+
+  private BookContainer(String contentVersion, List<Part> parts, ByteBuffer data) {
+    this.contentVersion = contentVersion;
+    this.parts = Collections.unmodifiableList(parts);
+    this.data = data;
+  }
+
+  /** Mapeia {@code file} e lê só o sumário. IOException se o arquivo não for um contêiner válido. */
+  public static BookContainer open(File file) throws IOException {
+    MappedByteBuffer map;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel ch = raf.getChannel()) {
+      if (ch.size() < HEADER + TRAILER || ch.size() > Integer.MAX_VALUE) throw new IOException("Tamanho inválido: " + ch.size());
+      map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()); // o mapeamento sobrevive ao fechamento do canal
+    }
+    return of(map);
+  }
+
+  static BookContainer of(ByteBuffer data) throws IOException {
+    try {
+      int size = data.limit();
+      if (data.getInt(0) != MAGIC || data.getShort(4) != FORMAT || data.getInt(size - 4) != MAGIC) throw new IOException("Não é um contêiner de livro");
+      long tocOffset = data.getLong(size - 12);
+      if (tocOffset < HEADER || tocOffset > size - TRAILER) throw new IOException("Sumário fora do arquivo");
+      // Sumário copiado (pequeno): CRC32.update(ByteBuffer) só existe a partir da API 26
+      byte[] tocBytes = new byte[size - TRAILER - (int) tocOffset];
+      ByteBuffer d = data.duplicate();
+      d.position((int) tocOffset);
+      d.get(tocBytes);
+      CRC32 crc = new CRC32();
+      crc.update(tocBytes);
+      ByteBuffer toc = ByteBuffer.wrap(tocBytes);
+      if ((int) crc.getValue() != data.getInt(size - TRAILER)) throw new IOException("Sumário corrompido");
+      String contentVersion = readUtf(toc);
+      int partCount = toc.getInt();
+      if (partCount < 0) throw new IOException("Sumário inválido");
+      List<Part> parts = new ArrayList<>(Math.min(partCount, 1024));
+      for (int p = 0; p < partCount; p++) {
+        String title = readUtf(toc);
+        int chapterCount = toc.getInt();
+        if (chapterCount < 0 || chapterCount > toc.remaining()) throw new IOException("Sumário inválido");
+        List<Chapter> chapters = new ArrayList<>(chapterCount);
+        for (int c = 0; c < chapterCount; c++) {
+          String chapterTitle = readUtf(toc);
+          long offset = toc.getLong();
+          int paragraphs = toc.getInt();
+          int words = toc.getInt();
+          if (offset < HEADER || offset >= tocOffset || paragraphs < 0) throw new IOException("Capítulo fora do arquivo");
+          chapters.add(new Chapter(chapterTitle, offset, paragraphs, words));
+        }
+        parts.add(new Part(title, chapters));
+      }
+      return new BookContainer(contentVersion, parts, data);
+    } catch (RuntimeException e) {
+      throw new IOException("Contêiner inválido", e);
+    }
+  }
+
+  public Chapter chapter(int part, int chapter) {
+    if (part < 0 || part >= parts.size()) return null;
+    List<Chapter> chapters = parts.get(part).chapters;
+    return chapter < 0 || chapter >= chapters.size() ? null : chapters.get(chapter);
+  }
+
+  /** Parágrafos [from, to) do capítulo (intervalo ajustado aos limites); null se o capítulo não existir. */
+  public List<Paragraph> paragraphs(int part, int chapter, int from, int to) throws IOException {
+    Chapter ch = chapter(part, chapter);
+    if (ch == null) return null;
+    int start = Math.max(0, from);
+    int end = Math.min(ch.paragraphs, to);
+    if (start >= end) return new ArrayList<>();
+    try {
+      ByteBuffer b = data.duplicate();
+      int block = (int) ch.offset;
+      if (b.getInt(block) != ch.paragraphs) throw new IOException("Bloco do capítulo inconsistente");
+      int records = block + 4 + (ch.paragraphs + 1) * 4;
+      List<Paragraph> out = new ArrayList<>(end - start);
+      b.position(records + b.getInt(block + 4 + start * 4));
+      for (int i = start; i < end; i++) {
+        byte[] type = new byte[b.getShort() & 0xFFFF];
+        b.get(type);
+        byte[] content = new byte[b.getInt()];
+        b.get(content);
+        out.add(new Paragraph(new String(type, StandardCharsets.UTF_8), new String(content, StandardCharsets.UTF_8)));
+      }
+      return out;
+    } catch (RuntimeException e) {
+      throw new IOException("Capítulo corrompido " + part + "/" + chapter, e);
+    }
+  }
+
+  public List<Paragraph> paragraphs(int part, int chapter) throws IOException {
+    return paragraphs(part, chapter, 0, Integer.MAX_VALUE);
+  }
+
+  /** Palavras por capítulo do sumário, no formato do índice de palavras. */
+  public WordIndex wordIndex() {
+    int[][] words = new int[parts.size()][];
+    for (int p = 0; p < words.length; p++) {
+      List<Chapter> chapters = parts.get(p).chapters;
+      words[p] = new int[chapters.size()];
+      for (int c = 0; c < words[p].length; c++) words[p][c] = chapters.get(c).words;
+    }
+    return WordIndex.of(contentVersion, words);
+  }
+
+  /** Palavras como {@code content.trim().split(/\s+/).filter(Boolean).length}: sequências sem espaço do JS. */
+  static int countWords(String s) {
+    int words = 0;
+    boolean inWord = false;
+    for (int i = 0; i < s.length(); i++) {
+      if (EpubIndexer.isJsSpace(s.charAt(i))) {
+        inWord = false;
+      } else if (!inWord) {
+        inWord = true;
+        words++;
+      }
+    }
+    return words;
+  }
+
+  /** u16 + UTF-8 padrão (writeUTF usa o UTF-8 modificado do Java, que difere em NUL e fora do BMP). */
+  private static void writeUtf(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF) throw new IOException("Texto longo demais para o sumário: " + bytes.length + " bytes");
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readUtf(ByteBuffer b) {
+    byte[] bytes = new byte[b.getShort() & 0xFFFF];
+    b.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Grava um contêiner em fluxo: só o capítulo corrente fica em memória. Uso: beginPart, beginChapter,
+   * paragraph..., (endChapter implícito no próximo begin) e finish.
+   */
+  public static final class Writer implements AutoCloseable {
+    private final DataOutputStream out;
+    private final String contentVersion;
+    private final List<String> partTitles = new ArrayList<>();
+    private final List<List<Chapter>> partChapters = new ArrayList<>();
+    private long written;
+    private String chapterTitle;
+    private final ByteArrayOutputStream records = new ByteArrayOutputStream(16 * 1024);
+    private final DataOutputStream recordOut = new DataOutputStream(records);
+    private final List<Integer> offsets = new ArrayList<>();
+    private int chapterWords;
+    private boolean finished;
+
+    public Writer(File dest, String contentVersion) throws IOException {
+      this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dest), 64 * 1024));
+      this.contentVersion = contentVersion == null ? "" : contentVersion;
+      out.writeInt(MAGIC);
+      out.writeShort(FORMAT);
+      written = HEADER;
+    }
+
+    public Writer beginPart(String title) throws IOException {
+      endChapter();
+      partTitles.add(title == null ? "" : title);
+      partChapters.add(new ArrayList<>());
+      return this;
+    }
+
+    public Writer beginChapter(String title) throws IOException {
+      endChapter();
+      if (partChapters.isEmpty()) beginPart("");
+      chapterTitle = title == null ? "" : title;
+      return this;
+    }
+
+    public Writer paragraph(String type, String content) throws IOException {
+      if (chapterTitle == null) throw new IllegalStateException("paragraph fora de capítulo");
+      byte[] c = (content == null ? "" : content).getBytes(StandardCharsets.UTF_8);
+      offsets.add(records.size());
+      writeUtf(recordOut, type == null ? "" : type);
+      recordOut.writeInt(c.length);
+      recordOut.write(c);
+      if (content != null) chapterWords += countWords(content);
+      return this;
+    }
+
+    private void endChapter() throws IOException {
+      if (chapterTitle == null) return;
+      int n = offsets.size();
+      partChapters.get(partChapters.size() - 1).add(new Chapter(chapterTitle, written, n, chapterWords));
+      out.writeInt(n);
+      for (int off : offsets) out.writeInt(off);
+      out.writeInt(records.size());
+      records.writeTo(out);
+      written += 4 + (n + 1) * 4L + records.size();
+      if (written > Integer.MAX_VALUE) throw new IOException("Livro grande demais para o contêiner");
+      records.reset();
+      offsets.clear();
+      chapterWords = 0;
+      chapterTitle = null;
+    }
+
+    /** Fecha o último capítulo e grava sumário e trailer. */
+    public void finish() throws IOException {
+      endChapter();
+      ByteArrayOutputStream toc = new ByteArrayOutputStream(1024);
+      DataOutputStream t = new DataOutputStream(toc);
+      writeUtf(t, contentVersion);
+      t.writeInt(partTitles.size());
+      for (int p = 0; p < partTitles.size(); p++) {
+        writeUtf(t, partTitles.get(p));
+        List<Chapter> chapters = partChapters.get(p);
+        t.writeInt(chapters.size());
+        for (Chapter c : chapters) {
+          writeUtf(t, c.title);
+          t.writeLong(c.offset);
+          t.writeInt(c.paragraphs);
+          t.writeInt(c.words);
+        }
+      }
+      t.flush();
+      CRC32 crc = new CRC32();
+      crc.update(toc.toByteArray());
+      toc.writeTo(out);
+      out.writeInt((int) crc.getValue());
+      out.writeLong(written);
+      out.writeInt(MAGIC);
+      out.close();
+      finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!finished) out.close();
+    }
+  }
+}
@@ -0,0 +1,236 @@
+package app.ignisverbi;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Lista imutável dos livros com plano ativo exibidos pelo widget de coleção, com o percent diário de
+ * cada um. Cada linha tem um id estável (hash do bookId) para o RemoteViewsFactory; upsert devolve um
+ * snapshot novo que reaproveita as instâncias das linhas que não mudaram, e o factory usa essa
+ * identidade para só remontar as linhas alteradas.
+ *
+ * Layout (big-endian): magic:int | format:short | count:short | linhas | crc32:int, cada linha
+ * percent:byte | epochDay:long | ts:long | bookId:short+UTF-8 | title:short+UTF-8.
+ */
+public final class BookSnapshot {
+  public static final int MAGIC = 0x49564253; // "IVBS"
+  public static final short FORMAT = 1;
+  public static final int MAX_ROWS = 64;
+  private static final int MAX_TITLE_BYTES = 256;
+
+  public static final BookSnapshot EMPTY = new BookSnapshot(Collections.<Row>emptyList());
+
+  /** "0%".."100%" pré-montados: o bind de uma linha não aloca texto. */
+  private static final String[] PERCENT_TEXT = new String[101];
+  static {
+    for (int i = 0; i <= 100; i++) PERCENT_TEXT[i] = i + "%";
+  }
+
+  public static final class Row {
+    public final long id;
+    public final String bookId;
+    public final String title;
+    public final int percent;
+    public final long epochDay; // dia do percent; de outro dia a linha mostra 0%
+    public final long ts;
+
+    public Row(String bookId, String title, int percent, long epochDay, long ts) {
+      this.id = stableId(bookId);
+      this.bookId = bookId;
+      this.title = title == null ? "" : title;
+      this.percent = Math.max(0, Math.min(100, percent));
+      this.epochDay = epochDay;
+      this.ts = ts;
+    }
+
+    /** Percent a exibir em {@code todayEpochDay}: o progresso diário zera na virada. */
+    public int percentOn(long todayEpochDay) {
+      return epochDay == todayEpochDay ? percent : 0;
+    }
+
+    public String percentTextOn(long todayEpochDay) {
+      return PERCENT_TEXT[percentOn(todayEpochDay)];
+    }
+
+    boolean sameContent(String title, int percent, long epochDay) {
+      return this.title.equals(title) && this.percent == percent && this.epochDay == epochDay;
+    }
+  }
+
+  private final List<Row> rows;
+
+  private BookSnapshot(List<Row> rows) {
+    this.rows = rows;
+  }
+
+  public static BookSnapshot of(List<Row> rows) {
+    if (rows == null || rows.isEmpty()) return EMPTY;
+    List<Row> out = new ArrayList<>(Math.min(rows.size(), MAX_ROWS));
+    for (Row r : rows) {
+      if (r == null || r.bookId == null || indexOf(out, r.bookId) >= 0) continue;
+      out.add(r);
+      if (out.size() == MAX_ROWS) break;
+    }
+    return new BookSnapshot(Collections.unmodifiableList(out));
+  }
+
+  public int size() { return rows.size(); }
+
+  public Row get(int position) { return rows.get(position); }
+
+  public int indexOf(String bookId) { return indexOf(rows, bookId); }
+
+  private static int indexOf(List<Row> rows, String bookId) {
+    for (int i = 0; i < rows.size(); i++) if (rows.get(i).bookId.equals(bookId)) return i;
+    return -1;
+  }
+
+  /**
+   * Insere/atualiza a linha de {@code bookId} ({@code title} null mantém o atual); sem meta a linha sai
+   * da lista. Retorna {@code this} se nada mudou.
+   */
+  public BookSnapshot upsert(String bookId, String title, int percent, boolean hasGoal, long epochDay, long ts) {
+    if (bookId == null) return this;
+    int i = indexOf(bookId);
+    if (!hasGoal) {
+      if (i < 0) return this;
+      List<Row> out = new ArrayList<>(rows);
+      out.remove(i);
+      return of(out);
+    }
+    Row prev = i < 0 ? null : rows.get(i);
+    String t = title != null ? title : prev != null ? prev.title : "";
+    int p = Math.max(0, Math.min(100, percent));
+    if (prev != null && prev.sameContent(t, p, epochDay)) return this;
+    if (prev == null && rows.size() >= MAX_ROWS) return this;
+    List<Row> out = new ArrayList<>(rows);
+    Row next = new Row(bookId, t, p, epochDay, ts);
+    if (prev == null) out.add(next);
+    else out.set(i, next);
+    return of(out);
+  }
+
+  /** Substitui a lista inteira, reaproveitando as linhas de {@code this} com o mesmo conteúdo. */
+  public BookSnapshot replace(List<Row> next) {
+    List<Row> out = new ArrayList<>(next.size());
+    boolean changed = next.size() != rows.size();
+    for (int k = 0; k < next.size(); k++) {
+      Row n = next.get(k);
+      int i = indexOf(n.bookId);
+      Row prev = i < 0 ? null : rows.get(i);
+      if (prev != null && prev.sameContent(n.title, n.percent, n.epochDay)) {
+        out.add(prev);
+        changed |= i != k;
+      } else {
+        out.add(n);
+        changed = true;
+      }
+    }
+    return changed ? of(out) : this;
+  }
+
+  /** Linhas de {@code next} que não existem (por identidade) em {@code prev}: as que o factory remonta. */
+  public static int changedRows(BookSnapshot prev, BookSnapshot next) {
+    int n = 0;
+    for (Row r : next.rows) {
+      int i = prev.indexOf(r.bookId);
+      if (i < 0 || prev.rows.get(i) != r) n++;
+    }
+    return n;
+  }
+
+  /** bookIds cujas linhas mudaram, entraram ou saíram entre {@code prev} e {@code next}. */
+  public static List<String> changedBookIds(BookSnapshot prev, BookSnapshot next) {
+    List<String> out = new ArrayList<>();
+    for (Row r : next.rows) {
+      int i = prev.indexOf(r.bookId);
+      if (i < 0 || prev.rows.get(i) != r) out.add(r.bookId);
+    }
+    for (Row r : prev.rows) if (next.indexOf(r.bookId) < 0) out.add(r.bookId);
+    return out;
+  }
+
+  /** FNV-1a 64 do bookId: estável entre processos e versões do app. */
+  public static long stableId(String bookId) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < bookId.length(); i++) {
+      h ^= bookId.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    return h;
+  }
+
+  public byte[] encode() {
+    int size = 4 + 2 + 2 + 4;
+    byte[][] ids = new byte[rows.size()][];
+    byte[][] titles = new byte[rows.size()][];
+    for (int i = 0; i < rows.size(); i++) {
+      ids[i] = rows.get(i).bookId.getBytes(StandardCharsets.UTF_8);
+      titles[i] = truncate(rows.get(i).title.getBytes(StandardCharsets.UTF_8));
+      size += 1 + 8 + 8 + 2 + ids[i].length + 2 + titles[i].length;
+    }
+    ByteBuffer buf = ByteBuffer.allocate(size);
+    buf.putInt(MAGIC);
+    buf.putShort(FORMAT);
+    buf.putShort((short) rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      Row r = rows.get(i);
+      buf.put((byte) r.percent);
+      buf.putLong(r.epochDay);
+      buf.putLong(r.ts);
+      buf.putShort((short) ids[i].length);
+      buf.put(ids[i]);
+      buf.putShort((short) titles[i].length);
+      buf.put(titles[i]);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(buf.array(), 0, size - 4);
+    buf.putInt((int) crc.getValue());
+    return buf.array();
+  }
+
+  /** Retorna null se os dados estiverem truncados, corrompidos ou em formato desconhecido. */
+  public static BookSnapshot decode(byte[] data) {
+    if (data == null || data.length < 12) return null;
+    CRC32 crc = new CRC32();
+    crc.update(data, 0, data.length - 4);
+    ByteBuffer buf = ByteBuffer.wrap(data);
+    if (buf.getInt(data.length - 4) != (int) crc.getValue()) return null;
+    if (buf.getInt() != MAGIC || buf.getShort() != FORMAT) return null;
+    try {
+      int count = buf.getShort();
+      List<Row> out = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        int percent = buf.get();
+        long day = buf.getLong();
+        long ts = buf.getLong();
+        String bookId = readString(buf);
+        String title = readString(buf);
+        out.add(new Row(bookId, title, percent, day, ts));
+      }
+      return of(out);
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static String readString(ByteBuffer buf) {
+    int len = buf.getShort();
+    String s = new String(buf.array(), buf.position(), len, StandardCharsets.UTF_8);
+    buf.position(buf.position() + len);
+    return s;
+  }
+
+  private static byte[] truncate(byte[] utf8) {
+    if (utf8.length <= MAX_TITLE_BYTES) return utf8;
+    int end = MAX_TITLE_BYTES;
+    while (end > 0 && (utf8[end] & 0xC0) == 0x80) end--; // não corta no meio de um caractere
+    byte[] out = new byte[end];
+    System.arraycopy(utf8, 0, out, 0, end);
+    return out;
+  }
+}
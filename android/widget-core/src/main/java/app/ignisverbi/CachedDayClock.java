@@ -0,0 +1,118 @@
+package app.ignisverbi;
+
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DayClock com o dia corrente em cache. Guarda o epoch-day, o fuso e o intervalo [início, próxima
+ * virada) do dia; enquanto o instante cai nesse intervalo, "hoje" e a próxima virada não recalculam
+ * nada (sem Calendar nem TimeZone.getDefault por render). Recalcula ao cruzar a virada, se o relógio
+ * voltar para antes do início, ao mudar a hora de início ou em {@link #invalidate()} (TIME_CHANGED /
+ * TIMEZONE_CHANGED).
+ */
+public final class CachedDayClock implements DayClock {
+  private final DayClock source;
+  private volatile int startHour;
+  private volatile Day day; // null = recalcular
+
+  // Diagnóstico (getDebugState), lido por stats()
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong recomputes = new AtomicLong();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  private static final class Day {
+    final long epochDay;
+    final long fromMs;
+    final long untilMs;
+    final TimeZone zone;
+    final int startHour;
+
+    Day(long epochDay, long fromMs, long untilMs, TimeZone zone, int startHour) {
+      this.epochDay = epochDay;
+      this.fromMs = fromMs;
+      this.untilMs = untilMs;
+      this.zone = zone;
+      this.startHour = startHour;
+    }
+  }
+
+  public CachedDayClock(DayClock source) {
+    this.source = source;
+  }
+
+  @Override
+  public long nowMs() {
+    return source.nowMs();
+  }
+
+  @Override
+  public TimeZone zone() {
+    return current(source.nowMs()).zone;
+  }
+
+  @Override
+  public int dayStartHour() {
+    return startHour;
+  }
+
+  @Override
+  public long todayEpochDay() {
+    return current(source.nowMs()).epochDay;
+  }
+
+  @Override
+  public long epochDayAt(long epochMs) {
+    Day d = current(source.nowMs());
+    if (epochMs >= d.fromMs && epochMs < d.untilMs) return d.epochDay;
+    return DayClock.epochDay(epochMs, d.zone, d.startHour);
+  }
+
+  @Override
+  public long nextBoundaryMs() {
+    return current(source.nowMs()).untilMs;
+  }
+
+  /** Início do dia corrente (epoch ms). */
+  public long dayStartMs() {
+    return current(source.nowMs()).fromMs;
+  }
+
+  /** Hora local (0-23) em que o dia começa; valores fora da faixa viram 0. */
+  public void setDayStartHour(int hour) {
+    int h = hour < 0 || hour > 23 ? 0 : hour;
+    if (h == startHour) return;
+    startHour = h;
+    invalidate();
+  }
+
+  /** Descarta o cache: relógio ajustado ou fuso trocado. */
+  public void invalidate() {
+    day = null;
+    invalidations.incrementAndGet();
+  }
+
+  /** Contadores de diagnóstico: { hits, recomputes, invalidations }. */
+  public long[] stats() {
+    return new long[] { hits.get(), recomputes.get(), invalidations.get() };
+  }
+
+  private Day current(long now) {
+    Day d = day;
+    if (d != null && now >= d.fromMs && now < d.untilMs) {
+      hits.incrementAndGet();
+      return d;
+    }
+    recomputes.incrementAndGet();
+    int hour = startHour;
+    TimeZone tz = source.zone();
+    long epochDay = DayClock.epochDay(now, tz, hour);
+    long from = DayClock.boundaryMs(epochDay, tz, hour);
+    long until = DayClock.boundaryMs(epochDay + 1, tz, hour);
+    // Hora repetida/pulada no horário de verão: o intervalo sempre contém o instante atual
+    if (from > now) from = now;
+    if (until <= now) until = now + 1;
+    d = new Day(epochDay, from, until, tz, hour);
+    day = d;
+    return d;
+  }
+}
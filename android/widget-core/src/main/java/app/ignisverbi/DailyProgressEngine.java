@@ -0,0 +1,213 @@
+package app.ignisverbi;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Motor puro-Java do progresso diário. Espelha as fórmulas de src/lib/reading.ts
+ * (computeDaysRemaining, computeDailyTargetWords, computeDailyProgressPercent) e de
+ * src/lib/percentageUtils.ts para que a virada do dia seja calculada sem subir o WebView.
+ *
+ * Não depende de nenhuma classe Android: pode ser testado na JVM.
+ */
+public final class DailyProgressEngine {
+  public static final int KIND_EPUB = 0;     // percent-based (EPUB do usuário ou estático tipo epub)
+  public static final int KIND_PHYSICAL = 1; // páginas (livro físico)
+  public static final int KIND_STATIC = 2;   // palavras (livro estático em partes/capítulos)
+
+  /** Dia sem valor (ex.: plano sem data alvo). */
+  public static final long NO_DAY = Long.MIN_VALUE;
+
+  private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+  private DailyProgressEngine() {}
+
+  /** Entradas empurradas pelo JS via WidgetUpdater.applyState / setProgressInputs. */
+  public static final class Inputs {
+    public String bookId;                  // livro ativo; o stream de progresso só se aplica a ele
+    public int kind = KIND_EPUB;
+    public long targetEpochDay = NO_DAY;   // plan.targetDateISO
+    public long baselineEpochDay = NO_DAY; // dia ao qual o baseline pertence
+    public double baselinePercent;
+    public int baselineWords;
+    public int baselinePage = -1;          // -1 = desconhecido (usa baselinePercent)
+    public double currentPercent;
+    public int currentWords;
+    public int currentPage;
+    public int totalPages;
+    public int targetWords;
+    // Baseline de amanhã pré-calculado pelo JS; usado na virada em vez do progresso atual
+    public long nextBaselineEpochDay = NO_DAY;
+    public double nextBaselinePercent;
+    public int nextBaselineWords;
+    public int nextBaselinePage = -1;
+    // _modified da linha local de progresso (a que vai no push); o pull nativo ignora linhas do servidor até ele
+    public long localModified;
+
+    public Inputs copy() {
+      Inputs c = new Inputs();
+      c.bookId = bookId;
+      c.kind = kind;
+      c.targetEpochDay = targetEpochDay;
+      c.baselineEpochDay = baselineEpochDay;
+      c.baselinePercent = baselinePercent;
+      c.baselineWords = baselineWords;
+      c.baselinePage = baselinePage;
+      c.currentPercent = currentPercent;
+      c.currentWords = currentWords;
+      c.currentPage = currentPage;
+      c.totalPages = totalPages;
+      c.targetWords = targetWords;
+      c.nextBaselineEpochDay = nextBaselineEpochDay;
+      c.nextBaselinePercent = nextBaselinePercent;
+      c.nextBaselineWords = nextBaselineWords;
+      c.nextBaselinePage = nextBaselinePage;
+      c.localModified = localModified;
+      return c;
+    }
+  }
+
+  /** Resultado pronto para widget:dailyProgress. */
+  public static final class Result {
+    public final int percent;
+    public final boolean hasGoal;
+
+    Result(int percent, boolean hasGoal) {
+      this.percent = percent;
+      this.hasGoal = hasGoal;
+    }
+  }
+
+  /**
+   * Calcula o percentual diário para o dia {@code todayEpochDay}. Se o baseline pertence a outro dia,
+   * usa o baseline de amanhã pré-calculado (quando é deste dia) ou o progresso atual vira o baseline de
+   * hoje (mesma regra do dailyRefresh.ts quando não há baseline).
+   * Retorna null quando o JS também não atualizaria o widget (meta diária nula).
+   */
+  public static Result compute(Inputs in, long todayEpochDay) {
+    if (in == null) return null;
+    if (in.targetEpochDay == NO_DAY) return new Result(0, false);
+    if (in.baselineEpochDay != todayEpochDay && in.nextBaselineEpochDay == todayEpochDay) {
+      Inputs rolled = in.copy();
+      rolled.baselineEpochDay = todayEpochDay;
+      rolled.baselinePercent = in.nextBaselinePercent;
+      rolled.baselineWords = in.nextBaselineWords;
+      rolled.baselinePage = in.nextBaselinePage;
+      in = rolled;
+    }
+    boolean sameDay = in.baselineEpochDay == todayEpochDay;
+    int daysRemaining = daysRemaining(in.targetEpochDay, todayEpochDay);
+
+    if (in.kind == KIND_STATIC) {
+      int baselineWords = sameDay ? in.baselineWords : in.currentWords;
+      int dailyTargetWords = dailyTargetWords(in.targetWords, baselineWords, daysRemaining);
+      int achieved = Math.max(0, in.currentWords - baselineWords);
+      int percent = progressPercent(achieved, dailyTargetWords);
+      if (percent < 0) return null;
+      return new Result(percent, dailyTargetWords > 0);
+    }
+
+    double baselinePercent = sameDay ? in.baselinePercent : in.currentPercent;
+
+    if (in.kind == KIND_PHYSICAL && in.totalPages > 0) {
+      // widgetService.ts: ramo físico baseado em páginas
+      int baselinePage;
+      if (!sameDay) baselinePage = in.currentPage;
+      else if (in.baselinePage >= 0) baselinePage = in.baselinePage;
+      else baselinePage = (int) Math.round(baselinePercent / 100d * in.totalPages);
+      int pagesReadToday = Math.max(0, in.currentPage - baselinePage);
+      double dailyTargetPercent = Math.max(0d, 100d - baselinePercent) / daysRemaining;
+      int pagesExpectedToday = (int) Math.ceil(dailyTargetPercent / 100d * in.totalPages);
+      int percent = 0;
+      if (pagesExpectedToday > 0) percent = calculatePercent(pagesReadToday, pagesExpectedToday);
+      else if (pagesReadToday > 0) percent = 100;
+      return new Result(clamp(percent), true);
+    }
+
+    // dailyRefresh.ts: ramo EPUB/físico baseado em percentual
+    int dailyTargetPercent = (int) Math.ceil(Math.max(0d, 100d - baselinePercent) / daysRemaining);
+    double achievedPercentToday = Math.max(0d, in.currentPercent - baselinePercent);
+    int percent = progressPercent(achievedPercentToday, dailyTargetPercent);
+    if (percent < 0) return null;
+    return new Result(percent, dailyTargetPercent > 0);
+  }
+
+  /** computeDaysRemaining: dias de calendário até o alvo, inclusive hoje, mínimo 1. */
+  public static int daysRemaining(long targetEpochDay, long todayEpochDay) {
+    long diff = targetEpochDay - todayEpochDay;
+    return (int) Math.max(1L, Math.min(Integer.MAX_VALUE, diff + 1));
+  }
+
+  /** computeDailyTargetWords: ceil(max(0, alvo - baseline) / diasRestantes). */
+  public static int dailyTargetWords(int targetWords, int baselineWords, int daysRemaining) {
+    if (daysRemaining <= 0) return -1;
+    long remaining = Math.max(0L, (long) targetWords - baselineWords);
+    return (int) ((remaining + daysRemaining - 1) / daysRemaining);
+  }
+
+  /** calculateProgressPercent: -1 quando a meta é inválida (null no TS). */
+  public static int progressPercent(double achieved, double target) {
+    if (!(target > 0)) return -1;
+    return calculatePercent(achieved, target);
+  }
+
+  /** calculatePercent com min=0, max=100, round=true. */
+  public static int calculatePercent(double part, double total) {
+    if (total <= 0 || part < 0) return 0;
+    double percent = (part / total) * 100d;
+    return (int) Math.round(Math.max(0d, Math.min(100d, percent)));
+  }
+
+  private static int clamp(int p) { return Math.max(0, Math.min(100, p)); }
+
+  /** Converte "yyyy-MM-dd" em epoch-day sem java.time (minSdk 23). Retorna NO_DAY se inválido. */
+  public static long parseIsoDay(String iso) {
+    if (iso == null || iso.length() < 10) return NO_DAY;
+    try {
+      int y = Integer.parseInt(iso.substring(0, 4));
+      int m = Integer.parseInt(iso.substring(5, 7));
+      int d = Integer.parseInt(iso.substring(8, 10));
+      if (iso.charAt(4) != '-' || iso.charAt(7) != '-' || m < 1 || m > 12 || d < 1 || d > 31) return NO_DAY;
+      return epochDay(y, m, d);
+    } catch (NumberFormatException e) {
+      return NO_DAY;
+    }
+  }
+
+  /** Algoritmo days-from-civil (proléptico gregoriano). */
+  public static long epochDay(int year, int month, int day) {
+    long y = month <= 2 ? year - 1 : year;
+    long era = Math.floorDiv(y, 400);
+    long yoe = y - era * 400;
+    long mp = (month + 9) % 12;
+    long doy = (153 * mp + 2) / 5 + day - 1;
+    long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+    return era * 146097 + doe - 719468;
+  }
+
+  /** Epoch-day local para o instante dado no fuso informado. */
+  public static long localEpochDay(long epochMs, TimeZone tz) {
+    return Math.floorDiv(epochMs + tz.getOffset(epochMs), DAY_MS);
+  }
+
+  public static long todayEpochDay() {
+    return localEpochDay(System.currentTimeMillis(), TimeZone.getDefault());
+  }
+
+  /** Formata um epoch-day como "yyyy-MM-dd" (mesmo formato de widget:dailyProgress.day). */
+  public static String formatIsoDay(long epochDay) {
+    Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    cal.clear();
+    cal.setTimeInMillis(epochDay * DAY_MS);
+    int y = cal.get(Calendar.YEAR);
+    int m = cal.get(Calendar.MONTH) + 1;
+    int d = cal.get(Calendar.DAY_OF_MONTH);
+    StringBuilder sb = new StringBuilder(10);
+    sb.append(y).append('-');
+    if (m < 10) sb.append('0');
+    sb.append(m).append('-');
+    if (d < 10) sb.append('0');
+    sb.append(d);
+    return sb.toString();
+  }
+}
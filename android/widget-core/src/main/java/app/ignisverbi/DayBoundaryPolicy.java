@@ -0,0 +1,69 @@
+package app.ignisverbi;
+
+/**
+ * Decide, sem Android, quais mecanismos armam a virada do dia e como classificar cada alarm agendado.
+ * Um único alarm por dia é o caminho normal; o WorkManager periódico só fica ligado como rede de
+ * segurança enquanto o alarm não provou ser confiável (ou voltou a falhar), e o alarm passa a
+ * setAndAllowWhileIdle quando o Doze/standby bucket o atrasa.
+ */
+public final class DayBoundaryPolicy {
+  public static final long WINDOW_MS = 15 * 60 * 1000;      // setWindow a partir da meia-noite
+  public static final long TOLERANCE_MS = WINDOW_MS + 5 * 60 * 1000; // além disso o alarm conta como atrasado
+  /** Dias seguidos no horário até desligar o WorkManager periódico. */
+  public static final int RELIABLE_STREAK = 3;
+  /** Depois de uma falha, dias com allowWhileIdle antes de voltar ao setWindow simples. */
+  public static final int ESCALATION_DAYS = 7;
+
+  // UsageStatsManager.STANDBY_BUCKET_* (API 28+); 0 = desconhecido
+  public static final int BUCKET_ACTIVE = 10;
+  public static final int BUCKET_WORKING_SET = 20;
+  public static final int BUCKET_FREQUENT = 30;
+  public static final int BUCKET_RARE = 40;
+  public static final int BUCKET_RESTRICTED = 45;
+
+  public static final int PENDING = 0;
+  public static final int ON_TIME = 1;
+  public static final int LATE = 2;
+  public static final int MISSED = 3;
+
+  private DayBoundaryPolicy() {}
+
+  /** Mecanismos a armar para a próxima meia-noite. */
+  public static final class Plan {
+    public final String mode;
+    public final boolean allowWhileIdle; // setAndAllowWhileIdle em vez de setWindow
+    public final boolean periodicWork;   // WorkManager diário como rede de segurança
+
+    Plan(String mode, boolean allowWhileIdle, boolean periodicWork) {
+      this.mode = mode;
+      this.allowWhileIdle = allowWhileIdle;
+      this.periodicWork = periodicWork;
+    }
+
+    /** Wakeups agendados por dia (o alarm e, se ligado, o worker). */
+    public int wakeupsPerDay() { return 1 + (periodicWork ? 1 : 0); }
+  }
+
+  /**
+   * @param sdkInt Build.VERSION.SDK_INT
+   * @param standbyBucket bucket do App Standby (0 se desconhecido / API < 28)
+   * @param streak dias seguidos com o alarm no horário
+   * @param daysSinceMiss dias desde o último alarm atrasado/perdido (negativo = nunca)
+   */
+  public static Plan plan(int sdkInt, int standbyBucket, int streak, long daysSinceMiss) {
+    boolean recentMiss = daysSinceMiss >= 0 && daysSinceMiss < ESCALATION_DAYS;
+    if (standbyBucket >= BUCKET_RARE) {
+      // Rare/restricted: alarms comuns são adiados por horas; jobs também, mas seguem como rede
+      return new Plan("restricted", true, true);
+    }
+    if (streak >= RELIABLE_STREAK) return new Plan(recentMiss ? "alarm_idle" : "alarm", recentMiss, false);
+    // Antes do O o DATE_CHANGED do manifest ainda chega e já cobre a virada sem wakeup extra
+    return new Plan(recentMiss ? "escalated" : "learning", recentMiss, recentMiss || sdkInt >= 26);
+  }
+
+  /** Classifica o alarm de {@code targetMs}: disparou ({@code firedAtMs > 0}) a tempo, atrasado, ou ainda não. */
+  public static int outcome(long targetMs, long firedAtMs, long nowMs) {
+    if (firedAtMs > 0) return firedAtMs - targetMs <= TOLERANCE_MS ? ON_TIME : LATE;
+    return nowMs - targetMs > TOLERANCE_MS ? MISSED : PENDING;
+  }
+}
@@ -0,0 +1,84 @@
+package app.ignisverbi;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Relógio do dia local usado pela virada do dia (alarm da meia-noite, WorkManager, staleness do widget).
+ * Interface para que testes e benchmarks rodem na JVM pura com instante/fuso fixos.
+ *
+ * <p>O dia pode começar numa hora configurável ({@link #dayStartHour()}): com 3, 01:30 ainda conta como
+ * o dia anterior e a virada é às 03:00 locais. O padrão é meia-noite.
+ */
+public interface DayClock {
+  long nowMs();
+
+  TimeZone zone();
+
+  /** Hora local (0-23) em que o dia começa. */
+  default int dayStartHour() {
+    return 0;
+  }
+
+  default long todayEpochDay() {
+    return epochDayAt(nowMs());
+  }
+
+  /** Dia a que o instante pertence, no fuso e hora de início deste relógio. */
+  default long epochDayAt(long epochMs) {
+    return epochDay(epochMs, zone(), dayStartHour());
+  }
+
+  /** Próxima meia-noite local (epoch ms), estritamente depois de agora. */
+  default long nextMidnightMs() {
+    return nextMidnightMs(nowMs(), zone());
+  }
+
+  /** Próxima virada do dia (meia-noite ou a hora de início), estritamente depois de agora. */
+  default long nextBoundaryMs() {
+    int hour = dayStartHour();
+    if (hour == 0) return nextMidnightMs();
+    long now = nowMs();
+    return boundaryMs(epochDay(now, zone(), hour) + 1, zone(), hour);
+  }
+
+  DayClock SYSTEM = new DayClock() {
+    @Override
+    public long nowMs() { return System.currentTimeMillis(); }
+
+    @Override
+    public TimeZone zone() { return TimeZone.getDefault(); }
+  };
+
+  /** Mesma conta do RefreshScheduler original: amanhã às 00:00:00.000 no fuso informado. */
+  static long nextMidnightMs(long nowMs, TimeZone tz) {
+    Calendar cal = Calendar.getInstance(tz);
+    cal.setTimeInMillis(nowMs);
+    cal.add(Calendar.DAY_OF_YEAR, 1);
+    cal.set(Calendar.HOUR_OF_DAY, 0);
+    cal.set(Calendar.MINUTE, 0);
+    cal.set(Calendar.SECOND, 0);
+    cal.set(Calendar.MILLISECOND, 0);
+    return cal.getTimeInMillis();
+  }
+
+  /** Epoch-day do instante contando o dia a partir de {@code startHour} (hora local). */
+  static long epochDay(long epochMs, TimeZone tz, int startHour) {
+    if (startHour == 0) return DailyProgressEngine.localEpochDay(epochMs, tz);
+    return Math.floorDiv(epochMs + tz.getOffset(epochMs) - startHour * 3_600_000L, 86_400_000L);
+  }
+
+  /**
+   * Instante em que {@code epochDay} começa: {@code startHour}:00 locais daquele dia. Uma hora que não
+   * existe (início do horário de verão) cai na primeira hora válida, como no Calendar leniente.
+   */
+  static long boundaryMs(long epochDay, TimeZone tz, int startHour) {
+    Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    utc.clear();
+    utc.setTimeInMillis(epochDay * 86_400_000L);
+    Calendar cal = Calendar.getInstance(tz);
+    cal.clear();
+    cal.set(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DAY_OF_MONTH), startHour, 0, 0);
+    return cal.getTimeInMillis();
+  }
+}
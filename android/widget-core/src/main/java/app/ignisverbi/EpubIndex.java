@@ -0,0 +1,184 @@
+package app.ignisverbi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Índice pré-computado de um EPUB: tabela de locations no formato do epub.js
+ * ({@code book.locations.generate(500)}, CFIs de range) e, por item do spine, caracteres e palavras
+ * com os offsets acumulados. {@code sourceKey} identifica a origem indexada (hash do arquivo, asset +
+ * versão do app) para descartar índices de outra versão do livro.
+ *
+ * Layout (big-endian): magic:int | format:short | charsPerLocation:int | sourceKey:UTF | count:int |
+ * seções (href:UTF | cfiBase:UTF | chars:int | words:int | locationCount:int) | locations:int |
+ * CFIs (UTF) | crc32:int.
+ */
+public final class EpubIndex {
+  public static final int MAGIC = 0x49564549; // "IVEI"
+  public static final short FORMAT = 1;
+  /** Mesmo passo do leitor (EpubReaderV3: book.locations.generate(500)). */
+  public static final int CHARS_PER_LOCATION = 500;
+
+  /** Item linear do spine. */
+  public static final class Section {
+    public final String href;    // caminho da entrada no zip
+    public final String cfiBase; // /6/4[id]
+    public final int chars;      // caracteres dos nós de texto não vazios do body
+    public final int words;
+    public final long charOffset;
+    public final long wordOffset;
+    public final int firstLocation;
+    public final int locationCount;
+
+    Section(String href, String cfiBase, int chars, int words, long charOffset, long wordOffset, int firstLocation, int locationCount) {
+      this.href = href;
+      this.cfiBase = cfiBase;
+      this.chars = chars;
+      this.words = words;
+      this.charOffset = charOffset;
+      this.wordOffset = wordOffset;
+      this.firstLocation = firstLocation;
+      this.locationCount = locationCount;
+    }
+  }
+
+  public final String sourceKey;
+  public final int charsPerLocation;
+  public final List<Section> sections;
+  public final List<String> locations;
+  public final long totalChars;
+  public final long totalWords;
+
+  private EpubIndex(String sourceKey, int charsPerLocation, List<Section> sections, List<String> locations) {
+    this.sourceKey = sourceKey == null ? "" : sourceKey;
+    this.charsPerLocation = charsPerLocation;
+    this.sections = Collections.unmodifiableList(sections);
+    this.locations = Collections.unmodifiableList(locations);
+    Section last = sections.isEmpty() ? null : sections.get(sections.size() - 1);
+    this.totalChars = last == null ? 0 : last.charOffset + last.chars;
+    this.totalWords = last == null ? 0 : last.wordOffset + last.words;
+  }
+
+  /** Monta as seções na ordem do spine, acumulando offsets. */
+  static final class Builder {
+    private final String sourceKey;
+    private final int charsPerLocation;
+    private final List<Section> sections = new ArrayList<>();
+    private final List<String> locations = new ArrayList<>();
+    private long chars;
+    private long words;
+
+    Builder(String sourceKey, int charsPerLocation) {
+      this.sourceKey = sourceKey;
+      this.charsPerLocation = charsPerLocation;
+    }
+
+    Builder add(String href, String cfiBase, int sectionChars, int sectionWords, List<String> sectionLocations) {
+      sections.add(new Section(href, cfiBase, sectionChars, sectionWords, chars, words, locations.size(), sectionLocations.size()));
+      locations.addAll(sectionLocations);
+      chars += sectionChars;
+      words += sectionWords;
+      return this;
+    }
+
+    EpubIndex build() {
+      return new EpubIndex(sourceKey, charsPerLocation, sections, locations);
+    }
+  }
+
+  /** Array JSON de CFIs, o que {@code book.locations.load()} aceita. */
+  public String locationsJson() {
+    StringBuilder sb = new StringBuilder(locations.size() * 48 + 2).append('[');
+    for (int i = 0; i < locations.size(); i++) {
+      if (i > 0) sb.append(',');
+      quote(sb, locations.get(i));
+    }
+    return sb.append(']').toString();
+  }
+
+  static void quote(StringBuilder sb, String s) {
+    sb.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') sb.append('\\').append(c);
+      else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+      else sb.append(c);
+    }
+    sb.append('"');
+  }
+
+  public byte[] encode() {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + locations.size() * 48);
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(MAGIC);
+      out.writeShort(FORMAT);
+      out.writeInt(charsPerLocation);
+      out.writeUTF(sourceKey);
+      out.writeInt(sections.size());
+      for (Section s : sections) {
+        out.writeUTF(s.href);
+        out.writeUTF(s.cfiBase);
+        out.writeInt(s.chars);
+        out.writeInt(s.words);
+        out.writeInt(s.locationCount);
+      }
+      out.writeInt(locations.size());
+      for (String cfi : locations) out.writeUTF(cfi);
+      out.flush();
+      CRC32 crc = new CRC32();
+      crc.update(bytes.toByteArray());
+      out.writeInt((int) crc.getValue());
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Retorna null se os dados estiverem truncados, corrompidos ou em formato desconhecido. */
+  public static EpubIndex decode(byte[] data) {
+    if (data == null || data.length < 14) return null;
+    CRC32 crc = new CRC32();
+    crc.update(data, 0, data.length - 4);
+    int stored = ((data[data.length - 4] & 0xFF) << 24) | ((data[data.length - 3] & 0xFF) << 16)
+      | ((data[data.length - 2] & 0xFF) << 8) | (data[data.length - 1] & 0xFF);
+    if (stored != (int) crc.getValue()) return null;
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 4));
+      if (in.readInt() != MAGIC) return null;
+      if (in.readShort() != FORMAT) return null;
+      int charsPerLocation = in.readInt();
+      String sourceKey = in.readUTF();
+      int count = in.readInt();
+      String[] hrefs = new String[count];
+      String[] bases = new String[count];
+      int[][] counts = new int[count][];
+      for (int i = 0; i < count; i++) {
+        hrefs[i] = in.readUTF();
+        bases[i] = in.readUTF();
+        counts[i] = new int[] { in.readInt(), in.readInt(), in.readInt() };
+      }
+      int total = in.readInt();
+      List<String> all = new ArrayList<>(total);
+      for (int i = 0; i < total; i++) all.add(in.readUTF());
+      Builder b = new Builder(sourceKey, charsPerLocation);
+      int at = 0;
+      for (int i = 0; i < count; i++) {
+        int n = counts[i][2];
+        if (at + n > total) return null;
+        b.add(hrefs[i], bases[i], counts[i][0], counts[i][1], all.subList(at, at + n));
+        at += n;
+      }
+      return at == total ? b.build() : null;
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+}
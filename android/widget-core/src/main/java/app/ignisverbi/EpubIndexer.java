@@ -0,0 +1,343 @@
+package app.ignisverbi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Gera o {@link EpubIndex} de um EPUB fora do WebView. O zip é lido pelo diretório central
+ * ({@link ZipFile}) e cada documento do spine é tokenizado em streaming, sem carregar o livro inteiro.
+ *
+ * A tabela de locations reproduz {@code Locations.parse} do epub.js 0.3: percorre os nós de texto do
+ * body em ordem, pula os só de espaço e fecha um range a cada {@code charsPerLocation} caracteres (com
+ * o deslocamento de +1 no início de cada range novo e o range final até o fim do último nó), gerando o
+ * mesmo CFI de range ({@code epubcfi(base!/caminho comum,/início:n,/fim:m)}). Palavras são contadas
+ * no texto do body, separando em espaço e em elementos de bloco.
+ */
+public final class EpubIndexer {
+  private static final String[] BLOCKS = {
+    "address", "article", "aside", "blockquote", "br", "dd", "div", "dl", "dt", "figcaption", "figure", "footer",
+    "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "li", "nav", "ol", "p", "pre", "section", "table", "td",
+    "th", "tr", "ul",
+  };
+
+  private EpubIndexer() {}
+
+  public static EpubIndex index(File epub, String sourceKey) throws IOException {
+    return index(epub, sourceKey, EpubIndex.CHARS_PER_LOCATION);
+  }
+
+  public static EpubIndex index(File epub, String sourceKey, int charsPerLocation) throws IOException {
+    try (ZipFile zip = new ZipFile(epub)) {
+      String opfPath = rootfile(zip);
+      if (opfPath == null) throw new IOException("EPUB sem rootfile em META-INF/container.xml");
+      Package pkg = readPackage(zip, opfPath);
+      if (pkg.spineNodeIndex < 0) throw new IOException("OPF sem spine: " + opfPath);
+      String opfDir = opfPath.lastIndexOf('/') < 0 ? "" : opfPath.substring(0, opfPath.lastIndexOf('/') + 1);
+
+      EpubIndex.Builder out = new EpubIndex.Builder(sourceKey, charsPerLocation);
+      for (int i = 0; i < pkg.itemrefs.size(); i++) {
+        String[] ref = pkg.itemrefs.get(i); // idref, id, linear
+        if ("no".equals(ref[2])) continue;
+        String href = pkg.manifest.get(ref[0]);
+        if (href == null) continue;
+        String path = resolve(opfDir, href);
+        ZipEntry entry = entry(zip, path);
+        if (entry == null) continue;
+        String cfiBase = "/" + (pkg.spineNodeIndex + 1) * 2 + "/" + (i + 1) * 2 + (ref[1] == null || ref[1].isEmpty() ? "" : "[" + ref[1] + "]");
+        List<String> locations = new ArrayList<>();
+        int[] counts;
+        try (InputStream in = zip.getInputStream(entry)) {
+          counts = parseSection(XmlScanner.open(in), cfiBase, charsPerLocation, locations);
+        }
+        out.add(entry.getName(), cfiBase, counts[0], counts[1], locations);
+      }
+      return out.build();
+    }
+  }
+
+  /** Caminho do OPF (primeiro rootfile do container). */
+  private static String rootfile(ZipFile zip) throws IOException {
+    ZipEntry container = entry(zip, "META-INF/container.xml");
+    if (container == null) return null;
+    try (InputStream in = zip.getInputStream(container)) {
+      XmlScanner sc = XmlScanner.open(in);
+      for (int ev = sc.next(); ev != XmlScanner.EOF; ev = sc.next()) {
+        if (ev == XmlScanner.START && "rootfile".equals(sc.name)) {
+          String path = sc.attrs.get("full-path");
+          if (path != null && !path.isEmpty()) return decode(path);
+        }
+      }
+    }
+    return null;
+  }
+
+  private static final class Package {
+    final Map<String, String> manifest = new HashMap<>(); // id -> href
+    final List<String[]> itemrefs = new ArrayList<>();
+    int spineNodeIndex = -1; // posição do <spine> entre os elementos filhos de <package>
+  }
+
+  private static Package readPackage(ZipFile zip, String opfPath) throws IOException {
+    ZipEntry opf = entry(zip, opfPath);
+    if (opf == null) throw new IOException("OPF ausente: " + opfPath);
+    Package pkg = new Package();
+    try (InputStream in = zip.getInputStream(opf)) {
+      XmlScanner sc = XmlScanner.open(in);
+      int depth = 0;
+      int packageChildren = 0;
+      for (int ev = sc.next(); ev != XmlScanner.EOF; ev = sc.next()) {
+        if (ev == XmlScanner.END) {
+          depth--;
+        } else if (ev == XmlScanner.START) {
+          if (depth == 1) {
+            if ("spine".equals(sc.name) && pkg.spineNodeIndex < 0) pkg.spineNodeIndex = packageChildren;
+            packageChildren++;
+          }
+          if ("item".equals(sc.name) && sc.attrs.get("id") != null && sc.attrs.get("href") != null) {
+            pkg.manifest.put(sc.attrs.get("id"), sc.attrs.get("href"));
+          } else if ("itemref".equals(sc.name)) {
+            pkg.itemrefs.add(new String[] { sc.attrs.get("idref"), sc.attrs.get("id"), sc.attrs.get("linear") });
+          }
+          depth++;
+        }
+      }
+    }
+    return pkg;
+  }
+
+  /**
+   * Locations de um documento do spine (Locations.parse do epub.js) em {@code out}; retorna
+   * {caracteres, palavras} do body.
+   */
+  static int[] parseSection(XmlScanner sc, String cfiBase, int brk, List<String> out) throws IOException {
+    // Pilha de elementos abertos: posição entre os irmãos elemento, id, filhos elemento e nós de texto vistos
+    int[] index = new int[32];
+    String[] ids = new String[32];
+    int[] childElements = new int[32];
+    int[] textNodes = new int[32];
+    int depth = 0;
+    int bodyFrame = -1;
+    boolean bodyDone = false;
+
+    int counter = 0;
+    Node start = null;
+    int startOffset = 0;
+    Node prev = null;
+    int prevLength = 0;
+    int chars = 0;
+    int words = 0;
+    boolean inWord = false;
+
+    for (int ev = sc.next(); ev != XmlScanner.EOF; ev = sc.next()) {
+      if (ev == XmlScanner.START) {
+        if (depth == index.length) {
+          index = Arrays.copyOf(index, depth * 2);
+          ids = Arrays.copyOf(ids, depth * 2);
+          childElements = Arrays.copyOf(childElements, depth * 2);
+          textNodes = Arrays.copyOf(textNodes, depth * 2);
+        }
+        index[depth] = depth == 0 ? 0 : childElements[depth - 1]++;
+        String id = sc.attrs.get("id");
+        ids[depth] = id == null || id.isEmpty() ? null : id;
+        childElements[depth] = 0;
+        textNodes[depth] = 0;
+        depth++;
+        if (bodyFrame < 0 && !bodyDone && "body".equals(sc.name)) bodyFrame = depth - 1;
+        if (isBlock(sc.name)) inWord = false;
+      } else if (ev == XmlScanner.END) {
+        if (depth == 0) continue;
+        depth--;
+        if (depth == bodyFrame) {
+          bodyFrame = -1;
+          bodyDone = true;
+        }
+        if (isBlock(sc.name)) inWord = false;
+      } else if (ev == XmlScanner.TEXT && depth > 0) {
+        int textIndex = textNodes[depth - 1]++;
+        if (bodyFrame < 0) continue;
+        String text = sc.text;
+        for (int i = 0; i < text.length(); i++) {
+          if (isJsSpace(text.charAt(i))) {
+            inWord = false;
+          } else if (!inWord) {
+            inWord = true;
+            words++;
+          }
+        }
+        if (isBlank(text)) continue;
+
+        Node node = new Node(index, ids, depth, textIndex);
+        int len = text.length();
+        chars += len;
+        if (counter == 0) {
+          start = node;
+          startOffset = 0;
+        }
+        int dist = brk - counter;
+        int pos = 0;
+        if (dist > len) {
+          counter += len;
+          pos = len;
+        }
+        while (pos < len) {
+          dist = brk - counter;
+          if (counter == 0) {
+            pos += 1;
+            start = node;
+            startOffset = pos;
+          }
+          if (pos + dist >= len) {
+            counter += len - pos;
+            pos = len;
+          } else {
+            pos += dist;
+            out.add(rangeCfi(cfiBase, start, startOffset, node, pos));
+            counter = 0;
+          }
+        }
+        prev = node;
+        prevLength = len;
+      }
+    }
+    // Fecha o range aberto até o fim do último nó (o epub.js fecha mesmo logo depois de emitir um)
+    if (start != null && prev != null) out.add(rangeCfi(cfiBase, start, startOffset, prev, prevLength));
+    return new int[] { chars, words };
+  }
+
+  /** Nó de texto: passos de elemento a partir do filho do &lt;html&gt; e a posição entre os nós de texto do pai. */
+  private static final class Node {
+    final int[] index;
+    final String[] ids;
+    final int textIndex;
+
+    Node(int[] stackIndex, String[] stackIds, int depth, int textIndex) {
+      // O <html> (frame 0) não entra no caminho
+      int n = depth - 1;
+      this.index = new int[n];
+      this.ids = new String[n];
+      System.arraycopy(stackIndex, 1, index, 0, n);
+      System.arraycopy(stackIds, 1, ids, 0, n);
+      this.textIndex = textIndex;
+    }
+
+    int steps() { return index.length + 1; }
+
+    boolean sameStep(Node o, int i) {
+      boolean text = i == index.length;
+      if (text != (i == o.index.length)) return false;
+      if (text) return textIndex == o.textIndex;
+      return index[i] == o.index[i] && (ids[i] == null ? o.ids[i] == null : ids[i].equals(o.ids[i]));
+    }
+
+    /** Segmento "/a/b[id]/c" com os passos [from, to) (EpubCFI.segmentString sem terminal). */
+    void appendSteps(StringBuilder sb, int from, int to) {
+      sb.append('/');
+      for (int i = from; i < to; i++) {
+        if (i > from) sb.append('/');
+        if (i == index.length) {
+          sb.append(1 + 2 * textIndex);
+        } else {
+          sb.append((index[i] + 1) * 2);
+          if (ids[i] != null) sb.append('[').append(ids[i]).append(']');
+        }
+      }
+    }
+  }
+
+  /**
+   * EpubCFI.fromRange + toString: caminho comum sem o último passo do início (os terminais nunca são o
+   * mesmo objeto, então o range nunca colapsa) e os restos de início e fim com offset.
+   */
+  private static String rangeCfi(String cfiBase, Node start, int startOffset, Node end, int endOffset) {
+    int common = 0;
+    while (common < start.steps() - 1 && common < end.steps() && start.sameStep(end, common)) common++;
+    StringBuilder sb = new StringBuilder(64).append("epubcfi(").append(cfiBase).append('!');
+    start.appendSteps(sb, 0, common);
+    sb.append(',');
+    start.appendSteps(sb, common, start.steps());
+    sb.append(':').append(startOffset).append(',');
+    end.appendSteps(sb, common, end.steps());
+    return sb.append(':').append(endOffset).append(')').toString();
+  }
+
+  private static boolean isBlock(String name) {
+    for (String b : BLOCKS) if (b.equals(name)) return true;
+    return false;
+  }
+
+  /** {@code String.prototype.trim} do JS: espaço, quebras, NBSP, espaços Unicode e BOM. */
+  static boolean isJsSpace(char c) {
+    return c == ' ' || (c >= '\t' && c <= '\r') || c == '\u00A0' || c == '\u1680' || (c >= '\u2000' && c <= '\u200A')
+      || c == '\u2028' || c == '\u2029' || c == '\u202F' || c == '\u205F' || c == '\u3000' || c == '\uFEFF';
+  }
+
+  private static boolean isBlank(String s) {
+    for (int i = 0; i < s.length(); i++) if (!isJsSpace(s.charAt(i))) return false;
+    return true;
+  }
+
+  /** href do manifest relativo ao OPF, sem fragmento, %XX decodificado e ./.. resolvidos. */
+  static String resolve(String baseDir, String href) {
+    int hash = href.indexOf('#');
+    if (hash >= 0) href = href.substring(0, hash);
+    String joined = href.startsWith("/") ? href.substring(1) : baseDir + decode(href);
+    List<String> parts = new ArrayList<>();
+    for (String p : joined.split("/")) {
+      if (p.isEmpty() || p.equals(".")) continue;
+      if (p.equals("..")) {
+        if (!parts.isEmpty()) parts.remove(parts.size() - 1);
+      } else {
+        parts.add(p);
+      }
+    }
+    StringBuilder sb = new StringBuilder(joined.length());
+    for (String p : parts) {
+      if (sb.length() > 0) sb.append('/');
+      sb.append(p);
+    }
+    return sb.toString();
+  }
+
+  /** %XX em UTF-8 ('+' fica como está: é caminho, não query). */
+  static String decode(String s) {
+    if (s.indexOf('%') < 0) return s;
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '%' && i + 2 < s.length()) {
+        int hi = Character.digit(s.charAt(i + 1), 16);
+        int lo = Character.digit(s.charAt(i + 2), 16);
+        if (hi >= 0 && lo >= 0) {
+          bytes.write(hi * 16 + lo);
+          i += 2;
+          continue;
+        }
+      }
+      byte[] b = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+      bytes.write(b, 0, b.length);
+    }
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /** Entrada pelo nome exato; senão ignorando maiúsculas (zips gerados no Windows). */
+  private static ZipEntry entry(ZipFile zip, String name) {
+    ZipEntry e = zip.getEntry(name);
+    if (e != null) return e;
+    for (Enumeration<? extends ZipEntry> all = zip.entries(); all.hasMoreElements(); ) {
+      ZipEntry c = all.nextElement();
+      if (c.getName().equalsIgnoreCase(name)) return c;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,151 @@
+package app.ignisverbi;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Índice imutável appWidgetId → livro exibido pela instância ({@link #ACTIVE} = livro ativo), com o
+ * índice invertido livro → ids: uma mudança de progresso de um livro re-renderiza só as instâncias
+ * que o mostram. Mutação por cópia (bind/remove devolvem um índice novo, ou {@code this} sem mudança).
+ *
+ * Layout (big-endian): magic:int | format:short | count:short | (id:int | bookId:short+UTF-8)* | crc32:int
+ */
+public final class WidgetBindings {
+  public static final int MAGIC = 0x49565742; // "IVWB"
+  public static final short FORMAT = 1;
+  /** Instância que acompanha o livro ativo (WidgetStateStore), o padrão de um widget novo. */
+  public static final String ACTIVE = "";
+
+  private static final int[] NO_IDS = new int[0];
+  public static final WidgetBindings EMPTY = new WidgetBindings(NO_IDS, new String[0]);
+
+  private final int[] ids;      // ordenados
+  private final String[] books; // books[i] é o livro de ids[i]
+  private final Map<String, int[]> byBook;
+
+  private WidgetBindings(int[] ids, String[] books) {
+    this.ids = ids;
+    this.books = books;
+    Map<String, int[]> inv = new HashMap<>();
+    for (int i = 0; i < ids.length; i++) {
+      int[] cur = inv.get(books[i]);
+      int[] next = cur == null ? new int[1] : Arrays.copyOf(cur, cur.length + 1);
+      next[next.length - 1] = ids[i];
+      inv.put(books[i], next);
+    }
+    this.byBook = inv;
+  }
+
+  public int size() { return ids.length; }
+
+  public boolean contains(int appWidgetId) { return Arrays.binarySearch(ids, appWidgetId) >= 0; }
+
+  /** Livro da instância; {@link #ACTIVE} também para ids ainda não indexados. */
+  public String bookFor(int appWidgetId) {
+    int i = Arrays.binarySearch(ids, appWidgetId);
+    return i < 0 ? ACTIVE : books[i];
+  }
+
+  /** Ids que exibem {@code bookId} (não copiar: o array é compartilhado). */
+  public int[] idsFor(String bookId) {
+    int[] out = bookId == null ? null : byBook.get(bookId);
+    return out == null ? NO_IDS : out;
+  }
+
+  public WidgetBindings bind(int appWidgetId, String bookId) {
+    String book = bookId == null ? ACTIVE : bookId;
+    int i = Arrays.binarySearch(ids, appWidgetId);
+    if (i >= 0) {
+      if (books[i].equals(book)) return this;
+      String[] nb = books.clone();
+      nb[i] = book;
+      return new WidgetBindings(ids, nb);
+    }
+    int at = -i - 1;
+    int[] ni = new int[ids.length + 1];
+    String[] nb = new String[ids.length + 1];
+    System.arraycopy(ids, 0, ni, 0, at);
+    System.arraycopy(books, 0, nb, 0, at);
+    ni[at] = appWidgetId;
+    nb[at] = book;
+    System.arraycopy(ids, at, ni, at + 1, ids.length - at);
+    System.arraycopy(books, at, nb, at + 1, ids.length - at);
+    return new WidgetBindings(ni, nb);
+  }
+
+  /** Ids novos passam a acompanhar o livro ativo; os já indexados ficam como estão. */
+  public WidgetBindings bindMissing(int[] appWidgetIds) {
+    WidgetBindings out = this;
+    for (int id : appWidgetIds) if (!out.contains(id)) out = out.bind(id, ACTIVE);
+    return out;
+  }
+
+  public WidgetBindings remove(int[] appWidgetIds) {
+    int keep = 0;
+    boolean[] drop = new boolean[ids.length];
+    for (int id : appWidgetIds) {
+      int i = Arrays.binarySearch(ids, id);
+      if (i >= 0) drop[i] = true;
+    }
+    for (boolean d : drop) if (!d) keep++;
+    if (keep == ids.length) return this;
+    int[] ni = new int[keep];
+    String[] nb = new String[keep];
+    for (int i = 0, k = 0; i < ids.length; i++) {
+      if (drop[i]) continue;
+      ni[k] = ids[i];
+      nb[k++] = books[i];
+    }
+    return new WidgetBindings(ni, nb);
+  }
+
+  public byte[] encode() {
+    byte[][] utf = new byte[ids.length][];
+    int size = 4 + 2 + 2 + 4;
+    for (int i = 0; i < ids.length; i++) {
+      utf[i] = books[i].getBytes(StandardCharsets.UTF_8);
+      size += 4 + 2 + utf[i].length;
+    }
+    ByteBuffer buf = ByteBuffer.allocate(size);
+    buf.putInt(MAGIC);
+    buf.putShort(FORMAT);
+    buf.putShort((short) ids.length);
+    for (int i = 0; i < ids.length; i++) {
+      buf.putInt(ids[i]);
+      buf.putShort((short) utf[i].length);
+      buf.put(utf[i]);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(buf.array(), 0, size - 4);
+    buf.putInt((int) crc.getValue());
+    return buf.array();
+  }
+
+  /** Retorna null se os dados estiverem truncados, corrompidos ou em formato desconhecido. */
+  public static WidgetBindings decode(byte[] data) {
+    if (data == null || data.length < 12) return null;
+    CRC32 crc = new CRC32();
+    crc.update(data, 0, data.length - 4);
+    ByteBuffer buf = ByteBuffer.wrap(data);
+    if (buf.getInt(data.length - 4) != (int) crc.getValue()) return null;
+    if (buf.getInt() != MAGIC || buf.getShort() != FORMAT) return null;
+    try {
+      WidgetBindings out = EMPTY;
+      int count = buf.getShort();
+      for (int i = 0; i < count; i++) {
+        int id = buf.getInt();
+        int len = buf.getShort();
+        String book = new String(data, buf.position(), len, StandardCharsets.UTF_8);
+        buf.position(buf.position() + len);
+        out = out.bind(id, book);
+      }
+      return out;
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package app.ignisverbi;
+
+/**
+ * Regras de frescor do estado do widget, sem Android: de que dia é o payload, se está velho demais e se
+ * já pode haver outro refresh headless. Usadas por ProgressWidgetProvider.resolveState e RefreshArbiter.
+ */
+public final class WidgetFreshness {
+  public static final long DATA_STALE_THRESHOLD_MS = 60 * 60 * 1000; // 1 hora - considera dados antigos
+  public static final long MIN_REFRESH_INTERVAL_MS = 5 * 60 * 1000;   // 5 minutos entre refreshes headless
+
+  public static final int FRESH = 0;
+  /** Payload de hoje, porém mais antigo que DATA_STALE_THRESHOLD_MS. */
+  public static final int STALE = 1;
+  /** Payload de outro dia: exige a transição do dia. */
+  public static final int OTHER_DAY = 2;
+  public static final int MISSING = 3;
+
+  private WidgetFreshness() {}
+
+  public static int classify(WidgetState state, long todayEpochDay, long nowMs) {
+    if (state == null) return MISSING;
+    if (state.epochDay != todayEpochDay) return OTHER_DAY;
+    return nowMs - state.ts > DATA_STALE_THRESHOLD_MS ? STALE : FRESH;
+  }
+
+  /** Novo refresh headless permitido? Relógio voltando para trás também libera. */
+  public static boolean refreshDue(long lastRefreshTs, long nowMs) {
+    return nowMs - lastRefreshTs > MIN_REFRESH_INTERVAL_MS || nowMs < lastRefreshTs;
+  }
+}
@@ -0,0 +1,75 @@
+package app.ignisverbi;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Geometria do widget por faixa de tamanho (BUCKET_DP): paddings que emulam as guidelines do
+ * ConstraintLayout (barra a 75% da altura, texto a 40%/22%). Calculada uma vez por faixa e mantida em
+ * cache; só é recalculada se a densidade mudar. As faixas que o launcher informa (Bundle de opções)
+ * são lidas em ProgressWidgetProvider.geometries.
+ */
+public final class WidgetGeometry {
+  static final int BUCKET_DP = 4;
+  static final int BAR_HEIGHT_DP = 10;
+
+  public final int widthDp;
+  public final int heightDp;
+  public final int barTopPx;
+  public final int textLeftPx;
+  public final int textTopPx;
+
+  private static final Map<Integer, WidgetGeometry> cache = new HashMap<>(); // guardado pela classe
+  private static float cachedDensity;
+
+  /** Cálculo sem cache (o benchmark compara com {@link #forSize}). */
+  static WidgetGeometry compute(int widthDp, int heightDp, float density) {
+    return new WidgetGeometry(widthDp, heightDp, density);
+  }
+
+  private WidgetGeometry(int widthDp, int heightDp, float density) {
+    this.widthDp = widthDp;
+    this.heightDp = heightDp;
+    int heightPx = (int) (heightDp * density);
+    int widthPx = (int) (widthDp * density);
+    int desiredTop = (int) (heightPx * 0.75f);
+    int barHalf = (int) (BAR_HEIGHT_DP * density / 2f);
+    this.barTopPx = Math.max(0, desiredTop - barHalf);
+    this.textLeftPx = (int) (widthPx * 0.40f);
+    this.textTopPx = (int) (heightPx * 0.22f);
+  }
+
+  /** Arredonda para a faixa mais próxima (mínimo uma faixa). */
+  public static int bucket(int dp) {
+    return Math.max(BUCKET_DP, ((dp + BUCKET_DP / 2) / BUCKET_DP) * BUCKET_DP);
+  }
+
+  public static synchronized WidgetGeometry forSize(int widthDp, int heightDp, float density) {
+    if (density != cachedDensity) {
+      cache.clear();
+      cachedDensity = density;
+    }
+    int w = bucket(widthDp);
+    int h = bucket(heightDp);
+    int k = (w << 16) | h;
+    WidgetGeometry g = cache.get(k);
+    if (g == null) {
+      g = new WidgetGeometry(w, h, density);
+      cache.put(k, g);
+    }
+    return g;
+  }
+
+  /** Chave da faixa (largura/altura em dp arredondadas). */
+  public long key() {
+    return ((long) widthDp << 16) | heightDp;
+  }
+
+  /** Assinatura de um conjunto de geometrias, para o dirty-check do dispatcher. */
+  public static long signature(List<WidgetGeometry> geometries) {
+    long sig = 17;
+    for (WidgetGeometry g : geometries) sig = sig * 31 + g.key();
+    return sig;
+  }
+}
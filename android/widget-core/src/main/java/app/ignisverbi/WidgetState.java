@@ -0,0 +1,118 @@
+package app.ignisverbi;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot imutável do estado do widget (antigo JSON widget:dailyProgress) e seu layout binário fixo.
+ *
+ * Layout (big-endian, {@link #RECORD_SIZE} bytes):
+ * magic:int | format:short | flags:byte | percent:byte | epochDay:long | ts:long | version:long | crc32:int
+ *
+ * O arquivo pode trazer depois do registro a seção das entradas do motor, gravada na mesma escrita:
+ * magic:int ("IVPI") | length:int | JSON UTF-8 | crc32:int. Sem estado ainda, o registro é zerado.
+ */
+public final class WidgetState {
+  public static final int MAGIC = 0x49565753; // "IVWS"
+  public static final short FORMAT = 1;
+  public static final int RECORD_SIZE = 36;
+  private static final int FLAG_HAS_GOAL = 1;
+  public static final int INPUTS_MAGIC = 0x49565049; // "IVPI"
+
+  public final int percent;
+  public final boolean hasGoal;
+  public final long epochDay; // dia local (DailyProgressEngine.localEpochDay)
+  public final long ts;
+  public final long version;  // contador monotônico de escritas
+
+  public WidgetState(int percent, boolean hasGoal, long epochDay, long ts, long version) {
+    this.percent = Math.max(0, Math.min(100, percent));
+    this.hasGoal = hasGoal;
+    this.epochDay = epochDay;
+    this.ts = ts;
+    this.version = version;
+  }
+
+  public static byte[] encode(WidgetState s) {
+    ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE);
+    buf.putInt(MAGIC);
+    buf.putShort(FORMAT);
+    buf.put((byte) (s.hasGoal ? FLAG_HAS_GOAL : 0));
+    buf.put((byte) s.percent);
+    buf.putLong(s.epochDay);
+    buf.putLong(s.ts);
+    buf.putLong(s.version);
+    CRC32 crc = new CRC32();
+    crc.update(buf.array(), 0, RECORD_SIZE - 4);
+    buf.putInt((int) crc.getValue());
+    return buf.array();
+  }
+
+  /** Retorna null se o registro estiver truncado, corrompido ou em formato desconhecido. */
+  public static WidgetState decode(byte[] data) {
+    if (data == null || data.length < RECORD_SIZE) return null;
+    ByteBuffer buf = ByteBuffer.wrap(data, 0, RECORD_SIZE);
+    if (buf.getInt() != MAGIC) return null;
+    if (buf.getShort() != FORMAT) return null;
+    CRC32 crc = new CRC32();
+    crc.update(data, 0, RECORD_SIZE - 4);
+    if (buf.getInt(RECORD_SIZE - 4) != (int) crc.getValue()) return null;
+    byte flags = buf.get();
+    int percent = buf.get();
+    long epochDay = buf.getLong();
+    long ts = buf.getLong();
+    long version = buf.getLong();
+    return new WidgetState(percent, (flags & FLAG_HAS_GOAL) != 0, epochDay, ts, version);
+  }
+
+  /** Registro (ou zeros, se {@code s} é null) seguido da seção de entradas, se houver. */
+  public static byte[] encodeFile(WidgetState s, String inputsJson) {
+    byte[] json = inputsJson == null ? null : inputsJson.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE + (json == null ? 0 : 12 + json.length));
+    if (s != null) buf.put(encode(s));
+    else buf.position(RECORD_SIZE);
+    if (json != null) {
+      buf.putInt(INPUTS_MAGIC);
+      buf.putInt(json.length);
+      buf.put(json);
+      CRC32 crc = new CRC32();
+      crc.update(json);
+      buf.putInt((int) crc.getValue());
+    }
+    return buf.array();
+  }
+
+  /** JSON da seção de entradas, ou null se ausente/corrompida. */
+  public static String decodeInputs(byte[] data) {
+    if (data == null || data.length < RECORD_SIZE + 12) return null;
+    ByteBuffer buf = ByteBuffer.wrap(data);
+    buf.position(RECORD_SIZE);
+    if (buf.getInt() != INPUTS_MAGIC) return null;
+    int len = buf.getInt();
+    if (len < 0 || len > buf.remaining() - 4) return null;
+    CRC32 crc = new CRC32();
+    crc.update(data, RECORD_SIZE + 8, len);
+    if (buf.getInt(RECORD_SIZE + 8 + len) != (int) crc.getValue()) return null;
+    return new String(data, RECORD_SIZE + 8, len, StandardCharsets.UTF_8);
+  }
+
+  /** Registro zerado: arquivo que só guarda entradas, sem estado gravado ainda. */
+  public static boolean isEmptyRecord(byte[] data) {
+    if (data == null || data.length < RECORD_SIZE) return false;
+    for (int i = 0; i < RECORD_SIZE; i++) if (data[i] != 0) return false;
+    return true;
+  }
+
+  /** Mesmo formato do antigo payload JSON, para compatibilidade com o JS. */
+  public String toJson() {
+    return "{\"percent\":" + percent + ",\"hasGoal\":" + hasGoal + ",\"ts\":" + ts
+        + ",\"day\":\"" + DailyProgressEngine.formatIsoDay(epochDay) + "\"}";
+  }
+
+  @Override
+  public String toString() {
+    return "WidgetState{percent=" + percent + ", hasGoal=" + hasGoal + ", day=" + epochDay
+        + ", ts=" + ts + ", v=" + version + "}";
+  }
+}
@@ -0,0 +1,123 @@
+package app.ignisverbi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+/**
+ * Índice de palavras de um livro estático (partes/capítulos, ver reading.ts): somas de prefixo das
+ * palavras por capítulo num único int[], com o início de cada parte. Total, palavras até a posição e
+ * até o capítulo-alvo viram consultas O(1), com a mesma semântica de computeTotalWords,
+ * computeWordsUpToPosition e computeWordsUpToInclusiveTarget. {@code contentVersion} identifica o
+ * conteúdo indexado; outro valor invalida o índice.
+ *
+ * Layout (big-endian): magic:int | format:short | contentVersion:UTF | parts:int |
+ * capítulos por parte (int) | palavras por capítulo (int) | crc32:int.
+ */
+public final class WordIndex {
+  public static final int MAGIC = 0x49565749; // "IVWI"
+  public static final short FORMAT = 1;
+
+  public final String contentVersion;
+  private final int[] partStart; // partStart[p] = índice do 1º capítulo da parte p em prefix; tamanho parts+1
+  private final int[] prefix;    // prefix[k] = palavras antes do capítulo k (achatado); tamanho capítulos+1
+
+  private WordIndex(String contentVersion, int[] partStart, int[] prefix) {
+    this.contentVersion = contentVersion;
+    this.partStart = partStart;
+    this.prefix = prefix;
+  }
+
+  /** {@code chapterWords[p][c]} = palavras do capítulo c da parte p. */
+  public static WordIndex of(String contentVersion, int[][] chapterWords) {
+    int parts = chapterWords.length;
+    int[] partStart = new int[parts + 1];
+    for (int p = 0; p < parts; p++) partStart[p + 1] = partStart[p] + chapterWords[p].length;
+    int[] prefix = new int[partStart[parts] + 1];
+    int k = 0;
+    for (int[] part : chapterWords) {
+      for (int words : part) {
+        if (words < 0) throw new IllegalArgumentException("palavras negativas no capítulo " + k);
+        prefix[k + 1] = prefix[k] + words;
+        k++;
+      }
+    }
+    return new WordIndex(contentVersion == null ? "" : contentVersion, partStart, prefix);
+  }
+
+  public int parts() {
+    return partStart.length - 1;
+  }
+
+  public int chapters(int part) {
+    return part < 0 || part >= parts() ? 0 : partStart[part + 1] - partStart[part];
+  }
+
+  public int totalWords() {
+    return prefix[prefix.length - 1];
+  }
+
+  /** Palavras dos capítulos antes de (part, chapter), como computeWordsUpToPosition (fora do intervalo satura). */
+  public int wordsBefore(int part, int chapter) {
+    if (part < 0) return 0;
+    if (part >= parts()) return totalWords();
+    int c = Math.max(0, Math.min(chapter, chapters(part)));
+    return prefix[partStart[part] + c];
+  }
+
+  /** Palavras até (part, chapter) inclusive, como computeWordsUpToInclusiveTarget com alvo definido. */
+  public int wordsThrough(int part, int chapter) {
+    return wordsBefore(part, chapter < 0 ? 0 : chapter + 1);
+  }
+
+  public byte[] encode() {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + contentVersion.length() + (partStart.length + prefix.length) * 4);
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(MAGIC);
+      out.writeShort(FORMAT);
+      out.writeUTF(contentVersion);
+      out.writeInt(parts());
+      for (int p = 0; p < parts(); p++) out.writeInt(chapters(p));
+      for (int k = 1; k < prefix.length; k++) out.writeInt(prefix[k] - prefix[k - 1]);
+      out.flush();
+      CRC32 crc = new CRC32();
+      crc.update(bytes.toByteArray());
+      out.writeInt((int) crc.getValue());
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Retorna null se os dados estiverem truncados, corrompidos ou em formato desconhecido. */
+  public static WordIndex decode(byte[] data) {
+    if (data == null || data.length < 16) return null;
+    CRC32 crc = new CRC32();
+    crc.update(data, 0, data.length - 4);
+    int stored = ((data[data.length - 4] & 0xFF) << 24) | ((data[data.length - 3] & 0xFF) << 16)
+      | ((data[data.length - 2] & 0xFF) << 8) | (data[data.length - 1] & 0xFF);
+    if (stored != (int) crc.getValue()) return null;
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 4));
+      if (in.readInt() != MAGIC) return null;
+      if (in.readShort() != FORMAT) return null;
+      String contentVersion = in.readUTF();
+      int parts = in.readInt();
+      if (parts < 0 || parts > in.available() / 4) return null;
+      int[][] chapterWords = new int[parts][];
+      for (int p = 0; p < parts; p++) {
+        int n = in.readInt();
+        if (n < 0 || n > in.available() / 4) return null;
+        chapterWords[p] = new int[n];
+      }
+      for (int[] part : chapterWords) for (int c = 0; c < part.length; c++) part[c] = in.readInt();
+      return in.available() == 0 ? of(contentVersion, chapterWords) : null;
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+}
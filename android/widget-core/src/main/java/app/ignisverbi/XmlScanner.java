@@ -0,0 +1,262 @@
+package app.ignisverbi;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tokenizador XML mínimo e em streaming para os arquivos de um EPUB (container.xml, OPF, XHTML).
+ * Segue o DOM que o epub.js monta: texto entre duas marcações é um nó de texto (entidades expandidas
+ * no mesmo nó); comentário, CDATA e instrução de processamento separam nós e não contam como texto.
+ * Elementos vazios ({@code <br/>}) geram START seguido de END. Sem validação nem DTD.
+ */
+final class XmlScanner {
+  static final int EOF = 0;
+  static final int START = 1;
+  static final int END = 2;
+  static final int TEXT = 3;
+  static final int OTHER = 4; // comentário, CDATA, PI, doctype
+
+  private final Reader in;
+  private final char[] buf = new char[8192];
+  private int pos;
+  private int len;
+  private final StringBuilder sb = new StringBuilder();
+  private boolean pendingEnd;
+
+  /** Nome local (sem prefixo) do último START/END. */
+  String name;
+  /** Atributos do último START, por nome local. */
+  final Map<String, String> attrs = new HashMap<>();
+  /** Conteúdo do último TEXT, entidades já expandidas. */
+  String text;
+
+  XmlScanner(Reader in) {
+    this.in = in;
+  }
+
+  /** Detecta o encoding pelo BOM ou pela declaração XML (UTF-8 por padrão). */
+  static XmlScanner open(InputStream raw) throws IOException {
+    BufferedInputStream in = new BufferedInputStream(raw, 8192);
+    in.mark(256);
+    byte[] head = new byte[256];
+    int n = 0;
+    for (int r; n < head.length && (r = in.read(head, n, head.length - n)) > 0; ) n += r;
+    in.reset();
+    Charset cs = StandardCharsets.UTF_8;
+    int skip = 0;
+    if (n >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+      skip = 3;
+    } else if (n >= 2 && (head[0] & 0xFF) == 0xFE && (head[1] & 0xFF) == 0xFF) {
+      cs = StandardCharsets.UTF_16BE;
+      skip = 2;
+    } else if (n >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE) {
+      cs = StandardCharsets.UTF_16LE;
+      skip = 2;
+    } else {
+      String decl = new String(head, 0, n, StandardCharsets.ISO_8859_1);
+      int e = decl.startsWith("<?xml") ? decl.indexOf("encoding") : -1;
+      int end = decl.indexOf("?>");
+      if (e > 0 && (end < 0 || e < end)) {
+        int q = e + 8;
+        while (q < n && decl.charAt(q) != '"' && decl.charAt(q) != '\'') q++;
+        int close = q < n ? decl.indexOf(decl.charAt(q), q + 1) : -1;
+        if (close > q) {
+          try { cs = Charset.forName(decl.substring(q + 1, close).trim()); } catch (Throwable ignored) {}
+        }
+      }
+    }
+    for (long s = skip; s > 0; ) s -= in.skip(s);
+    return new XmlScanner(new InputStreamReader(in, cs));
+  }
+
+  int next() throws IOException {
+    if (pendingEnd) {
+      pendingEnd = false;
+      return END;
+    }
+    int c = read();
+    if (c < 0) return EOF;
+    if (c != '<') {
+      sb.setLength(0);
+      while (c >= 0 && c != '<') {
+        if (c == '&') readEntity(sb);
+        else sb.append((char) c);
+        c = read();
+      }
+      if (c == '<') pos--;
+      text = sb.toString();
+      return TEXT;
+    }
+    c = read();
+    if (c == '!') {
+      if (startsWith("--")) skipUntil("-->");
+      else if (startsWith("[CDATA[")) skipUntil("]]>");
+      else skipDoctype();
+      return OTHER;
+    }
+    if (c == '?') {
+      skipUntil("?>");
+      return OTHER;
+    }
+    if (c == '/') {
+      name = localName(readName(read()));
+      skipUntil(">");
+      return END;
+    }
+    name = localName(readName(c));
+    attrs.clear();
+    while (true) {
+      c = skipSpace(read());
+      if (c < 0 || c == '>') return START;
+      if (c == '/') {
+        skipUntil(">");
+        pendingEnd = true;
+        return START;
+      }
+      String attr = localName(readName(c));
+      c = skipSpace(read());
+      if (c != '=') {
+        if (c >= 0) pos--;
+        attrs.put(attr, "");
+        continue;
+      }
+      int quote = skipSpace(read());
+      sb.setLength(0);
+      if (quote == '"' || quote == '\'') {
+        for (c = read(); c >= 0 && c != quote; c = read()) {
+          if (c == '&') readEntity(sb);
+          else sb.append((char) c);
+        }
+      } else {
+        for (c = quote; c >= 0 && c != '>' && c != '/' && !isSpace(c); c = read()) sb.append((char) c);
+        if (c >= 0) pos--;
+      }
+      attrs.put(attr, sb.toString());
+    }
+  }
+
+  private int read() throws IOException {
+    if (pos == len) {
+      len = in.read(buf, 0, buf.length);
+      pos = 0;
+      if (len <= 0) {
+        len = 0;
+        return -1;
+      }
+    }
+    return buf[pos++];
+  }
+
+  private String readName(int c) throws IOException {
+    StringBuilder n = new StringBuilder();
+    while (c >= 0 && !isSpace(c) && c != '>' && c != '/' && c != '=') {
+      n.append((char) c);
+      c = read();
+    }
+    if (c >= 0) pos--;
+    return n.toString();
+  }
+
+  private static String localName(String qname) {
+    int i = qname.indexOf(':');
+    return i < 0 ? qname : qname.substring(i + 1);
+  }
+
+  private int skipSpace(int c) throws IOException {
+    while (c >= 0 && isSpace(c)) c = read();
+    return c;
+  }
+
+  private static boolean isSpace(int c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+
+  /** Consome {@code s} se vier em seguida (o buffer pode ser recarregado no meio; ok para prefixos curtos). */
+  private boolean startsWith(String s) throws IOException {
+    for (int i = 0; i < s.length(); i++) {
+      int c = read();
+      if (c != s.charAt(i)) {
+        if (c >= 0) pos--;
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void skipUntil(String end) throws IOException {
+    int matched = 0;
+    for (int c = read(); c >= 0; c = read()) {
+      if (c == end.charAt(matched)) {
+        if (++matched == end.length()) return;
+      } else {
+        matched = c == end.charAt(0) ? 1 : 0;
+      }
+    }
+  }
+
+  /** {@code <!DOCTYPE ...>} com subset interno opcional entre colchetes. */
+  private void skipDoctype() throws IOException {
+    int depth = 0;
+    for (int c = read(); c >= 0; c = read()) {
+      if (c == '[') depth++;
+      else if (c == ']') depth--;
+      else if (c == '>' && depth <= 0) return;
+    }
+  }
+
+  /** Depois do '&': numéricas, as cinco do XML e as do XHTML mais comuns em livros. */
+  private void readEntity(StringBuilder out) throws IOException {
+    StringBuilder ref = new StringBuilder();
+    int c = read();
+    while (c >= 0 && c != ';' && ref.length() < 12 && (Character.isLetterOrDigit(c) || c == '#')) {
+      ref.append((char) c);
+      c = read();
+    }
+    if (c != ';') {
+      if (c >= 0) pos--;
+      out.append('&').append(ref);
+      return;
+    }
+    int cp = -1;
+    String r = ref.toString();
+    try {
+      if (r.startsWith("#x") || r.startsWith("#X")) cp = Integer.parseInt(r.substring(2), 16);
+      else if (r.startsWith("#")) cp = Integer.parseInt(r.substring(1));
+      else {
+        Integer named = ENTITIES.get(r);
+        if (named != null) cp = named;
+      }
+    } catch (NumberFormatException ignored) {}
+    if (cp >= 0 && Character.isValidCodePoint(cp)) out.appendCodePoint(cp);
+    else out.append('&').append(r).append(';');
+  }
+
+  private static final String[] LATIN1 = (
+    "nbsp iexcl cent pound curren yen brvbar sect uml copy ordf laquo not shy reg macr deg plusmn sup2 sup3 "
+    + "acute micro para middot cedil sup1 ordm raquo frac14 frac12 frac34 iquest Agrave Aacute Acirc Atilde "
+    + "Auml Aring AElig Ccedil Egrave Eacute Ecirc Euml Igrave Iacute Icirc Iuml ETH Ntilde Ograve Oacute "
+    + "Ocirc Otilde Ouml times Oslash Ugrave Uacute Ucirc Uuml Yacute THORN szlig agrave aacute acirc atilde "
+    + "auml aring aelig ccedil egrave eacute ecirc euml igrave iacute icirc iuml eth ntilde ograve oacute "
+    + "ocirc otilde ouml divide oslash ugrave uacute ucirc uuml yacute thorn yuml").split(" ");
+
+  private static final Map<String, Integer> ENTITIES = new HashMap<>();
+  static {
+    for (int i = 0; i < LATIN1.length; i++) ENTITIES.put(LATIN1[i], 160 + i);
+    Object[] other = {
+      "amp", 38, "lt", 60, "gt", 62, "quot", 34, "apos", 39,
+      "OElig", 338, "oelig", 339, "Scaron", 352, "scaron", 353, "Yuml", 376, "circ", 710, "tilde", 732,
+      "ensp", 8194, "emsp", 8195, "thinsp", 8201, "zwnj", 8204, "zwj", 8205, "ndash", 8211, "mdash", 8212,
+      "lsquo", 8216, "rsquo", 8217, "sbquo", 8218, "ldquo", 8220, "rdquo", 8221, "bdquo", 8222,
+      "dagger", 8224, "Dagger", 8225, "bull", 8226, "hellip", 8230, "permil", 8240, "prime", 8242,
+      "lsaquo", 8249, "rsaquo", 8250, "euro", 8364, "trade", 8482,
+    };
+    for (int i = 0; i < other.length; i += 2) ENTITIES.put((String) other[i], (Integer) other[i + 1]);
+  }
+}
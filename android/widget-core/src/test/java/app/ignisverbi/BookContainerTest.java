@@ -0,0 +1,98 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BookContainerTest {
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private File sample() throws IOException {
+    File f = tmp.newFile("book.ivbc");
+    try (BookContainer.Writer w = new BookContainer.Writer(f, "v2")) {
+      w.beginPart("Primeira parte");
+      w.beginChapter("Cap. 1");
+      w.paragraph("p", "  Filotéia, minha  querida ");
+      w.paragraph("h2", "Oração");
+      w.paragraph("p", "Senhor meu\n\tDeus 🙏");
+      w.beginChapter("Cap. 2");
+      w.beginPart("Segunda parte (vazia)");
+      w.beginPart("Terceira");
+      w.beginChapter("Único");
+      w.paragraph("p", "");
+      w.paragraph("p", "fim");
+      w.finish();
+    }
+    return f;
+  }
+
+  @Test
+  public void opensTableOfContentsOnly() throws IOException {
+    BookContainer b = BookContainer.open(sample());
+    assertEquals("v2", b.contentVersion);
+    assertEquals(3, b.parts.size());
+    assertEquals("Primeira parte", b.parts.get(0).title);
+    assertEquals(2, b.parts.get(0).chapters.size());
+    assertEquals(0, b.parts.get(1).chapters.size());
+    BookContainer.Chapter c1 = b.chapter(0, 0);
+    assertEquals("Cap. 1", c1.title);
+    assertEquals(3, c1.paragraphs);
+    assertEquals(3 + 1 + 4, c1.words); // espaços repetidos, quebra e tab separam como o \s do JS
+    assertEquals(0, b.chapter(0, 1).paragraphs);
+    assertNull(b.chapter(1, 0));
+    assertNull(b.chapter(0, 2));
+  }
+
+  @Test
+  public void decodesParagraphRanges() throws IOException {
+    BookContainer b = BookContainer.open(sample());
+    List<BookContainer.Paragraph> all = b.paragraphs(0, 0);
+    assertEquals(3, all.size());
+    assertEquals("h2", all.get(1).type);
+    assertEquals("Senhor meu\n\tDeus 🙏", all.get(2).content);
+    List<BookContainer.Paragraph> tail = b.paragraphs(0, 0, 1, 99);
+    assertEquals(2, tail.size());
+    assertEquals("Oração", tail.get(0).content);
+    assertEquals(1, b.paragraphs(0, 0, 2, 3).size());
+    assertTrue(b.paragraphs(0, 1).isEmpty());
+    assertEquals("fim", b.paragraphs(2, 0, 1, 2).get(0).content);
+    assertNull(b.paragraphs(5, 0));
+  }
+
+  @Test
+  public void wordIndexMatchesChapters() throws IOException {
+    WordIndex idx = BookContainer.open(sample()).wordIndex();
+    assertEquals("v2", idx.contentVersion);
+    assertEquals(9, idx.totalWords());
+    assertEquals(8, idx.wordsBefore(2, 0));
+    assertEquals(8, idx.wordsThrough(0, 1));
+  }
+
+  @Test
+  public void rejectsDamagedFiles() throws IOException {
+    File f = sample();
+    try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+      raf.seek(raf.length() - 20); // dentro do sumário
+      int b = raf.read();
+      raf.seek(raf.length() - 20);
+      raf.write(b ^ 1);
+    }
+    try {
+      BookContainer.open(f);
+      fail("sumário corrompido aceito");
+    } catch (IOException expected) {
+    }
+    File empty = tmp.newFile("empty.ivbc");
+    try {
+      BookContainer.open(empty);
+      fail("arquivo vazio aceito");
+    } catch (IOException expected) {
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class BookSnapshotTest {
+  private static final long TODAY = DailyProgressEngine.parseIsoDay("2025-03-10");
+
+  private static BookSnapshot twoBooks() {
+    return BookSnapshot.of(Arrays.asList(
+        new BookSnapshot.Row("user-a", "Confissões", 40, TODAY, 1),
+        new BookSnapshot.Row("physical-b", "Imitação de Cristo", 75, TODAY, 2)));
+  }
+
+  @Test
+  public void roundTrip() {
+    BookSnapshot s = twoBooks();
+    BookSnapshot d = BookSnapshot.decode(s.encode());
+    assertEquals(2, d.size());
+    assertEquals("user-a", d.get(0).bookId);
+    assertEquals("Confissões", d.get(0).title);
+    assertEquals(75, d.get(1).percent);
+    assertEquals(TODAY, d.get(1).epochDay);
+    assertEquals(BookSnapshot.stableId("physical-b"), d.get(1).id);
+    assertEquals(0, BookSnapshot.decode(BookSnapshot.EMPTY.encode()).size());
+  }
+
+  @Test
+  public void rejectsCorruptedData() {
+    byte[] data = twoBooks().encode();
+    data[9] ^= 1;
+    assertNull(BookSnapshot.decode(data));
+    assertNull(BookSnapshot.decode(new byte[4]));
+    assertNull(BookSnapshot.decode(null));
+  }
+
+  @Test
+  public void upsertKeepsUnchangedRowInstances() {
+    BookSnapshot s = twoBooks();
+    assertSame(s, s.upsert("user-a", null, 40, true, TODAY, 99));
+    BookSnapshot next = s.upsert("user-a", null, 55, true, TODAY, 99);
+    assertEquals(55, next.get(0).percent);
+    assertEquals("Confissões", next.get(0).title);
+    assertSame(s.get(1), next.get(1));
+    assertEquals(1, BookSnapshot.changedRows(s, next));
+    assertEquals(Arrays.asList("user-a"), BookSnapshot.changedBookIds(s, next));
+    assertEquals(Arrays.asList("user-a"), BookSnapshot.changedBookIds(s, s.upsert("user-a", null, 0, false, TODAY, 99)));
+  }
+
+  @Test
+  public void upsertWithoutGoalRemovesRow() {
+    BookSnapshot s = twoBooks().upsert("user-a", null, 0, false, TODAY, 3);
+    assertEquals(1, s.size());
+    assertEquals(-1, s.indexOf("user-a"));
+    BookSnapshot added = s.upsert("user-c", "Novo", 10, true, TODAY, 4);
+    assertEquals(2, added.indexOf("user-c") + 1);
+  }
+
+  @Test
+  public void replaceReusesRowsWithSameContent() {
+    BookSnapshot s = twoBooks();
+    BookSnapshot same = s.replace(Arrays.asList(
+        new BookSnapshot.Row("user-a", "Confissões", 40, TODAY, 50),
+        new BookSnapshot.Row("physical-b", "Imitação de Cristo", 75, TODAY, 50)));
+    assertSame(s, same);
+    BookSnapshot swapped = s.replace(Arrays.asList(s.get(1), s.get(0)));
+    assertNotSame(s, swapped);
+    assertEquals(0, BookSnapshot.changedRows(s, swapped));
+  }
+
+  @Test
+  public void percentResetsOnOtherDay() {
+    BookSnapshot.Row r = new BookSnapshot.Row("user-a", "", 80, TODAY - 1, 1);
+    assertEquals(0, r.percentOn(TODAY));
+    assertEquals("0%", r.percentTextOn(TODAY));
+    assertEquals("80%", r.percentTextOn(TODAY - 1));
+    assertSame(r.percentTextOn(TODAY - 1), new BookSnapshot.Row("x", "", 80, TODAY, 1).percentTextOn(TODAY));
+  }
+}
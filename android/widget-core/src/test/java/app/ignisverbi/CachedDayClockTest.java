@@ -0,0 +1,102 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import java.util.TimeZone;
+import org.junit.Test;
+
+public class CachedDayClockTest {
+  private static final long HOUR = 60L * 60 * 1000;
+
+  /** Relógio de teste com instante e fuso mutáveis; conta as leituras do fuso. */
+  private static final class MutableClock implements DayClock {
+    long now;
+    TimeZone tz;
+    int zoneReads;
+
+    MutableClock(long now, String zoneId) {
+      this.now = now;
+      this.tz = TimeZone.getTimeZone(zoneId);
+    }
+
+    @Override
+    public long nowMs() { return now; }
+
+    @Override
+    public TimeZone zone() {
+      zoneReads++;
+      return tz;
+    }
+  }
+
+  @Test
+  public void servesTodayFromCacheUntilBoundary() {
+    // 2025-03-10T09:00-03:00
+    MutableClock src = new MutableClock(1741608000000L, "America/Sao_Paulo");
+    CachedDayClock clock = new CachedDayClock(src);
+    long day = DailyProgressEngine.parseIsoDay("2025-03-10");
+    assertEquals(day, clock.todayEpochDay());
+    assertEquals(1741662000000L, clock.nextBoundaryMs());
+    src.now = 1741662000000L - 1;
+    assertEquals(day, clock.todayEpochDay());
+    assertEquals(1, src.zoneReads);
+    assertEquals(1, clock.stats()[1]);
+
+    src.now = 1741662000000L; // meia-noite
+    assertEquals(day + 1, clock.todayEpochDay());
+    assertEquals(1741662000000L + 24 * HOUR, clock.nextBoundaryMs());
+    assertEquals(2, clock.stats()[1]);
+  }
+
+  @Test
+  public void clockMovedBackRecomputes() {
+    MutableClock src = new MutableClock(1741608000000L, "America/Sao_Paulo");
+    CachedDayClock clock = new CachedDayClock(src);
+    clock.todayEpochDay();
+    src.now -= 24 * HOUR;
+    assertEquals(DailyProgressEngine.parseIsoDay("2025-03-09"), clock.todayEpochDay());
+  }
+
+  @Test
+  public void timezoneChangeNeedsInvalidate() {
+    // 2025-03-11T02:00Z: 23:00 de 10/03 em São Paulo, 11:00 de 11/03 em Tóquio
+    MutableClock src = new MutableClock(1741658400000L, "America/Sao_Paulo");
+    CachedDayClock clock = new CachedDayClock(src);
+    assertEquals(DailyProgressEngine.parseIsoDay("2025-03-10"), clock.todayEpochDay());
+    src.tz = TimeZone.getTimeZone("Asia/Tokyo");
+    assertEquals(DailyProgressEngine.parseIsoDay("2025-03-10"), clock.todayEpochDay());
+    clock.invalidate();
+    assertEquals(DailyProgressEngine.parseIsoDay("2025-03-11"), clock.todayEpochDay());
+    // 2025-03-12T00:00+09:00
+    assertEquals(1741705200000L, clock.nextBoundaryMs());
+  }
+
+  @Test
+  public void dayStartHourMovesBoundary() {
+    // 2025-03-11T02:30-03:00
+    MutableClock src = new MutableClock(1741671000000L, "America/Sao_Paulo");
+    CachedDayClock clock = new CachedDayClock(src);
+    assertEquals(DailyProgressEngine.parseIsoDay("2025-03-11"), clock.todayEpochDay());
+    clock.setDayStartHour(3);
+    assertEquals(3, clock.dayStartHour());
+    assertEquals(DailyProgressEngine.parseIsoDay("2025-03-10"), clock.todayEpochDay());
+    assertEquals(1741672800000L, clock.nextBoundaryMs());
+    assertEquals(1741672800000L - 24 * HOUR, clock.dayStartMs());
+    // Eventos de antes do início do dia caem no dia anterior
+    assertEquals(DailyProgressEngine.parseIsoDay("2025-03-09"), clock.epochDayAt(1741672800000L - 24 * HOUR - 1));
+    clock.setDayStartHour(24);
+    assertEquals(0, clock.dayStartHour());
+  }
+
+  @Test
+  public void dstDayKeepsCurrentInstantInsideInterval() {
+    // Nova York, 2025-03-09 com o dia começando às 02:00 (hora que não existe)
+    MutableClock src = new MutableClock(1741503600000L + HOUR, "America/New_York");
+    CachedDayClock clock = new CachedDayClock(src);
+    clock.setDayStartHour(2);
+    assertEquals(DailyProgressEngine.parseIsoDay("2025-03-09"), clock.todayEpochDay());
+    assertTrue(clock.dayStartMs() <= src.now);
+    assertTrue(clock.nextBoundaryMs() > src.now);
+    assertEquals(23 * HOUR, clock.nextBoundaryMs() - clock.dayStartMs());
+  }
+}
@@ -0,0 +1,191 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import java.util.TimeZone;
+import org.junit.Test;
+
+/**
+ * Confere o DailyProgressEngine contra as fórmulas de src/lib/reading.ts e src/lib/percentageUtils.ts.
+ * Os valores esperados foram derivados das mesmas expressões TS (ver comentários em cada caso).
+ */
+public class DailyProgressEngineTest {
+  private static final long TODAY = DailyProgressEngine.parseIsoDay("2025-03-10");
+
+  private static DailyProgressEngine.Inputs inputs(int kind, String targetISO) {
+    DailyProgressEngine.Inputs in = new DailyProgressEngine.Inputs();
+    in.kind = kind;
+    in.targetEpochDay = DailyProgressEngine.parseIsoDay(targetISO);
+    in.baselineEpochDay = TODAY;
+    return in;
+  }
+
+  @Test
+  public void parseIsoDay_matchesEpochDays() {
+    assertEquals(0, DailyProgressEngine.parseIsoDay("1970-01-01"));
+    assertEquals(20157, DailyProgressEngine.parseIsoDay("2025-03-10"));
+    assertEquals(19782, DailyProgressEngine.parseIsoDay("2024-02-29"));
+    assertEquals(DailyProgressEngine.NO_DAY, DailyProgressEngine.parseIsoDay("2025/03/10"));
+    assertEquals(DailyProgressEngine.NO_DAY, DailyProgressEngine.parseIsoDay(null));
+    assertEquals("2025-03-10", DailyProgressEngine.formatIsoDay(TODAY));
+    assertEquals("2024-02-29", DailyProgressEngine.formatIsoDay(19782));
+  }
+
+  @Test
+  public void localEpochDay_usesZoneOffset() {
+    // 2025-03-10T02:30Z é ainda 2025-03-09 em São Paulo (UTC-3)
+    long ms = TODAY * 86_400_000L + 150 * 60_000L;
+    assertEquals(TODAY, DailyProgressEngine.localEpochDay(ms, TimeZone.getTimeZone("UTC")));
+    assertEquals(TODAY - 1, DailyProgressEngine.localEpochDay(ms, TimeZone.getTimeZone("America/Sao_Paulo")));
+  }
+
+  @Test
+  public void daysRemaining_matchesComputeDaysRemaining() {
+    // Math.max(1, differenceInCalendarDays(target, today) + 1)
+    assertEquals(1, DailyProgressEngine.daysRemaining(TODAY, TODAY));
+    assertEquals(10, DailyProgressEngine.daysRemaining(TODAY + 9, TODAY));
+    assertEquals(1, DailyProgressEngine.daysRemaining(TODAY - 5, TODAY));
+  }
+
+  @Test
+  public void dailyTargetWords_matchesComputeDailyTargetWords() {
+    // Math.ceil(Math.max(0, 10000 - 2500) / 4) = 1875
+    assertEquals(1875, DailyProgressEngine.dailyTargetWords(10000, 2500, 4));
+    // Math.ceil(7501 / 4) = 1876
+    assertEquals(1876, DailyProgressEngine.dailyTargetWords(10001, 2500, 4));
+    assertEquals(0, DailyProgressEngine.dailyTargetWords(1000, 2000, 3));
+  }
+
+  @Test
+  public void calculatePercent_roundsAndClampsLikeTs() {
+    assertEquals(0, DailyProgressEngine.calculatePercent(5, 0));
+    assertEquals(0, DailyProgressEngine.calculatePercent(-1, 10));
+    assertEquals(50, DailyProgressEngine.calculatePercent(1, 2));
+    // Math.round(2.5) = 3 em JS (meio para cima)
+    assertEquals(3, DailyProgressEngine.calculatePercent(2.5, 100));
+    assertEquals(100, DailyProgressEngine.calculatePercent(300, 100));
+    assertEquals(-1, DailyProgressEngine.progressPercent(10, 0));
+  }
+
+  @Test
+  public void staticBook_sameDay() {
+    DailyProgressEngine.Inputs in = inputs(DailyProgressEngine.KIND_STATIC, "2025-03-13"); // 4 dias
+    in.targetWords = 10000;
+    in.baselineWords = 2500;
+    in.currentWords = 3000;
+    // target = 1875, achieved = 500 -> Math.round(500/1875*100) = 27
+    DailyProgressEngine.Result r = DailyProgressEngine.compute(in, TODAY);
+    assertEquals(27, r.percent);
+    assertTrue(r.hasGoal);
+  }
+
+  @Test
+  public void staticBook_rolloverUsesCurrentAsBaseline() {
+    DailyProgressEngine.Inputs in = inputs(DailyProgressEngine.KIND_STATIC, "2025-03-13");
+    in.targetWords = 10000;
+    in.baselineWords = 2500;
+    in.currentWords = 4375;
+    // Novo dia: baseline = 4375, achieved = 0 -> 0%, target = ceil(5625/3) = 1875 > 0
+    DailyProgressEngine.Result r = DailyProgressEngine.compute(in, TODAY + 1);
+    assertEquals(0, r.percent);
+    assertTrue(r.hasGoal);
+  }
+
+  @Test
+  public void staticBook_targetReachedYieldsNoUpdate() {
+    DailyProgressEngine.Inputs in = inputs(DailyProgressEngine.KIND_STATIC, "2025-03-13");
+    in.targetWords = 1000;
+    in.baselineWords = 1000;
+    in.currentWords = 1000;
+    // computeDailyProgressPercent(0, 0) === null -> dailyRefresh não atualiza
+    assertNull(DailyProgressEngine.compute(in, TODAY));
+  }
+
+  @Test
+  public void epub_sameDay() {
+    DailyProgressEngine.Inputs in = inputs(DailyProgressEngine.KIND_EPUB, "2025-03-19"); // 10 dias
+    in.baselinePercent = 40;
+    in.currentPercent = 43.5;
+    // dailyTargetPercent = Math.ceil(60/10) = 6; achieved = 3.5 -> Math.round(58.33) = 58
+    DailyProgressEngine.Result r = DailyProgressEngine.compute(in, TODAY);
+    assertEquals(58, r.percent);
+    assertTrue(r.hasGoal);
+  }
+
+  @Test
+  public void epub_ceilOfTargetPercent() {
+    DailyProgressEngine.Inputs in = inputs(DailyProgressEngine.KIND_EPUB, "2025-03-12"); // 3 dias
+    in.baselinePercent = 10;
+    in.currentPercent = 40;
+    // dailyTargetPercent = Math.ceil(90/3) = 30; achieved = 30 -> 100
+    assertEquals(100, DailyProgressEngine.compute(in, TODAY).percent);
+    in.currentPercent = 20;
+    // achieved 10 / 30 -> Math.round(33.33) = 33
+    assertEquals(33, DailyProgressEngine.compute(in, TODAY).percent);
+  }
+
+  @Test
+  public void epub_pastTargetDateStillOneDay() {
+    DailyProgressEngine.Inputs in = inputs(DailyProgressEngine.KIND_EPUB, "2025-03-01");
+    in.baselinePercent = 80;
+    in.currentPercent = 90;
+    // daysRemaining = 1 -> target = 20; achieved 10 -> 50
+    assertEquals(50, DailyProgressEngine.compute(in, TODAY).percent);
+  }
+
+  @Test
+  public void epub_rolloverPrefersTomorrowBaseline() {
+    DailyProgressEngine.Inputs in = inputs(DailyProgressEngine.KIND_EPUB, "2025-03-19"); // 10 dias
+    in.baselineEpochDay = TODAY - 1;
+    in.baselinePercent = 30;
+    in.currentPercent = 43.5;
+    in.nextBaselineEpochDay = TODAY;
+    in.nextBaselinePercent = 42;
+    // baseline de hoje = 42: target = Math.ceil(58/10) = 6; achieved 1.5 -> 25
+    assertEquals(25, DailyProgressEngine.compute(in, TODAY).percent);
+    // Baseline de amanhã de outro dia é ignorado: virada usa o progresso atual -> 0
+    in.nextBaselineEpochDay = TODAY - 1;
+    assertEquals(0, DailyProgressEngine.compute(in, TODAY).percent);
+  }
+
+  @Test
+  public void physical_pages() {
+    DailyProgressEngine.Inputs in = inputs(DailyProgressEngine.KIND_PHYSICAL, "2025-03-14"); // 5 dias
+    in.totalPages = 300;
+    in.baselinePage = 60;
+    in.baselinePercent = 20;
+    in.currentPage = 72;
+    // dailyTargetPercent = 80/5 = 16; pagesExpected = Math.ceil(0.16*300) = 48; read = 12 -> 25
+    DailyProgressEngine.Result r = DailyProgressEngine.compute(in, TODAY);
+    assertEquals(25, r.percent);
+    assertTrue(r.hasGoal);
+  }
+
+  @Test
+  public void physical_baselinePageFromPercent() {
+    DailyProgressEngine.Inputs in = inputs(DailyProgressEngine.KIND_PHYSICAL, "2025-03-14");
+    in.totalPages = 250;
+    in.baselinePercent = 10;
+    in.currentPage = 40;
+    // baselinePage = Math.round(0.10*250) = 25; read = 15; expected = Math.ceil(0.18*250) = 45 -> 33
+    assertEquals(33, DailyProgressEngine.compute(in, TODAY).percent);
+  }
+
+  @Test
+  public void physical_nothingExpectedButRead() {
+    DailyProgressEngine.Inputs in = inputs(DailyProgressEngine.KIND_PHYSICAL, "2025-03-14");
+    in.totalPages = 100;
+    in.baselinePage = 100;
+    in.baselinePercent = 100;
+    in.currentPage = 101;
+    assertEquals(100, DailyProgressEngine.compute(in, TODAY).percent);
+  }
+
+  @Test
+  public void noPlan_clearsGoal() {
+    DailyProgressEngine.Inputs in = new DailyProgressEngine.Inputs();
+    DailyProgressEngine.Result r = DailyProgressEngine.compute(in, TODAY);
+    assertEquals(0, r.percent);
+    assertFalse(r.hasGoal);
+  }
+}
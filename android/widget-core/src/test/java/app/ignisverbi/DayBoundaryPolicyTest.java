@@ -0,0 +1,53 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class DayBoundaryPolicyTest {
+
+  @Test
+  public void learningKeepsSafetyNetUntilStreak() {
+    DayBoundaryPolicy.Plan p = DayBoundaryPolicy.plan(34, DayBoundaryPolicy.BUCKET_ACTIVE, 0, -1);
+    assertEquals("learning", p.mode);
+    assertFalse(p.allowWhileIdle);
+    assertTrue(p.periodicWork);
+    assertEquals(2, p.wakeupsPerDay());
+
+    p = DayBoundaryPolicy.plan(34, DayBoundaryPolicy.BUCKET_ACTIVE, DayBoundaryPolicy.RELIABLE_STREAK, -1);
+    assertEquals("alarm", p.mode);
+    assertFalse(p.periodicWork);
+    assertEquals(1, p.wakeupsPerDay());
+  }
+
+  @Test
+  public void recentMissEscalatesAndRareBucketKeepsBoth() {
+    DayBoundaryPolicy.Plan p = DayBoundaryPolicy.plan(34, DayBoundaryPolicy.BUCKET_WORKING_SET, 0, 1);
+    assertEquals("escalated", p.mode);
+    assertTrue(p.allowWhileIdle);
+    assertTrue(p.periodicWork);
+
+    // Miss antigo não escala mais
+    assertFalse(DayBoundaryPolicy.plan(34, 0, 0, DayBoundaryPolicy.ESCALATION_DAYS).allowWhileIdle);
+
+    p = DayBoundaryPolicy.plan(34, DayBoundaryPolicy.BUCKET_RARE, 10, -1);
+    assertEquals("restricted", p.mode);
+    assertTrue(p.allowWhileIdle && p.periodicWork);
+  }
+
+  @Test
+  public void preOreoReliesOnDateChangedInsteadOfWorker() {
+    assertFalse(DayBoundaryPolicy.plan(25, 0, 0, -1).periodicWork);
+    assertTrue(DayBoundaryPolicy.plan(25, 0, 0, 2).periodicWork);
+  }
+
+  @Test
+  public void outcome() {
+    long t = 1741662000000L;
+    assertEquals(DayBoundaryPolicy.PENDING, DayBoundaryPolicy.outcome(t, 0, t - 1000));
+    assertEquals(DayBoundaryPolicy.PENDING, DayBoundaryPolicy.outcome(t, 0, t + DayBoundaryPolicy.TOLERANCE_MS));
+    assertEquals(DayBoundaryPolicy.MISSED, DayBoundaryPolicy.outcome(t, 0, t + DayBoundaryPolicy.TOLERANCE_MS + 1));
+    assertEquals(DayBoundaryPolicy.ON_TIME, DayBoundaryPolicy.outcome(t, t + 9 * 60 * 1000, t + 3_600_000));
+    assertEquals(DayBoundaryPolicy.LATE, DayBoundaryPolicy.outcome(t, t + 2 * 3_600_000, t + 2 * 3_600_000));
+  }
+}
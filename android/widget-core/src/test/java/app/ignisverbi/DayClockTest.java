@@ -0,0 +1,65 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import java.util.TimeZone;
+import org.junit.Test;
+
+public class DayClockTest {
+
+  private static DayClock fixed(long nowMs, String zoneId) {
+    final TimeZone tz = TimeZone.getTimeZone(zoneId);
+    return new DayClock() {
+      @Override
+      public long nowMs() { return nowMs; }
+
+      @Override
+      public TimeZone zone() { return tz; }
+    };
+  }
+
+  @Test
+  public void nextMidnightIsStartOfTomorrowInZone() {
+    // 2025-03-10T12:00:00Z = 09:00 em São Paulo (UTC-3)
+    DayClock clock = fixed(1741608000000L, "America/Sao_Paulo");
+    assertEquals(DailyProgressEngine.parseIsoDay("2025-03-10"), clock.todayEpochDay());
+    // 2025-03-11T00:00-03:00 = 2025-03-11T03:00:00Z
+    assertEquals(1741662000000L, clock.nextMidnightMs());
+  }
+
+  @Test
+  public void exactlyMidnightRollsToNextDay() {
+    DayClock clock = fixed(1741662000000L, "America/Sao_Paulo");
+    assertEquals(DailyProgressEngine.parseIsoDay("2025-03-11"), clock.todayEpochDay());
+    assertEquals(1741662000000L + 24L * 60 * 60 * 1000, clock.nextMidnightMs());
+  }
+
+  @Test
+  public void dayStartHourShiftsDayAndBoundary() {
+    final TimeZone tz = TimeZone.getTimeZone("America/Sao_Paulo");
+    // 2025-03-11T02:30-03:00: com o dia começando às 03:00 ainda é 10/03
+    DayClock clock = new DayClock() {
+      @Override
+      public long nowMs() { return 1741671000000L; }
+
+      @Override
+      public TimeZone zone() { return tz; }
+
+      @Override
+      public int dayStartHour() { return 3; }
+    };
+    assertEquals(DailyProgressEngine.parseIsoDay("2025-03-10"), clock.todayEpochDay());
+    // 2025-03-11T03:00-03:00 = 2025-03-11T06:00:00Z
+    assertEquals(1741672800000L, clock.nextBoundaryMs());
+  }
+
+  @Test
+  public void boundaryInsideDstGapMovesToFirstValidHour() {
+    // Nova York, 2025-03-09: 02:00 não existe (vai para 03:00 EDT = 07:00Z)
+    TimeZone ny = TimeZone.getTimeZone("America/New_York");
+    long day = DailyProgressEngine.parseIsoDay("2025-03-09");
+    assertEquals(1741503600000L, DayClock.boundaryMs(day, ny, 2));
+    assertEquals(day, DayClock.epochDay(1741503600000L, ny, 2));
+    assertEquals(day - 1, DayClock.epochDay(1741503600000L - 1, ny, 2));
+  }
+}
@@ -0,0 +1,55 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class EpubIndexTest {
+  private static EpubIndex sample() {
+    return new EpubIndex.Builder("sha-abc", 500)
+        .add("OEBPS/c1.xhtml", "/6/2[c1]", 1200, 210, Arrays.asList("epubcfi(/6/2[c1]!/4/2,/1:0,/1:500)", "epubcfi(/6/2[c1]!/4/2,/1:501,/1:1000)"))
+        .add("OEBPS/c2.xhtml", "/6/4", 300, 60, Collections.singletonList("epubcfi(/6/4!/4/2,/1:0,/1:300)"))
+        .build();
+  }
+
+  @Test
+  public void roundTrip() {
+    EpubIndex d = EpubIndex.decode(sample().encode());
+    assertNotNull(d);
+    assertEquals("sha-abc", d.sourceKey);
+    assertEquals(500, d.charsPerLocation);
+    assertEquals(3, d.locations.size());
+    assertEquals(2, d.sections.size());
+    EpubIndex.Section c2 = d.sections.get(1);
+    assertEquals("OEBPS/c2.xhtml", c2.href);
+    assertEquals("/6/4", c2.cfiBase);
+    assertEquals(1200, c2.charOffset);
+    assertEquals(210, c2.wordOffset);
+    assertEquals(2, c2.firstLocation);
+    assertEquals(1, c2.locationCount);
+    assertEquals(1500, d.totalChars);
+    assertEquals(270, d.totalWords);
+  }
+
+  @Test
+  public void rejectsCorruptedData() {
+    byte[] data = sample().encode();
+    data[20] ^= 1;
+    assertNull(EpubIndex.decode(data));
+    assertNull(EpubIndex.decode(new byte[8]));
+    assertNull(EpubIndex.decode(null));
+  }
+
+  @Test
+  public void locationsJsonIsWhatEpubJsLoads() {
+    assertEquals("[\"epubcfi(/6/2[c1]!/4/2,/1:0,/1:500)\",\"epubcfi(/6/2[c1]!/4/2,/1:501,/1:1000)\",\"epubcfi(/6/4!/4/2,/1:0,/1:300)\"]",
+        sample().locationsJson());
+    EpubIndex quoted = new EpubIndex.Builder("", 500)
+        .add("a.xhtml", "/6/2[a\"b]", 1, 1, Collections.singletonList("epubcfi(/6/2[a\"b]!/4,/1:0,/1:1)"))
+        .build();
+    assertEquals("[\"epubcfi(/6/2[a\\\"b]!/4,/1:0,/1:1)\"]", quoted.locationsJson());
+    assertEquals("[]", new EpubIndex.Builder("", 500).build().locationsJson());
+  }
+}
@@ -0,0 +1,124 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EpubIndexerTest {
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  private static final String CONTAINER =
+      "<?xml version=\"1.0\"?><container version=\"1.0\" xmlns=\"urn:oasis:names:tc:opendocument:xmlns:container\">"
+      + "<rootfiles><rootfile full-path=\"OEBPS/content.opf\" media-type=\"application/oebps-package+xml\"/></rootfiles></container>";
+
+  private static final String OPF =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<package xmlns=\"http://www.idpf.org/2007/opf\" version=\"3.0\">\n"
+      + "<metadata><dc:title xmlns:dc=\"http://purl.org/dc/elements/1.1/\">Teste</dc:title></metadata>\n"
+      + "<manifest>\n"
+      + "<item id=\"c1\" href=\"text/cap%201.xhtml\" media-type=\"application/xhtml+xml\"/>\n"
+      + "<item id=\"nota\" href=\"text/nota.xhtml\" media-type=\"application/xhtml+xml\"/>\n"
+      + "<item id=\"c2\" href=\"./text/../text/c2.xhtml\" media-type=\"application/xhtml+xml\"/>\n"
+      + "</manifest>\n"
+      + "<spine><itemref idref=\"c1\" id=\"c1ref\"/><itemref idref=\"nota\" linear=\"no\"/><itemref idref=\"c2\"/></spine>\n"
+      + "</package>";
+
+  private static final String CHAPTER_1 =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!DOCTYPE html>\n<html xmlns=\"http://www.w3.org/1999/xhtml\">\n"
+      + "<head><title>Cap 1</title></head>\n<body>\n"
+      + "<p id=\"p1\">Hello world, this is text.</p>\n"
+      + "<p>Segundo <b>par&aacute;grafo</b> aqui</p>\n"
+      + "</body>\n</html>";
+
+  // Sem <head>: o body é o primeiro filho do <html> (/2); o comentário separa dois nós de texto
+  private static final String CHAPTER_2 =
+      "<html xmlns=\"http://www.w3.org/1999/xhtml\"><body><div><p>ab<!-- corte -->cd<br/></p></div></body></html>";
+
+  private File epub() throws IOException {
+    File f = tmp.newFile("livro.epub");
+    try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(f))) {
+      put(zip, "mimetype", "application/epub+zip");
+      put(zip, "META-INF/container.xml", CONTAINER);
+      put(zip, "OEBPS/content.opf", OPF);
+      put(zip, "OEBPS/text/cap 1.xhtml", CHAPTER_1);
+      put(zip, "OEBPS/text/nota.xhtml", "<html><body><p>nota fora do fluxo</p></body></html>");
+      put(zip, "OEBPS/text/c2.xhtml", CHAPTER_2);
+    }
+    return f;
+  }
+
+  private static void put(ZipOutputStream zip, String name, String content) throws IOException {
+    zip.putNextEntry(new ZipEntry(name));
+    zip.write(content.getBytes(StandardCharsets.UTF_8));
+    zip.closeEntry();
+  }
+
+  @Test
+  public void locationsMatchEpubJsRanges() throws IOException {
+    EpubIndex idx = EpubIndexer.index(epub(), "hash-1", 10);
+    assertEquals(Arrays.asList(
+        "epubcfi(/6/2[c1ref]!/4/2[p1],/1:1,/1:11)",
+        "epubcfi(/6/2[c1ref]!/4/2[p1],/1:12,/1:22)",
+        "epubcfi(/6/2[c1ref]!/4,/2[p1]/1:23,/4/1:7)",
+        "epubcfi(/6/2[c1ref]!/4/4,/2/1:0,/3:1)",
+        "epubcfi(/6/2[c1ref]!/4/4,/3:2,/3:5)",
+        "epubcfi(/6/6!/2/2/2,/1:0,/3:2)"), idx.locations);
+  }
+
+  @Test
+  public void sectionsSkipNonLinearItemsAndAccumulateOffsets() throws IOException {
+    EpubIndex idx = EpubIndexer.index(epub(), "hash-1", 10);
+    assertEquals(2, idx.sections.size());
+    EpubIndex.Section c1 = idx.sections.get(0);
+    assertEquals("OEBPS/text/cap 1.xhtml", c1.href);
+    assertEquals("/6/2[c1ref]", c1.cfiBase);
+    assertEquals(26 + 8 + 9 + 5, c1.chars); // só nós de texto não vazios do body; &aacute; conta 1
+    assertEquals(8, c1.words);               // o <title> do head não conta
+    assertEquals(5, c1.locationCount);
+    EpubIndex.Section c2 = idx.sections.get(1);
+    assertEquals("/6/6", c2.cfiBase);
+    assertEquals(48, c2.charOffset);
+    assertEquals(8, c2.wordOffset);
+    assertEquals(5, c2.firstLocation);
+    assertEquals(4, c2.chars);
+    assertEquals(1, c2.words); // "ab" e "cd" sem espaço entre si
+    assertEquals(52, idx.totalChars);
+    assertEquals(9, idx.totalWords);
+    assertEquals("hash-1", idx.sourceKey);
+  }
+
+  @Test
+  public void defaultStepIsTheReaderStep() throws IOException {
+    EpubIndex idx = EpubIndexer.index(epub(), "hash-1");
+    assertEquals(EpubIndex.CHARS_PER_LOCATION, idx.charsPerLocation);
+    // Menos de 500 caracteres por documento: um range por documento, do início ao fim do último nó
+    assertEquals(Arrays.asList(
+        "epubcfi(/6/2[c1ref]!/4,/2[p1]/1:0,/4/3:5)",
+        "epubcfi(/6/6!/2/2/2,/1:0,/3:2)"), idx.locations);
+  }
+
+  @Test
+  public void resolvesManifestHrefs() {
+    assertEquals("OEBPS/text/cap 1.xhtml", EpubIndexer.resolve("OEBPS/", "text/cap%201.xhtml#topo"));
+    assertEquals("OEBPS/c2.xhtml", EpubIndexer.resolve("OEBPS/text/", "../c2.xhtml"));
+    assertEquals("a+b.xhtml", EpubIndexer.resolve("", "a+b.xhtml"));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsZipWithoutContainer() throws IOException {
+    File f = tmp.newFile("vazio.epub");
+    try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(f))) {
+      put(zip, "mimetype", "application/epub+zip");
+    }
+    EpubIndexer.index(f, "x");
+  }
+}
@@ -0,0 +1,58 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class WidgetBindingsTest {
+
+  @Test
+  public void invertedIndexFollowsBindings() {
+    WidgetBindings b = WidgetBindings.EMPTY
+        .bind(7, "user-a")
+        .bind(3, "user-a")
+        .bind(5, WidgetBindings.ACTIVE);
+    assertArrayEquals(new int[] {3, 7}, b.idsFor("user-a"));
+    assertArrayEquals(new int[] {5}, b.idsFor(WidgetBindings.ACTIVE));
+    assertEquals(0, b.idsFor("user-b").length);
+
+    b = b.bind(7, "user-b");
+    assertArrayEquals(new int[] {3}, b.idsFor("user-a"));
+    assertArrayEquals(new int[] {7}, b.idsFor("user-b"));
+    assertEquals("user-b", b.bookFor(7));
+  }
+
+  @Test
+  public void unknownIdsFollowActiveBook() {
+    WidgetBindings b = WidgetBindings.EMPTY.bind(1, "user-a");
+    assertEquals(WidgetBindings.ACTIVE, b.bookFor(42));
+    WidgetBindings filled = b.bindMissing(new int[] {1, 42});
+    assertEquals("user-a", filled.bookFor(1));
+    assertArrayEquals(new int[] {42}, filled.idsFor(WidgetBindings.ACTIVE));
+    assertSame(filled, filled.bindMissing(new int[] {42}));
+  }
+
+  @Test
+  public void removeCleansBothIndexes() {
+    WidgetBindings b = WidgetBindings.EMPTY.bind(1, "user-a").bind(2, "user-a").bind(3, "user-b");
+    WidgetBindings r = b.remove(new int[] {2, 3, 99});
+    assertEquals(1, r.size());
+    assertArrayEquals(new int[] {1}, r.idsFor("user-a"));
+    assertEquals(0, r.idsFor("user-b").length);
+    assertFalse(r.contains(3));
+    assertSame(r, r.remove(new int[] {99}));
+  }
+
+  @Test
+  public void roundTripAndCorruption() {
+    WidgetBindings b = WidgetBindings.EMPTY.bind(10, "physical-ç").bind(4, WidgetBindings.ACTIVE);
+    byte[] data = b.encode();
+    WidgetBindings d = WidgetBindings.decode(data);
+    assertEquals(2, d.size());
+    assertEquals("physical-ç", d.bookFor(10));
+    assertEquals(WidgetBindings.ACTIVE, d.bookFor(4));
+    data[8] ^= 1;
+    assertNull(WidgetBindings.decode(data));
+    assertNull(WidgetBindings.decode(null));
+  }
+}
@@ -0,0 +1,25 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class WidgetFreshnessTest {
+  private static final long NOW = 1741600000000L;
+
+  @Test
+  public void classify() {
+    assertEquals(WidgetFreshness.MISSING, WidgetFreshness.classify(null, 100, NOW));
+    assertEquals(WidgetFreshness.FRESH, WidgetFreshness.classify(new WidgetState(10, true, 100, NOW - 1000, 1), 100, NOW));
+    assertEquals(WidgetFreshness.STALE,
+        WidgetFreshness.classify(new WidgetState(10, true, 100, NOW - WidgetFreshness.DATA_STALE_THRESHOLD_MS - 1, 1), 100, NOW));
+    assertEquals(WidgetFreshness.OTHER_DAY, WidgetFreshness.classify(new WidgetState(10, true, 99, NOW - 1000, 1), 100, NOW));
+  }
+
+  @Test
+  public void refreshDueAfterIntervalOrClockGoingBack() {
+    assertFalse(WidgetFreshness.refreshDue(NOW - 1000, NOW));
+    assertTrue(WidgetFreshness.refreshDue(NOW - WidgetFreshness.MIN_REFRESH_INTERVAL_MS - 1, NOW));
+    assertTrue(WidgetFreshness.refreshDue(NOW + 60_000, NOW));
+  }
+}
@@ -0,0 +1,31 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class WidgetGeometryTest {
+
+  @Test
+  public void bucketsRoundToNearestStep() {
+    assertEquals(108, WidgetGeometry.bucket(110 - 3));
+    assertEquals(112, WidgetGeometry.bucket(110));
+    assertEquals(40, WidgetGeometry.bucket(40));
+    assertEquals(WidgetGeometry.BUCKET_DP, WidgetGeometry.bucket(0));
+  }
+
+  @Test
+  public void paddingsMatchGuidelines() {
+    WidgetGeometry g = WidgetGeometry.forSize(112, 40, 2f);
+    assertEquals((int) (80 * 0.75f) - 10, g.barTopPx);
+    assertEquals((int) (224 * 0.40f), g.textLeftPx);
+    assertEquals((int) (80 * 0.22f), g.textTopPx);
+  }
+
+  @Test
+  public void sameBucketIsCachedUntilDensityChanges() {
+    WidgetGeometry a = WidgetGeometry.forSize(110, 40, 3f);
+    assertSame(a, WidgetGeometry.forSize(111, 41, 3f));
+    assertNotSame(a, WidgetGeometry.forSize(110, 40, 2.75f));
+  }
+}
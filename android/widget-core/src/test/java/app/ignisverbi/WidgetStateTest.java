@@ -0,0 +1,61 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class WidgetStateTest {
+
+  @Test
+  public void roundTrip() {
+    WidgetState s = new WidgetState(73, true, 20157, 1741600000000L, 42);
+    byte[] data = WidgetState.encode(s);
+    assertEquals(WidgetState.RECORD_SIZE, data.length);
+    WidgetState d = WidgetState.decode(data);
+    assertEquals(73, d.percent);
+    assertTrue(d.hasGoal);
+    assertEquals(20157, d.epochDay);
+    assertEquals(1741600000000L, d.ts);
+    assertEquals(42, d.version);
+  }
+
+  @Test
+  public void rejectsCorruptedOrTruncatedRecords() {
+    byte[] data = WidgetState.encode(new WidgetState(10, false, 1, 2, 3));
+    data[7] = 99; // percent adulterado -> CRC não confere
+    assertNull(WidgetState.decode(data));
+    assertNull(WidgetState.decode(new byte[10]));
+    assertNull(WidgetState.decode(null));
+  }
+
+  @Test
+  public void clampsPercentAndKeepsLegacyJsonShape() {
+    WidgetState s = new WidgetState(140, false, 20157, 5, 1);
+    assertEquals(100, s.percent);
+    assertEquals("{\"percent\":100,\"hasGoal\":false,\"ts\":5,\"day\":\"2025-03-10\"}", s.toJson());
+  }
+
+  @Test
+  public void inputsSectionFollowsRecord() {
+    WidgetState s = new WidgetState(55, true, 20157, 9, 4);
+    String json = "{\"kind\":\"epub\",\"bookId\":\"á\"}";
+    byte[] data = WidgetState.encodeFile(s, json);
+    assertEquals(55, WidgetState.decode(data).percent);
+    assertEquals(json, WidgetState.decodeInputs(data));
+    assertFalse(WidgetState.isEmptyRecord(data));
+
+    byte[] onlyRecord = WidgetState.encodeFile(s, null);
+    assertEquals(WidgetState.RECORD_SIZE, onlyRecord.length);
+    assertNull(WidgetState.decodeInputs(onlyRecord));
+  }
+
+  @Test
+  public void inputsWithoutStateKeepEmptyRecord() {
+    byte[] data = WidgetState.encodeFile(null, "{}");
+    assertTrue(WidgetState.isEmptyRecord(data));
+    assertNull(WidgetState.decode(data));
+    assertEquals("{}", WidgetState.decodeInputs(data));
+    data[data.length - 1] ^= 1; // CRC das entradas
+    assertNull(WidgetState.decodeInputs(data));
+  }
+}
@@ -0,0 +1,51 @@
+package app.ignisverbi;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class WordIndexTest {
+  // Parte 0: 3 capítulos; parte 1: vazia; parte 2: 2 capítulos
+  private static WordIndex sample() {
+    return WordIndex.of("v1", new int[][] { { 100, 20, 3 }, {}, { 40, 7 } });
+  }
+
+  @Test
+  public void lookupsMatchReadingTs() {
+    WordIndex idx = sample();
+    assertEquals(170, idx.totalWords());
+    assertEquals(0, idx.wordsBefore(0, 0));
+    assertEquals(120, idx.wordsBefore(0, 2));
+    assertEquals(123, idx.wordsBefore(0, 99)); // capítulo além do fim: a parte inteira
+    assertEquals(123, idx.wordsBefore(1, 0));
+    assertEquals(163, idx.wordsBefore(2, 1));
+    assertEquals(170, idx.wordsBefore(5, 0));
+    assertEquals(0, idx.wordsBefore(-1, 3));
+    assertEquals(100, idx.wordsThrough(0, 0));
+    assertEquals(123, idx.wordsThrough(0, 2));
+    assertEquals(0, idx.wordsThrough(0, -1));
+    assertEquals(170, idx.wordsThrough(2, 1));
+    assertEquals(3, idx.parts());
+    assertEquals(0, idx.chapters(1));
+  }
+
+  @Test
+  public void roundTrip() {
+    WordIndex d = WordIndex.decode(sample().encode());
+    assertNotNull(d);
+    assertEquals("v1", d.contentVersion);
+    assertEquals(170, d.totalWords());
+    assertEquals(163, d.wordsBefore(2, 1));
+    assertEquals(2, d.chapters(2));
+    assertEquals(0, WordIndex.decode(WordIndex.of(null, new int[0][]).encode()).totalWords());
+  }
+
+  @Test
+  public void rejectsCorruptedData() {
+    byte[] data = sample().encode();
+    data[12] ^= 1;
+    assertNull(WordIndex.decode(data));
+    assertNull(WordIndex.decode(new byte[16]));
+    assertNull(WordIndex.decode(null));
+  }
+}
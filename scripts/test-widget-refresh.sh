@@ -29,14 +29,15 @@ show_widget_logs() {
     echo "📋 Logs do Widget (Ctrl+C para parar):"
     echo "---"
     adb logcat -c  # Limpa logs anteriores
-    adb logcat | grep -E "ProgressWidgetProvider|MainActivity|devotaDailyRefresh|WidgetUpdater" --line-buffered
+    adb logcat | grep -E "ProgressWidgetProvider|MainActivity|devotaDailyRefresh|HeadlessRefresh|WidgetUpdater" --line-buffered
 }
 
 # Função para verificar estado do SharedPreferences
 check_widget_state() {
     echo ""
     echo "📊 Estado atual do widget:"
-    adb shell run-as $PACKAGE_NAME cat /data/data/$PACKAGE_NAME/shared_prefs/CapacitorStorage.xml 2>/dev/null | grep -A 3 "widget:dailyProgress" || echo "Dados não encontrados"
+    # Registro binário de 36 bytes (ver WidgetState.java): magic|format|flags|percent|epochDay|ts|version|crc32
+    adb shell run-as $PACKAGE_NAME od -A d -t x1 /data/data/$PACKAGE_NAME/files/widget_state.bin 2>/dev/null || echo "Dados não encontrados"
     echo ""
 }
 
@@ -0,0 +1,3 @@
+// Entrada mínima carregada pelo HeadlessWebViewHost (WebView offscreen do Android).
+// Não monta o React nem inicia a replicação: só registra window.devotaHeadlessRefresh.
+import './lib/dailyRefresh'
@@ -1,8 +1,8 @@
 import { useEffect, useRef, useState } from 'react';
-import { format } from 'date-fns';
+import { invalidateToday, nextDayStartMs, todayISO } from '@/lib/dayClock';
 
 export function useTodayISO() {
-  const [todayISO, setTodayISO] = useState(() => format(new Date(), 'yyyy-MM-dd'));
+  const [today, setToday] = useState(() => todayISO());
   const timeoutRef = useRef<number | null>(null);
 
   useEffect(() => {
@@ -12,27 +12,26 @@ export function useTodayISO() {
     };
     const check = () => {
       try {
-    const nowISO = format(new Date(), 'yyyy-MM-dd');
-        if (nowISO !== todayISO) setTodayISO(nowISO);
+        const nowISO = todayISO();
+        if (nowISO !== today) setToday(nowISO);
       } catch {}
     };
-    const msUntilNextMidnight = () => {
-      const now = new Date();
-      const next = new Date(now);
-      next.setHours(24, 0, 0, 0);
-      return Math.max(100, next.getTime() - now.getTime());
-    };
+    // Virada compartilhada com o widget (meia-noite ou a hora de início do dia)
+    const msUntilNextDay = () => Math.max(100, nextDayStartMs() - Date.now());
     const schedule = () => {
       clear();
-      try { timeoutRef.current = window.setTimeout(() => { check(); schedule(); }, msUntilNextMidnight()); } catch {}
+      try { timeoutRef.current = window.setTimeout(() => { check(); schedule(); }, msUntilNextDay()); } catch {}
     };
     const onVisible = () => {
-      if (document.visibilityState === 'visible') check();
+      if (document.visibilityState === 'visible') {
+        invalidateToday();
+        check();
+      }
       schedule();
     };
     try { document.addEventListener('visibilitychange', onVisible); } catch {}
     try { window.addEventListener('focus', onVisible as any); } catch {}
-    // Initial check and schedule to next midnight
+    // Initial check and schedule to next day start
     check();
     schedule();
     return () => {
@@ -40,7 +39,7 @@ export function useTodayISO() {
       try { window.removeEventListener('focus', onVisible as any); } catch {}
       clear();
     };
-  }, [todayISO]);
+  }, [today]);
 
-  return todayISO;
+  return today;
 }
@@ -1,5 +1,5 @@
 import { useState, useEffect } from 'react';
-import { getCoverObjectUrl, saveCoverBlob } from '@/lib/coverCache';
+import { cacheRemoteCover, getCoverObjectUrl, saveCoverBlob } from '@/lib/coverCache';
 
 /**
  * Custom hook to manage book cover images with local caching
@@ -9,8 +9,9 @@ import { getCoverObjectUrl, saveCoverBlob } from '@/lib/coverCache';
  * @returns The cover image URL to display (from cache or freshly loaded)
  * 
  * How it works:
- * 1. First checks local cache for the cover
+ * 1. First checks local cache for the cover (native thumbnail file in the app, Cache Storage on web)
  * 2. If not cached and coverUrl is external (http/https), downloads and caches it
+ *    (natively in the app; via the weserv proxy on web)
  * 3. If coverUrl is base64, uses it directly (won't be cached or synced)
  */
 export function useCoverImage(bookId: string | undefined, coverUrl: string | undefined | null, coverVersion?: number): string | null {
@@ -57,9 +58,20 @@ export function useCoverImage(bookId: string | undefined, coverUrl: string | und
 
                 // Step 4: It's an external URL - download and cache it
                 try {
-                    // Use weserv.nl proxy to bypass CORS for external images
-                    // Convert http to https for weserv compatibility
+                    // Convert http to https (weserv and Android cleartext policy)
                     const secureUrl = coverUrl.replace(/^http:/, 'https:');
+
+                    // In the app the native cache downloads and downsizes it, no CORS proxy needed
+                    const nativeUrl = await cacheRemoteCover(bookId, secureUrl);
+                    if (nativeUrl) {
+                        if (isMounted) {
+                            setImageSrc(nativeUrl);
+                            setIsLoading(false);
+                        }
+                        return;
+                    }
+
+                    // Use weserv.nl proxy to bypass CORS for external images
                     const proxyUrl = `https://images.weserv.nl/?url=${encodeURIComponent(secureUrl)}`;
 
                     const response = await fetch(proxyUrl);
@@ -67,11 +79,11 @@ export function useCoverImage(bookId: string | undefined, coverUrl: string | und
 
                     const blob = await response.blob();
 
-                    // Save to cache for future use
-                    await saveCoverBlob(bookId, blob);
+                    // Save to cache for future use (native returns the thumbnail file URL)
+                    const savedUrl = await saveCoverBlob(bookId, blob);
 
                     // Create object URL for display
-                    const objectUrl = URL.createObjectURL(blob);
+                    const objectUrl = savedUrl ?? URL.createObjectURL(blob);
 
                     if (isMounted) {
                         setImageSrc(objectUrl);
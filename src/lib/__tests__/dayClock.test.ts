@@ -0,0 +1,47 @@
+import { describe, it, expect, beforeAll, afterEach, vi } from 'vitest';
+import { todayISO, tomorrowISO, nextDayStartMs, setDayStartHour, invalidateToday } from '../dayClock';
+
+// Datas locais (construtor com componentes): o resultado não depende do fuso da máquina de testes
+const at = (y: number, m: number, d: number, h: number) => new Date(y, m - 1, d, h).getTime();
+
+describe('dayClock', () => {
+  beforeAll(() => {
+    vi.useFakeTimers();
+  });
+
+  afterEach(async () => {
+    await setDayStartHour(0);
+    invalidateToday();
+  });
+
+  it('turns the day at local midnight and exposes the next boundary', () => {
+    vi.setSystemTime(at(2025, 9, 7, 23));
+    expect(todayISO()).toBe('2025-09-07');
+    expect(tomorrowISO()).toBe('2025-09-08');
+    expect(nextDayStartMs()).toBe(at(2025, 9, 8, 0));
+
+    vi.setSystemTime(at(2025, 9, 8, 0));
+    expect(todayISO()).toBe('2025-09-08');
+  });
+
+  it('recomputes when the clock goes back before the cached day', () => {
+    vi.setSystemTime(at(2025, 9, 8, 10));
+    expect(todayISO()).toBe('2025-09-08');
+    vi.setSystemTime(at(2025, 9, 7, 10));
+    expect(todayISO()).toBe('2025-09-07');
+  });
+
+  it('keeps the previous day until the configured start hour', async () => {
+    await setDayStartHour(4);
+    vi.setSystemTime(at(2025, 9, 8, 3));
+    expect(todayISO()).toBe('2025-09-07');
+    expect(nextDayStartMs()).toBe(at(2025, 9, 8, 4));
+
+    vi.setSystemTime(at(2025, 9, 8, 4));
+    expect(todayISO()).toBe('2025-09-08');
+  });
+
+  it('rejects hours outside 0-23', async () => {
+    await expect(setDayStartHour(24)).rejects.toThrow();
+  });
+});
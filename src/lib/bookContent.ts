@@ -0,0 +1,115 @@
+import { bookContentVersion, type BookMeta } from '@/lib/books';
+import { countWordsInChapter, type Paragraph, type Part, type Position } from '@/lib/reading';
+import { canUseNative } from '@/lib/widgetUpdater';
+import { BookContent } from '@/lib/bookContentPlugin';
+
+// Conteúdo de livro estático. No app fica no contêiner nativo (BookContentStore.java): abrir lê só o
+// sumário e cada capítulo vem do arquivo mapeado, sem o livro inteiro no heap do WebView nem no
+// localStorage. No web continua o JSON em book:${id}.
+
+export interface BookTocChapter {
+  title: string;
+  paragraphs: number;
+  words: number;
+}
+
+export interface BookToc {
+  parts: { title: string; chapters: BookTocChapter[] }[];
+}
+
+export interface ChapterContent {
+  title: string;
+  total: number; // parágrafos no capítulo
+  from: number;
+  paragraphs: Paragraph[];
+}
+
+export interface BookContentSource {
+  webPath?: string; // JSON embutido no app (public/...)
+  url?: string;
+  json?: string;
+}
+
+// Estrutura já parseada no web, uma por sessão
+let webBook: { id: string; parts: Part[] } | null = null;
+
+function webParts(id: string): Part[] | null {
+  if (webBook?.id === id) return webBook.parts;
+  try {
+    const raw = localStorage.getItem(`book:${id}`);
+    if (!raw) return null;
+    webBook = { id, parts: JSON.parse(raw) };
+    return webBook.parts;
+  } catch {
+    return null;
+  }
+}
+
+// Importa para o contêiner nativo (JSON lido em fluxo no nativo); false no web ou em falha
+export async function importBookContent(meta: BookMeta, source: BookContentSource): Promise<boolean> {
+  if (!canUseNative()) return false;
+  try {
+    const r = await BookContent.importBook({ bookId: meta.id, contentVersion: bookContentVersion(meta), ...source });
+    console.log('[bookContent] importBook', { bookId: meta.id, parts: r.parts, words: r.words });
+    return r.imported;
+  } catch (e) {
+    console.log('[bookContent] importBook failed', e);
+    return false;
+  }
+}
+
+// Move o book:${id} do localStorage para o contêiner nativo e libera a quota; true se migrou. O host
+// offscreen (sem Capacitor) lê as palavras do contêiner pela ponte (DevotaHeadlessHost.wordIndex).
+export async function migrateCachedBook(meta: BookMeta): Promise<boolean> {
+  if (!canUseNative()) return false;
+  let raw: string | null = null;
+  try { raw = localStorage.getItem(`book:${meta.id}`); } catch { }
+  if (!raw) return false;
+  const ok = await importBookContent(meta, { json: raw });
+  if (ok) { try { localStorage.removeItem(`book:${meta.id}`); } catch { } }
+  return ok;
+}
+
+export async function getBookToc(meta: BookMeta): Promise<BookToc | null> {
+  if (canUseNative()) {
+    try {
+      const r = await BookContent.getBookToc({ bookId: meta.id, contentVersion: bookContentVersion(meta) });
+      if (r.ready && r.parts) return { parts: r.parts };
+      if (await migrateCachedBook(meta)) return getBookToc(meta);
+    } catch (e) {
+      console.log('[bookContent] getBookToc failed', e);
+    }
+    return null;
+  }
+  const parts = webParts(meta.id);
+  if (!parts) return null;
+  return {
+    parts: parts.map((part) => ({
+      title: part.part_title,
+      chapters: part.chapters.map((ch) => ({
+        title: ch.chapter_title,
+        paragraphs: ch.content.length,
+        words: countWordsInChapter(ch),
+      })),
+    })),
+  };
+}
+
+// Parágrafos [from, to) de um capítulo; sem intervalo, o capítulo inteiro
+export async function getChapterContent(meta: BookMeta, pos: Position, range?: { from?: number; to?: number }): Promise<ChapterContent | null> {
+  if (canUseNative()) {
+    try {
+      const r = await BookContent.getChapter({ bookId: meta.id, contentVersion: bookContentVersion(meta), ...pos, ...range });
+      if (r.ready && r.paragraphs) return { title: r.title ?? '', total: r.total ?? r.paragraphs.length, from: r.from ?? 0, paragraphs: r.paragraphs };
+      if (await migrateCachedBook(meta)) return getChapterContent(meta, pos, range);
+    } catch (e) {
+      console.log('[bookContent] getChapter failed', e);
+    }
+    return null;
+  }
+  const chapter = webParts(meta.id)?.[pos.partIndex]?.chapters[pos.chapterIndex];
+  if (!chapter) return null;
+  const from = Math.max(0, range?.from ?? 0);
+  const to = Math.min(chapter.content.length, range?.to ?? chapter.content.length);
+  return { title: chapter.chapter_title, total: chapter.content.length, from, paragraphs: chapter.content.slice(from, Math.max(from, to)) };
+}
@@ -0,0 +1,24 @@
+import { registerPlugin } from '@capacitor/core';
+
+// Livro estático no contêiner nativo (BookContainer.java): sumário sem conteúdo e capítulos sob demanda
+export interface BookTocResult {
+  ready: boolean;
+  parts?: { title: string; chapters: { title: string; paragraphs: number; words: number }[] }[];
+}
+
+export interface ChapterResult {
+  ready: boolean;
+  title?: string;
+  total?: number; // parágrafos do capítulo
+  from?: number;
+  paragraphs?: { type: string; content: string }[];
+}
+
+// Plugin BookContent (BookContentPlugin.java); disponibilidade pelo canUseNative do widgetUpdater
+export interface BookContentPlugin {
+  importBook(opts: { bookId: string; contentVersion: string; webPath?: string; url?: string; json?: string }): Promise<{ imported: boolean; parts: number; words: number }>;
+  getBookToc(opts: { bookId: string; contentVersion: string }): Promise<BookTocResult>;
+  getChapter(opts: { bookId: string; contentVersion?: string; partIndex: number; chapterIndex: number; from?: number; to?: number }): Promise<ChapterResult>;
+}
+
+export const BookContent = registerPlugin<BookContentPlugin>('BookContent');
@@ -15,6 +15,7 @@ export type BookMeta = {
   hasLocalFile?: boolean;      // For cross-device EPUB sync
   percentage?: number;         // Reading progress percentage
   needsReUpload?: boolean;     // For EPUBs synced from cloud without local blob
+  contentVersion?: string;     // Bump when the bundled content changes (invalidates the native word index)
 };
 
 // Validate that no static book IDs start with reserved prefixes
@@ -91,3 +92,6 @@ export const BOOKS: BookMeta[] = validateBookIds([
 ]);
 
 export const getBookById = (id: string) => BOOKS.find((b) => b.id === id);
+
+// Content version that invalidates native indexes/containers: explicit, or the content URL (hash in the name)
+export const bookContentVersion = (meta: BookMeta): string => meta.contentVersion ?? meta.sourceUrl ?? '';
@@ -1,44 +1,118 @@
+import { Capacitor } from '@capacitor/core';
+import { canUseNative } from '@/lib/widgetUpdater';
+import { CoverCache, type CoverResult } from '@/lib/coverCachePlugin';
+
 const CACHE_NAME = 'cover-cache-v1';
 
-export async function getCoverObjectUrl(id: string): Promise<string | null> {
+// Maior lado exibido (px CSS): grade da biblioteca (h-72) e página de detalhes (até 280px de largura, 2:3)
+export const COVER_GRID_CSS = 288;
+export const COVER_DETAIL_CSS = 420;
+
+// No app, as capas ficam no cache nativo (CoverCache.java): reduzidas no nativo para o tamanho pedido,
+// em disco com LRU, e entregues ao <img> como URL de arquivo — sem blobs na ponte nem object URLs
+function coverPx(cssPx: number): number {
+  return Math.ceil(cssPx * (window.devicePixelRatio || 1));
+}
+
+function fileUrl(r: CoverResult): string | null {
+  return r.hit && r.path ? Capacitor.convertFileSrc(r.path) : null;
+}
+
+async function blobToBase64(blob: Blob): Promise<string> {
+  const dataUrl = await new Promise<string>((resolve, reject) => {
+    const reader = new FileReader();
+    reader.onload = () => resolve(reader.result as string);
+    reader.onerror = () => reject(reader.error);
+    reader.readAsDataURL(blob);
+  });
+  return dataUrl.slice(dataUrl.indexOf(',') + 1);
+}
+
+async function cachedBlob(id: string): Promise<Blob | null> {
   try {
     if (!('caches' in window)) return null;
     const cache = await caches.open(CACHE_NAME);
-    const key = `/covers/${encodeURIComponent(id)}`;
-    const res = await cache.match(key);
+    const res = await cache.match(`/covers/${encodeURIComponent(id)}`);
     if (!res || !res.ok) return null;
-    const blob = await res.blob();
-    return URL.createObjectURL(blob);
+    return await res.blob();
   } catch {
     return null;
   }
 }
 
-export async function saveCoverBlob(id: string, blob: Blob): Promise<void> {
+async function deleteCachedBlob(id: string): Promise<void> {
   try {
     if (!('caches' in window)) return;
     const cache = await caches.open(CACHE_NAME);
-    const key = `/covers/${encodeURIComponent(id)}`;
-    const headers = new Headers({ 'Content-Type': blob.type || 'image/jpeg' });
-    const res = new Response(blob, { headers });
-    await cache.put(key, res);
+    await cache.delete(`/covers/${encodeURIComponent(id)}`);
   } catch {
     // best effort
   }
 }
 
-export async function deleteCover(id: string): Promise<void> {
+export async function getCoverObjectUrl(id: string, cssPx: number = COVER_GRID_CSS): Promise<string | null> {
+  if (canUseNative()) {
+    try {
+      const url = fileUrl(await CoverCache.getCover({ bookId: id, size: coverPx(cssPx) }));
+      if (url) return url;
+      // Capa gravada no Cache Storage antes do cache nativo: migra uma vez
+      const legacy = await cachedBlob(id);
+      if (!legacy) return null;
+      const migrated = await saveCoverBlob(id, legacy, cssPx);
+      if (migrated) await deleteCachedBlob(id);
+      return migrated;
+    } catch {
+      return null;
+    }
+  }
+  const blob = await cachedBlob(id);
+  return blob ? URL.createObjectURL(blob) : null;
+}
+
+// Grava a capa; no app devolve a URL da miniatura já reduzida para cssPx (null no web ou em falha)
+export async function saveCoverBlob(id: string, blob: Blob, cssPx: number = COVER_GRID_CSS): Promise<string | null> {
+  if (canUseNative()) {
+    try {
+      return fileUrl(await CoverCache.putCover({ bookId: id, size: coverPx(cssPx), data: await blobToBase64(blob) }));
+    } catch {
+      return null;
+    }
+  }
   try {
-    if (!('caches' in window)) return;
+    if (!('caches' in window)) return null;
     const cache = await caches.open(CACHE_NAME);
     const key = `/covers/${encodeURIComponent(id)}`;
-    await cache.delete(key);
+    const headers = new Headers({ 'Content-Type': blob.type || 'image/jpeg' });
+    const res = new Response(blob, { headers });
+    await cache.put(key, res);
   } catch {
     // best effort
   }
+  return null;
+}
+
+// Capa remota baixada direto pelo nativo (sem CORS, sem proxy); null no web, onde o chamador segue com o proxy
+export async function cacheRemoteCover(id: string, url: string, cssPx: number = COVER_GRID_CSS): Promise<string | null> {
+  if (!canUseNative()) return null;
+  try {
+    return fileUrl(await CoverCache.putCover({ bookId: id, size: coverPx(cssPx), url }));
+  } catch (e) {
+    console.log('[coverCache] putCover url failed', e);
+    return null;
+  }
+}
+
+export async function deleteCover(id: string): Promise<void> {
+  if (canUseNative()) {
+    try { await CoverCache.deleteCover({ bookId: id }); } catch { }
+  }
+  await deleteCachedBlob(id);
 }
 
 export async function clearCoverCache(): Promise<void> {
+  if (canUseNative()) {
+    try { await CoverCache.clearCovers(); } catch { }
+  }
   try {
     if (!('caches' in window)) return;
     // Delete only this cache name to avoid removing other app caches
@@ -0,0 +1,17 @@
+import { registerPlugin } from '@capacitor/core';
+
+// Capa reduzida no cache nativo (CoverCache.java); path é arquivo local, para Capacitor.convertFileSrc
+export interface CoverResult {
+  hit: boolean;
+  path?: string;
+}
+
+// Plugin CoverCache (CoverCachePlugin.java)
+export interface CoverCachePlugin {
+  getCover(opts: { bookId: string; size: number }): Promise<CoverResult>;
+  putCover(opts: { bookId: string; size: number; data?: string; url?: string }): Promise<CoverResult>;
+  deleteCover(opts: { bookId: string }): Promise<void>;
+  clearCovers(): Promise<void>;
+}
+
+export const CoverCache = registerPlugin<CoverCachePlugin>('CoverCache');
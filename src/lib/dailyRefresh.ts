@@ -1,13 +1,15 @@
 import { BOOKS } from './books';
 import { getReadingPlan, getProgress, getDailyBaseline, setDailyBaseline, getLastBookIdAsync } from './storage';
-import { computeTotalWords, computeWordsUpToPosition, computeWordsUpToInclusiveTarget, computeDaysRemaining, computeDailyTargetWords, computeAchievedWordsToday, computeDailyProgressPercent } from './reading';
-import { updateDailyProgressWidget } from '@/main';
+import { computeDaysRemaining, computeDailyTargetWords, computeAchievedWordsToday, computeDailyProgressPercent } from './reading';
+import { getWordCounts } from './wordIndex';
+import { todayISO as currentDayISO } from './dayClock';
 import { calculateWordPercent } from './percentageUtils';
+import { applyWidgetState, type ProgressInputs, headlessHost } from './widgetUpdater';
 
 // Central DRY function to recompute daily percent & push widget without needing UI pages.
-export async function performDailyWidgetRefresh() {
+export async function performDailyWidgetRefresh(): Promise<{ percent: number; hasGoal: boolean } | null> {
   try {
-    const todayISO = new Date().toISOString().slice(0, 10);
+    const todayISO = currentDayISO();
     // Choose active book same heuristic as Index
     let activeBookId: string | null = null;
     try {
@@ -21,17 +23,18 @@ export async function performDailyWidgetRefresh() {
       }
     } catch { }
 
-    if (!activeBookId) return; // nothing to refresh
+    if (!activeBookId) return null; // nothing to refresh
 
     const meta = BOOKS.find(b => b.id === activeBookId);
     const isUserEpub = activeBookId.startsWith('user-');
     const isPhysical = activeBookId.startsWith('physical-');
 
-    if (!meta && !isUserEpub && !isPhysical) return;
+    if (!meta && !isUserEpub && !isPhysical) return null;
 
     const progress = getProgress(activeBookId);
     let dailyProgressPercent: number | null = null;
     let hasGoal = false;
+    let inputs: ProgressInputs;
 
     if (isUserEpub || isPhysical || meta?.type === 'epub') {
       // EPUB/Physical: percent based logic
@@ -46,16 +49,23 @@ export async function performDailyWidgetRefresh() {
       const achievedPercentToday = Math.max(0, (progress.percent || 0) - baselinePercent);
       dailyProgressPercent = computeDailyProgressPercent(achievedPercentToday, dailyTargetPercent);
       hasGoal = dailyTargetPercent != null && dailyTargetPercent > 0;
+      inputs = {
+        bookId: activeBookId,
+        kind: 'epub',
+        targetDateISO: plan?.targetDateISO ?? null,
+        baselineDateISO: todayISO,
+        baselinePercent,
+        currentPercent: progress.percent || 0,
+      };
     } else {
-      // Non EPUB: load structure if cached only (avoid network on background)
-      if (!meta) return; // Should not happen given checks above
-      let parts: any = null;
-      try { const cached = localStorage.getItem(`book:${meta.id}`); if (cached) parts = JSON.parse(cached); } catch { }
-      if (!parts) return; // no cached data, skip silent refresh
-      const totalWords = computeTotalWords(parts);
-      const wordsUpToCurrent = computeWordsUpToPosition(parts, { partIndex: progress.partIndex, chapterIndex: progress.chapterIndex });
+      // Non EPUB: word counts from the prefix-sum index; the cached structure is only read to build it
+      if (!meta) return null; // Should not happen given checks above
       const plan = getReadingPlan(activeBookId);
-      const targetWords = computeWordsUpToInclusiveTarget(parts, { targetPartIndex: plan.targetPartIndex, targetChapterIndex: plan.targetChapterIndex }, totalWords);
+      const counts = await getWordCounts(meta,
+        { partIndex: progress.partIndex, chapterIndex: progress.chapterIndex },
+        { targetPartIndex: plan.targetPartIndex, targetChapterIndex: plan.targetChapterIndex });
+      if (!counts) return null; // no cached data, skip silent refresh
+      const { total: totalWords, upTo: wordsUpToCurrent, target: targetWords } = counts;
       const base = getDailyBaseline(activeBookId, todayISO);
       if (!base && wordsUpToCurrent > 0) {
         // Use words-based total book percent for baseline percent
@@ -68,15 +78,51 @@ export async function performDailyWidgetRefresh() {
       const achievedWordsToday = computeAchievedWordsToday(wordsUpToCurrent, baselineWords);
       dailyProgressPercent = computeDailyProgressPercent(achievedWordsToday, dailyTargetWords);
       hasGoal = dailyTargetWords != null && dailyTargetWords > 0;
+      inputs = {
+        bookId: activeBookId,
+        kind: 'static',
+        targetDateISO: plan?.targetDateISO ?? null,
+        baselineDateISO: todayISO,
+        baselinePercent: base ? base.percent : calculateWordPercent(wordsUpToCurrent, totalWords),
+        baselineWords,
+        currentPercent: calculateWordPercent(wordsUpToCurrent, totalWords),
+        currentWords: wordsUpToCurrent,
+        targetWords,
+      };
     }
 
+    // Entradas + percent numa só chamada (sem percent o nativo só guarda as entradas e recalcula)
     if (dailyProgressPercent != null) {
-      await updateDailyProgressWidget(dailyProgressPercent, hasGoal);
+      const percent = Math.max(0, Math.min(100, Math.round(dailyProgressPercent)));
+      await applyWidgetState({ inputs, percent, hasGoal });
+      return { percent: dailyProgressPercent, hasGoal };
     }
+    await applyWidgetState({ inputs });
+    return null;
   } catch (e) {
     try { console.log('[DailyRefresh] erro', e); } catch { }
+    throw e;
   }
 }
 
+// Refresh disparado pelo HeadlessWebViewHost: sinaliza a conclusão para o nativo liberar o worker
+export async function performHeadlessRefresh(token: string) {
+  const jsStart = Date.now();
+  let ok = true;
+  let result: { percent: number; hasGoal: boolean } | null = null;
+  try {
+    result = await performDailyWidgetRefresh();
+  } catch {
+    ok = false;
+  }
+  // Host offscreen (sem bridge Capacitor): o estado já foi pelo applyState; o sinal só encerra a sessão
+  const host = headlessHost();
+  if (!host) return;
+  try { host.complete(token, ok, jsStart, Date.now(), result?.percent ?? -1, !!result?.hasGoal); } catch { }
+}
+
 // Expose on window for native-triggered usage
-try { (window as any).devotaDailyRefresh = performDailyWidgetRefresh; } catch { }
\ No newline at end of file
+try {
+  (window as any).devotaDailyRefresh = performDailyWidgetRefresh;
+  (window as any).devotaHeadlessRefresh = performHeadlessRefresh;
+} catch { }
\ No newline at end of file
@@ -0,0 +1,96 @@
+// "Hoje" único para web e nativo (WidgetClock / CachedDayClock.java): dia local, começando em
+// dayStartHour (0 = meia-noite). O dia fica em cache com o intervalo [início, próxima virada) e só é
+// recalculado ao sair dele ou quando a página volta a ficar visível (o fuso pode ter mudado).
+
+// Imports relativos: reading.ts depende deste módulo e o vitest não tem o alias @
+const KEY = 'dayStartHour';
+
+let startHour = readStartHour();
+let cached: { iso: string; from: number; until: number } | null = null;
+
+function readStartHour(): number {
+  try {
+    const h = Number(localStorage.getItem(KEY));
+    return Number.isInteger(h) && h >= 0 && h <= 23 ? h : 0;
+  } catch {
+    return 0;
+  }
+}
+
+const pad = (n: number) => (n < 10 ? '0' : '') + n;
+
+function compute(now: number) {
+  // Mesma conta do nativo: hora local menos a hora de início
+  const local = new Date(now);
+  if (local.getHours() < startHour) local.setDate(local.getDate() - 1);
+  const y = local.getFullYear(), m = local.getMonth(), d = local.getDate();
+  let from = new Date(y, m, d, startHour).getTime();
+  let until = new Date(y, m, d + 1, startHour).getTime();
+  // Hora pulada/repetida no horário de verão: o intervalo sempre contém agora
+  if (from > now) from = now;
+  if (until <= now) until = now + 1;
+  cached = { iso: `${y}-${pad(m + 1)}-${pad(d)}`, from, until };
+  return cached;
+}
+
+function current(now = Date.now()) {
+  const c = cached;
+  return c && now >= c.from && now < c.until ? c : compute(now);
+}
+
+/** Dia de hoje ("yyyy-MM-dd") na virada compartilhada com o widget. */
+export function todayISO(now?: number): string {
+  return current(now).iso;
+}
+
+/** Dia seguinte ao de hoje ("yyyy-MM-dd"). */
+export function tomorrowISO(now?: number): string {
+  return current(current(now).until).iso;
+}
+
+/** Instante da próxima virada do dia (epoch ms). */
+export function nextDayStartMs(now?: number): number {
+  return current(now).until;
+}
+
+export function dayStartHour(): number {
+  return startHour;
+}
+
+/** Descarta o dia em cache (relógio ou fuso mudou). */
+export function invalidateToday() {
+  cached = null;
+}
+
+/** Hora local (0-23) em que o dia começa; grava e repassa ao nativo para o widget virar junto. */
+export async function setDayStartHour(hour: number) {
+  if (!Number.isInteger(hour) || hour < 0 || hour > 23) throw new Error(`invalid hour ${hour}`);
+  startHour = hour;
+  cached = null;
+  try { localStorage.setItem(KEY, String(hour)); } catch { }
+  const { WidgetUpdater, canUseNative } = await import('./widgetUpdater');
+  if (canUseNative()) await WidgetUpdater.setDayStartHour({ hour });
+}
+
+// No app, a preferência gravada pelo nativo prevalece (o localStorage do WebView pode ter sido limpo)
+async function adoptNativeStartHour() {
+  try {
+    const { WidgetUpdater, canUseNative } = await import('./widgetUpdater');
+    if (!canUseNative()) return;
+    const native = await WidgetUpdater.getDayClock();
+    if (native.dayStartHour !== startHour) {
+      startHour = native.dayStartHour;
+      cached = null;
+      try { localStorage.setItem(KEY, String(startHour)); } catch { }
+    }
+  } catch (e) {
+    console.log('[dayClock] getDayClock failed', e);
+  }
+}
+
+if (typeof document !== 'undefined') {
+  document.addEventListener('visibilitychange', () => {
+    if (document.visibilityState === 'visible') invalidateToday();
+  });
+  void adoptNativeStartHour();
+}
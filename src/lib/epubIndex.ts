@@ -0,0 +1,42 @@
+import { canUseNative } from '@/lib/widgetUpdater';
+import { EpubIndex, type EpubIndexResult } from '@/lib/epubIndexPlugin';
+
+// Origem do EPUB para o índice nativo: livro embutido (webPath, lido dos assets) ou upload (sourceKey = hash do arquivo)
+export interface EpubIndexSource {
+  webPath?: string;
+  sourceKey?: string;
+}
+
+// Índice pré-computado pelo EpubIndexWorker; null no web, se ainda não existir ou se a ponte falhar.
+// Livro embutido sem índice é agendado pelo próprio nativo.
+export async function getNativeEpubIndex(bookId: string, source: EpubIndexSource): Promise<EpubIndexResult | null> {
+  if (!canUseNative()) return null;
+  try {
+    const r = await EpubIndex.getEpubIndex({ bookId, ...source });
+    return r.ready && r.locations ? r : null;
+  } catch (e) {
+    console.log('[epubIndex] getEpubIndex failed', e);
+    return null;
+  }
+}
+
+// base64 em blocos: String.fromCharCode(...bytes) estoura a pilha em arquivos grandes
+function toBase64(buffer: ArrayBuffer): string {
+  const bytes = new Uint8Array(buffer);
+  const chunks: string[] = [];
+  for (let i = 0; i < bytes.length; i += 0x8000) {
+    chunks.push(String.fromCharCode.apply(null, bytes.subarray(i, i + 0x8000) as unknown as number[]));
+  }
+  return btoa(chunks.join(''));
+}
+
+// Entrega um upload ao indexador nativo (uma vez por origem; o nativo ignora se já indexou)
+export async function indexEpubNatively(bookId: string, buffer: ArrayBuffer, sourceKey: string) {
+  if (!canUseNative()) return;
+  try {
+    const r = await EpubIndex.indexEpub({ bookId, sourceKey, data: toBase64(buffer) });
+    console.log('[epubIndex] indexEpub', { bookId, queued: r.queued });
+  } catch (e) {
+    console.log('[epubIndex] indexEpub failed', e);
+  }
+}
@@ -0,0 +1,30 @@
+import { registerPlugin } from '@capacitor/core';
+
+// Índice nativo do EPUB (EpubIndexer.java): locations no formato do epub.js e contagens por item do spine
+export interface EpubIndexSection {
+  href: string;
+  cfiBase: string;
+  chars: number;
+  words: number;
+  charOffset: number;
+  wordOffset: number;
+  firstLocation: number;
+  locationCount: number;
+}
+
+export interface EpubIndexResult {
+  ready: boolean;
+  queued?: boolean;
+  locations?: string; // JSON para book.locations.load
+  chars?: number;
+  words?: number;
+  sections?: EpubIndexSection[];
+}
+
+// Plugin EpubIndex (EpubIndexPlugin.java); disponibilidade pelo canUseNative do widgetUpdater
+export interface EpubIndexPlugin {
+  getEpubIndex(opts: { bookId: string; sourceKey?: string; webPath?: string }): Promise<EpubIndexResult>;
+  indexEpub(opts: { bookId: string; sourceKey: string; data: string }): Promise<{ queued: boolean }>;
+}
+
+export const EpubIndex = registerPlugin<EpubIndexPlugin>('EpubIndex');
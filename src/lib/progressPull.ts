@@ -0,0 +1,23 @@
+import { supabase, supabaseUrl, supabaseAnonKey } from '@/lib/supabase';
+import { WidgetUpdater, canUseNative } from '@/lib/widgetUpdater';
+
+// Entrega a sessão do Supabase ao pull nativo (ProgressPullWorker.java), que traz o progresso feito em
+// outros aparelhos para o widget sem subir o WebView. O nativo só usa o access token enquanto ele vale e
+// nunca o renova: cada renovação do supabase-js (TOKEN_REFRESHED) manda o token novo.
+
+if (canUseNative() && supabase) {
+  supabase.auth.onAuthStateChange((event, session) => {
+    if (event === 'SIGNED_OUT') {
+      WidgetUpdater.clearSyncSession().catch((e) => console.log('[progressPull] clearSyncSession failed', e));
+      return;
+    }
+    if (!session?.access_token || !session.expires_at) return;
+    WidgetUpdater.setSyncSession({
+      url: supabaseUrl,
+      anonKey: supabaseAnonKey,
+      accessToken: session.access_token,
+      expiresAt: session.expires_at,
+      userId: session.user.id,
+    }).catch((e) => console.log('[progressPull] setSyncSession failed', e));
+  });
+}
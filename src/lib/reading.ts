@@ -1,5 +1,6 @@
 import { differenceInCalendarDays, parseISO } from "date-fns";
 import { calculateRatioPercent, calculateProgressPercent } from "./percentageUtils";
+import { todayISO } from "./dayClock";
 // Shared book structure types and utilities for word counting and plan progress
 
 export type Paragraph = { type: string; content: string };
@@ -57,6 +58,44 @@ export const computeWordsUpToInclusiveTarget = (
   return count;
 };
 
+// Prefix sums of words per chapter (same layout as WordIndex.java), built in a single pass over the book.
+// prefix[k] = words before flattened chapter k; partStart[p] = first flattened chapter of part p.
+export type WordIndex = { partStart: number[]; prefix: number[] };
+
+export const chapterWordCounts = (parts: Part[] | null | undefined): number[][] =>
+  (parts ?? []).map((part) => part.chapters.map(countWordsInChapter));
+
+export const wordIndexFromCounts = (counts: number[][]): WordIndex => {
+  const partStart = [0];
+  const prefix = [0];
+  counts.forEach((chapters) => {
+    chapters.forEach((words) => prefix.push(prefix[prefix.length - 1] + words));
+    partStart.push(prefix.length - 1);
+  });
+  return { partStart, prefix };
+};
+
+export const buildWordIndex = (parts: Part[] | null | undefined): WordIndex => wordIndexFromCounts(chapterWordCounts(parts));
+
+export const indexTotalWords = (idx: WordIndex): number => idx.prefix[idx.prefix.length - 1];
+
+// O(1) equivalent of computeWordsUpToPosition
+export const indexWordsUpToPosition = (idx: WordIndex, pos: Position): number => {
+  const parts = idx.partStart.length - 1;
+  if (pos.partIndex < 0) return 0;
+  if (pos.partIndex >= parts) return indexTotalWords(idx);
+  const start = idx.partStart[pos.partIndex];
+  const chapters = idx.partStart[pos.partIndex + 1] - start;
+  return idx.prefix[start + Math.max(0, Math.min(pos.chapterIndex, chapters))];
+};
+
+// O(1) equivalent of computeWordsUpToInclusiveTarget
+export const indexWordsUpToInclusiveTarget = (idx: WordIndex, target: PlanTarget): number => {
+  if (target.targetPartIndex === undefined || target.targetChapterIndex === undefined) return indexTotalWords(idx);
+  const chapter = target.targetChapterIndex < 0 ? 0 : target.targetChapterIndex + 1;
+  return indexWordsUpToPosition(idx, { partIndex: target.targetPartIndex, chapterIndex: chapter });
+};
+
 export const computePlanStartWords = (parts: Part[] | null | undefined, planStart: PlanStart): number => {
   if (!planStart) return 0;
   if (planStart.startWords != null) return planStart.startWords;
@@ -90,7 +129,7 @@ export const computeDaysRemaining = (targetDateISO: string | null | undefined):
   if (!targetDateISO) return null;
   try {
     const target = parseISO(targetDateISO);
-    const diff = differenceInCalendarDays(target, new Date());
+    const diff = differenceInCalendarDays(target, parseISO(todayISO()));
     return Math.max(1, diff + 1);
   } catch {
     return null;
@@ -0,0 +1,54 @@
+import { canUseNative } from '@/lib/widgetUpdater';
+import { ReadingJournal, type ReadingEvent, type ReadingSummary, type ReadingHistoryDay } from '@/lib/readingJournalPlugin';
+
+// Alimenta o diário de leitura nativo (ReadingJournal.java). Os eventos ficam numa fila curta e vão num
+// único appendReadingEvents (uma transação no SQLite); progresso repetido do mesmo livro dentro da
+// janela fica só com o último. Fora do Android tudo vira no-op.
+
+const FLUSH_MS = 2000;
+const MAX_BATCH = 50;
+
+let queue: ReadingEvent[] = [];
+let timer: ReturnType<typeof setTimeout> | null = null;
+
+function flush() {
+  if (timer) {
+    clearTimeout(timer);
+    timer = null;
+  }
+  if (queue.length === 0) return;
+  const events = queue;
+  queue = [];
+  ReadingJournal.appendReadingEvents({ events }).catch((e) => console.log('[readingJournal] append failed', e));
+}
+
+export function recordReadingEvent(event: ReadingEvent) {
+  if (!canUseNative()) return;
+  const e: ReadingEvent = { ...event, ts: event.ts ?? Date.now() };
+  if (e.kind === 'progress') {
+    const i = queue.findIndex((q) => q.kind === 'progress' && q.bookId === e.bookId);
+    if (i >= 0) queue.splice(i, 1);
+  }
+  queue.push(e);
+  if (queue.length >= MAX_BATCH) flush();
+  else if (!timer) timer = setTimeout(flush, FLUSH_MS);
+}
+
+export async function getReadingSummary(bookId?: string): Promise<ReadingSummary | null> {
+  if (!canUseNative()) return null;
+  flush();
+  return ReadingJournal.getReadingSummary({ bookId });
+}
+
+export async function getReadingHistory(fromISO: string, toISO: string, bookId?: string): Promise<ReadingHistoryDay[]> {
+  if (!canUseNative()) return [];
+  flush();
+  const { days } = await ReadingJournal.getReadingHistory({ fromISO, toISO, bookId });
+  return days;
+}
+
+if (typeof document !== 'undefined') {
+  document.addEventListener('visibilitychange', () => {
+    if (document.visibilityState === 'hidden') flush();
+  });
+}
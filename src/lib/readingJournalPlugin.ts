@@ -0,0 +1,60 @@
+import { registerPlugin } from '@capacitor/core';
+
+// Diário de leitura nativo (ReadingJournal.java); ts em ms, dateISO só para baseline
+export interface ReadingEvent {
+  bookId?: string;
+  kind: 'progress' | 'baseline' | 'minutes';
+  ts?: number;
+  dateISO?: string;
+  percent?: number;
+  words?: number;
+  page?: number;
+  minutes?: number;
+}
+
+export interface ReadingSummary {
+  dateISO: string;
+  streak: { current: number; longest: number; lastReadISO?: string };
+  week: { fromISO: string; days: number; minutes: number; events: number };
+  book?: {
+    bookId: string;
+    percent?: number;
+    words?: number;
+    page?: number;
+    startPercent?: number;
+    startWords?: number;
+    startPage?: number;
+    baselinePercent?: number;
+    baselineWords?: number;
+    baselinePage?: number;
+    weekStartPercent?: number;
+    minutesToday?: number;
+    readToday?: boolean;
+    readDays?: number;
+    minutes?: number;
+  };
+}
+
+// Sem bookId: streak/books por dia; com bookId: read/startPercent/percent/startPage/page/baselinePercent
+export interface ReadingHistoryDay {
+  dateISO: string;
+  events: number;
+  minutes: number;
+  streak?: number;
+  books?: number;
+  read?: boolean;
+  startPercent?: number;
+  percent?: number;
+  startPage?: number;
+  page?: number;
+  baselinePercent?: number;
+}
+
+// Plugin ReadingJournal (ReadingJournalPlugin.java); disponibilidade pelo canUseNative do widgetUpdater
+export interface ReadingJournalPlugin {
+  appendReadingEvents(opts: { events: ReadingEvent[] }): Promise<{ appended: number }>;
+  getReadingSummary(opts?: { bookId?: string }): Promise<ReadingSummary>;
+  getReadingHistory(opts: { fromISO: string; toISO: string; bookId?: string }): Promise<{ days: ReadingHistoryDay[] }>;
+}
+
+export const ReadingJournal = registerPlugin<ReadingJournalPlugin>('ReadingJournal');
@@ -1,5 +1,7 @@
-import { differenceInCalendarDays, formatISO, isToday, parseISO } from "date-fns";
+import { differenceInCalendarDays, parseISO } from "date-fns";
 import { dataLayer } from "@/services/data/RxDBDataLayer";
+import { recordReadingEvent } from "@/lib/readingJournal";
+import { todayISO } from "@/lib/dayClock";
 
 export const storage = {
   get<T>(key: string, fallback: T): T {
@@ -31,8 +33,10 @@ export const getProgress = (bookId: string): Progress =>
     percent: 0,
   });
 
-export const setProgress = (bookId: string, p: Progress) =>
+export const setProgress = (bookId: string, p: Progress) => {
   storage.set(`progress:${bookId}`, p);
+  recordReadingEvent({ bookId, kind: "progress", percent: p.percent, page: p.currentPage });
+};
 
 // Streak - now uses RxDB with localStorage fallback
 export type Streak = {
@@ -77,10 +81,10 @@ export const getStreak = (): Streak =>
 
 export const markReadToday = async () => {
   const s = await getStreakAsync();
-  const today = formatISO(new Date(), { representation: "date" });
+  const today = todayISO();
   if (s.lastReadISO) {
     const last = parseISO(s.lastReadISO);
-    const diff = differenceInCalendarDays(new Date(), last);
+    const diff = differenceInCalendarDays(parseISO(today), last);
     if (diff === 0) return s; // already counted today
     if (diff === 1) {
       s.current += 1;
@@ -151,7 +155,7 @@ export const getStats = (): Stats => storage.get<Stats>("stats", { minutesByDate
 export const addReadingMinutes = async (ms: number) => {
   const minutes = Math.max(1, Math.round(ms / 60000));
   const s = await getStatsAsync();
-  const key = formatISO(new Date(), { representation: "date" });
+  const key = todayISO();
   s.minutesByDate[key] = (s.minutesByDate[key] || 0) + minutes;
 
   // Calculate total minutes
@@ -166,19 +170,20 @@ export const addReadingMinutes = async (ms: number) => {
     console.warn('[storage] Failed to save reading minutes to RxDB:', e);
   }
   storage.set("stats", s);
+  recordReadingEvent({ kind: "minutes", minutes });
   return s;
 };
 
 
 export const hasReadToday = async () => {
   const s = await getStreakAsync();
-  return s.lastReadISO ? isToday(parseISO(s.lastReadISO)) : false;
+  return s.lastReadISO?.slice(0, 10) === todayISO();
 };
 
 // Sync version for backward compatibility
 export const hasReadTodaySync = () => {
   const s = getStreak();
-  return s.lastReadISO ? isToday(parseISO(s.lastReadISO)) : false;
+  return s.lastReadISO?.slice(0, 10) === todayISO();
 };
 
 // Reading plan per book - now uses RxDB
@@ -290,6 +295,7 @@ export const setDailyBaseline = async (bookId: string, dateISO: string, entry: B
   const map = getBaselineMap(bookId);
   map[dateISO] = entry;
   storage.set(`baseline:${bookId}`, map);
+  recordReadingEvent({ bookId, kind: "baseline", dateISO, percent: entry.percent, words: entry.words, page: entry.page });
 };
 
 // Last book ID - now uses RxDB user_stats
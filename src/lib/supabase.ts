@@ -15,4 +15,4 @@ if (!supabaseUrl || !supabaseAnonKey) {
     supabase = createClient(supabaseUrl, supabaseAnonKey);
 }
 
-export { supabase };
+export { supabase, supabaseUrl, supabaseAnonKey };
@@ -1,6 +1,7 @@
 import ePub from 'epubjs';
 import { getDatabase } from '@/lib/database/db';
 import { dataLayer } from '@/services/data/RxDBDataLayer';
+import { indexEpubNatively } from '@/lib/epubIndex';
 
 export interface UserEpub {
     id: string;
@@ -193,6 +194,8 @@ export const saveUserEpub = async (file: File): Promise<UserEpub> => {
         const request = store.put(userEpub);
         request.onsuccess = () => {
             console.log('[Upload] Saved blob to IndexedDB');
+            // Locations pré-computadas no nativo: a primeira abertura já não gera no WebView
+            void indexEpubNatively(id, arrayBuffer, fileHash);
             resolve(userEpub);
         };
         request.onerror = () => reject(request.error);
@@ -16,145 +16,224 @@ import {
     calculateWordPercent,
     percentToPagesCeil
 } from "@/lib/percentageUtils";
-import { updateDailyProgressWidget } from "@/main";
-import { WidgetUpdater, canUseNative } from "@/lib/widgetUpdater"; // Verify path
-import { format } from "date-fns";
+import { canUseNative, applyWidgetState, type ProgressInputs, type TomorrowBaseline, type WidgetBookRow } from "@/lib/widgetUpdater"; // Verify path
+import { todayISO as currentDayISO, tomorrowISO as nextDayISO } from "@/lib/dayClock";
 import { BOOKS } from "@/lib/books";
 import { dataLayer } from "@/services/data/RxDBDataLayer";
 
-export async function refreshWidget(bookId: string) {
-    if (!canUseNative()) return;
-
-    try {
-        console.log('[WidgetService] 🔄 Refreshing widget for book:', bookId);
+// Estado de um livro para o widget: entradas do recomputo nativo + percent diário + linha da coleção
+interface BookWidgetState {
+    inputs: ProgressInputs;
+    tomorrowBaseline?: TomorrowBaseline;
+    percent: number;
+    hasGoal: boolean;
+    row: WidgetBookRow;
+    modified?: number; // _modified da linha de progresso lida (o pull nativo não sobrescreve com linhas mais antigas)
+}
 
-        // 1. Get Book Metadata
-        let bookMeta: any = BOOKS.find(b => b.id === bookId);
-        if (!bookMeta) {
-            try {
-                const db = await getDatabase();
-                // Try user_epubs
-                const epub = await db.user_epubs.findOne(bookId).exec();
-                if (epub) {
-                    bookMeta = { ...epub.toJSON(), type: 'epub', isUserUpload: true };
-                } else {
-                    // Try books
-                    const book = await db.books.findOne(bookId).exec();
-                    if (book) {
-                        bookMeta = { ...book.toJSON() };
-                    }
+async function computeBookWidget(bookId: string): Promise<BookWidgetState | null> {
+    // 1. Get Book Metadata
+    let bookMeta: any = BOOKS.find(b => b.id === bookId);
+    if (!bookMeta) {
+        try {
+            const db = await getDatabase();
+            // Try user_epubs
+            const epub = await db.user_epubs.findOne(bookId).exec();
+            if (epub) {
+                bookMeta = { ...epub.toJSON(), type: 'epub', isUserUpload: true };
+            } else {
+                // Try books
+                const book = await db.books.findOne(bookId).exec();
+                if (book) {
+                    bookMeta = { ...book.toJSON() };
                 }
-            } catch (e) {
-                console.error('[WidgetService] Failed to load book meta:', e);
             }
+        } catch (e) {
+            console.error('[WidgetService] Failed to load book meta:', e);
         }
+    }
 
-        if (!bookMeta) {
-            console.warn('[WidgetService] Book not found, cannot update widget');
-            return;
-        }
-
-        const isPhysical = bookMeta.type === 'physical';
-        const isEpub = bookMeta.type === 'epub' || bookMeta.isUserUpload; // Assuming user upload is epub for now
+    if (!bookMeta) {
+        console.warn('[WidgetService] Book not found, cannot update widget');
+        return null;
+    }
+    const title: string = bookMeta.title || '';
+
+    const isPhysical = bookMeta.type === 'physical';
+    const isEpub = bookMeta.type === 'epub' || bookMeta.isUserUpload; // Assuming user upload is epub for now
+
+    // 2. Get Reading Plan
+    const plan = await getReadingPlanAsync(bookId);
+    if (!plan?.targetDateISO) {
+        return {
+            inputs: { bookId, kind: 'epub', targetDateISO: null, baselineDateISO: currentDayISO(), baselinePercent: 0, currentPercent: 0 },
+            percent: 0,
+            hasGoal: false,
+            row: { bookId, title, percent: 0, hasGoal: false },
+        };
+    }
 
-        // 2. Get Reading Plan
-        const plan = await getReadingPlanAsync(bookId);
-        if (!plan?.targetDateISO) {
-            console.log('[WidgetService] No reading plan, clearing widget goal');
-            await updateDailyProgressWidget(0, false);
-            await WidgetUpdater.update?.();
-            return;
+    const todayISO = currentDayISO();
+
+    // 3. Get Daily Baseline
+    const baseline = await getDailyBaselineAsync(bookId, todayISO);
+
+    // 4. Get Current Progress
+    let currentProgress: { percent: number; currentPage?: number; totalPages?: number; words?: number } = { percent: 0 };
+    let modified: number | undefined;
+
+    if (isPhysical) {
+        // For physical, we trust RxDB or local state passed in? 
+        // Better to fetch fresh from RxDB to be sure
+        const book = await dataLayer.getBook(bookId);
+        if (book) {
+            currentProgress = {
+                percent: calculatePagePercent(book.current_page || 0, book.total_pages || 0, { round: false }),
+                currentPage: book.current_page || 0,
+                totalPages: book.total_pages || 0
+            };
+            modified = book._modified;
         }
-
-        const todayISO = format(new Date(), 'yyyy-MM-dd');
-
-        // 3. Get Daily Baseline
-        const baseline = await getDailyBaselineAsync(bookId, todayISO);
-
-        // 4. Get Current Progress
-        let currentProgress: { percent: number; currentPage?: number; totalPages?: number; words?: number } = { percent: 0 };
-
-        if (isPhysical) {
-            // For physical, we trust RxDB or local state passed in? 
-            // Better to fetch fresh from RxDB to be sure
+    } else {
+        // For EPUB
+        // Check RxDB first
+        const userEpub = await dataLayer.getUserEpub(bookId);
+        if (userEpub) {
+            currentProgress.percent = userEpub.percentage || 0;
+            modified = userEpub._modified;
+        } else {
+            // Fallback to static book in books collection
             const book = await dataLayer.getBook(bookId);
             if (book) {
-                currentProgress = {
-                    percent: calculatePagePercent(book.current_page || 0, book.total_pages || 0, { round: false }),
-                    currentPage: book.current_page || 0,
-                    totalPages: book.total_pages || 0
-                };
-            }
-        } else {
-            // For EPUB
-            // Check RxDB first
-            const userEpub = await dataLayer.getUserEpub(bookId);
-            if (userEpub) {
-                currentProgress.percent = userEpub.percentage || 0;
-            } else {
-                // Fallback to static book in books collection
-                const book = await dataLayer.getBook(bookId);
-                if (book) {
-                    currentProgress.percent = book.percentage || 0;
-                }
+                currentProgress.percent = book.percentage || 0;
+                modified = book._modified;
             }
         }
+    }
 
-        // 5. Calculate Daily Progress
-        const daysRemaining = computeDaysRemaining(plan.targetDateISO);
-        let dailyProgressPercent = 0;
+    // 5. Calculate Daily Progress
+    const daysRemaining = computeDaysRemaining(plan.targetDateISO);
+    let dailyProgressPercent = 0;
 
-        if (isPhysical && currentProgress.totalPages && currentProgress.currentPage !== undefined) {
-            // Physical calc
-            const baselinePercent = baseline ? baseline.percent : 0; // Baseline for physical is stored as percent too?
-            // Wait, Index.tsx uses pages for physical baseline if available
+    if (isPhysical && currentProgress.totalPages && currentProgress.currentPage !== undefined) {
+        // Physical calc
+        const baselinePercent = baseline ? baseline.percent : 0; // Baseline for physical is stored as percent too?
+        // Wait, Index.tsx uses pages for physical baseline if available
 
-            let baselinePage = 0;
-            if (baseline && baseline.page !== undefined) {
-                baselinePage = baseline.page;
-            } else {
-                // Fallback
-                baselinePage = Math.round(((baseline?.percent || 0) / 100) * currentProgress.totalPages);
-            }
+        let baselinePage = 0;
+        if (baseline && baseline.page !== undefined) {
+            baselinePage = baseline.page;
+        } else {
+            // Fallback
+            baselinePage = Math.round(((baseline?.percent || 0) / 100) * currentProgress.totalPages);
+        }
 
-            const pagesReadToday = Math.max(0, currentProgress.currentPage - baselinePage);
+        const pagesReadToday = Math.max(0, currentProgress.currentPage - baselinePage);
 
-            // Target
-            // We need dailyTargetWords but for physical it's dailyTargetPercent...
-            // Re-using logic from Index.tsx
+        // Target
+        // We need dailyTargetWords but for physical it's dailyTargetPercent...
+        // Re-using logic from Index.tsx
 
-            // Calculate daily target percent
-            const dailyTargetPercent = daysRemaining ? Math.max(0, 100 - (baseline?.percent || 0)) / daysRemaining : 0;
-            const pagesExpectedToday = percentToPagesCeil(dailyTargetPercent, currentProgress.totalPages);
+        // Calculate daily target percent
+        const dailyTargetPercent = daysRemaining ? Math.max(0, 100 - (baseline?.percent || 0)) / daysRemaining : 0;
+        const pagesExpectedToday = percentToPagesCeil(dailyTargetPercent, currentProgress.totalPages);
 
-            if (pagesExpectedToday > 0) {
-                dailyProgressPercent = calculatePagePercent(pagesReadToday, pagesExpectedToday) || 0;
-            } else if (pagesReadToday > 0) {
-                dailyProgressPercent = 100; // Done for the day if target is 0 but we read something? Or maybe 100
-            }
+        if (pagesExpectedToday > 0) {
+            dailyProgressPercent = calculatePagePercent(pagesReadToday, pagesExpectedToday) || 0;
+        } else if (pagesReadToday > 0) {
+            dailyProgressPercent = 100; // Done for the day if target is 0 but we read something? Or maybe 100
+        }
 
-        } else {
-            // EPUB / Percent based
-            const baselinePercent = baseline ? baseline.percent : 0;
-            const currentPercent = currentProgress.percent;
+    } else {
+        // EPUB / Percent based
+        const baselinePercent = baseline ? baseline.percent : 0;
+        const currentPercent = currentProgress.percent;
 
-            const achievedPercentToday = Math.max(0, currentPercent - baselinePercent);
+        const achievedPercentToday = Math.max(0, currentPercent - baselinePercent);
 
-            const dailyTargetPercent = daysRemaining ? Math.max(0, 100 - baselinePercent) / daysRemaining : 0;
+        const dailyTargetPercent = daysRemaining ? Math.max(0, 100 - baselinePercent) / daysRemaining : 0;
 
-            dailyProgressPercent = computeDailyProgressPercent(achievedPercentToday, dailyTargetPercent) ?? 0;
-        }
+        dailyProgressPercent = computeDailyProgressPercent(achievedPercentToday, dailyTargetPercent) ?? 0;
+    }
+
+    // Clamp
+    dailyProgressPercent = Math.max(0, Math.min(100, dailyProgressPercent));
+
+    const hasGoal = true; // We established plan.targetDateISO exists
+
+    // Baseline de amanhã, se já gravado (ex.: sync de outro aparelho depois da meia-noite de lá)
+    const tomorrowISO = nextDayISO();
+    const tomorrow = await getDailyBaselineAsync(bookId, tomorrowISO);
+    const tomorrowBaseline: TomorrowBaseline | undefined = tomorrow
+        ? { dateISO: tomorrowISO, percent: tomorrow.percent, words: tomorrow.words, page: tomorrow.page }
+        : undefined;
+
+    const percent = Math.round(dailyProgressPercent);
+    return {
+        inputs: {
+            bookId,
+            kind: isPhysical ? 'physical' : 'epub',
+            targetDateISO: plan.targetDateISO,
+            baselineDateISO: todayISO,
+            baselinePercent: baseline ? baseline.percent : 0,
+            baselinePage: baseline?.page,
+            currentPercent: currentProgress.percent,
+            currentPage: currentProgress.currentPage,
+            totalPages: currentProgress.totalPages,
+        },
+        tomorrowBaseline,
+        percent,
+        hasGoal,
+        row: { bookId, title, percent, hasGoal },
+        modified,
+    };
+}
 
-        // Clamp
-        dailyProgressPercent = Math.max(0, Math.min(100, dailyProgressPercent));
-        const hasGoal = true; // We established plan.targetDateISO exists
+export async function refreshWidget(bookId: string) {
+    if (!canUseNative()) return;
 
-        // 6. Update Widget
-        console.log('[WidgetService] 🚀 Updating widget:', { dailyProgressPercent, hasGoal, bookId });
-        await updateDailyProgressWidget(dailyProgressPercent, hasGoal);
-        await WidgetUpdater.update?.();
+    try {
+        console.log('[WidgetService] 🔄 Refreshing widget for book:', bookId);
+        const w = await computeBookWidget(bookId);
+        if (!w) return;
+        if (!w.hasGoal) console.log('[WidgetService] No reading plan, clearing widget goal');
+
+        // 6. Update Widget: entradas do recomputo nativo + percent + linha da coleção num único applyState
+        console.log('[WidgetService] 🚀 Updating widget:', { dailyProgressPercent: w.percent, hasGoal: w.hasGoal, bookId });
+        await applyWidgetState({
+            inputs: w.inputs,
+            tomorrowBaseline: w.tomorrowBaseline,
+            percent: w.percent,
+            hasGoal: w.hasGoal,
+            book: w.row,
+            modified: w.modified,
+        });
 
     } catch (err) {
         console.error('[WidgetService] ❌ Failed to refresh widget:', err);
     }
 }
+
+// Lista completa do widget de coleção: todos os livros com plano ativo (só linhas, sem mexer no livro ativo)
+export async function refreshBooksWidget() {
+    if (!canUseNative()) return;
+
+    try {
+        const ids = new Set<string>(BOOKS.map(b => b.id));
+        for (const b of await dataLayer.getBooks()) ids.add(b.id);
+        for (const e of await dataLayer.getUserEpubs()) ids.add(e.id);
+        const books: WidgetBookRow[] = [];
+        for (const id of ids) {
+            try {
+                const w = await computeBookWidget(id);
+                if (w?.hasGoal) books.push(w.row);
+            } catch (e) {
+                console.warn('[WidgetService] Skipping book in books widget:', id, e);
+            }
+        }
+        console.log('[WidgetService] 📚 Updating books widget:', books.length);
+        await applyWidgetState({ books });
+    } catch (err) {
+        console.error('[WidgetService] ❌ Failed to refresh books widget:', err);
+    }
+}
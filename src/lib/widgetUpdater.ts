@@ -1,7 +1,132 @@
-import { Capacitor, registerPlugin } from '@capacitor/core';
+import { Capacitor, registerPlugin, type PluginListenerHandle } from '@capacitor/core';
+
+// Entradas do cálculo diário espelhadas no motor nativo (DailyProgressEngine.java)
+export interface ProgressInputs {
+  bookId?: string;
+  kind: 'epub' | 'physical' | 'static';
+  targetDateISO: string | null;
+  baselineDateISO: string;
+  baselinePercent: number;
+  baselineWords?: number;
+  baselinePage?: number;
+  currentPercent: number;
+  currentWords?: number;
+  currentPage?: number;
+  totalPages?: number;
+  targetWords?: number;
+}
+
+// Baseline de amanhã já conhecido pelo JS; o nativo o usa na virada em vez do progresso atual
+export interface TomorrowBaseline {
+  dateISO: string;
+  percent: number;
+  words?: number;
+  page?: number;
+}
+
+// Linha do widget de coleção (BookSnapshot.java); sem meta a linha sai da lista
+export interface WidgetBookRow {
+  bookId: string;
+  title?: string;
+  percent: number;
+  hasGoal: boolean;
+}
+
+// Lote do applyState (WidgetStateBatcher.java): uma escrita e no máximo uma renderização.
+// Sem percent/hasGoal o nativo calcula a partir das entradas (DailyProgressEngine).
+export interface WidgetStateBatch {
+  inputs?: ProgressInputs;
+  progress?: { bookId?: string; percent: number; page?: number; words?: number };
+  tomorrowBaseline?: TomorrowBaseline;
+  percent?: number;
+  hasGoal?: boolean;
+  books?: WidgetBookRow[]; // lista completa do widget de coleção
+  book?: WidgetBookRow;    // uma linha (insere/atualiza/remove)
+  modified?: number;       // _modified da linha local de progresso (books/user_epubs) que vai no push
+  throttle?: boolean;
+}
+
+// Eventos empurrados pelo nativo (WidgetEvents.java) via notifyListeners
+export interface DailyProgressEvent {
+  percent: number;
+  hasGoal: boolean;
+  ts: number;
+  day: string;
+  version: number;
+}
+
+export interface RefreshPhaseEvent {
+  ts: number;
+  cause: string;
+  phase: 'already_today' | 'already_claimed' | 'native_recompute' | 'lost_race' | 'optimistic_reset';
+  percent?: number;
+  prevHasGoal?: number;
+}
+
+export interface AlarmScheduledEvent {
+  scheduledTs: number;
+  reason: string;
+  midnightAt: number;
+  mode: 'learning' | 'escalated' | 'alarm' | 'alarm_idle' | 'restricted';
+  allowWhileIdle: boolean;
+  periodicWork: boolean;
+  wakeupsPerDay: number;
+  standbyBucket: number;
+  streak: number;
+}
+
+export interface WorkerStateEvent {
+  name: string;
+  id: string;
+  state: 'ENQUEUED' | 'RUNNING' | 'SUCCEEDED' | 'FAILED' | 'BLOCKED' | 'CANCELLED';
+  attempts?: number;
+  queriedTs: number;
+}
+
+export interface WidgetEventMap {
+  dailyProgressChanged: DailyProgressEvent;
+  refreshPhase: RefreshPhaseEvent;
+  alarmScheduled: AlarmScheduledEvent;
+  workerState: WorkerStateEvent;
+}
+
+// Exportação do WidgetTrace.java (ring buffer + contadores + histogramas de latência)
+export interface WidgetTraceHistogram { count: number; mean: number; max: number; p50: number; p95: number; buckets: number[] }
+export interface WidgetTraceExport {
+  events: { ts: number; type: string; label?: string; value: number }[];
+  recorded: number;
+  capacity: number;
+  counters: Record<string, number>;
+  histograms: Record<'renderMs' | 'alarmDriftMs' | 'workerMs' | 'headlessMs' | 'firstFrameMs', WidgetTraceHistogram>;
+}
+
+// Sessão do Supabase para o pull nativo de progresso (ProgressPullWorker.java); expiresAt em segundos
+export interface SyncSession {
+  url: string;
+  anonKey: string;
+  accessToken: string;
+  expiresAt: number;
+  userId: string;
+}
+
+// Dia corrente do relógio nativo (WidgetClock.java); nextBoundaryMs em epoch ms
+export interface DayClockInfo {
+  dateISO: string;
+  dayStartHour: number;
+  nextBoundaryMs: number;
+  zone: string;
+}
 
 export interface WidgetUpdaterPlugin {
-  update(): Promise<void>;
+  update(options?: { bookId?: string }): Promise<void>;
+  applyState(batch: WidgetStateBatch): Promise<{ accepted: boolean; applied: boolean; percent?: number; hasGoal?: boolean }>;
+  setProgressInputs(inputs: ProgressInputs): Promise<{ saved: boolean; percent?: number; hasGoal?: boolean }>;
+  addListener<K extends keyof WidgetEventMap>(eventName: K, listener: (event: WidgetEventMap[K]) => void): Promise<PluginListenerHandle>;
+  getTrace(opts?: { clear?: boolean }): Promise<WidgetTraceExport>;
+  setSyncSession(session: SyncSession): Promise<void>;
+  clearSyncSession(): Promise<void>;
+  getDayClock(): Promise<DayClockInfo>;
+  setDayStartHour(opts: { hour: number }): Promise<void>;
 }
 
 export const WidgetUpdater = registerPlugin<WidgetUpdaterPlugin>('WidgetUpdater');
@@ -9,3 +134,49 @@ export const WidgetUpdater = registerPlugin<WidgetUpdaterPlugin>('WidgetUpdater'
 export function canUseNative() {
   return (Capacitor.isNativePlatform?.() ?? (Capacitor.getPlatform?.() !== 'web')) as boolean;
 }
+
+// Assina um evento nativo do widget; no web retorna um handle inerte
+export async function onWidgetEvent<K extends keyof WidgetEventMap>(eventName: K, listener: (event: WidgetEventMap[K]) => void): Promise<PluginListenerHandle> {
+  if (!canUseNative()) return { remove: async () => { } };
+  return WidgetUpdater.addListener(eventName, listener);
+}
+
+// Ponte do host offscreen (HeadlessWebViewHost.java); só existe em headless.html dentro do app
+export interface HeadlessHostBridge {
+  complete(token: string, ok: boolean, jsStart: number, jsDone: number, percent: number, hasGoal: boolean): void;
+  applyState(json: string): void;
+  // JSON de WordIndexResult (wordIndexPlugin.ts); target negativo = sem capítulo-alvo
+  wordIndex(bookId: string, contentVersion: string, partIndex: number, chapterIndex: number, targetPartIndex: number, targetChapterIndex: number): string;
+}
+
+export function headlessHost(): HeadlessHostBridge | null {
+  try { return ((window as any).DevotaHeadlessHost as HeadlessHostBridge) ?? null; } catch { return null; }
+}
+
+// Estado do widget numa única ida à ponte; no host offscreen vai direto pela interface JS
+export async function applyWidgetState(batch: WidgetStateBatch) {
+  if (!canUseNative()) {
+    const host = headlessHost();
+    if (host) { try { host.applyState(JSON.stringify(batch)); } catch { } }
+    return;
+  }
+  try {
+    await WidgetUpdater.applyState(batch);
+  } catch (e) {
+    console.log('[widget] applyState failed', e);
+  }
+}
+
+// Stream do leitor (cada virada de página): sem await, o throttle nativo mescla as chamadas
+export function streamReadingProgress(bookId: string, progress: { percent: number; page?: number; words?: number }) {
+  if (!canUseNative()) return;
+  WidgetUpdater.applyState({ progress: { bookId, ...progress }, throttle: true }).catch(() => { });
+}
+
+// Grava percent + hasGoal no store nativo do widget (WidgetStateStore)
+export async function updateDailyProgressWidget(percent: number, hasGoal: boolean) {
+  if (!canUseNative()) return;
+  const p = Math.max(0, Math.min(100, Math.round(percent || 0)));
+  await applyWidgetState({ percent: p, hasGoal: !!hasGoal });
+  console.log('[widget] wrote progress', { percent: p, hasGoal: !!hasGoal });
+}
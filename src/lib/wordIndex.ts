@@ -0,0 +1,87 @@
+import { bookContentVersion, type BookMeta } from '@/lib/books';
+import { migrateCachedBook } from '@/lib/bookContent';
+import {
+  chapterWordCounts,
+  indexTotalWords,
+  indexWordsUpToInclusiveTarget,
+  indexWordsUpToPosition,
+  wordIndexFromCounts,
+  type Part,
+  type PlanTarget,
+  type Position,
+  type WordIndex,
+} from '@/lib/reading';
+import { canUseNative, headlessHost } from '@/lib/widgetUpdater';
+import { NativeWordIndex, type WordIndexResult } from '@/lib/wordIndexPlugin';
+
+// Contagens de um livro estático para o progresso diário
+export interface WordCounts {
+  total: number;
+  upTo: number;   // antes da posição atual (computeWordsUpToPosition)
+  target: number; // até o capítulo-alvo inclusive (computeWordsUpToInclusiveTarget)
+}
+
+// Índices já montados nesta sessão (no web é o único cache)
+const memory = new Map<string, { version: string; index: WordIndex }>();
+
+function lookup(index: WordIndex, pos: Position, target: PlanTarget): WordCounts {
+  return {
+    total: indexTotalWords(index),
+    upTo: indexWordsUpToPosition(index, pos),
+    target: indexWordsUpToInclusiveTarget(index, target),
+  };
+}
+
+// Índice nativo pela ponte do host offscreen: lá não há Capacitor e o livro já saiu do localStorage
+function headlessWordCounts(meta: BookMeta, pos: Position, target: PlanTarget): WordCounts | null {
+  const host = headlessHost();
+  if (!host?.wordIndex) return null;
+  try {
+    const r = JSON.parse(host.wordIndex(meta.id, bookContentVersion(meta), pos.partIndex, pos.chapterIndex,
+      target?.targetPartIndex ?? -1, target?.targetChapterIndex ?? -1)) as WordIndexResult;
+    if (r.ready && r.total != null && r.upTo != null && r.target != null) return { total: r.total, upTo: r.upTo, target: r.target };
+  } catch (e) {
+    console.log('[wordIndex] headless wordIndex failed', e);
+  }
+  return null;
+}
+
+// Consulta O(1) pelo índice; sem índice, o book:${id} do localStorage vai para o contêiner nativo (app)
+// ou é lido numa passada (web, ou se a importação falhar). No host offscreen, o índice vem pela ponte.
+// null se o livro não estiver em cache local.
+export async function getWordCounts(meta: BookMeta, pos: Position, target: PlanTarget): Promise<WordCounts | null> {
+  const version = bookContentVersion(meta);
+  const cached = memory.get(meta.id);
+  if (cached && cached.version === version) return lookup(cached.index, pos, target);
+
+  if (canUseNative()) {
+    try {
+      const r = await NativeWordIndex.getWordIndex({ bookId: meta.id, contentVersion: version, ...pos, ...target });
+      if (r.ready && r.total != null && r.upTo != null && r.target != null) {
+        return { total: r.total, upTo: r.upTo, target: r.target };
+      }
+      // Livro ainda no localStorage: o nativo importa em fluxo (contêiner + índice), sem JSON.parse aqui
+      if (await migrateCachedBook(meta)) {
+        const m = await NativeWordIndex.getWordIndex({ bookId: meta.id, contentVersion: version, ...pos, ...target });
+        if (m.ready && m.total != null && m.upTo != null && m.target != null) return { total: m.total, upTo: m.upTo, target: m.target };
+      }
+    } catch (e) {
+      console.log('[wordIndex] getWordIndex failed', e);
+    }
+  } else {
+    const headless = headlessWordCounts(meta, pos, target);
+    if (headless) return headless;
+  }
+
+  let parts: Part[] | null = null;
+  try { const raw = localStorage.getItem(`book:${meta.id}`); if (raw) parts = JSON.parse(raw); } catch { }
+  if (!parts) return null;
+  const counts = chapterWordCounts(parts);
+  const index = wordIndexFromCounts(counts);
+  memory.set(meta.id, { version, index });
+  if (canUseNative()) {
+    try { await NativeWordIndex.putWordIndex({ bookId: meta.id, contentVersion: version, chapters: counts }); }
+    catch (e) { console.log('[wordIndex] putWordIndex failed', e); }
+  }
+  return lookup(index, pos, target);
+}
@@ -0,0 +1,18 @@
+import { registerPlugin } from '@capacitor/core';
+
+// Palavras de um livro estático pelo índice nativo (WordIndex.java): antes da posição, até o alvo e total
+export interface WordIndexResult {
+  ready: boolean;
+  total?: number;
+  upTo?: number;
+  target?: number;
+}
+
+// Plugin WordIndex (WordIndexPlugin.java); disponibilidade pelo canUseNative do widgetUpdater
+export interface WordIndexPlugin {
+  getWordIndex(opts: { bookId: string; contentVersion: string; partIndex?: number; chapterIndex?: number; targetPartIndex?: number; targetChapterIndex?: number }): Promise<WordIndexResult>;
+  putWordIndex(opts: { bookId: string; contentVersion: string; chapters: number[][] }): Promise<{ saved: boolean; total: number }>;
+}
+
+// NativeWordIndex: WordIndex já é o tipo do índice em reading.ts
+export const NativeWordIndex = registerPlugin<WordIndexPlugin>('WordIndex');
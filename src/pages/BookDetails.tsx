@@ -8,7 +8,7 @@ import { getUserEpubs } from "@/lib/userEpubs";
 import { BOOKS, type BookMeta } from "@/lib/books";
 import { getProgress, setProgress, setLastBookId, getReadingPlanAsync, setReadingPlan, getDailyBaselineAsync, setDailyBaseline, type ReadingPlan } from "@/lib/storage";
 import { calculatePagePercent } from "@/lib/percentageUtils";
-import { getCoverObjectUrl, saveCoverBlob } from "@/lib/coverCache";
+import { COVER_DETAIL_CSS, getCoverObjectUrl, saveCoverBlob } from "@/lib/coverCache";
 import { computeDaysRemaining } from "@/lib/reading";
 import { toast } from "@/hooks/use-toast";
 import { refreshWidget } from "@/lib/widgetService";
@@ -25,6 +25,7 @@ import { Skeleton } from "@/components/ui/skeleton";
 import { Dialog, DialogContent, DialogDescription, DialogFooter, DialogHeader, DialogTitle } from "@/components/ui/dialog";
 import { Input } from "@/components/ui/input";
 import { Label } from "@/components/ui/label";
+import { todayISO as currentDayISO } from "@/lib/dayClock";
 
 type ProgressDataPoint = {
   date: string;
@@ -266,7 +267,7 @@ export default function BookDetails() {
         }
 
         // Load cover from cache if available
-        const cachedCover = await getCoverObjectUrl(bookId);
+        const cachedCover = await getCoverObjectUrl(bookId, COVER_DETAIL_CSS);
         if (cachedCover) {
           setCoverUrl(cachedCover);
         } else if (foundBook.coverImage) {
@@ -278,7 +279,7 @@ export default function BookDetails() {
         const baselines = await dataLayer.getBaselinesForBook(bookId, limit);
 
         // Find today's baseline for daily progress calculation
-        const todayISO = format(new Date(), "yyyy-MM-dd");
+        const todayISO = currentDayISO();
         const todayBaseline = baselines.find(b => b.date_iso === todayISO);
         if (todayBaseline) {
           setBaselineForToday({ percent: todayBaseline.percent, page: todayBaseline.page });
@@ -501,7 +502,8 @@ export default function BookDetails() {
     try {
       // 1. Save cover if changed
       if (editCoverFile) {
-        await saveCoverBlob(bookId, editCoverFile);
+        const savedCover = await saveCoverBlob(bookId, editCoverFile, COVER_DETAIL_CSS);
+        if (savedCover) setCoverUrl(savedCover);
         setCoverVersion(v => v + 1);
       }
 
@@ -589,7 +591,7 @@ export default function BookDetails() {
     setGoalDialogOpen(true);
   }, [readingPlan]);
 
-  const today = new Date().toISOString().slice(0, 10);
+  const today = currentDayISO();
 
   if (loading) {
     return (
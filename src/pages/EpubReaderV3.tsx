@@ -7,14 +7,15 @@ import { resolveEpubSource } from "@/lib/utils";
 import { getUserEpubBlob } from "@/lib/userEpubs";
 import { SEO } from "@/components/app/SEO";
 import { getDailyBaselineAsync, setDailyBaseline, setProgress, getReadingPlanAsync, getProgress } from "@/lib/storage";
-import { canUseNative } from "@/lib/widgetUpdater";
-import { format } from "date-fns";
+import { canUseNative, streamReadingProgress } from "@/lib/widgetUpdater";
+import { todayISO as currentDayISO } from "@/lib/dayClock";
 import { dataLayer } from "@/services/data/RxDBDataLayer";
 import { calculatePercent } from "@/lib/percentageUtils";
 import { refreshWidget } from "@/lib/widgetService"; // Use centralized widget service
 import { ChevronLeft } from "lucide-react";
 import { useIsMobile } from "@/hooks/use-mobile";
 import { logger } from "@/lib/logger";
+import { getNativeEpubIndex, indexEpubNatively, type EpubIndexSource } from "@/lib/epubIndex";
 
 /**
  * EpubReaderV3 - Versão minimalista baseada na documentação oficial do react-reader
@@ -66,6 +67,9 @@ const EpubReaderV3 = () => {
   const timeoutRef = useRef<NodeJS.Timeout | null>(null);
   const locationsReadyRef = useRef<boolean>(false);
   const initialPercentRef = useRef<number>(0); // Store initial percent from DB to avoid overwriting with 0
+  // Origem do índice nativo de locations (EpubIndexWorker) e bytes do upload para entregar ao indexador
+  const indexSourceRef = useRef<EpubIndexSource>({});
+  const uploadBufferRef = useRef<ArrayBuffer | null>(null);
 
   // Função core de salvamento (estável, não recriada)
   const saveToRxDB = useCallback(async (cfi: string, percent: number) => {
@@ -81,7 +85,7 @@ const EpubReaderV3 = () => {
     lastSavedCfiRef.current = cfi;
 
     console.log("[EpubReaderV3] Persisting to DB:", { cfi, percent });
-    const todayISO = format(new Date(), 'yyyy-MM-dd');
+    const todayISO = currentDayISO();
 
     // Get OLD percentage BEFORE updating (needed for baseline creation)
     let oldPercentage = 0;
@@ -162,6 +166,8 @@ const EpubReaderV3 = () => {
   const scheduleSave = useCallback((cfi: string, percent: number) => {
     latestCfiRef.current = cfi;
     latestPercentRef.current = percent;
+    // Widget acompanha cada virada de página; o throttle nativo (1s) mescla as chamadas
+    streamReadingProgress(epubId, { percent });
 
     if (timeoutRef.current) {
       clearTimeout(timeoutRef.current);
@@ -171,7 +177,7 @@ const EpubReaderV3 = () => {
     timeoutRef.current = setTimeout(() => {
       saveToRxDB(cfi, percent);
     }, 1000);
-  }, [saveToRxDB]);
+  }, [epubId, saveToRxDB]);
 
   // Cleanup effect: Salva imediatamente se houver pendências ao desmontar
   useEffect(() => {
@@ -263,50 +269,68 @@ const EpubReaderV3 = () => {
     renditionRef.current = rendition;
     console.log("[EpubReaderV3] Got rendition");
 
-    // Gerar locations para cálculo de porcentagem preciso
+    // Locations para cálculo de porcentagem preciso: índice nativo pronto ou geração no WebView
     const book = (rendition as any).book;
     if (book) {
-      book.ready.then(() => {
+      const onLocationsReady = () => {
+        locationsReadyRef.current = true;
+
+        // Now that locations are ready, recalculate and save the correct percentage
+        const rendition = renditionRef.current;
+        if (rendition && latestCfiRef.current) {
+          try {
+            const p = book.locations.percentageFromCfi(latestCfiRef.current);
+            if (typeof p === "number" && !isNaN(p)) {
+              const percent = calculatePercent(p, 1, { round: false });
+              console.log("[EpubReaderV3] Recalculated percent after locations ready:", percent);
+
+              // FIX: Update local progress storage with accurate percent
+              try {
+                const currentProgress = getProgress(epubId);
+                setProgress(epubId, {
+                  ...currentProgress,
+                  percent: percent
+                });
+              } catch (e) {
+                console.warn("[EpubReaderV3] Failed to update local progress after recalc:", e);
+              }
+
+              // Only save if we have a meaningful percent or user has navigated
+              if (percent > 0 || latestCfiRef.current !== lastSavedCfiRef.current) {
+                saveToRxDB(latestCfiRef.current, percent);
+              }
+            }
+          } catch { }
+        }
+      };
+
+      Promise.all([book.ready, getNativeEpubIndex(epubId, indexSourceRef.current)]).then(([, nativeIndex]) => {
+        if (nativeIndex?.locations) {
+          try {
+            book.locations.load(nativeIndex.locations);
+            console.log("[EpubReaderV3] Locations loaded from native index:", book.locations.length());
+            onLocationsReady();
+            return;
+          } catch (e) {
+            console.warn("[EpubReaderV3] Native locations rejected, generating:", e);
+          }
+        }
         setTimeout(() => {
           try {
             console.log("[EpubReaderV3] Generating locations...");
             book.locations.generate(500).then(() => {
               console.log("[EpubReaderV3] Locations generated");
-              locationsReadyRef.current = true;
-
-              // Now that locations are ready, recalculate and save the correct percentage
-              const rendition = renditionRef.current;
-              if (rendition && latestCfiRef.current) {
-                try {
-                  const p = book.locations.percentageFromCfi(latestCfiRef.current);
-                  if (typeof p === "number" && !isNaN(p)) {
-                    const percent = calculatePercent(p, 1, { round: false });
-                    console.log("[EpubReaderV3] Recalculated percent after locations ready:", percent);
-
-                    // FIX: Update local progress storage with accurate percent
-                    try {
-                      const currentProgress = getProgress(epubId);
-                      setProgress(epubId, {
-                        ...currentProgress,
-                        percent: percent
-                      });
-                    } catch (e) {
-                      console.warn("[EpubReaderV3] Failed to update local progress after recalc:", e);
-                    }
-
-                    // Only save if we have a meaningful percent or user has navigated
-                    if (percent > 0 || latestCfiRef.current !== lastSavedCfiRef.current) {
-                      saveToRxDB(latestCfiRef.current, percent);
-                    }
-                  }
-                } catch { }
-              }
+              onLocationsReady();
+              // Próxima abertura sai do índice nativo (livros embutidos já foram agendados pelo getEpubIndex)
+              const buffer = uploadBufferRef.current;
+              const sourceKey = indexSourceRef.current.sourceKey;
+              if (buffer && sourceKey) indexEpubNatively(epubId, buffer, sourceKey);
             });
           } catch { }
         }, 1000);
       });
     }
-  }, [saveToRxDB]);
+  }, [epubId, saveToRxDB]);
 
   // Carregar EPUB e Progresso em Paralelo (HYBRID STRATEGY)
   useEffect(() => {
@@ -326,10 +350,17 @@ const EpubReaderV3 = () => {
           if (isUserUpload) {
             const blob = await getUserEpubBlob(epubId);
             if (!blob) throw new Error("EPUB não encontrado");
-            return await blob.arrayBuffer();
+            const buffer = await blob.arrayBuffer();
+            const meta = await dataLayer.getUserEpub(epubId).catch(() => null);
+            uploadBufferRef.current = buffer;
+            indexSourceRef.current = { sourceKey: meta?.file_hash || `size-${buffer.byteLength}` };
+            return buffer;
           } else {
             const meta = BOOKS.find(b => b.id === epubId);
             const src = meta?.sourceUrl || `/epubs/${epubId}.epub`;
+            // Só EPUBs servidos do próprio app estão nos assets do APK
+            indexSourceRef.current = src.startsWith("/") ? { webPath: src } : {};
+            uploadBufferRef.current = null;
             return resolveEpubSource(src);
           }
         })();
@@ -2,9 +2,9 @@ import Hero from "@/components/app/Hero";
 import { Onboarding } from "@/components/app/Onboarding";
 import { BookCover } from "@/components/book/BookCover";
 
-import { updateDailyProgressWidget } from "@/main";
 import { Capacitor } from "@capacitor/core";
-import { WidgetUpdater, canUseNative } from "@/lib/widgetUpdater";
+import { canUseNative, updateDailyProgressWidget } from "@/lib/widgetUpdater";
+import { refreshBooksWidget } from "@/lib/widgetService";
 import { SEO } from "@/components/app/SEO";
 import { Link } from "react-router-dom";
 import { Button } from "@/components/ui/button";
@@ -19,9 +19,10 @@ import { useTodayISO } from "@/hooks/use-today";
 import { getStreak, getProgress, getDailyBaseline, getDailyBaselineAsync, setDailyBaseline, getStats, getLastBookIdAsync, setLastBookId, type Streak, type ReadingPlan, type BaselineEntry } from "@/lib/storage";
 import {
   type Part,
-  computeTotalWords,
-  computeWordsUpToPosition,
-  computeWordsUpToInclusiveTarget,
+  buildWordIndex,
+  indexTotalWords,
+  indexWordsUpToPosition,
+  indexWordsUpToInclusiveTarget,
   computePlanProgressPercent,
   computeDaysRemaining,
   computeDailyTargetWords,
@@ -910,17 +911,19 @@ const Index = () => {
   const plan = activePlan;
   // Use reactive progress from RxDB subscription
   const p = activeBookProgress;
-  const totalWords = useMemo(() => computeTotalWords(parts), [parts]);
+  // One pass over the structure; totals and positions below are prefix-sum lookups
+  const wordIndex = useMemo(() => buildWordIndex(parts), [parts]);
+  const totalWords = useMemo(() => indexTotalWords(wordIndex), [wordIndex]);
 
   const isPercentBased = (activeBookId?.startsWith('user-') || activeIsEpub || activeIsPhysical);
 
   const wordsUpToCurrent = useMemo(
-    () => isPercentBased ? 0 : computeWordsUpToPosition(parts, { partIndex: p.partIndex, chapterIndex: p.chapterIndex }),
-    [isPercentBased, parts, p]
+    () => isPercentBased ? 0 : indexWordsUpToPosition(wordIndex, { partIndex: p.partIndex, chapterIndex: p.chapterIndex }),
+    [isPercentBased, wordIndex, p]
   );
   const targetWords = useMemo(
-    () => isPercentBased ? 0 : computeWordsUpToInclusiveTarget(parts, { targetPartIndex: plan.targetPartIndex, targetChapterIndex: plan.targetChapterIndex }, totalWords),
-    [isPercentBased, parts, plan, totalWords]
+    () => isPercentBased ? 0 : indexWordsUpToInclusiveTarget(wordIndex, { targetPartIndex: plan.targetPartIndex, targetChapterIndex: plan.targetChapterIndex }),
+    [isPercentBased, wordIndex, plan]
   );
 
   // Load plan start to compute progress from start to target
@@ -1166,11 +1169,15 @@ const Index = () => {
     (async () => {
       try {
         await updateDailyProgressWidget(percent, hasGoal);
-        await WidgetUpdater.update?.();
       } catch { }
     })();
   }, [dailyProgressPercent, dailyTargetWords]);
 
+  // Widget de coleção: lista completa de livros com plano ao abrir e na virada do dia
+  useEffect(() => {
+    refreshBooksWidget();
+  }, [todayISO]);
+
   return (
     <main className="min-h-screen pb-20">
       <Onboarding />
@@ -13,7 +13,7 @@ import { getProgress, getReadingPlan, getDailyBaseline, setLastBookId, getLastBo
 import { toast } from "@/hooks/use-toast";
 import { resolveEpubSource } from "@/lib/utils";
 import ePub from "epubjs";
-import { getCoverObjectUrl, saveCoverBlob } from "@/lib/coverCache";
+import { cacheRemoteCover, getCoverObjectUrl, saveCoverBlob } from "@/lib/coverCache";
 import { saveUserEpub, getUserEpubs, deleteUserEpub, reUploadEpub } from "@/lib/userEpubs";
 import { getDatabase } from "@/lib/database/db";
 import { BookSearchDialog } from "@/components/app/BookSearchDialog";
@@ -21,6 +21,7 @@ import { Upload, Trash2, BookPlus, AlertCircle, Bookmark } from "lucide-react";
 import { BookCover } from "@/components/book/BookCover";
 import { calculatePagePercent } from "@/lib/percentageUtils";
 import { logger } from "@/lib/logger";
+import { todayISO as currentDayISO } from "@/lib/dayClock";
 
 const Library = () => {
   const Cover = ({ src, alt }: { src: string; alt: string }) => (
@@ -35,11 +36,11 @@ const Library = () => {
   const [dismissedOverlays, setDismissedOverlays] = useState<Set<string>>(new Set());
   const fileInputRef = useRef<HTMLInputElement>(null);
   const navigate = useNavigate();
-  const today = new Date().toISOString().slice(0, 10);
+  const today = currentDayISO();
 
   const [sortBy, setSortBy] = useState<'date' | 'title'>('date');
 
-  // Lazy EPUB cover loader: extracts the cover image from the EPUB and caches as Blob in Cache Storage
+  // Lazy EPUB cover loader: extracts the cover image from the EPUB and caches it (native thumbnail in the app, Blob in Cache Storage on web)
   const EpubCoverLoader = ({ id, title, sourceUrl }: { id: string; title: string; sourceUrl: string }) => {
     const [src, setSrc] = useState<string | null>(null);
 
@@ -108,11 +109,8 @@ const Library = () => {
           if (coverUrl) {
             try {
               const blob = await (await fetch(coverUrl)).blob();
-              await saveCoverBlob(id, blob);
-              if (!cancelled) {
-                const objUrl = URL.createObjectURL(blob);
-                setSrc(objUrl);
-              }
+              const savedUrl = await saveCoverBlob(id, blob);
+              if (!cancelled) setSrc(savedUrl ?? URL.createObjectURL(blob));
               try { URL.revokeObjectURL(coverUrl!); } catch { }
             } catch {
               if (!cancelled) setSrc(null);
@@ -159,14 +157,20 @@ const Library = () => {
             }
 
             if (coverUrl.startsWith('http')) {
+              // In the app, downloaded and downsized natively
+              const nativeUrl = await cacheRemoteCover(id, coverUrl.replace(/^http:/, 'https:'));
+              if (nativeUrl) {
+                if (!cancelled) setSrc(nativeUrl);
+                return;
+              }
               // Use weserv.nl proxy to bypass CORS
               const proxyUrl = `https://images.weserv.nl/?url=${encodeURIComponent(coverUrl)}&w=300&q=80`;
               try {
                 const resp = await fetch(proxyUrl);
                 if (resp.ok) {
                   const blob = await resp.blob();
-                  await saveCoverBlob(id, blob);
-                  if (!cancelled) setSrc(URL.createObjectURL(blob));
+                  const savedUrl = await saveCoverBlob(id, blob);
+                  if (!cancelled) setSrc(savedUrl ?? URL.createObjectURL(blob));
                   return;
                 }
               } catch { /* ignore proxy errors */ }
@@ -1,5 +1,4 @@
 import { DataLayer } from './DataLayer';
-import { formatISO, format } from 'date-fns';
 import { getDatabase } from '@/lib/database/db';
 import { RxBookDocumentType, RxSettingsDocumentType, RxReadingPlanDocumentType, RxDailyBaselineDocumentType, RxUserStatsDocumentType } from '@/lib/database/schema';
 import { authService } from '@/services/auth/SupabaseAuthService';
@@ -8,6 +7,7 @@ import { logger } from '@/lib/logger';
 import { replicationManager } from '@/lib/database/replication';
 import { ensureStaticBooks } from '@/lib/database/staticBooksInit';
 import { calculatePagePercent } from '@/lib/percentageUtils';
+import { todayISO as currentDayISO } from '@/lib/dayClock';
 
 class RxDBDataLayerImpl implements DataLayer {
     private static instance: RxDBDataLayerImpl;
@@ -453,7 +453,7 @@ class RxDBDataLayerImpl implements DataLayer {
 
         // Ensure baseline exists for today BEFORE updating progress
         // (only create if missing, don't update existing)
-        const todayISO = format(new Date(), 'yyyy-MM-dd');
+        const todayISO = currentDayISO();
         const userId = await this.getUserId();
         const baselineId = `${userId}:${bookId}:${todayISO}`;
         const existingBaseline = await db.daily_baselines.findOne(baselineId).exec();
@@ -558,7 +558,7 @@ class RxDBDataLayerImpl implements DataLayer {
 
             // PROACTIVE BASELINE: Initialize baseline for today to anchor "Read Today" at 0
             try {
-                const todayISO = format(new Date(), 'yyyy-MM-dd');
+                const todayISO = currentDayISO();
                 await this.saveDailyBaseline({
                     book_id: newBook.id,
                     date_iso: todayISO,
@@ -713,7 +713,7 @@ class RxDBDataLayerImpl implements DataLayer {
 
             // PROACTIVE BASELINE: Initialize baseline for today to anchor "Read Today" at 0
             try {
-                const todayISO = format(new Date(), 'yyyy-MM-dd');
+                const todayISO = currentDayISO();
                 await this.saveDailyBaseline({
                     book_id: newEpub.id,
                     date_iso: todayISO,
@@ -57,6 +57,15 @@ export default defineConfig(({ mode }) => ({
       }
     } as Plugin,
   ].filter(Boolean),
+  build: {
+    rollupOptions: {
+      // headless.html: entrada enxuta usada pelo refresh offscreen do widget (HeadlessWebViewHost)
+      input: {
+        main: path.resolve(__dirname, "index.html"),
+        headless: path.resolve(__dirname, "headless.html"),
+      },
+    },
+  },
   resolve: {
     alias: {
       "@": path.resolve(__dirname, "./src"),